@@ -18,6 +18,7 @@ import javafx.stage.Stage;
 import nl.tudelft.contextproject.databaseConnection.DatabaseConnection;
 import nl.tudelft.contextproject.gui.AlertDialog;
 import nl.tudelft.contextproject.gui.MenuController;
+import nl.tudelft.contextproject.gui.StreamRegistry;
 import nl.tudelft.contextproject.saveLoad.ApplicationSettings;
 import nl.tudelft.contextproject.script.Script;
 import nl.tudelft.contextproject.script.Shot;
@@ -95,6 +96,7 @@ public class ContextTFP extends Application {
                 } catch (Exception e1) {
                     //If we can't reset the counter, just ignore it.
                 }
+                StreamRegistry.getInstance().closeAll();
                 Platform.exit(); 
                 System.exit(0);
             });
@@ -0,0 +1,317 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class to encode commands for and decode replies from the Panasonic AW
+ * series of cameras. Commands are encoded into a buffer that is reused for
+ * every command, without the intermediate strings of hex formatting, and
+ * replies are decoded in place. A command that is sent as part of a request
+ * URL is still copied into a string and a URL, see
+ * {@link LiveCameraConnection#buildPanTiltHeadControlURL(String)}.
+ *
+ * <p>An instance is not thread safe, every thread should use its own.
+ * The decode methods are static and can be used from any thread.
+ *
+ * @since 1.1
+ */
+public final class AwProtocolCodec {
+
+    /**
+     * The maximum length of an encoded command.
+     */
+    public static final int MAX_COMMAND_LENGTH = 32;
+
+    /**
+     * The offset that relative pan and tilt commands are encoded around.
+     */
+    public static final int RELATIVE_CENTER = 32768;
+
+    /**
+     * The slowest speed setting of an absolute pan and tilt command.
+     */
+    public static final int MIN_PAN_TILT_SPEED = 0x01;
+
+    /**
+     * The fastest speed setting of an absolute pan and tilt command.
+     */
+    public static final int MAX_PAN_TILT_SPEED = 0x1D;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ABS_PAN_TILT = ascii("%23APS");
+    private static final byte ABS_PAN_TILT_TABLE = '2';
+    private static final byte[] ABS_ZOOM = ascii("%23AXZ");
+    private static final byte[] ABS_FOCUS = ascii("%23AXF");
+    private static final byte[] REL_PAN_TILT = ascii("%23RPC");
+    private static final byte[] PAN_TILT_SPEED = ascii("%23PTS");
+    private static final byte[] SAVE_PRESET = ascii("%23M");
+    private static final byte[] RECALL_PRESET = ascii("%23R");
+
+    private final byte[] buffer = new byte[MAX_COMMAND_LENGTH];
+    private int length;
+
+    /**
+     * Encodes an absolute pan and tilt command, <code>%23APS</code>,
+     * at the fastest speed.
+     *
+     * @param pan The pan value, between 0 and 0xFFFF.
+     * @param tilt The tilt value, between 0 and 0xFFFF.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec absPanTilt(int pan, int tilt) {
+        return absPanTilt(pan, tilt, MAX_PAN_TILT_SPEED);
+    }
+
+    /**
+     * Encodes an absolute pan and tilt command, <code>%23APS</code>.
+     *
+     * @param pan The pan value, between 0 and 0xFFFF.
+     * @param tilt The tilt value, between 0 and 0xFFFF.
+     * @param speed The speed setting, between {@link #MIN_PAN_TILT_SPEED}
+     *      and {@link #MAX_PAN_TILT_SPEED}.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec absPanTilt(int pan, int tilt, int speed) {
+        length = 0;
+        put(ABS_PAN_TILT);
+        putHex(pan, 4);
+        putHex(tilt, 4);
+        putHex(speed, 2);
+        buffer[length++] = ABS_PAN_TILT_TABLE;
+        return this;
+    }
+
+    /**
+     * Encodes an absolute zoom command, <code>%23AXZ</code>.
+     *
+     * @param zoom The zoom value, between 0 and 0xFFF.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec absZoom(int zoom) {
+        length = 0;
+        put(ABS_ZOOM);
+        putHex(zoom, 3);
+        return this;
+    }
+
+    /**
+     * Encodes an absolute focus command, <code>%23AXF</code>.
+     *
+     * @param focus The focus value, between 0 and 0xFFF.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec absFocus(int focus) {
+        length = 0;
+        put(ABS_FOCUS);
+        putHex(focus, 3);
+        return this;
+    }
+
+    /**
+     * Encodes a relative pan and tilt command, <code>%23RPC</code>.
+     *
+     * @param panOffset The offset to pan.
+     * @param tiltOffset The offset to tilt.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec relPanTilt(int panOffset, int tiltOffset) {
+        length = 0;
+        put(REL_PAN_TILT);
+        putHex(RELATIVE_CENTER + panOffset, 4);
+        putHex(RELATIVE_CENTER + tiltOffset, 4);
+        return this;
+    }
+
+    /**
+     * Encodes a pan and tilt speed command, <code>%23PTS</code>.
+     *
+     * @param panSpeed The pan speed, between 1 and 99, where 50 is stop.
+     * @param tiltSpeed The tilt speed, between 1 and 99, where 50 is stop.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec panTiltSpeed(int panSpeed, int tiltSpeed) {
+        length = 0;
+        put(PAN_TILT_SPEED);
+        putDecimal(panSpeed);
+        putDecimal(tiltSpeed);
+        return this;
+    }
+
+    /**
+     * Encodes a command to store the current position in a preset
+     * memory of the camera, <code>%23M</code>.
+     *
+     * @param slot The number of the preset memory, between 0 and 99.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec savePreset(int slot) {
+        length = 0;
+        put(SAVE_PRESET);
+        putDecimal(slot);
+        return this;
+    }
+
+    /**
+     * Encodes a command to move to the position stored in a preset
+     * memory of the camera, <code>%23R</code>.
+     *
+     * @param slot The number of the preset memory, between 0 and 99.
+     * @return This codec, holding the encoded command.
+     */
+    public AwProtocolCodec recallPreset(int slot) {
+        length = 0;
+        put(RECALL_PRESET);
+        putDecimal(slot);
+        return this;
+    }
+
+    /**
+     * Returns the buffer holding the encoded command. Only the first
+     * {@link #length()} bytes are part of the command.
+     *
+     * @return The buffer of this codec.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the length of the encoded command.
+     * @return The length of the encoded command.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Writes the encoded command to a stream.
+     *
+     * @param out The stream to write to.
+     * @throws IOException when writing fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Returns the encoded command as a string.
+     * @return The encoded command.
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns true iff the reply starts with the specified prefix.
+     *
+     * @param reply The reply of the camera.
+     * @param prefix The prefix to check for.
+     * @return True iff the reply starts with the prefix.
+     */
+    public static boolean startsWith(CharSequence reply, String prefix) {
+        if (reply.length() < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (reply.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a hexadecimal number from part of a reply.
+     *
+     * @param reply The reply of the camera.
+     * @param start The index of the first digit.
+     * @param end The index after the last digit.
+     * @return The parsed number, or -1 if the part is not a valid number.
+     */
+    public static int parseHex(CharSequence reply, int start, int end) {
+        if (start >= end || end > reply.length()) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(reply.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a hexadecimal number from part of a reply.
+     *
+     * @param reply The bytes of the reply of the camera.
+     * @param start The index of the first digit.
+     * @param end The index after the last digit.
+     * @return The parsed number, or -1 if the part is not a valid number.
+     */
+    public static int parseHex(byte[] reply, int start, int end) {
+        if (start >= end || end > reply.length) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(reply[i], 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Appends bytes to the buffer.
+     * @param bytes The bytes to append.
+     */
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Appends a number as upper case hexadecimal digits, padded with zeros.
+     *
+     * @param value The number to append.
+     * @param digits The amount of digits to append.
+     */
+    private void putHex(int value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = HEX[value & 0xF];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    /**
+     * Appends a number between 0 and 99 as two decimal digits.
+     * @param value The number to append.
+     */
+    private void putDecimal(int value) {
+        buffer[length++] = HEX[value / 10 % 10];
+        buffer[length++] = HEX[value % 10];
+    }
+
+    /**
+     * Returns the ASCII bytes of a string.
+     *
+     * @param string The string to convert.
+     * @return The ASCII bytes of the string.
+     */
+    private static byte[] ascii(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+}
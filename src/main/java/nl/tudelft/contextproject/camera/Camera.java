@@ -2,10 +2,14 @@ package nl.tudelft.contextproject.camera;
 
 import nl.tudelft.contextproject.presets.Preset;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -13,6 +17,13 @@ import java.util.concurrent.ConcurrentHashMap;
  * own {@link CameraSettings}. This class extends {@link Observable} 
  * so its settings can be observed.
  * 
+ * <p>Moves are queued on the {@link CameraCommandQueue} of the connection
+ * of the camera, so moving a camera does not wait for the camera to respond.
+ * 
+ * <p>Every move returns or keeps track of a future that completes once the
+ * camera has physically arrived at its target, see {@link #isInPosition()}.
+ * Observers are notified when the camera arrives.
+ * 
  * @since 0.2
  */
 public class Camera extends Observable {
@@ -28,6 +39,7 @@ public class Camera extends Observable {
     private CameraConnection connection;
     private CameraSettings camSet;
     private HashMap<Integer, Preset> presets;
+    private volatile CompletableFuture<Boolean> arrival = CompletableFuture.completedFuture(true);
 
     private int camId;
 
@@ -98,10 +110,26 @@ public class Camera extends Observable {
     }
 
     /**
-     * Returns the camera settings attached to the camera.
+     * Returns the camera settings attached to the camera. When the camera
+     * has a connection, these are the last known settings of the connection,
+     * so this method never waits for the camera.
+     * 
      * @return Camera settings.
      */
     public CameraSettings getSettings() {
+        if (hasConnection()) {
+            camSet = connection.getCachedCameraSettings();
+        }
+        return camSet;
+    }
+
+    /**
+     * Returns the camera settings as they are read from the camera right
+     * now. Unlike {@link #getSettings()}, this waits for the camera.
+     * 
+     * @return The current camera settings.
+     */
+    public CameraSettings getFreshSettings() {
         if (hasConnection()) {
             camSet = connection.getCurrentCameraSettings();
         }
@@ -109,19 +137,181 @@ public class Camera extends Observable {
     }
 
     /**
-     * Sets the settings for this camera and updates the observers.
+     * Asynchronous variant of {@link #getFreshSettings()}. Queries the camera
+     * on the executor of its connection, so the calling thread is never
+     * blocked by the camera.
+     * 
+     * @return A future that completes with the camera settings.
+     */
+    public CompletableFuture<CameraSettings> getSettingsAsync() {
+        if (!hasConnection()) {
+            return CompletableFuture.completedFuture(camSet);
+        }
+
+        return connection.getCurrentCameraSettingsAsync().thenApply(settings -> {
+            camSet = settings;
+            return settings;
+        });
+    }
+
+    /**
+     * Sets the settings for this camera and updates the observers. The
+     * settings are sent like {@link #setSettingsAsync(CameraSettings)}, on
+     * the executor of the connection, so this never waits for the camera.
      * @param settings Camera settings to set.
      */
     public void setSettings(CameraSettings settings) {
-        if (hasConnection() && connection.isConnected()) {
-            camSet.setPan(settings.getPan());
-            camSet.setTilt(settings.getTilt());
-            camSet.setZoom(settings.getZoom());
-            camSet.setFocus(settings.getFocus());
-            
-            setChanged();
-            notifyObservers(camSet);
+        setSettingsAsync(settings);
+    }
+
+    /**
+     * Asynchronous variant of {@link #setSettings(CameraSettings)}. The camera
+     * settings are updated immediately, the connection applies them on its
+     * own executor, so several cameras can be moved at the same time.
+     * The settings are queued in the background lane of the
+     * {@link CameraCommandQueue}, so moves made by the operator go first.
+     * 
+     * @param settings Camera settings to set.
+     * @return A future that completes with true once the camera has arrived
+     *      at the settings, or false if the camera is not connected.
+     */
+    public CompletableFuture<Boolean> setSettingsAsync(CameraSettings settings) {
+        return setSettingsAsync(settings, MovePlanner.URGENT);
+    }
+
+    /**
+     * Variant of {@link #setSettingsAsync(CameraSettings)} that lets the
+     * camera take the specified time to get there, so it can move slower
+     * and arrive just in time.
+     * 
+     * @param settings Camera settings to set.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true once the camera has arrived
+     *      at the settings, or false if the camera is not connected.
+     */
+    public CompletableFuture<Boolean> setSettingsAsync(CameraSettings settings, long duration) {
+        if (!hasConnection() || !connection.isConnected()) {
+            return CompletableFuture.completedFuture(false);
         }
+
+        CameraSettings from = getPosition();
+        camSet.setPan(settings.getPan());
+        camSet.setTilt(settings.getTilt());
+        camSet.setZoom(settings.getZoom());
+        camSet.setFocus(settings.getFocus());
+
+        CameraSettings copy = new CameraSettings(settings.getPan(), settings.getTilt(), 
+                settings.getZoom(), settings.getFocus());
+        CompletableFuture<Boolean> arrived = track(from, duration <= MovePlanner.URGENT 
+                ? connection.applySettingsAsync(copy) 
+                : connection.applySettingsAsync(copy, duration), duration);
+
+        setChanged();
+        notifyObservers();
+
+        return arrived;
+    }
+
+    /**
+     * Stores the presets of this camera in the preset memories of the camera,
+     * using the id of a preset as the number of its slot. Afterwards, applying
+     * a stored preset takes a single command. Presets with an id outside the
+     * slots of the camera are applied with separate moves, as before.
+     * Slots that already hold the settings of their preset are not written.
+     * 
+     * <p>Storing a preset moves the camera there, so this should not be done
+     * while the camera is on air. The camera is moved back afterwards, if any
+     * preset had to be stored.
+     * 
+     * @return A future that completes with true iff all presets that fit in
+     *      the slots of the camera were stored.
+     */
+    public CompletableFuture<Boolean> syncPresets() {
+        if (!hasConnection() || !connection.isConnected()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CameraConnection connect = connection;
+        List<Preset> toStore = new ArrayList<Preset>(presets.values());
+        CameraSettings restore = new CameraSettings(camSet.getPan(), camSet.getTilt(), 
+                camSet.getZoom(), camSet.getFocus());
+
+        CompletableFuture<Boolean> stored = CompletableFuture.completedFuture(true);
+        boolean changed = false;
+        for (Preset preset : toStore) {
+            if (preset.getId() >= 0 && preset.getId() < connect.getPresetSlotCount()
+                    && !connect.isPresetStored(preset.getId(), preset.getToSet())) {
+                stored = stored.thenCompose(ok -> connect.storePreset(preset.getId(), preset.getToSet())
+                        .thenApply(done -> ok && done));
+                changed = true;
+            }
+        }
+
+        if (!changed) {
+            return stored;
+        }
+
+        return stored.thenCompose(ok -> connect.submit(() -> connect.applySettings(restore))
+                .thenApply(restored -> ok));
+    }
+
+    /**
+     * Stores the presets of all cameras in their preset memories, see
+     * {@link #syncPresets()}. This moves the cameras, so it should only be
+     * done when the operator asks for it, before the cameras are on air.
+     * 
+     * @return A future that completes with true iff the presets of all cameras were stored.
+     */
+    public static CompletableFuture<Boolean> syncAllPresets() {
+        List<CompletableFuture<Boolean>> synced = new ArrayList<CompletableFuture<Boolean>>();
+        for (Camera camera : getAllCameras()) {
+            if (camera.hasConnection() && camera.getConnection().getPresetSlotCount() > 0) {
+                synced.add(camera.syncPresets());
+            }
+        }
+
+        return CompletableFuture.allOf(synced.toArray(new CompletableFuture<?>[synced.size()]))
+                .thenApply(done -> synced.stream().allMatch(CompletableFuture::join));
+    }
+
+    /**
+     * Moves several cameras so that they arrive at the same time. Every
+     * camera gets as much time as the slowest camera needs at full speed.
+     * 
+     * @param moves The settings to move each camera to.
+     * @return A future that completes with true iff all cameras arrived.
+     */
+    public static CompletableFuture<Boolean> moveTogether(Map<Camera, CameraSettings> moves) {
+        long duration = planDuration(moves);
+
+        List<CompletableFuture<Boolean>> arrivals = new ArrayList<CompletableFuture<Boolean>>();
+        for (Map.Entry<Camera, CameraSettings> move : moves.entrySet()) {
+            arrivals.add(move.getKey().setSettingsAsync(move.getValue(), duration));
+        }
+
+        return CompletableFuture.allOf(arrivals.toArray(new CompletableFuture<?>[arrivals.size()]))
+                .thenApply(done -> arrivals.stream().allMatch(CompletableFuture::join));
+    }
+
+    /**
+     * Returns the time in milliseconds several cameras need to arrive at
+     * the same time, which is the time the slowest camera needs at full speed.
+     * 
+     * @param moves The settings to move each camera to.
+     * @return The planned duration of the moves, or {@link MovePlanner#URGENT}
+     *      if none of the cameras has a connection.
+     */
+    public static long planDuration(Map<Camera, CameraSettings> moves) {
+        long duration = MovePlanner.URGENT;
+
+        for (Map.Entry<Camera, CameraSettings> move : moves.entrySet()) {
+            if (move.getKey().hasConnection()) {
+                duration = Math.max(duration, move.getKey().getConnection().estimateTravelTime(move.getValue()));
+            }
+        }
+
+        return duration;
     }
 
     /**
@@ -134,6 +324,97 @@ public class Camera extends Observable {
         return connection != null;
     }
 
+    /**
+     * Returns the health state of the connection of this camera. A camera
+     * without a connection can never be reached, so its circuit is open.
+     * 
+     * @return The health state of the connection.
+     */
+    public CameraHealth.State getHealth() {
+        if (hasConnection()) {
+            return connection.getHealth().getState();
+        }
+
+        return CameraHealth.State.OPEN;
+    }
+
+    /**
+     * Returns true iff the camera has arrived at the target of its last move.
+     * A camera that is panning and tilting is not in position until it is stopped.
+     * 
+     * @return True iff the camera is in position.
+     */
+    public boolean isInPosition() {
+        return arrival.isDone();
+    }
+
+    /**
+     * Returns a future that completes once the camera has arrived at the
+     * target of its last move.
+     * 
+     * @return A future that completes with true once the camera is in
+     *      position, or with false if it did not get there.
+     */
+    public CompletableFuture<Boolean> whenInPosition() {
+        return arrival;
+    }
+
+    /**
+     * Returns the last known position of the camera, before a move is made.
+     * @return The last known position, or null if it is not known.
+     */
+    private CameraSettings getPosition() {
+        if (hasConnection() && connection.getStateCache().isPopulated()) {
+            return connection.getStateCache().get();
+        }
+
+        return null;
+    }
+
+    /**
+     * Keeps track of a move that is sent to the camera at full speed, see
+     * {@link #track(CameraSettings, CompletableFuture, long)}.
+     * 
+     * @param from The position of the camera before the move, or null if unknown.
+     * @param sent The future of the move, which completes once it is sent.
+     * @return A future that completes with true once the camera is in position.
+     */
+    private CompletableFuture<Boolean> track(CameraSettings from, CompletableFuture<Boolean> sent) {
+        return track(from, sent, MovePlanner.URGENT);
+    }
+
+    /**
+     * Keeps track of a move that is sent to the camera. Once it is sent,
+     * the connection waits until the camera has arrived at the current
+     * camera settings. Observers are notified when the last move is done.
+     * 
+     * @param from The position of the camera before the move, or null if unknown.
+     * @param sent The future of the move, which completes once it is sent.
+     * @param duration The time in milliseconds the move was planned to take,
+     *      or {@link MovePlanner#URGENT} if it is made at full speed.
+     * @return A future that completes with true once the camera is in position.
+     */
+    private CompletableFuture<Boolean> track(CameraSettings from, CompletableFuture<Boolean> sent,
+            long duration) {
+        CameraConnection connect = connection;
+        CameraSettings target = new CameraSettings(camSet.getPan(), camSet.getTilt(), 
+                camSet.getZoom(), camSet.getFocus());
+
+        CompletableFuture<Boolean> arrived = sent.thenCompose(done -> done
+                ? connect.awaitPosition(from, target, duration)
+                : CompletableFuture.completedFuture(false));
+        arrival = arrived;
+
+        arrived.thenRun(() -> {
+            if (arrival == arrived) {
+                setChanged();
+                notifyObservers();
+            }
+        });
+
+        return arrived;
+    }
+
     /**
      * Returns the CameraConnection object used for communicating with
      * the actual camera. May be null if it has not yet been initialized.
@@ -149,13 +430,14 @@ public class Camera extends Observable {
      * Sets the CameraConnection object used for communicating with
      * the actual camera. It adds this new connection as an observer
      * and if there was a previous connection, removes the previous
-     * connection as observer.
+     * connection as observer and closes it, so it stops refreshing its state.
      * 
      * @param connect The new connection to the camera.
      */
     public void setConnection(CameraConnection connect) {
-        if (hasConnection()) {
+        if (hasConnection() && connection != connect) {
             this.deleteObserver(connection);
+            connection.close();
         }
 
         connection = connect;
@@ -177,10 +459,11 @@ public class Camera extends Observable {
      * @param offset The offset to pan the camera.
      */
     public void pan(int offset) {
+        CameraSettings from = getPosition();
         camSet.pan(offset);
 
         if (hasConnection()) {
-            connection.relPan(offset);
+            track(from, connection.getCommandQueue().relPan(offset));
         }
 
         setChanged();
@@ -194,10 +477,11 @@ public class Camera extends Observable {
      * @param offset The offset to tilt the camera.
      */
     public void tilt(int offset) {
+        CameraSettings from = getPosition();
         camSet.tilt(offset);
 
         if (hasConnection()) {
-            connection.relTilt(offset);
+            track(from, connection.getCommandQueue().relTilt(offset));
         }
 
         setChanged();
@@ -212,10 +496,11 @@ public class Camera extends Observable {
      * @param tiltOffset The offset to tilt the camera.
      */
     public void panTilt(int panOffset, int tiltOffset) {
+        CameraSettings from = getPosition();
         camSet.panTilt(panOffset, tiltOffset);
 
         if (hasConnection()) {
-            connection.relPanTilt(panOffset, tiltOffset);
+            track(from, connection.getCommandQueue().relPanTilt(panOffset, tiltOffset));
         }
 
         setChanged();
@@ -229,10 +514,11 @@ public class Camera extends Observable {
      * @param offset The offset to zoom the camera.
      */
     public void zoom(int offset) {
+        CameraSettings from = getPosition();
         camSet.zoom(offset);
 
         if (hasConnection()) {
-            connection.relZoom(offset);
+            track(from, connection.getCommandQueue().relZoom(offset));
         }
 
         setChanged();
@@ -246,10 +532,11 @@ public class Camera extends Observable {
      * @param offset The offset to focus the camera.
      */
     public void focus(int offset) {
+        CameraSettings from = getPosition();
         camSet.focus(offset);
 
         if (hasConnection()) {
-            connection.relFocus(offset);
+            track(from, connection.getCommandQueue().relFocus(offset));
         }
 
         setChanged();
@@ -264,11 +551,12 @@ public class Camera extends Observable {
      * @param tiltValue The value to tilt the Camera.
      */
     public void absPanTilt(int panValue, int tiltValue) {
+        CameraSettings from = getPosition();
         camSet.setPan(panValue);
         camSet.setTilt(tiltValue);
 
         if (hasConnection()) {
-            connection.absPanTilt(panValue, tiltValue);
+            track(from, connection.getCommandQueue().absPanTilt(panValue, tiltValue));
         }
 
         setChanged();
@@ -282,10 +570,11 @@ public class Camera extends Observable {
      * @param value The new value to pan the Camera.
      */
     public void absPan(int value) {
+        CameraSettings from = getPosition();
         camSet.setPan(value);
 
         if (hasConnection()) {
-            connection.absPan(value);
+            track(from, connection.getCommandQueue().absPan(value));
         }
 
         setChanged();
@@ -299,10 +588,11 @@ public class Camera extends Observable {
      * @param value The new value to tilt the Camera.
      */
     public void absTilt(int value) {
+        CameraSettings from = getPosition();
         camSet.setTilt(value);
 
         if (hasConnection()) {
-            connection.absTilt(value);
+            track(from, connection.getCommandQueue().absTilt(value));
         }
 
         setChanged();
@@ -316,10 +606,11 @@ public class Camera extends Observable {
      * @param value The new value to zoom the Camera.
      */
     public void absZoom(int value) {
+        CameraSettings from = getPosition();
         camSet.setZoom(value);
 
         if (hasConnection()) {
-            connection.absZoom(value);
+            track(from, connection.getCommandQueue().absZoom(value));
         }
 
         setChanged();
@@ -333,10 +624,11 @@ public class Camera extends Observable {
      * @param value The new value to focus the Camera.
      */
     public void absFocus(int value) {
+        CameraSettings from = getPosition();
         camSet.setFocus(value);
 
         if (hasConnection()) {
-            connection.absFocus(value);
+            track(from, connection.getCommandQueue().absFocus(value));
         }
 
         setChanged();
@@ -354,7 +646,8 @@ public class Camera extends Observable {
      */
     public void panTiltStart(int panSpeed, int tiltSpeed) {
         if (hasConnection()) {
-            connection.panTiltStart(panSpeed, tiltSpeed);
+            arrival = new CompletableFuture<Boolean>();
+            connection.getCommandQueue().panTiltStart(panSpeed, tiltSpeed);
         }
         
         setChanged();
@@ -366,14 +659,129 @@ public class Camera extends Observable {
      */
     public void panTiltStop() {
         if (hasConnection()) {
-            connection.panTiltStop();
+            arrival.complete(connection.getCommandQueue().panTiltStop().join());
         }
-        camSet = getSettings();
+        camSet = getFreshSettings();
         
         setChanged();
         notifyObservers();
     }
 
+    /**
+     * Asynchronous variant of {@link #absPanTilt(int, int)}. The camera
+     * settings are updated immediately, the command is queued on the
+     * {@link CameraCommandQueue} of its connection.
+     * 
+     * @param panValue The value to pan the Camera.
+     * @param tiltValue The value to tilt the Camera.
+     * @return A future that completes with true once the camera has arrived
+     *      at its target, or false if it did not get there.
+     */
+    public CompletableFuture<Boolean> absPanTiltAsync(int panValue, int tiltValue) {
+        CameraSettings from = getPosition();
+        camSet.setPan(panValue);
+        camSet.setTilt(tiltValue);
+
+        CompletableFuture<Boolean> arrived = hasConnection() 
+                ? track(from, connection.getCommandQueue().absPanTilt(panValue, tiltValue)) 
+                : CompletableFuture.completedFuture(true);
+
+        setChanged();
+        notifyObservers();
+
+        return arrived;
+    }
+
+    /**
+     * Asynchronous variant of {@link #absZoom(int)}. The camera settings
+     * are updated immediately, the command is queued on the
+     * {@link CameraCommandQueue} of its connection.
+     * 
+     * @param value The new value to zoom the Camera.
+     * @return A future that completes with true once the camera has arrived
+     *      at its target, or false if it did not get there.
+     */
+    public CompletableFuture<Boolean> absZoomAsync(int value) {
+        CameraSettings from = getPosition();
+        camSet.setZoom(value);
+
+        CompletableFuture<Boolean> arrived = hasConnection() 
+                ? track(from, connection.getCommandQueue().absZoom(value)) 
+                : CompletableFuture.completedFuture(true);
+
+        setChanged();
+        notifyObservers();
+
+        return arrived;
+    }
+
+    /**
+     * Asynchronous variant of {@link #absFocus(int)}. The camera settings
+     * are updated immediately, the command is queued on the
+     * {@link CameraCommandQueue} of its connection.
+     * 
+     * @param value The new value to focus the Camera.
+     * @return A future that completes with true once the camera has arrived
+     *      at its target, or false if it did not get there.
+     */
+    public CompletableFuture<Boolean> absFocusAsync(int value) {
+        CameraSettings from = getPosition();
+        camSet.setFocus(value);
+
+        CompletableFuture<Boolean> arrived = hasConnection() 
+                ? track(from, connection.getCommandQueue().absFocus(value)) 
+                : CompletableFuture.completedFuture(true);
+
+        setChanged();
+        notifyObservers();
+
+        return arrived;
+    }
+
+    /**
+     * Asynchronous variant of {@link #panTiltStart(int, int)}.
+     * 
+     * @param panSpeed Should be between 1 and 99, where 50 is stop.
+     * @param tiltSpeed Should be between 1 and 99, where 50 is stop.
+     * @return A future that completes with true iff the camera performed
+     *      the operation successfully.
+     */
+    public CompletableFuture<Boolean> panTiltStartAsync(int panSpeed, int tiltSpeed) {
+        if (!hasConnection()) {
+            setChanged();
+            notifyObservers();
+            return CompletableFuture.completedFuture(true);
+        }
+
+        arrival = new CompletableFuture<Boolean>();
+        setChanged();
+        notifyObservers();
+
+        return connection.getCommandQueue().panTiltStart(panSpeed, tiltSpeed);
+    }
+
+    /**
+     * Asynchronous variant of {@link #panTiltStop()}. After the camera
+     * has stopped, the camera settings are updated with the position
+     * the camera stopped at.
+     * 
+     * @return A future that completes with true iff the camera performed
+     *      the operation successfully.
+     */
+    public CompletableFuture<Boolean> panTiltStopAsync() {
+        if (!hasConnection()) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return connection.getCommandQueue().panTiltStop().thenCompose(stopped -> 
+            getSettingsAsync().thenApply(settings -> {
+                arrival.complete(stopped);
+                setChanged();
+                notifyObservers();
+                return stopped;
+            }));
+    }
+
     /**
      * Adds a preset to the camera, if there is not already
      * a preset with the same id. Returns true if successful.
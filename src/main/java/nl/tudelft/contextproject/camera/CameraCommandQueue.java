@@ -0,0 +1,611 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Class to represent the outbound command queue of a single camera.
+ * Commands are queued per {@link Axis}, and the queue has at most one
+ * request in flight at a time. Commands that arrive while a request is in
+ * flight are merged with the pending command of their axis, so a slow camera
+ * never builds up a backlog of obsolete moves:
+ * <ul>
+ * <li>relative offsets are summed;</li>
+ * <li>a newer absolute target replaces whatever was pending;</li>
+ * <li>a relative offset after an absolute target moves that target;</li>
+ * <li>a newer jog speed replaces the pending one;</li>
+ * <li>jogging and moving pan and tilt replace each other, since they
+ * drive the same motors and must not be sent out of order.</li>
+ * </ul>
+ * The future returned for a command completes with the result of the
+ * request it was merged into.
+ *
+ * <p>Commands are queued in one of two {@link Lane lanes}. Moves made by
+ * the operator go in the interactive lane, and are always sent before the
+ * settings in the background lane, which pre-position the camera for a
+ * later shot. Background settings are sent in steps of one axis each, see
+ * {@link CameraConnection#planSettings(CameraSettings, long)}, and pending
+ * interactive commands are sent between the steps. A background move that
+ * is replaced by a newer one before all its steps are sent is dropped, and
+ * its future completes with false.
+ *
+ * @since 1.1
+ */
+public class CameraCommandQueue {
+
+    /**
+     * The independent axes of a camera.
+     */
+    public enum Axis {
+        PAN_TILT, ZOOM, FOCUS
+    }
+
+    /**
+     * The lanes of the queue, in order of priority.
+     */
+    public enum Lane {
+        /**
+         * Moves made by the operator, or on the live camera.
+         */
+        INTERACTIVE,
+
+        /**
+         * Settings that pre-position the camera for a later shot.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * The jog speed at which the camera stands still.
+     */
+    private static final int STOP_SPEED = 50;
+
+    private final CameraConnection connection;
+    private final Executor executor;
+    private final EnumMap<Axis, Slot> slots;
+    private Background background;
+    private Background active;
+    private boolean inFlight;
+    private int nextAxis;
+
+    private long sent;
+    private long merged;
+    private long dropped;
+
+    /**
+     * Creates a command queue for the specified connection.
+     *
+     * @param connection The connection to send the commands to.
+     * @param executor The executor on which the commands are sent.
+     */
+    public CameraCommandQueue(CameraConnection connection, Executor executor) {
+        this.connection = connection;
+        this.executor = executor;
+        this.slots = new EnumMap<Axis, Slot>(Axis.class);
+
+        for (Axis axis : Axis.values()) {
+            slots.put(axis, new Slot());
+        }
+    }
+
+    /**
+     * Queues an absolute pan and tilt move.
+     *
+     * @param panValue The absolute pan value to pan to.
+     * @param tiltValue The absolute tilt value to tilt to.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> absPanTilt(int panValue, int tiltValue) {
+        return enqueue(Axis.PAN_TILT, move -> {
+            move.setAbsolute(0, panValue);
+            move.setAbsolute(1, tiltValue);
+        });
+    }
+
+    /**
+     * Queues an absolute pan move.
+     *
+     * @param value The absolute value to pan to.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> absPan(int value) {
+        return enqueue(Axis.PAN_TILT, move -> move.setAbsolute(0, value));
+    }
+
+    /**
+     * Queues an absolute tilt move.
+     *
+     * @param value The absolute value to tilt to.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> absTilt(int value) {
+        return enqueue(Axis.PAN_TILT, move -> move.setAbsolute(1, value));
+    }
+
+    /**
+     * Queues a relative pan and tilt move.
+     *
+     * @param panOffset Relative offset to pan.
+     * @param tiltOffset Relative offset to tilt.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> relPanTilt(int panOffset, int tiltOffset) {
+        return enqueue(Axis.PAN_TILT, move -> {
+            move.addRelative(0, panOffset);
+            move.addRelative(1, tiltOffset);
+        });
+    }
+
+    /**
+     * Queues a relative pan move.
+     *
+     * @param offset Relative offset to pan.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> relPan(int offset) {
+        return relPanTilt(offset, 0);
+    }
+
+    /**
+     * Queues a relative tilt move.
+     *
+     * @param offset Relative offset to tilt.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> relTilt(int offset) {
+        return relPanTilt(0, offset);
+    }
+
+    /**
+     * Queues an absolute zoom move.
+     *
+     * @param value The absolute value to zoom to.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> absZoom(int value) {
+        return enqueue(Axis.ZOOM, move -> move.setAbsolute(0, value));
+    }
+
+    /**
+     * Queues a relative zoom move.
+     *
+     * @param offset Relative offset to zoom.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> relZoom(int offset) {
+        return enqueue(Axis.ZOOM, move -> move.addRelative(0, offset));
+    }
+
+    /**
+     * Queues an absolute focus move.
+     *
+     * @param value The absolute value to focus to.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> absFocus(int value) {
+        return enqueue(Axis.FOCUS, move -> move.setAbsolute(0, value));
+    }
+
+    /**
+     * Queues a relative focus move.
+     *
+     * @param offset Relative offset to change the focus.
+     * @return A future that completes with true iff the move was performed.
+     */
+    public CompletableFuture<Boolean> relFocus(int offset) {
+        return enqueue(Axis.FOCUS, move -> move.addRelative(0, offset));
+    }
+
+    /**
+     * Queues a jog command, see {@link CameraConnection#panTiltStart(int, int)}.
+     *
+     * @param panSpeed Should be between 1 and 99, where 50 is stop.
+     * @param tiltSpeed Should be between 1 and 99, where 50 is stop.
+     * @return A future that completes with true iff the command was performed.
+     */
+    public CompletableFuture<Boolean> panTiltStart(int panSpeed, int tiltSpeed) {
+        return enqueue(Axis.PAN_TILT, true, move -> {
+            move.setAbsolute(0, panSpeed);
+            move.setAbsolute(1, tiltSpeed);
+        });
+    }
+
+    /**
+     * Queues a command to stop jogging.
+     * @return A future that completes with true iff the command was performed.
+     */
+    public CompletableFuture<Boolean> panTiltStop() {
+        return panTiltStart(STOP_SPEED, STOP_SPEED);
+    }
+
+    /**
+     * Queues settings in the background lane. They are only sent when there
+     * are no interactive commands, and are dropped when newer settings are
+     * queued before they are sent.
+     *
+     * @param settings The camera settings to apply.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true iff the settings were
+     *      applied, or false if they were dropped.
+     */
+    public CompletableFuture<Boolean> applySettings(CameraSettings settings, long duration) {
+        CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+        Background replaced;
+
+        synchronized (this) {
+            replaced = background;
+            if (replaced != null) {
+                dropped++;
+            }
+
+            background = new Background(settings, duration, result);
+        }
+
+        if (replaced != null) {
+            replaced.result.complete(false);
+        }
+        dispatch();
+
+        return result;
+    }
+
+    /**
+     * Returns the amount of requests that were sent to the camera.
+     * @return The amount of requests sent.
+     */
+    public synchronized long getSentCount() {
+        return sent;
+    }
+
+    /**
+     * Returns the amount of commands that were merged into a pending
+     * command instead of being sent on their own.
+     *
+     * @return The amount of merged commands.
+     */
+    public synchronized long getMergedCount() {
+        return merged;
+    }
+
+    /**
+     * Returns the amount of background moves that were dropped because
+     * newer settings were queued before they were sent.
+     *
+     * @return The amount of dropped moves.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Returns the lane of the command that is sent next.
+     * @return The lane that is sent next, or null if nothing is pending.
+     */
+    public synchronized Lane getNextLane() {
+        for (Slot slot : slots.values()) {
+            if (slot.pending != null) {
+                return Lane.INTERACTIVE;
+            }
+        }
+        return background == null && active == null ? null : Lane.BACKGROUND;
+    }
+
+    /**
+     * Returns true iff there are no pending or in flight commands.
+     * @return True iff the queue is idle.
+     */
+    public synchronized boolean isIdle() {
+        return !inFlight;
+    }
+
+    /**
+     * Merges a command into the pending command of its axis in the
+     * interactive lane, and starts sending if nothing is in flight.
+     *
+     * @param axis The axis of the command.
+     * @param command The merge operation of the command.
+     * @return A future that completes with the result of the request the
+     *      command ends up in.
+     */
+    private CompletableFuture<Boolean> enqueue(Axis axis, Consumer<Move> command) {
+        return enqueue(axis, false, command);
+    }
+
+    /**
+     * Merges a command into the pending command of its axis in the
+     * interactive lane, and starts sending if nothing is in flight.
+     * A jog command and a move replace each other.
+     *
+     * @param axis The axis of the command.
+     * @param jog True iff the command sets a jog speed instead of a position.
+     * @param command The merge operation of the command.
+     * @return A future that completes with the result of the request the
+     *      command ends up in.
+     */
+    private CompletableFuture<Boolean> enqueue(Axis axis, boolean jog, Consumer<Move> command) {
+        CompletableFuture<Boolean> result = new CompletableFuture<Boolean>();
+
+        synchronized (this) {
+            Slot slot = slots.get(axis);
+
+            if (slot.pending == null) {
+                slot.pending = new Move(jog);
+            } else {
+                merged++;
+                if (slot.pending.jog != jog) {
+                    Move replaced = slot.pending;
+                    slot.pending = new Move(jog);
+                    slot.pending.waiters.addAll(replaced.waiters);
+                }
+            }
+
+            command.accept(slot.pending);
+            slot.pending.waiters.add(result);
+        }
+
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Starts sending the pending commands, unless a request is in flight.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            if (inFlight) {
+                return;
+            }
+            inFlight = true;
+        }
+
+        executor.execute(this::sendNext);
+    }
+
+    /**
+     * Sends the next pending command. Interactive commands go first, taking
+     * turns between the axes, so one busy axis does not hold up the others.
+     * Background settings are only sent when no interactive command is
+     * pending, one step at a time.
+     */
+    private void sendNext() {
+        Axis axis = null;
+        Move move = null;
+        Background settings = null;
+        Background replaced = null;
+
+        synchronized (this) {
+            Axis[] axes = Axis.values();
+
+            for (int i = 0; i < axes.length && move == null; i++) {
+                Axis candidate = axes[(nextAxis + i) % axes.length];
+                Slot slot = slots.get(candidate);
+
+                if (slot.pending != null) {
+                    axis = candidate;
+                    move = slot.pending;
+                    slot.pending = null;
+                    nextAxis = (candidate.ordinal() + 1) % axes.length;
+                }
+            }
+
+            if (move == null && background != null) {
+                if (active != null) {
+                    replaced = active;
+                    dropped++;
+                }
+                active = background;
+                background = null;
+            }
+
+            if (move == null) {
+                settings = active;
+            }
+
+            if (move == null && settings == null) {
+                inFlight = false;
+                return;
+            }
+
+            sent++;
+        }
+
+        if (replaced != null) {
+            replaced.result.complete(false);
+        }
+
+        if (move != null) {
+            boolean result;
+            try {
+                result = send(axis, move);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                result = false;
+            }
+            executor.execute(this::sendNext);
+
+            for (CompletableFuture<Boolean> waiter : move.waiters) {
+                waiter.complete(result);
+            }
+        } else {
+            sendStep(settings);
+        }
+    }
+
+    /**
+     * Sends the next step of background settings. The steps are planned
+     * right before the first one is sent, so they start from the latest
+     * state of the camera. The settings are done after their last step,
+     * or after the first step that fails.
+     *
+     * @param settings The active background settings.
+     */
+    private void sendStep(Background settings) {
+        boolean result;
+        try {
+            if (settings.steps == null) {
+                settings.steps = new ArrayDeque<BooleanSupplier>(
+                        connection.planSettings(settings.settings, settings.duration));
+            }
+
+            BooleanSupplier step = settings.steps.poll();
+            result = step == null || step.getAsBoolean();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            result = false;
+        }
+        boolean done = !result || settings.steps == null || settings.steps.isEmpty();
+
+        if (done) {
+            synchronized (this) {
+                if (active == settings) {
+                    active = null;
+                }
+            }
+        }
+
+        executor.execute(this::sendNext);
+
+        if (done) {
+            settings.result.complete(result);
+        }
+    }
+
+    /**
+     * Sends the merged command with the least amount of requests.
+     *
+     * @param axis The axis of the command.
+     * @param move The merged command.
+     * @return True iff the camera performed the command.
+     */
+    private boolean send(Axis axis, Move move) {
+        switch (axis) {
+            case PAN_TILT:
+                if (move.jog) {
+                    if (move.absolute[0] == STOP_SPEED && move.absolute[1] == STOP_SPEED) {
+                        return connection.panTiltStop();
+                    }
+                    return connection.panTiltStart(move.absolute[0], move.absolute[1]);
+                }
+                return sendPanTilt(move);
+            case ZOOM:
+                if (move.absolute[0] != null) {
+                    return connection.absZoom(move.absolute[0]);
+                }
+                return move.relative[0] == 0 || connection.relZoom(move.relative[0]);
+            case FOCUS:
+                if (move.absolute[0] != null) {
+                    return connection.absFocus(move.absolute[0]);
+                }
+                return move.relative[0] == 0 || connection.relFocus(move.relative[0]);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Sends a merged pan and tilt command.
+     *
+     * @param move The merged command.
+     * @return True iff the camera performed the command.
+     */
+    private boolean sendPanTilt(Move move) {
+        Integer pan = move.absolute[0];
+        Integer tilt = move.absolute[1];
+
+        if (pan != null && tilt != null) {
+            return connection.absPanTilt(pan, tilt);
+        } else if (pan != null) {
+            return connection.absPan(pan) && (move.relative[1] == 0 || connection.relTilt(move.relative[1]));
+        } else if (tilt != null) {
+            return connection.absTilt(tilt) && (move.relative[0] == 0 || connection.relPan(move.relative[0]));
+        }
+
+        return move.relative[0] == 0 && move.relative[1] == 0
+                || connection.relPanTilt(move.relative[0], move.relative[1]);
+    }
+
+    /**
+     * The pending command of an axis.
+     */
+    private static final class Slot {
+        private Move pending;
+    }
+
+    /**
+     * Settings that are queued in the background lane.
+     */
+    private static final class Background {
+
+        private final CameraSettings settings;
+        private final long duration;
+        private final CompletableFuture<Boolean> result;
+        private Queue<BooleanSupplier> steps;
+
+        /**
+         * Creates background settings.
+         *
+         * @param settings The camera settings to apply.
+         * @param duration The time in milliseconds the move may take.
+         * @param result The future to complete once the settings are applied.
+         */
+        private Background(CameraSettings settings, long duration, CompletableFuture<Boolean> result) {
+            this.settings = settings;
+            this.duration = duration;
+            this.result = result;
+        }
+    }
+
+    /**
+     * A merged command for an axis with at most two components,
+     * together with the futures of all commands merged into it.
+     * The components of a jog command are its speeds.
+     */
+    private static final class Move {
+
+        private final boolean jog;
+        private final Integer[] absolute = new Integer[2];
+        private final int[] relative = new int[2];
+        private final List<CompletableFuture<Boolean>> waiters = new ArrayList<CompletableFuture<Boolean>>();
+
+        /**
+         * Creates an empty command.
+         * @param jog True iff the command sets a jog speed.
+         */
+        private Move(boolean jog) {
+            this.jog = jog;
+        }
+
+        /**
+         * Sets an absolute target, replacing any pending offset.
+         *
+         * @param component The component of the axis.
+         * @param value The absolute target.
+         */
+        private void setAbsolute(int component, int value) {
+            absolute[component] = value;
+            relative[component] = 0;
+        }
+
+        /**
+         * Adds a relative offset, moving the absolute target if there is one.
+         *
+         * @param component The component of the axis.
+         * @param offset The relative offset.
+         */
+        private void addRelative(int component, int offset) {
+            if (absolute[component] != null) {
+                absolute[component] += offset;
+            } else {
+                relative[component] += offset;
+            }
+        }
+    }
+}
@@ -1,16 +1,63 @@
 package nl.tudelft.contextproject.camera;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 /**
  * Abstract class to represent a connection with a {@link Camera}. A class
  * that extends this class should observe a Camera-object and send 
  * its operations to the actual camera.
  * 
+ * <p>Every command and query also has an asynchronous variant, which
+ * runs the command on the executor of this connection and returns a
+ * {@link CompletableFuture} with the result. The commands of one camera
+ * are executed one at a time, in the order they were submitted.
+ * 
+ * <p>Moves that are made through a {@link Camera} go through the
+ * {@link CameraCommandQueue} of the connection, which merges moves
+ * that are made obsolete by newer ones before they are sent.
+ * 
+ * <p>The last known state of the camera is kept in a {@link CameraStateCache},
+ * which can be read without waiting for the camera. It can be kept up to
+ * date by a background refresher, see {@link #startStateRefresher(long)}, or
+ * by the camera itself, see {@link #isStatePushed()}.
+ * 
+ * <p>The {@link CameraHealth} of a connection keeps track of whether the
+ * camera can be reached. While its circuit is open, requests fail fast.
+ * 
+ * <p>The {@link MoveTracker} of a connection keeps track of whether the
+ * camera has arrived at the target of its last move, see
+ * {@link #awaitPosition(CameraSettings, CameraSettings)}.
+ * 
+ * <p>Cameras that can store presets in their own memory report how many
+ * slots they have in {@link #getPresetSlotCount()}. Settings stored with
+ * {@link #storePreset(int, CameraSettings)} are recalled with a single
+ * command instead of separate pan, tilt, zoom and focus commands.
+ * 
  * @since 0.4
  */
 public abstract class CameraConnection implements Observer {
 
+    private Executor executor;
+    private CameraCommandQueue commandQueue;
+    private final CameraStateCache stateCache = new CameraStateCache();
+    private CompletableFuture<CameraSettings> refresh;
+    private ScheduledFuture<?> refresher;
+    private CameraHealth health;
+    private MoveTracker moveTracker;
+    private final ConcurrentHashMap<Integer, CameraSettings> storedPresets = 
+            new ConcurrentHashMap<Integer, CameraSettings>();
+
     /**
      * Sets up the connection to the camera.
      * @return True iff the connection was set up successfully.
@@ -161,4 +208,690 @@ public abstract class CameraConnection implements Observer {
      * @return True iff the command was sent and received successfully.
      */
     protected abstract boolean panTiltStop();
+
+    /**
+     * Returns the amount of preset memories of the camera. By default,
+     * a camera cannot store presets.
+     * 
+     * @return The amount of preset slots, numbered from 0.
+     */
+    public int getPresetSlotCount() {
+        return 0;
+    }
+
+    /**
+     * Stores the current position of the camera in a preset memory.
+     * By default, a camera cannot store presets.
+     * 
+     * @param slot The number of the preset memory.
+     * @return True iff the position was stored.
+     */
+    protected boolean savePresetSlot(int slot) {
+        return false;
+    }
+
+    /**
+     * Moves the camera to the position stored in a preset memory.
+     * By default, a camera cannot store presets.
+     * 
+     * @param slot The number of the preset memory.
+     * @return True iff the camera is moving to the stored position.
+     */
+    protected boolean recallPresetSlot(int slot) {
+        return false;
+    }
+
+    /**
+     * Moves the camera to the specified settings and stores them in a preset
+     * memory of the camera, once it has arrived. This moves the camera, so it
+     * should not be done while the camera is on air.
+     * 
+     * <p>The move and the store are run on the executor of this connection,
+     * but the executor never waits for the camera to arrive, since arrival
+     * is polled on that same executor.
+     * 
+     * @param slot The number of the preset memory.
+     * @param settings The settings to store.
+     * @return A future that completes with true iff the settings were stored.
+     */
+    public CompletableFuture<Boolean> storePreset(int slot, CameraSettings settings) {
+        if (slot < 0 || slot >= getPresetSlotCount()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        storedPresets.remove(slot);
+        CameraSettings copy = new CameraSettings(settings.getPan(), settings.getTilt(), 
+                settings.getZoom(), settings.getFocus());
+
+        return submit(() -> applySettings(copy))
+                .thenCompose(moved -> moved
+                        ? awaitPosition(null, copy)
+                        : CompletableFuture.completedFuture(false))
+                .thenCompose(arrived -> arrived
+                        ? submit(() -> savePresetSlot(slot))
+                        : CompletableFuture.completedFuture(false))
+                .thenApply(saved -> {
+                    if (saved) {
+                        storedPresets.put(slot, copy);
+                    }
+                    return saved;
+                });
+    }
+
+    /**
+     * Returns true iff the specified settings are stored in a preset memory.
+     * 
+     * @param slot The number of the preset memory.
+     * @param settings The settings that should be stored.
+     * @return True iff the slot holds exactly these settings.
+     */
+    public boolean isPresetStored(int slot, CameraSettings settings) {
+        return settings.equals(storedPresets.get(slot));
+    }
+
+    /**
+     * Forgets which settings are stored in the preset memories, for example
+     * after the presets were changed on the camera itself.
+     */
+    public void clearStoredPresets() {
+        storedPresets.clear();
+    }
+
+    /**
+     * Returns which settings are stored in the preset memories, so they can
+     * be saved and restored with {@link #setStoredPresets(Map)} the next time
+     * the application connects to the camera.
+     * 
+     * @return The settings stored in each preset memory, by slot.
+     */
+    public Map<Integer, CameraSettings> getStoredPresets() {
+        return new HashMap<Integer, CameraSettings>(storedPresets);
+    }
+
+    /**
+     * Sets which settings are stored in the preset memories, as saved from
+     * {@link #getStoredPresets()}. Slots the camera does not have are ignored.
+     * 
+     * @param stored The settings stored in each preset memory, by slot.
+     */
+    public void setStoredPresets(Map<Integer, CameraSettings> stored) {
+        storedPresets.clear();
+        for (Map.Entry<Integer, CameraSettings> slot : stored.entrySet()) {
+            if (slot.getKey() >= 0 && slot.getKey() < getPresetSlotCount()) {
+                storedPresets.put(slot.getKey(), slot.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns true iff the specified settings are stored in a preset memory,
+     * so {@link #recallStoredPreset(CameraSettings)} can recall them.
+     * 
+     * @param settings The settings to look for.
+     * @return True iff a preset memory holds the settings.
+     */
+    protected boolean hasStoredPreset(CameraSettings settings) {
+        return storedPresets.containsValue(settings);
+    }
+
+    /**
+     * Moves the camera to the specified settings with a single command,
+     * if they are stored in a preset memory.
+     * 
+     * @param settings The settings to move to.
+     * @return True iff the settings were stored and recalled, false if the
+     *      settings have to be sent as separate moves.
+     */
+    protected boolean recallStoredPreset(CameraSettings settings) {
+        for (Map.Entry<Integer, CameraSettings> stored : storedPresets.entrySet()) {
+            if (stored.getValue().equals(settings)) {
+                if (recallPresetSlot(stored.getKey())) {
+                    stateCache.update(settings);
+                    return true;
+                }
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the executor on which the asynchronous commands of this
+     * connection are run. It is created the first time it is needed.
+     * 
+     * @return The executor of this connection.
+     */
+    protected synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = CameraExecutors.newCameraExecutor(getClass().getSimpleName());
+        }
+
+        return executor;
+    }
+
+    /**
+     * Returns the command queue of this connection. It is created the
+     * first time it is needed.
+     * 
+     * @return The command queue of this connection.
+     */
+    public synchronized CameraCommandQueue getCommandQueue() {
+        if (commandQueue == null) {
+            commandQueue = createCommandQueue();
+        }
+
+        return commandQueue;
+    }
+
+    /**
+     * Creates the command queue of this connection. By default, the
+     * queued commands are sent on the executor of this connection.
+     * 
+     * @return A new command queue for this connection.
+     */
+    protected CameraCommandQueue createCommandQueue() {
+        return new CameraCommandQueue(this, getExecutor());
+    }
+
+    /**
+     * Returns the cache with the last known state of the camera.
+     * @return The state cache of this connection.
+     */
+    public CameraStateCache getStateCache() {
+        return stateCache;
+    }
+
+    /**
+     * Returns the health of this connection. It is created the first
+     * time it is needed, and probes the camera with {@link #probe()}.
+     * 
+     * @return The health of this connection.
+     */
+    public synchronized CameraHealth getHealth() {
+        if (health == null) {
+            health = new CameraHealth(this::probe);
+        }
+
+        return health;
+    }
+
+    /**
+     * Checks whether the camera can be reached again while the circuit
+     * of the {@link #getHealth() health} is open. By default, this only
+     * checks {@link #isConnected()} on the executor of this connection.
+     * 
+     * @return A future that completes with true iff the camera answered.
+     */
+    protected CompletableFuture<Boolean> probe() {
+        return submit(this::isConnected);
+    }
+
+    /**
+     * Returns the model used to estimate how long the moves of the camera
+     * take. By default, this roughly matches an AW-HE130.
+     * 
+     * @return The motion model of the camera.
+     */
+    public CameraMotionModel getMotionModel() {
+        return CameraMotionModel.REALISTIC;
+    }
+
+    /**
+     * Returns the move tracker of this connection. It is created the first
+     * time it is needed, and reads the position with {@link #pollPosition()}.
+     * 
+     * @return The move tracker of this connection.
+     */
+    public synchronized MoveTracker getMoveTracker() {
+        if (moveTracker == null) {
+            moveTracker = createMoveTracker();
+        }
+
+        return moveTracker;
+    }
+
+    /**
+     * Creates the move tracker of this connection. By default, it polls
+     * with {@link #pollPosition()} as often as the tracker allows.
+     * 
+     * @return A new move tracker for this connection.
+     */
+    protected MoveTracker createMoveTracker() {
+        return new MoveTracker(this::pollPosition, getMotionModel());
+    }
+
+    /**
+     * Reads the position of the camera for the move tracker. By default the
+     * camera is queried on the executor of this connection.
+     * 
+     * @return A future that completes with the position of the camera.
+     */
+    protected CompletableFuture<CameraSettings> pollPosition() {
+        return getCurrentCameraSettingsAsync();
+    }
+
+    /**
+     * Returns true iff the camera pushes its state to this connection
+     * by itself, so the state cache is kept current without queries.
+     * 
+     * @return True iff the state of the camera is pushed.
+     */
+    public boolean isStatePushed() {
+        return false;
+    }
+
+    /**
+     * Waits until the camera has arrived at the specified settings, after a
+     * move towards them has been sent. The position is polled adaptively by
+     * the {@link #getMoveTracker() move tracker}.
+     * 
+     * @param from The settings of the camera before the move, or null if unknown.
+     * @param target The settings the camera moves to.
+     * @return A future that completes with true once the camera is in position,
+     *      or with false if it did not get there in time.
+     */
+    public CompletableFuture<Boolean> awaitPosition(CameraSettings from, CameraSettings target) {
+        return awaitPosition(from, target, MovePlanner.URGENT);
+    }
+
+    /**
+     * Variant of {@link #awaitPosition(CameraSettings, CameraSettings)} for a
+     * move that was planned to take the specified time, so it is not expected
+     * to arrive any sooner.
+     * 
+     * @param from The settings of the camera before the move, or null if unknown.
+     * @param target The settings the camera moves to.
+     * @param duration The time in milliseconds the move was planned to take,
+     *      or {@link MovePlanner#URGENT} if it is made at full speed.
+     * @return A future that completes with true once the camera is in position,
+     *      or with false if it did not get there in time.
+     */
+    public CompletableFuture<Boolean> awaitPosition(CameraSettings from, CameraSettings target, long duration) {
+        return getMoveTracker().track(from, expectedPosition(target), isFocusTracked(), duration);
+    }
+
+    /**
+     * Returns the position the camera ends up at when it is moved to the
+     * specified settings. By default, the camera reaches the settings exactly.
+     * 
+     * @param target The settings the camera is moved to.
+     * @return The position the camera moves to.
+     */
+    protected CameraSettings expectedPosition(CameraSettings target) {
+        return target;
+    }
+
+    /**
+     * Returns true iff the focus of the camera follows the focus of its moves.
+     * By default, it does.
+     * 
+     * @return False if the camera chooses its own focus, such as on auto focus.
+     */
+    protected boolean isFocusTracked() {
+        return true;
+    }
+
+    /**
+     * Returns the last known camera settings without waiting for the
+     * camera. If the cached settings are stale, a refresh is started in
+     * the background, so a later call returns up to date settings. No refresh
+     * is started while the circuit of the {@link #getHealth() health} is open,
+     * or while the camera {@link #isStatePushed() pushes its state}.
+     * Use {@link #getCurrentCameraSettings()} for a fresh read.
+     * 
+     * @return The last known camera settings.
+     */
+    public CameraSettings getCachedCameraSettings() {
+        CameraSettings settings = stateCache.get();
+
+        if (stateCache.isStale() && !getHealth().isOpen() && !isStatePushed()) {
+            refreshState();
+        }
+
+        return settings;
+    }
+
+    /**
+     * Reads the current camera settings on the executor of this connection
+     * and stores them in the state cache. If a refresh is already running,
+     * no new one is started. While the camera pushes its state, the cache
+     * is already current and the camera is not queried.
+     * 
+     * @return A future that completes with the refreshed camera settings.
+     */
+    public synchronized CompletableFuture<CameraSettings> refreshState() {
+        if (isStatePushed()) {
+            return CompletableFuture.completedFuture(stateCache.get());
+        }
+
+        if (refresh == null || refresh.isDone()) {
+            refresh = getCurrentCameraSettingsAsync().thenApply(settings -> {
+                stateCache.update(settings);
+                return settings;
+            });
+        }
+
+        return refresh;
+    }
+
+    /**
+     * Starts refreshing the state cache periodically. The refresher only
+     * schedules the refresh, the camera is queried on the executor of this
+     * connection. A running refresher is replaced.
+     * 
+     * @param period The time in milliseconds between two refreshes.
+     */
+    public synchronized void startStateRefresher(long period) {
+        stopStateRefresher();
+        refresher = CameraExecutors.getScheduler().scheduleWithFixedDelay(
+                this::refreshState, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops refreshing the state cache periodically.
+     */
+    public synchronized void stopStateRefresher() {
+        if (refresher != null) {
+            refresher.cancel(false);
+            refresher = null;
+        }
+    }
+
+    /**
+     * Stops the background work of this connection, such as the state
+     * refresher and the probes of its health. This is done when the camera
+     * gets another connection, see {@link Camera#setConnection(CameraConnection)}.
+     */
+    public void close() {
+        stopStateRefresher();
+
+        synchronized (this) {
+            if (health != null) {
+                health.close();
+            }
+        }
+    }
+
+    /**
+     * Runs a command or query on the executor of this connection.
+     * 
+     * @param task The command or query to run.
+     * @return A future that completes with the result of the task.
+     */
+    protected <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, getExecutor());
+    }
+
+    /**
+     * Applies all camera settings at once. By default, the camera pans
+     * and tilts, zooms and focuses to the absolute values of the settings.
+     * 
+     * @param settings The camera settings to apply.
+     * @return True iff all operations were performed successfully.
+     */
+    protected boolean applySettings(CameraSettings settings) {
+        boolean panTilt = absPanTilt(settings.getPan(), settings.getTilt());
+        boolean zoom = absZoom(settings.getZoom());
+        boolean focus = absFocus(settings.getFocus());
+
+        return panTilt && zoom && focus;
+    }
+
+    /**
+     * Applies all camera settings at once, taking at most the specified time.
+     * Connections that cannot plan the speed of their moves move as fast
+     * as they can, which is the default.
+     * 
+     * @param settings The camera settings to apply.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return True iff all operations were performed successfully.
+     */
+    protected boolean applySettings(CameraSettings settings, long duration) {
+        return applySettings(settings);
+    }
+
+    /**
+     * Splits applying settings into steps of about one request each, so the
+     * {@link CameraCommandQueue} can send interactive commands in between.
+     * It is called on the executor of this connection, right before the
+     * first step. By default, the settings are applied in a single step.
+     * 
+     * @param settings The camera settings to apply.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return The steps, in order, each returning true iff it succeeded.
+     */
+    protected List<BooleanSupplier> planSettings(CameraSettings settings, long duration) {
+        List<BooleanSupplier> steps = new ArrayList<BooleanSupplier>();
+        steps.add(() -> applySettings(settings, duration));
+        return steps;
+    }
+
+    /**
+     * Runs the steps of {@link #planSettings(CameraSettings, long)} in order,
+     * stopping at the first step that fails.
+     * 
+     * @param steps The steps to run.
+     * @return True iff all steps succeeded.
+     */
+    protected static boolean runSteps(List<BooleanSupplier> steps) {
+        for (BooleanSupplier step : steps) {
+            if (!step.getAsBoolean()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Asynchronous variant of {@link #applySettings(CameraSettings)}. The
+     * settings are queued in the background lane of the command queue.
+     * 
+     * @param settings The camera settings to apply.
+     * @return A future that completes with true iff all operations were
+     *      performed successfully.
+     */
+    public CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings) {
+        return applySettingsAsync(settings, MovePlanner.URGENT);
+    }
+
+    /**
+     * Asynchronous variant of {@link #applySettings(CameraSettings, long)}.
+     * The settings are queued in the {@link CameraCommandQueue.Lane#BACKGROUND
+     * background lane} of the command queue, so interactive moves go first.
+     * 
+     * @param settings The camera settings to apply.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true iff all operations were
+     *      performed successfully, or false if newer settings replaced them.
+     */
+    public CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings, long duration) {
+        return getCommandQueue().applySettings(settings, duration);
+    }
+
+    /**
+     * Returns the time a move to the specified settings is estimated to take
+     * at full speed, from the last known state of the camera.
+     * 
+     * @param target The settings to move to.
+     * @return The estimated travel time in milliseconds, or 0 if the
+     *      state of the camera is not known.
+     */
+    public long estimateTravelTime(CameraSettings target) {
+        if (!stateCache.isPopulated()) {
+            return 0;
+        }
+
+        return getMoveTracker().estimate(stateCache.get(), target);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getCurrentCameraSettings()}.
+     * @return A future that completes with the current camera settings.
+     */
+    public CompletableFuture<CameraSettings> getCurrentCameraSettingsAsync() {
+        return submit(this::getCurrentCameraSettings);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getCurrentPanTilt()}.
+     * @return A future that completes with the current pan and tilt values.
+     */
+    public CompletableFuture<int[]> getCurrentPanTiltAsync() {
+        return submit(this::getCurrentPanTilt);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getCurrentZoom()}.
+     * @return A future that completes with the current zoom value.
+     */
+    public CompletableFuture<Integer> getCurrentZoomAsync() {
+        return submit(this::getCurrentZoom);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getCurrentFocus()}.
+     * @return A future that completes with the current focus value.
+     */
+    public CompletableFuture<Integer> getCurrentFocusAsync() {
+        return submit(this::getCurrentFocus);
+    }
+
+    /**
+     * Asynchronous variant of {@link #absPanTilt(int, int)}.
+     * 
+     * @param panValue The absolute pan value to pan to.
+     * @param tiltValue The absolute tilt value to tilt to.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> absPanTiltAsync(int panValue, int tiltValue) {
+        return submit(() -> absPanTilt(panValue, tiltValue));
+    }
+
+    /**
+     * Asynchronous variant of {@link #absPan(int)}.
+     * 
+     * @param value The absolute value to pan to.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> absPanAsync(int value) {
+        return submit(() -> absPan(value));
+    }
+
+    /**
+     * Asynchronous variant of {@link #absTilt(int)}.
+     * 
+     * @param value The absolute value to tilt to.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> absTiltAsync(int value) {
+        return submit(() -> absTilt(value));
+    }
+
+    /**
+     * Asynchronous variant of {@link #absZoom(int)}.
+     * 
+     * @param value The absolute value to zoom to.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> absZoomAsync(int value) {
+        return submit(() -> absZoom(value));
+    }
+
+    /**
+     * Asynchronous variant of {@link #absFocus(int)}.
+     * 
+     * @param value The absolute value to focus to.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> absFocusAsync(int value) {
+        return submit(() -> absFocus(value));
+    }
+
+    /**
+     * Asynchronous variant of {@link #relPanTilt(int, int)}.
+     * 
+     * @param panOffset Relative offset to pan.
+     * @param tiltOffset Relative offset to tilt.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> relPanTiltAsync(int panOffset, int tiltOffset) {
+        return submit(() -> relPanTilt(panOffset, tiltOffset));
+    }
+
+    /**
+     * Asynchronous variant of {@link #relPan(int)}.
+     * 
+     * @param offset Relative offset to pan.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> relPanAsync(int offset) {
+        return submit(() -> relPan(offset));
+    }
+
+    /**
+     * Asynchronous variant of {@link #relTilt(int)}.
+     * 
+     * @param offset Relative offset to tilt.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> relTiltAsync(int offset) {
+        return submit(() -> relTilt(offset));
+    }
+
+    /**
+     * Asynchronous variant of {@link #relZoom(int)}.
+     * 
+     * @param offset Relative offset to zoom.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> relZoomAsync(int offset) {
+        return submit(() -> relZoom(offset));
+    }
+
+    /**
+     * Asynchronous variant of {@link #relFocus(int)}.
+     * 
+     * @param offset Relative offset to change the focus.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> relFocusAsync(int offset) {
+        return submit(() -> relFocus(offset));
+    }
+
+    /**
+     * Asynchronous variant of {@link #panTiltStart(int, int)}.
+     * 
+     * @param panSpeed Should be between 1 and 99, where 50 is stop.
+     * @param tiltSpeed Should be between 1 and 99, where 50 is stop.
+     * @return A future that completes with true iff the operation was 
+     *      performed successfully.
+     */
+    protected CompletableFuture<Boolean> panTiltStartAsync(int panSpeed, int tiltSpeed) {
+        return submit(() -> panTiltStart(panSpeed, tiltSpeed));
+    }
+
+    /**
+     * Asynchronous variant of {@link #panTiltStop()}.
+     * 
+     * @return A future that completes with true iff the command was sent
+     *      and received successfully.
+     */
+    protected CompletableFuture<Boolean> panTiltStopAsync() {
+        return submit(this::panTiltStop);
+    }
 }
@@ -0,0 +1,316 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Utility class that finds out which camera is at an address and creates
+ * the matching {@link CameraConnection}. A camera is probed with a single
+ * <code>QID</code> request, and the model it answers with decides which
+ * subclass of {@link LiveCameraConnection} is used.
+ *
+ * <p>The model of every address is cached. When a camera is connected
+ * again, the connection for its cached model is set up straight away,
+ * so an unreachable camera only costs one timeout. The cache can be
+ * saved to and loaded from a file, so this also works after a restart.
+ *
+ * <p>VISCA cameras cannot be probed over HTTP. They are configured with an
+ * address that starts with {@link #VISCA_PREFIX}, such as
+ * <code>visca:192.168.0.10:52381</code>, and always get a
+ * {@link ViscaCameraConnection}.
+ *
+ * @since 1.1
+ */
+public final class CameraConnectionFactory {
+
+    /**
+     * Time in milliseconds to wait for a camera to answer the probe.
+     */
+    public static final int PROBE_TIMEOUT = 1000;
+
+    /**
+     * Prefix of the address of a camera that is controlled over VISCA over IP.
+     */
+    public static final String VISCA_PREFIX = "visca:";
+
+    private static final Map<String, Function<String, LiveCameraConnection>> MODELS =
+            new LinkedHashMap<String, Function<String, LiveCameraConnection>>();
+
+    private static final ConcurrentHashMap<String, String> KNOWN_MODELS = new ConcurrentHashMap<String, String>();
+
+    private static final ExecutorService PROBES =
+            Executors.newCachedThreadPool(CameraExecutors.daemonThreadFactory("Camera discovery"));
+
+    static {
+        register(LiveCameraConnection.CAMERA_MODEL, LiveCameraConnection::new);
+        register(LiveCameraConnectionAWHE40.CAMERA_MODEL, LiveCameraConnectionAWHE40::new);
+    }
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private CameraConnectionFactory() {
+    }
+
+    /**
+     * Registers the connection to create for a camera model.
+     *
+     * @param model The model as the camera answers it to a <code>QID</code> request.
+     * @param constructor Creates a connection to the specified address.
+     */
+    public static synchronized void register(String model, Function<String, LiveCameraConnection> constructor) {
+        MODELS.put(model, constructor);
+    }
+
+    /**
+     * Returns true iff a connection can be created for a camera model.
+     *
+     * @param model The model of the camera.
+     * @return True iff the model is supported.
+     */
+    public static synchronized boolean isSupported(String model) {
+        return MODELS.containsKey(model);
+    }
+
+    /**
+     * Creates an unconnected connection for a camera model.
+     *
+     * @param address The address of the camera.
+     * @param model The model of the camera.
+     * @return A connection to the camera, or null if the model is not supported.
+     */
+    public static synchronized LiveCameraConnection create(String address, String model) {
+        Function<String, LiveCameraConnection> constructor = MODELS.get(model);
+        return constructor == null ? null : constructor.apply(address);
+    }
+
+    /**
+     * Asks the camera at the specified address for its model, with a single
+     * <code>QID</code> request. A supported model is added to the cache.
+     *
+     * @param address The address of the camera.
+     * @return The model of the camera, or null if it did not answer.
+     */
+    public static String probeModel(String address) {
+        try {
+            return probeModel(address, PROBE_TIMEOUT, PROBE_TIMEOUT);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Asks the camera at the specified address for its model, giving up
+     * when it does not answer in time. A supported model is added to the cache.
+     *
+     * @param address The address of the camera.
+     * @param connectTimeout Time in milliseconds to wait for the camera to accept the request.
+     * @param readTimeout Time in milliseconds to wait for the answer, or 0 to wait as long as it takes.
+     * @return The model of the camera, or null if it answered something else.
+     * @throws IOException when nothing answered in time.
+     */
+    public static String probeModel(String address, int connectTimeout, int readTimeout) throws IOException {
+        String res = CameraTransport.forAddress(address).get(
+                new URL("http://" + address + "/cgi-bin/aw_cam?cmd=QID&res=1"), connectTimeout, readTimeout);
+
+        if (res.startsWith("OID:")) {
+            String model = res.substring(4);
+            if (isSupported(model)) {
+                KNOWN_MODELS.put(address, model);
+            }
+            return model;
+        }
+
+        return null;
+    }
+
+    /**
+     * Connects to the camera at the specified address. If the model of the
+     * address is cached, the connection for that model is set up directly.
+     * Otherwise, or if the camera turns out to be another model, the camera
+     * is probed first. Either way, the camera gets one <code>QID</code>
+     * request, unless it changed model. The cached model is only forgotten
+     * when the camera answers with another model, so a camera that did not
+     * answer once is still connected to directly the next time.
+     * An address with the {@link #VISCA_PREFIX} is connected to over VISCA.
+     *
+     * @param address The address of the camera.
+     * @return A set up connection, or null if no supported camera answered.
+     */
+    public static CameraConnection connect(String address) {
+        if (isVisca(address)) {
+            ViscaCameraConnection connection;
+            try {
+                connection = new ViscaCameraConnection(address.substring(VISCA_PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                e.printStackTrace();
+                return null;
+            }
+
+            if (connection.setUpConnection()) {
+                return connection;
+            }
+
+            connection.close();
+            return null;
+        }
+
+        String known = KNOWN_MODELS.get(address);
+
+        if (known != null) {
+            CameraTransport transport = CameraTransport.forAddress(address);
+            long responses = transport.getResponseCount();
+            LiveCameraConnection connection = create(address, known);
+
+            if (connection.setUpConnection()) {
+                return connection;
+            }
+
+            if (transport.getResponseCount() == responses) {
+                return null;
+            }
+        }
+
+        String model = probeModel(address);
+        if (known != null && model != null && !isSupported(model)) {
+            KNOWN_MODELS.remove(address, known);
+        }
+        LiveCameraConnection connection = model == null ? null : create(address, model);
+
+        if (connection != null) {
+            connection.initialize();
+        }
+
+        return connection;
+    }
+
+    /**
+     * Returns true iff the address is that of a VISCA camera.
+     *
+     * @param address The address of the camera.
+     * @return True iff the address starts with {@link #VISCA_PREFIX}.
+     */
+    public static boolean isVisca(String address) {
+        return address.regionMatches(true, 0, VISCA_PREFIX, 0, VISCA_PREFIX.length());
+    }
+
+    /**
+     * Asynchronous variant of {@link #connect(String)}. Every call is run
+     * on its own thread, so cameras are connected to at the same time.
+     *
+     * @param address The address of the camera.
+     * @return A future that completes with the set up connection, or null
+     *      if no supported camera answered.
+     */
+    public static CompletableFuture<CameraConnection> connectAsync(String address) {
+        return CompletableFuture.supplyAsync(() -> connect(address), PROBES);
+    }
+
+    /**
+     * Connects to the cameras at all specified addresses at the same time.
+     *
+     * @param addresses The addresses of the cameras.
+     * @return A future for every address, that completes with the
+     *      set up connection, or null if no supported camera answered.
+     */
+    public static Map<String, CompletableFuture<CameraConnection>> connectAll(Collection<String> addresses) {
+        Map<String, CompletableFuture<CameraConnection>> result =
+                new LinkedHashMap<String, CompletableFuture<CameraConnection>>();
+
+        for (String address : addresses) {
+            if (!result.containsKey(address)) {
+                result.put(address, connectAsync(address));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cached model of the camera at the specified address.
+     *
+     * @param address The address of the camera.
+     * @return The model of the camera, or null if it is not known.
+     */
+    public static String getKnownModel(String address) {
+        return KNOWN_MODELS.get(address);
+    }
+
+    /**
+     * Adds the model of the camera at the specified address to the cache.
+     *
+     * @param address The address of the camera.
+     * @param model The model of the camera.
+     */
+    public static void setKnownModel(String address, String model) {
+        KNOWN_MODELS.put(address, model);
+    }
+
+    /**
+     * Clears the cache of camera models.
+     */
+    public static void clearKnownModels() {
+        KNOWN_MODELS.clear();
+    }
+
+    /**
+     * Loads cached camera models from a file, as saved by {@link #saveKnownModels(File)}.
+     * Nothing happens if the file does not exist.
+     *
+     * @param file The file to load from.
+     */
+    public static void loadKnownModels(File file) {
+        Properties properties = new Properties();
+
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        for (String address : properties.stringPropertyNames()) {
+            String model = properties.getProperty(address);
+            if (isSupported(model)) {
+                KNOWN_MODELS.put(address, model);
+            }
+        }
+    }
+
+    /**
+     * Saves the cached camera models to a file.
+     *
+     * @param file The file to save to.
+     * @return True iff the file was saved.
+     */
+    public static boolean saveKnownModels(File file) {
+        Properties properties = new Properties();
+        properties.putAll(KNOWN_MODELS);
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Camera models");
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utility class that finds the cameras in a range of addresses, such as
+ * <code>192.168.0.0/24</code>. Every address is asked for its model with a
+ * single <code>QID</code> request, see {@link CameraConnectionFactory#probeModel(String)},
+ * so the models of the cameras that answer are cached straight away.
+ *
+ * <p>The addresses are probed at the same time, by at most a fixed amount of
+ * threads, and every address gets a short deadline. Most addresses in a range
+ * are not cameras, and those fail fast, so a /24 is scanned in a few seconds.
+ *
+ * @since 1.1
+ */
+public final class CameraDiscovery {
+
+    /**
+     * The default amount of addresses that are probed at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 64;
+
+    /**
+     * The default time in milliseconds an address gets to accept
+     * the request, and again to answer it.
+     */
+    public static final int HOST_TIMEOUT = 300;
+
+    /**
+     * The shortest prefix of a range that may be scanned, which limits
+     * a scan to 65534 addresses.
+     */
+    public static final int MIN_PREFIX = 16;
+
+    private static final int HTTP_PORT = 80;
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private CameraDiscovery() {
+    }
+
+    /**
+     * Returns the host addresses in a range in CIDR notation. The network
+     * and broadcast addresses are left out, unless the range is too small
+     * to have them.
+     *
+     * @param cidr The range, such as <code>192.168.0.0/24</code>. A single
+     *      address without a prefix is a range of one address.
+     * @return The addresses in the range, in ascending order.
+     * @throws IllegalArgumentException when the range is not valid, or larger
+     *      than allowed by {@link #MIN_PREFIX}.
+     */
+    public static List<String> hosts(String cidr) {
+        int slash = cidr.indexOf('/');
+        String[] parts = (slash < 0 ? cidr : cidr.substring(0, slash)).trim().split("\\.");
+        int prefix = slash < 0 ? 32 : Integer.parseInt(cidr.substring(slash + 1).trim());
+
+        if (parts.length != 4 || prefix < MIN_PREFIX || prefix > 32) {
+            throw new IllegalArgumentException("Invalid address range: " + cidr);
+        }
+
+        int base = 0;
+        for (String part : parts) {
+            int value = Integer.parseInt(part);
+            if (value < 0 || value > 255) {
+                throw new IllegalArgumentException("Invalid address range: " + cidr);
+            }
+            base = base << 8 | value;
+        }
+
+        int size = 1 << (32 - prefix);
+        int network = base & -size;
+        int first = prefix <= 30 ? 1 : 0;
+        int last = prefix <= 30 ? size - 2 : size - 1;
+
+        List<String> hosts = new ArrayList<String>(last - first + 1);
+        for (int i = first; i <= last; i++) {
+            int address = network + i;
+            hosts.add((address >>> 24) + "." + (address >> 16 & 0xFF) + "."
+                    + (address >> 8 & 0xFF) + "." + (address & 0xFF));
+        }
+
+        return hosts;
+    }
+
+    /**
+     * Scans a range for cameras on the HTTP port.
+     *
+     * @param cidr The range, such as <code>192.168.0.0/24</code>.
+     * @return A future that completes with the model of every address
+     *      that answered, in the order of the addresses.
+     */
+    public static CompletableFuture<Map<String, String>> scan(String cidr) {
+        return scan(cidr, HTTP_PORT);
+    }
+
+    /**
+     * Scans a range for cameras on the specified port.
+     *
+     * @param cidr The range, such as <code>192.168.0.0/24</code>.
+     * @param port The port the cameras listen on.
+     * @return A future that completes with the model of every address
+     *      that answered, in the order of the addresses.
+     */
+    public static CompletableFuture<Map<String, String>> scan(String cidr, int port) {
+        List<String> addresses = new ArrayList<String>();
+        for (String host : hosts(cidr)) {
+            addresses.add(port == HTTP_PORT ? host : host + ":" + port);
+        }
+
+        return scan(addresses, DEFAULT_PARALLELISM, HOST_TIMEOUT);
+    }
+
+    /**
+     * Probes the specified addresses for cameras. Addresses that do not
+     * answer are not kept in the transports of {@link CameraTransport}, unless
+     * their transport existed before the scan, since it is shared with the
+     * connection of a configured camera.
+     *
+     * @param addresses The addresses to probe.
+     * @param parallelism The maximum amount of addresses probed at the same time.
+     * @param timeout The time in milliseconds an address gets to accept
+     *      the request, and again to answer it.
+     * @return A future that completes with the model of every address
+     *      that answered, in the order of the addresses.
+     */
+    public static CompletableFuture<Map<String, String>> scan(Collection<String> addresses,
+            int parallelism, int timeout) {
+        ExecutorService probes = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                CameraExecutors.daemonThreadFactory("Camera discovery"));
+        Map<String, String> found = new ConcurrentHashMap<String, String>();
+        List<CompletableFuture<Void>> probing = new ArrayList<CompletableFuture<Void>>();
+
+        for (String address : addresses) {
+            probing.add(CompletableFuture.runAsync(() -> {
+                boolean shared = CameraTransport.exists(address);
+                try {
+                    String model = CameraConnectionFactory.probeModel(address, timeout, timeout);
+                    if (model != null) {
+                        found.put(address, model);
+                        return;
+                    }
+                } catch (IOException e) {
+                    // Most addresses in a range are not cameras.
+                }
+                if (!shared) {
+                    CameraTransport.discard(address);
+                }
+            }, probes));
+        }
+        probes.shutdown();
+
+        return CompletableFuture.allOf(probing.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, String> result = new LinkedHashMap<String, String>();
+            for (String address : addresses) {
+                if (found.containsKey(address)) {
+                    result.put(address, found.get(address));
+                }
+            }
+            return result;
+        });
+    }
+}
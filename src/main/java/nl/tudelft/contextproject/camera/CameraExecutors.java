@@ -0,0 +1,80 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility class that creates the threads used to talk to the cameras.
+ * All threads are daemon threads, so they never keep the application
+ * alive after the main window has been closed.
+ *
+ * @since 1.1
+ */
+public final class CameraExecutors {
+
+    /**
+     * Time in seconds after which an idle camera thread is stopped.
+     */
+    private static final long IDLE_TIMEOUT = 30;
+
+    /**
+     * Scheduler shared by all cameras for periodic and delayed tasks.
+     * Tasks on it should be short, and hand off any camera I/O to the
+     * executor of the camera.
+     */
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newScheduledThreadPool(2, daemonThreadFactory("Camera scheduler"));
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private CameraExecutors() {
+    }
+
+    /**
+     * Returns a thread factory that creates daemon threads with
+     * the specified name followed by a sequence number.
+     *
+     * @param name The name of the threads.
+     * @return A thread factory for daemon threads.
+     */
+    public static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the scheduler that is shared by all cameras.
+     * @return The shared scheduler.
+     */
+    public static ScheduledExecutorService getScheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * Creates an executor for the commands of a single camera. It runs
+     * the commands one at a time, in the order they were submitted, and
+     * stops its thread when it has been idle for a while.
+     *
+     * @param name The name of the thread of the executor.
+     * @return A single threaded executor.
+     */
+    public static ExecutorService newCameraExecutor(String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), daemonThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+}
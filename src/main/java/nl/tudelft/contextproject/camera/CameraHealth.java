@@ -0,0 +1,280 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class to represent the health of the connection with a camera. It works
+ * as a circuit breaker: every request that reaches the camera or fails is
+ * recorded, and after {@link #getFailureThreshold()} failures in a row the
+ * circuit opens. While the circuit is open, requests are not sent at all,
+ * so an unreachable camera fails fast instead of waiting for a timeout.
+ *
+ * <p>While the circuit is open, the camera is probed in the background
+ * every {@link #getProbeInterval()} milliseconds. The first probe that
+ * succeeds closes the circuit again.
+ *
+ * <p>Observers are notified with the new {@link State} whenever it changes.
+ * They are notified on the thread that caused the change.
+ *
+ * @since 1.1
+ */
+public class CameraHealth extends Observable {
+
+    /**
+     * The health states of a camera.
+     */
+    public enum State {
+        /**
+         * The last request reached the camera.
+         */
+        HEALTHY,
+
+        /**
+         * The last requests failed, but the circuit is still closed.
+         */
+        DEGRADED,
+
+        /**
+         * Too many requests failed, requests fail without being sent.
+         */
+        OPEN
+    }
+
+    /**
+     * The default amount of failures in a row after which the circuit opens.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /**
+     * The default time in milliseconds between two probes of an open circuit.
+     */
+    public static final long DEFAULT_PROBE_INTERVAL = 2000;
+
+    private final Supplier<CompletableFuture<Boolean>> probe;
+    private final int failureThreshold;
+    private final long probeInterval;
+
+    private State state = State.HEALTHY;
+    private int consecutiveFailures;
+    private long successes;
+    private long failures;
+    private long rejected;
+    private long opened;
+    private ScheduledFuture<?> prober;
+    private CompletableFuture<Boolean> lastProbe;
+
+    /**
+     * Creates a healthy circuit with the default threshold and probe interval.
+     * @param probe Starts a probe of the camera, and completes with true iff it answered.
+     */
+    public CameraHealth(Supplier<CompletableFuture<Boolean>> probe) {
+        this(probe, DEFAULT_FAILURE_THRESHOLD, DEFAULT_PROBE_INTERVAL);
+    }
+
+    /**
+     * Creates a healthy circuit.
+     *
+     * @param probe Starts a probe of the camera, and completes with true iff it answered.
+     * @param failureThreshold The amount of failures in a row after which the circuit opens.
+     * @param probeInterval The time in milliseconds between two probes of an open circuit.
+     */
+    public CameraHealth(Supplier<CompletableFuture<Boolean>> probe, int failureThreshold, long probeInterval) {
+        if (failureThreshold < 1 || probeInterval <= 0) {
+            throw new IllegalArgumentException("Invalid threshold or probe interval");
+        }
+
+        this.probe = probe;
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Returns true iff a request may be sent to the camera, which is
+     * the case unless the circuit is open.
+     *
+     * @return True iff the circuit is not open.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            rejected++;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records that a request reached the camera. This closes the circuit.
+     */
+    public void recordSuccess() {
+        synchronized (this) {
+            successes++;
+            consecutiveFailures = 0;
+
+            if (state == State.HEALTHY) {
+                return;
+            }
+
+            stopProbing();
+            state = State.HEALTHY;
+            setChanged();
+        }
+
+        notifyObservers(State.HEALTHY);
+    }
+
+    /**
+     * Records that a request did not reach the camera. The circuit
+     * opens when the failure threshold is reached.
+     */
+    public void recordFailure() {
+        State newState;
+
+        synchronized (this) {
+            failures++;
+            consecutiveFailures++;
+
+            if (consecutiveFailures >= failureThreshold) {
+                newState = State.OPEN;
+            } else {
+                newState = State.DEGRADED;
+            }
+
+            if (newState == state) {
+                return;
+            }
+
+            if (newState == State.OPEN) {
+                opened++;
+                startProbing();
+            }
+            state = newState;
+            setChanged();
+        }
+
+        notifyObservers(newState);
+    }
+
+    /**
+     * Returns the current state of the circuit.
+     * @return The current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns true iff the circuit is open.
+     * @return True iff requests fail without being sent.
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    /**
+     * Returns the amount of failures in a row after which the circuit opens.
+     * @return The failure threshold.
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Returns the time in milliseconds between two probes of an open circuit.
+     * @return The probe interval.
+     */
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    /**
+     * Returns the amount of requests that reached the camera.
+     * @return The amount of successful requests.
+     */
+    public synchronized long getSuccessCount() {
+        return successes;
+    }
+
+    /**
+     * Returns the amount of requests that did not reach the camera.
+     * @return The amount of failed requests.
+     */
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Returns the amount of requests that were not sent because the circuit was open.
+     * @return The amount of rejected requests.
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Returns the amount of times the circuit opened.
+     * @return The amount of times the circuit opened.
+     */
+    public synchronized long getOpenedCount() {
+        return opened;
+    }
+
+    /**
+     * Stops probing the camera, without changing the state.
+     */
+    public synchronized void close() {
+        stopProbing();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CameraHealth[" + state + ", successes=" + successes + ", failures=" + failures
+                + ", rejected=" + rejected + ", opened=" + opened + "]";
+    }
+
+    /**
+     * Starts probing the camera on the shared scheduler.
+     */
+    private void startProbing() {
+        stopProbing();
+        prober = CameraExecutors.getScheduler().scheduleWithFixedDelay(
+                this::runProbe, probeInterval, probeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops probing the camera.
+     */
+    private void stopProbing() {
+        if (prober != null) {
+            prober.cancel(false);
+            prober = null;
+        }
+    }
+
+    /**
+     * Starts a probe, unless the previous one has not completed yet.
+     * The probe itself does not run on the scheduler.
+     */
+    private void runProbe() {
+        CompletableFuture<Boolean> current;
+
+        synchronized (this) {
+            if (state != State.OPEN || (lastProbe != null && !lastProbe.isDone())) {
+                return;
+            }
+
+            current = probe.get();
+            lastProbe = current;
+        }
+
+        current.thenAccept(answered -> {
+            if (answered) {
+                recordSuccess();
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package nl.tudelft.contextproject.camera;
+
+/**
+ * Class to represent how fast the head and lens of a camera move. Pan and
+ * tilt accelerate up to a maximum speed and decelerate before the target,
+ * and pan and tilt get slower when the camera is zoomed in, like the AW
+ * series does to keep the picture steady.
+ *
+ * <p>A speed of 0 or less means that the axis moves instantly, see
+ * {@link #INSTANT}. An acceleration of 0 or less means that the axis moves
+ * at its maximum speed straight away.
+ *
+ * @since 1.1
+ */
+public class CameraMotionModel {
+
+    /**
+     * Model in which every move is instant.
+     */
+    public static final CameraMotionModel INSTANT = new CameraMotionModel(0, 0, 0, 0, 0);
+
+    /**
+     * Model that roughly matches the speed of an AW-HE130.
+     */
+    public static final CameraMotionModel REALISTIC = new CameraMotionModel(20000, 10000, 1365, 1365, 0.75);
+
+    private final double acceleration;
+    private final double panTiltSpeed;
+    private final double zoomSpeed;
+    private final double focusSpeed;
+    private final double telephotoSlowdown;
+
+    /**
+     * Creates a motion model.
+     *
+     * @param acceleration The acceleration of pan and tilt in units per second squared.
+     * @param panTiltSpeed The maximum speed of pan and tilt in units per second, fully zoomed out.
+     * @param zoomSpeed The speed of the zoom in units per second.
+     * @param focusSpeed The speed of the focus in units per second.
+     * @param telephotoSlowdown The part of the pan and tilt speed that is lost
+     *      when fully zoomed in, between 0 and 1.
+     */
+    public CameraMotionModel(double acceleration, double panTiltSpeed, double zoomSpeed,
+            double focusSpeed, double telephotoSlowdown) {
+        this.acceleration = acceleration;
+        this.panTiltSpeed = panTiltSpeed;
+        this.zoomSpeed = zoomSpeed;
+        this.focusSpeed = focusSpeed;
+        this.telephotoSlowdown = Math.max(0, Math.min(1, telephotoSlowdown));
+    }
+
+    /**
+     * Returns true iff every move of this model is instant.
+     * @return True iff no axis takes time to move.
+     */
+    public boolean isInstant() {
+        return panTiltSpeed <= 0 && zoomSpeed <= 0 && focusSpeed <= 0;
+    }
+
+    /**
+     * Returns the acceleration of pan and tilt.
+     * @return The acceleration in units per second squared.
+     */
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * Returns the maximum speed of pan and tilt at the specified zoom.
+     *
+     * @param zoom The zoom value of the camera.
+     * @return The maximum speed in units per second.
+     */
+    public double getPanTiltSpeed(int zoom) {
+        double range = LiveCameraConnection.ZOOM_LIMIT_HIGH - LiveCameraConnection.ZOOM_LIMIT_LOW;
+        double zoomed = Math.max(0, Math.min(1, (zoom - LiveCameraConnection.ZOOM_LIMIT_LOW) / range));
+
+        return panTiltSpeed * (1 - telephotoSlowdown * zoomed);
+    }
+
+    /**
+     * Returns the speed of the zoom.
+     * @return The speed in units per second.
+     */
+    public double getZoomSpeed() {
+        return zoomSpeed;
+    }
+
+    /**
+     * Returns the speed of the focus.
+     * @return The speed in units per second.
+     */
+    public double getFocusSpeed() {
+        return focusSpeed;
+    }
+
+    /**
+     * Returns the distance an axis has travelled, some time after it
+     * started moving towards a target. Pan and tilt accelerate and
+     * decelerate, zoom and focus move at a constant speed.
+     *
+     * @param distance The distance to the target.
+     * @param speed The maximum speed in units per second.
+     * @param accelerates True iff the axis accelerates.
+     * @param seconds The time since the axis started moving.
+     * @return The travelled distance, at most the distance to the target.
+     */
+    public double travelled(double distance, double speed, boolean accelerates, double seconds) {
+        if (speed <= 0 || seconds <= 0) {
+            return speed <= 0 ? distance : 0;
+        }
+
+        double total = travelTime(distance, speed, accelerates);
+        if (seconds >= total) {
+            return distance;
+        } else if (!accelerates || acceleration <= 0) {
+            return speed * seconds;
+        }
+
+        double accelTime = Math.min(speed / acceleration, total / 2);
+        double accelDistance = acceleration * accelTime * accelTime / 2;
+        double peak = acceleration * accelTime;
+
+        if (seconds <= accelTime) {
+            return acceleration * seconds * seconds / 2;
+        } else if (seconds <= total - accelTime) {
+            return accelDistance + peak * (seconds - accelTime);
+        }
+
+        double left = total - seconds;
+        return distance - acceleration * left * left / 2;
+    }
+
+    /**
+     * Returns the time an axis takes to reach a target.
+     *
+     * @param distance The distance to the target.
+     * @param speed The maximum speed in units per second.
+     * @param accelerates True iff the axis accelerates.
+     * @return The travel time in seconds.
+     */
+    public double travelTime(double distance, double speed, boolean accelerates) {
+        if (speed <= 0 || distance <= 0) {
+            return 0;
+        } else if (!accelerates || acceleration <= 0) {
+            return distance / speed;
+        }
+
+        double accelTime = speed / acceleration;
+        double accelDistance = acceleration * accelTime * accelTime / 2;
+
+        if (distance < 2 * accelDistance) {
+            return 2 * Math.sqrt(distance / acceleration);
+        }
+        return 2 * accelTime + (distance - 2 * accelDistance) / speed;
+    }
+}
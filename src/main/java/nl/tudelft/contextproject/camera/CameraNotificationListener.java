@@ -0,0 +1,294 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to receive the update notifications that AW series cameras push to a
+ * TCP port of the client. A camera is subscribed with a request to
+ * <code>/cgi-bin/event</code>, after which it connects to the port of this
+ * listener and sends its position and lens settings whenever they change.
+ *
+ * <p>The notifications are handed to the {@link LiveCameraConnection} that
+ * subscribed, which keeps its state cache current from them. Once a
+ * notification of a camera has been understood, and while its notification
+ * socket is open, the connection {@link LiveCameraConnection#isStatePushed()
+ * does not query} the camera for its state. When the socket closes, the
+ * connection falls back to querying.
+ *
+ * <p>One listener serves every camera, and the camera that sent a notification
+ * is recognized by its address. Notifications carry the same text as the replies
+ * to the matching queries, one per line. Bytes that are not printable text, such
+ * as a binary header around a notification, separate notifications.
+ *
+ * @since 1.1
+ */
+public class CameraNotificationListener {
+
+    /**
+     * The default port the cameras are asked to send their notifications to.
+     */
+    public static final int DEFAULT_PORT = 31004;
+
+    /**
+     * The maximum length of a single notification.
+     */
+    private static final int MAX_NOTIFICATION_LENGTH = 256;
+
+    private static CameraNotificationListener instance;
+
+    private final int port;
+    private final ConcurrentHashMap<String, LiveCameraConnection> subscribers =
+            new ConcurrentHashMap<String, LiveCameraConnection>();
+    private final ConcurrentHashMap<String, Socket> channels = new ConcurrentHashMap<String, Socket>();
+    private final AtomicLong notifications = new AtomicLong();
+
+    private ServerSocket server;
+    private ExecutorService readers;
+
+    /**
+     * Creates a listener on the specified port, which is not started yet.
+     * @param port The port to listen on, or 0 for a free port.
+     */
+    public CameraNotificationListener(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Returns the listener shared by the application, on the {@link #DEFAULT_PORT}.
+     * @return The shared listener.
+     */
+    public static synchronized CameraNotificationListener getInstance() {
+        if (instance == null) {
+            instance = new CameraNotificationListener(DEFAULT_PORT);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Starts listening for notifications. A listener that is already
+     * started is left as it is.
+     *
+     * @throws IOException when the port cannot be opened.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        server = new ServerSocket(port);
+        readers = Executors.newCachedThreadPool(CameraExecutors.daemonThreadFactory("Camera notifications"));
+        ServerSocket listening = server;
+        readers.execute(() -> accept(listening));
+    }
+
+    /**
+     * Stops listening and closes the notification sockets. The subscribed
+     * connections fall back to querying their cameras.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+
+        close(server);
+        for (Socket channel : channels.values()) {
+            close(channel);
+        }
+        readers.shutdownNow();
+        server = null;
+    }
+
+    /**
+     * Returns true iff the listener is started.
+     * @return True iff the listener is started.
+     */
+    public synchronized boolean isStarted() {
+        return server != null;
+    }
+
+    /**
+     * Returns the port the listener listens on.
+     * @return The port, which is only known for a free port once started.
+     */
+    public synchronized int getPort() {
+        return server == null ? port : server.getLocalPort();
+    }
+
+    /**
+     * Subscribes a connection to the notifications of its camera, starting
+     * the listener if needed. A previous subscription to the same camera is
+     * replaced, and its socket is closed, so the notifications no longer
+     * update the previous connection.
+     *
+     * @param connection The connection to keep up to date.
+     * @return True iff the camera accepted the subscription.
+     */
+    public boolean subscribe(LiveCameraConnection connection) {
+        String host = host(connection.getAddress());
+        LiveCameraConnection previous;
+        try {
+            start();
+            previous = subscribers.put(host, connection);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        if (previous != null && previous != connection) {
+            previous.setStatePushed(false);
+            Socket channel = channels.remove(host);
+            if (channel != null) {
+                close(channel);
+            }
+        }
+
+        if (!connection.requestNotifications(true, getPort())) {
+            subscribers.remove(host, connection);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the notifications of the camera of a connection, after which
+     * the connection queries its camera again.
+     *
+     * @param connection The subscribed connection.
+     * @return True iff the connection was subscribed.
+     */
+    public boolean unsubscribe(LiveCameraConnection connection) {
+        String host = host(connection.getAddress());
+        if (!subscribers.remove(host, connection)) {
+            return false;
+        }
+
+        connection.requestNotifications(false, getPort());
+        connection.setStatePushed(false);
+        Socket channel = channels.remove(host);
+        if (channel != null) {
+            close(channel);
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true iff a connection is subscribed to the notifications of its camera.
+     *
+     * @param connection The connection to check.
+     * @return True iff the connection is subscribed.
+     */
+    public boolean isSubscribed(LiveCameraConnection connection) {
+        return subscribers.get(host(connection.getAddress())) == connection;
+    }
+
+    /**
+     * Returns the amount of notifications that updated a connection.
+     * @return The amount of handled notifications.
+     */
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    /**
+     * Accepts the sockets of the cameras until the server socket is closed.
+     * @param listening The server socket to accept on.
+     */
+    private void accept(ServerSocket listening) {
+        while (!listening.isClosed()) {
+            try {
+                Socket socket = listening.accept();
+                readers.execute(() -> read(socket));
+            } catch (IOException e) {
+                if (!listening.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the notifications of one camera until its socket is closed, or
+     * until another connection subscribes to the camera. Sockets from
+     * addresses that are not subscribed are closed straight away.
+     *
+     * @param socket The socket the camera connected with.
+     */
+    private void read(Socket socket) {
+        String host = socket.getInetAddress().getHostAddress();
+        LiveCameraConnection connection = subscribers.get(host);
+        if (connection == null) {
+            close(socket);
+            return;
+        }
+
+        Socket previous = channels.put(host, socket);
+        if (previous != null) {
+            close(previous);
+        }
+
+        try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+            StringBuilder notification = new StringBuilder();
+
+            for (int b = in.read(); b >= 0 && subscribers.get(host) == connection; b = in.read()) {
+                if (b >= 0x20 && b < 0x7F && notification.length() < MAX_NOTIFICATION_LENGTH) {
+                    notification.append((char) b);
+                } else if (notification.length() > 0) {
+                    if (connection.handleNotification(notification.toString())) {
+                        connection.setStatePushed(true);
+                        notifications.incrementAndGet();
+                    }
+                    notification.setLength(0);
+                }
+            }
+        } catch (IOException e) {
+            // The camera or this listener closed the socket.
+        } finally {
+            if (channels.remove(host, socket)) {
+                connection.setStatePushed(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the IP address of the host in an address that may include a port.
+     *
+     * @param address The address, such as <code>192.168.0.10:80</code>.
+     * @return The IP address of the host.
+     */
+    private static String host(String address) {
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? address : address.substring(0, colon);
+
+        try {
+            return InetAddress.getByName(host).getHostAddress();
+        } catch (UnknownHostException e) {
+            return host;
+        }
+    }
+
+    /**
+     * Closes a socket.
+     * @param socket The socket to close.
+     */
+    private static void close(Closeable socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
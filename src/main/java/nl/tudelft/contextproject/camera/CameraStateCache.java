@@ -0,0 +1,187 @@
+package nl.tudelft.contextproject.camera;
+
+/**
+ * Class to represent the last known state of a camera. Reading the state
+ * is a single volatile read, so it never waits for the camera. The state is
+ * updated by the acknowledgements of the commands sent to the camera and by
+ * full reads of the camera settings.
+ *
+ * <p>The state is stale when the last full read is older than the maximum
+ * staleness. Whoever reads the cache decides what to do with a stale state,
+ * see {@link CameraConnection#getCachedCameraSettings()}.
+ *
+ * @since 1.1
+ */
+public class CameraStateCache {
+
+    /**
+     * The default maximum staleness in milliseconds.
+     */
+    public static final long DEFAULT_MAX_STALENESS = 2000;
+
+    private volatile Snapshot snapshot;
+    private volatile long maxStaleness;
+
+    /**
+     * Creates an empty cache with the default maximum staleness.
+     */
+    public CameraStateCache() {
+        this(DEFAULT_MAX_STALENESS);
+    }
+
+    /**
+     * Creates an empty cache with the specified maximum staleness.
+     * An empty cache holds settings with all values set to 0 and is
+     * always stale.
+     *
+     * @param maxStaleness The maximum staleness in milliseconds.
+     */
+    public CameraStateCache(long maxStaleness) {
+        this.snapshot = new Snapshot(0, 0, 0, 0, 0);
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * Returns a copy of the cached camera settings.
+     * @return The cached camera settings.
+     */
+    public CameraSettings get() {
+        Snapshot current = snapshot;
+        return new CameraSettings(current.pan, current.tilt, current.zoom, current.focus);
+    }
+
+    /**
+     * Returns the time in milliseconds since the last full update.
+     * @return The age of the cached settings in milliseconds.
+     */
+    public long getAge() {
+        long timestamp = snapshot.timestamp;
+        return timestamp == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - timestamp;
+    }
+
+    /**
+     * Returns true iff the last full update is older than the maximum staleness.
+     * @return True iff the cached settings are stale.
+     */
+    public boolean isStale() {
+        return getAge() > maxStaleness;
+    }
+
+    /**
+     * Returns true iff the cache has been fully updated at least once.
+     * @return True iff the cache holds values read from the camera.
+     */
+    public boolean isPopulated() {
+        return snapshot.timestamp != 0;
+    }
+
+    /**
+     * Returns the maximum staleness in milliseconds.
+     * @return The maximum staleness in milliseconds.
+     */
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    /**
+     * Sets the maximum staleness in milliseconds.
+     * @param maxStaleness The new maximum staleness in milliseconds.
+     */
+    public void setMaxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * Replaces all cached values with a full read of the camera settings.
+     * @param settings The settings read from the camera.
+     */
+    public synchronized void update(CameraSettings settings) {
+        snapshot = new Snapshot(settings.getPan(), settings.getTilt(),
+                settings.getZoom(), settings.getFocus(), System.currentTimeMillis());
+    }
+
+    /**
+     * Updates the cached pan and tilt values.
+     *
+     * @param pan The new pan value.
+     * @param tilt The new tilt value.
+     */
+    public synchronized void updatePanTilt(int pan, int tilt) {
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(pan, tilt, old.zoom, old.focus, old.timestamp);
+    }
+
+    /**
+     * Moves the cached pan and tilt values a certain offset.
+     *
+     * @param panOffset The offset to pan.
+     * @param tiltOffset The offset to tilt.
+     */
+    public synchronized void offsetPanTilt(int panOffset, int tiltOffset) {
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.pan + panOffset, old.tilt + tiltOffset, old.zoom, old.focus, old.timestamp);
+    }
+
+    /**
+     * Updates the cached zoom value.
+     * @param zoom The new zoom value.
+     */
+    public synchronized void updateZoom(int zoom) {
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.pan, old.tilt, zoom, old.focus, old.timestamp);
+    }
+
+    /**
+     * Updates the cached focus value.
+     * @param focus The new focus value.
+     */
+    public synchronized void updateFocus(int focus) {
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.pan, old.tilt, old.zoom, focus, old.timestamp);
+    }
+
+    /**
+     * Marks the cached settings as stale, without changing their values.
+     */
+    public synchronized void invalidate() {
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.pan, old.tilt, old.zoom, old.focus, 0);
+    }
+
+    @Override
+    public String toString() {
+        Snapshot current = snapshot;
+        return "CameraStateCache[pan: " + current.pan + ", tilt: " + current.tilt
+                + ", zoom: " + current.zoom + ", focus: " + current.focus + "]";
+    }
+
+    /**
+     * Immutable copy of the camera settings, together with the time
+     * of the last full update. A timestamp of 0 means never updated.
+     */
+    private static final class Snapshot {
+
+        private final int pan;
+        private final int tilt;
+        private final int zoom;
+        private final int focus;
+        private final long timestamp;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param pan The pan value.
+         * @param tilt The tilt value.
+         * @param zoom The zoom value.
+         * @param focus The focus value.
+         * @param timestamp The time of the last full update.
+         */
+        private Snapshot(int pan, int tilt, int zoom, int focus, long timestamp) {
+            this.pan = pan;
+            this.tilt = tilt;
+            this.zoom = zoom;
+            this.focus = focus;
+            this.timestamp = timestamp;
+        }
+    }
+}
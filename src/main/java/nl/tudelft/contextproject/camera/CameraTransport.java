@@ -0,0 +1,618 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to represent the HTTP transport to a single camera address.
+ * Instead of opening a new connection for every command, it keeps a
+ * small bounded pool of persistent (keep-alive) sockets per address,
+ * so consecutive commands to the same camera skip the TCP set up.
+ *
+ * <p>Transports are shared: {@link #forAddress(String)} always returns
+ * the same instance for the same address, so every {@link LiveCameraConnection}
+ * talking to a camera uses the same pool.
+ *
+ * <p>The round trip time of every request is recorded in the
+ * {@link RoundTripEstimator} of the transport.
+ *
+ * @since 1.1
+ */
+public final class CameraTransport {
+
+    /**
+     * The maximum amount of sockets that are open to one camera at once.
+     */
+    public static final int POOL_SIZE = 2;
+
+    /**
+     * Time in milliseconds after which an idle socket is no longer reused,
+     * since the camera will have closed it by then.
+     */
+    public static final long KEEP_ALIVE_TIME = 5000;
+
+    private static final ConcurrentHashMap<String, CameraTransport> TRANSPORTS =
+            new ConcurrentHashMap<String, CameraTransport>();
+
+    private final String address;
+    private final LinkedBlockingDeque<PooledSocket> idle;
+    private final Semaphore permits;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    private final RoundTripEstimator roundTrip = new RoundTripEstimator();
+
+    /**
+     * Creates a transport for the specified address.
+     * Use {@link #forAddress(String)} to get the shared instance.
+     *
+     * @param address The address of the camera, optionally with a port.
+     */
+    private CameraTransport(String address) {
+        this.address = address;
+        this.idle = new LinkedBlockingDeque<PooledSocket>(POOL_SIZE);
+        this.permits = new Semaphore(POOL_SIZE, true);
+    }
+
+    /**
+     * Returns the shared transport for the specified camera address,
+     * creating it if it does not exist yet.
+     *
+     * @param address The address of the camera.
+     * @return The transport for the camera with the specified address.
+     */
+    public static CameraTransport forAddress(String address) {
+        return TRANSPORTS.computeIfAbsent(address, CameraTransport::new);
+    }
+
+    /**
+     * Returns true iff a transport to the specified address exists, which
+     * may be shared by a connection to a camera at that address.
+     *
+     * @param address The address of the camera.
+     * @return True iff there is a transport for the address.
+     */
+    public static boolean exists(String address) {
+        return TRANSPORTS.containsKey(address);
+    }
+
+    /**
+     * Closes the transport to an address and forgets it, so that addresses
+     * that turned out not to be cameras do not keep a transport.
+     *
+     * @param address The address of the camera.
+     */
+    public static void discard(String address) {
+        CameraTransport transport = TRANSPORTS.remove(address);
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Closes the idle sockets of all transports.
+     */
+    public static void closeAll() {
+        for (CameraTransport transport : TRANSPORTS.values()) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Returns the address this transport connects to.
+     * @return The address this transport connects to.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Sends a GET request for the specified URL over a pooled socket,
+     * and returns the first line of the response body. A socket that
+     * turns out to be closed by the camera is replaced once.
+     *
+     * @param url The URL containing the full HTTP request.
+     * @param connectTimeout Timeout in milliseconds for setting up a new socket.
+     * @return The first line of the response, or an empty string if there was none.
+     * @throws IOException when the request could not be sent or the response
+     *      could not be read.
+     */
+    public String get(URL url, int connectTimeout) throws IOException {
+        return get(url, connectTimeout, 0);
+    }
+
+    /**
+     * Sends a GET request for the specified URL over a pooled socket, and
+     * gives up when the response does not arrive in time.
+     *
+     * @param url The URL containing the full HTTP request.
+     * @param connectTimeout Timeout in milliseconds for setting up a new socket.
+     * @param readTimeout Timeout in milliseconds for reading the response,
+     *      or 0 to wait as long as it takes.
+     * @return The first line of the response, or an empty string if there was none.
+     * @throws IOException when the request could not be sent or the response
+     *      could not be read in time.
+     */
+    public String get(URL url, int connectTimeout, int readTimeout) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            requests.incrementAndGet();
+
+            for (int attempt = 0; ; attempt++) {
+                PooledSocket socket = takeIdle();
+                boolean isReused = socket != null;
+
+                if (!isReused) {
+                    socket = open(url, connectTimeout);
+                }
+
+                Response response;
+                try {
+                    socket.socket.setSoTimeout(readTimeout);
+                    long sent = System.nanoTime();
+                    response = exchange(socket, url);
+                    roundTrip.record((System.nanoTime() - sent) / 1e6);
+                } catch (IOException e) {
+                    socket.close();
+                    if (e instanceof SocketTimeoutException) {
+                        roundTrip.recordTimeout();
+                    }
+
+                    // The camera may have closed a kept-alive socket in the meantime.
+                    if (!isReused || attempt > 0 || e instanceof SocketTimeoutException) {
+                        throw e;
+                    }
+                    continue;
+                }
+
+                return complete(socket, isReused, response);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Completes a request whose response has been read. The socket is handed
+     * back before the status is checked, and an error status is thrown
+     * outside the retry of {@link #get(URL, int, int)}: the camera has
+     * answered, so the request must not be sent again, and the released
+     * socket may already be in use by another request.
+     *
+     * @param socket The socket the response was read from.
+     * @param isReused True iff the socket was taken from the pool.
+     * @param response The response.
+     * @return The first line of the response, or an empty string if there was none.
+     * @throws IOException when the response has an error status.
+     */
+    private String complete(PooledSocket socket, boolean isReused, Response response) throws IOException {
+        responses.incrementAndGet();
+        if (isReused) {
+            reused.incrementAndGet();
+        }
+
+        if (response.keepAlive) {
+            release(socket);
+        } else {
+            socket.close();
+        }
+
+        if (response.status >= 400) {
+            throw new IOException("Server returned HTTP response code: " + response.status);
+        }
+
+        return response.firstLine;
+    }
+
+    /**
+     * Returns the round trip times of the requests sent over this transport,
+     * from which the timeouts of the requests to the camera are derived.
+     * 
+     * @return The round trip estimator of this transport.
+     */
+    public RoundTripEstimator getRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * Returns the total amount of requests sent over this transport.
+     * @return The total amount of requests sent.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the amount of responses received from the camera,
+     * including responses with an error status.
+     * 
+     * @return The amount of responses received.
+     */
+    public long getResponseCount() {
+        return responses.get();
+    }
+
+    /**
+     * Returns the amount of sockets that were opened by this transport.
+     * @return The amount of sockets opened.
+     */
+    public long getOpenedCount() {
+        return opened.get();
+    }
+
+    /**
+     * Returns the amount of requests that were sent over an already open socket.
+     * @return The amount of times a socket was reused.
+     */
+    public long getReuseCount() {
+        return reused.get();
+    }
+
+    /**
+     * Closes all idle sockets of this transport. Sockets that are in use
+     * are closed when their request finishes.
+     */
+    public void close() {
+        PooledSocket socket;
+        while ((socket = idle.pollFirst()) != null) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CameraTransport[" + address + ", requests=" + requests.get()
+                + ", opened=" + opened.get() + ", reused=" + reused.get() + "]";
+    }
+
+    /**
+     * Takes the most recently used idle socket from the pool, discarding
+     * sockets that have been idle for too long.
+     *
+     * @return An open socket, or null if there is none.
+     */
+    private PooledSocket takeIdle() {
+        PooledSocket socket;
+        while ((socket = idle.pollFirst()) != null) {
+            if (socket.isUsable()) {
+                return socket;
+            }
+            socket.close();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a socket to the pool, or closes it if the pool is full.
+     * @param socket The socket to return.
+     */
+    private void release(PooledSocket socket) {
+        socket.lastUsed = System.currentTimeMillis();
+        if (!idle.offerFirst(socket)) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Opens a new socket to the host of the URL.
+     *
+     * @param url The URL to connect to.
+     * @param connectTimeout Timeout in milliseconds for connecting.
+     * @return The newly opened socket.
+     * @throws IOException when the socket could not be opened.
+     */
+    private PooledSocket open(URL url, int connectTimeout) throws IOException {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        Socket socket = new Socket();
+
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(url.getHost(), port), connectTimeout);
+        } catch (IOException e) {
+            socket.close();
+            if (e instanceof SocketTimeoutException) {
+                roundTrip.recordTimeout();
+            }
+            throw e;
+        }
+
+        opened.incrementAndGet();
+        return new PooledSocket(socket);
+    }
+
+    /**
+     * Writes the GET request to the socket and reads the complete response.
+     *
+     * @param socket The socket to use.
+     * @param url The URL to request.
+     * @return The response of the camera.
+     * @throws IOException when writing or reading fails.
+     */
+    private Response exchange(PooledSocket socket, URL url) throws IOException {
+        socket.request.reset();
+        writeAscii(socket.request, "GET ");
+        writeAscii(socket.request, url.getFile());
+        writeAscii(socket.request, " HTTP/1.1\r\nHost: ");
+        writeAscii(socket.request, url.getAuthority());
+        writeAscii(socket.request, "\r\nConnection: keep-alive\r\n\r\n");
+
+        socket.request.writeTo(socket.out);
+        socket.out.flush();
+
+        return Response.read(socket.in);
+    }
+
+    /**
+     * Writes the characters of a string as ASCII bytes, without
+     * creating an intermediate byte array.
+     *
+     * @param out The stream to write to.
+     * @param string The string to write.
+     */
+    private static void writeAscii(ByteArrayOutputStream out, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            out.write(string.charAt(i));
+        }
+    }
+
+    /**
+     * A socket in the pool, together with its streams.
+     */
+    private static final class PooledSocket {
+
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final ByteArrayOutputStream request;
+        private long lastUsed;
+
+        /**
+         * Wraps an opened socket.
+         *
+         * @param socket The opened socket.
+         * @throws IOException when the streams of the socket cannot be opened.
+         */
+        private PooledSocket(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+            this.request = new ByteArrayOutputStream(256);
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns true iff the socket is open and has not been idle for too long.
+         * @return True iff the socket can be reused.
+         */
+        private boolean isUsable() {
+            return !socket.isClosed() && !socket.isInputShutdown()
+                    && System.currentTimeMillis() - lastUsed < KEEP_ALIVE_TIME;
+        }
+
+        /**
+         * Closes the socket, ignoring any errors.
+         */
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do, the socket is discarded anyway.
+            }
+        }
+    }
+
+    /**
+     * A parsed HTTP response. Only the first line of the body is kept,
+     * since that is all the cameras answer with.
+     */
+    private static final class Response {
+
+        private int status;
+        private boolean keepAlive;
+        private String firstLine;
+
+        /**
+         * Reads a full response from the input stream, so the
+         * socket can be reused afterwards.
+         *
+         * @param in The stream to read from.
+         * @return The parsed response.
+         * @throws IOException when the response is malformed or incomplete.
+         */
+        private static Response read(InputStream in) throws IOException {
+            Response response = new Response();
+            String statusLine = readLine(in);
+            String[] parts = statusLine.split(" ", 3);
+
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+
+            response.status = parseNumber(parts[1], 10, "status code");
+            response.keepAlive = parts[0].equals("HTTP/1.1");
+
+            int contentLength = -1;
+            boolean chunked = false;
+
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+
+                if (name.equals("content-length")) {
+                    contentLength = parseNumber(value, 10, "Content-Length");
+                } else if (name.equals("transfer-encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equals("connection")) {
+                    response.keepAlive = value.equalsIgnoreCase("keep-alive");
+                }
+            }
+
+            byte[] body;
+            if (response.status == 204 || response.status == 304) {
+                body = new byte[0];
+            } else if (chunked) {
+                body = readChunked(in);
+            } else if (contentLength >= 0) {
+                body = readFully(in, contentLength);
+            } else {
+                body = readToEnd(in);
+                response.keepAlive = false;
+            }
+
+            response.firstLine = firstLine(body);
+            return response;
+        }
+
+        /**
+         * Parses a non-negative number from the response, so a malformed
+         * value fails the request like any other malformed response.
+         *
+         * @param value The value to parse.
+         * @param radix The radix of the value.
+         * @param name The name of the value, for the error message.
+         * @return The parsed number.
+         * @throws IOException when the value is not a non-negative number.
+         */
+        private static int parseNumber(String value, int radix, String name) throws IOException {
+            int number;
+            try {
+                number = Integer.parseInt(value, radix);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed " + name + ": " + value, e);
+            }
+
+            if (number < 0) {
+                throw new IOException("Malformed " + name + ": " + value);
+            }
+            return number;
+        }
+
+        /**
+         * Reads a line terminated by CRLF.
+         *
+         * @param in The stream to read from.
+         * @return The line without the line terminator.
+         * @throws IOException when the stream ends before the line does.
+         */
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c == -1) {
+                    throw new EOFException("Connection closed by camera");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        /**
+         * Reads exactly the specified amount of bytes.
+         *
+         * @param in The stream to read from.
+         * @param length The amount of bytes to read.
+         * @return The read bytes.
+         * @throws IOException when the stream ends too early.
+         */
+        private static byte[] readFully(InputStream in, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(bytes, read, length - read);
+                if (n == -1) {
+                    throw new EOFException("Connection closed by camera");
+                }
+                read += n;
+            }
+            return bytes;
+        }
+
+        /**
+         * Reads a body with chunked transfer encoding.
+         *
+         * @param in The stream to read from.
+         * @return The concatenated chunks.
+         * @throws IOException when the body is malformed.
+         */
+        private static byte[] readChunked(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine(in);
+                int semicolon = sizeLine.indexOf(';');
+                int size = parseNumber(
+                        (semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16, "chunk size");
+
+                if (size == 0) {
+                    // Skip the trailers.
+                    while (!readLine(in).isEmpty()) {
+                        continue;
+                    }
+                    return body.toByteArray();
+                }
+
+                body.write(readFully(in, size));
+                readLine(in);
+            }
+        }
+
+        /**
+         * Reads until the camera closes the connection.
+         *
+         * @param in The stream to read from.
+         * @return The read bytes.
+         * @throws IOException when reading fails.
+         */
+        private static byte[] readToEnd(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+            return body.toByteArray();
+        }
+
+        /**
+         * Returns the first line of the body.
+         *
+         * @param body The body of the response.
+         * @return The first line of the body.
+         */
+        private static String firstLine(byte[] body) {
+            int end = 0;
+            while (end < body.length && body[end] != '\r' && body[end] != '\n') {
+                end++;
+            }
+            return new String(body, 0, end, StandardCharsets.UTF_8);
+        }
+    }
+}
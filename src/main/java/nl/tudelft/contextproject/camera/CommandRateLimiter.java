@@ -0,0 +1,136 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to represent a token bucket that spaces the commands sent to a
+ * camera. Cameras drop or reject commands that are sent faster than their
+ * minimum command interval, so every command first takes a token from
+ * the bucket, waiting until one is available.
+ *
+ * <p>The bucket holds at most {@link #getBurst()} tokens, and gets a new
+ * token every interval. With a burst of 1, every two commands are at
+ * least one interval apart.
+ *
+ * @since 1.1
+ */
+public class CommandRateLimiter {
+
+    private final long interval;
+    private final int burst;
+
+    /**
+     * The time at which the bucket is full again if no more
+     * tokens were taken, as in {@link System#nanoTime()}.
+     */
+    private long nextToken;
+    private long throttled;
+    private long waited;
+
+    /**
+     * Creates a rate limiter that allows one command per interval.
+     * @param interval The minimum time in milliseconds between two commands.
+     */
+    public CommandRateLimiter(long interval) {
+        this(interval, 1);
+    }
+
+    /**
+     * Creates a rate limiter that allows bursts of commands.
+     *
+     * @param interval The time in milliseconds in which one token is added.
+     * @param burst The maximum amount of tokens in the bucket.
+     */
+    public CommandRateLimiter(long interval, int burst) {
+        if (interval < 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid interval or burst");
+        }
+
+        this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+        this.burst = burst;
+        this.nextToken = System.nanoTime();
+    }
+
+    /**
+     * Takes a token from the bucket, waiting until one is available.
+     * If the thread is interrupted while waiting, the token is still
+     * taken and the interrupt flag is set again.
+     */
+    public void acquire() {
+        long wait = reserve();
+
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Takes a token from the bucket if one is available right now.
+     * @return True iff a token was taken.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        long tokenAt = Math.max(nextToken, now);
+
+        if (tokenAt - interval * (burst - 1) > now) {
+            return false;
+        }
+
+        nextToken = tokenAt + interval;
+        return true;
+    }
+
+    /**
+     * Reserves the next token and returns how long to wait for it.
+     * @return The time in nanoseconds until the reserved token is available.
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        long tokenAt = Math.max(nextToken, now);
+        long wait = tokenAt - interval * (burst - 1) - now;
+
+        nextToken = tokenAt + interval;
+
+        if (wait > 0) {
+            throttled++;
+            waited += wait;
+        }
+        return Math.max(0, wait);
+    }
+
+    /**
+     * Returns the minimum time in milliseconds between two commands.
+     * @return The interval of this rate limiter.
+     */
+    public long getInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(interval);
+    }
+
+    /**
+     * Returns the maximum amount of commands that can be sent at once.
+     * @return The burst size of this rate limiter.
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Returns the amount of commands that had to wait for a token.
+     * @return The amount of throttled commands.
+     */
+    public synchronized long getThrottledCount() {
+        return throttled;
+    }
+
+    /**
+     * Returns the total time in milliseconds commands waited for a token.
+     * @return The total waiting time in milliseconds.
+     */
+    public synchronized long getWaitedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waited);
+    }
+}
@@ -1,13 +1,25 @@
 package nl.tudelft.contextproject.camera;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 
 /**
  * Class to represent a live connection with a camera. It is
@@ -15,7 +27,32 @@ import java.util.Observable;
  * the actual camera, in this case a Panasonic AW-HE130.
  * 
  * <p>In the {@link #setUpConnection()} method, it will check if the
- * correct {@link #CAMERA_MODEL} is being talked to.
+ * correct {@link #getModel() model} is being talked to.
+ * 
+ * <p>Every acknowledged command and every query updates the
+ * {@link CameraStateCache} of this connection. Relative pan and tilt
+ * moves are clamped to the limits using the cached position, so they
+ * do not need to query the camera first.
+ * 
+ * <p>Commands are encoded and replies are decoded by an {@link AwProtocolCodec}.
+ * 
+ * <p>Every request waits for the {@link CommandRateLimiter} of this
+ * connection, so requests are spaced at least {@link #getMinCommandInterval()}
+ * apart. Commands queued in the {@link CameraCommandQueue} are merged
+ * while they wait.
+ * 
+ * <p>Every request is recorded in the {@link CameraHealth} of this
+ * connection. While its circuit is open, requests fail straight away
+ * and the getters return the last known settings, until a background
+ * <code>QID</code> probe gets an answer again.
+ * 
+ * <p>Timeouts follow the round trip times of the camera, and queries of the
+ * position are hedged when they take unusually long, see {@link #sendQuery(URL)}.
+ * 
+ * <p>A connection can be subscribed to the update notifications of the camera
+ * with a {@link CameraNotificationListener}. While the camera pushes its state,
+ * the state cache is kept current from the notifications, and the getters and
+ * the move tracker read it instead of querying the camera.
  * 
  * @since 0.4
  */
@@ -35,14 +72,62 @@ public class LiveCameraConnection extends CameraConnection {
     public static final int FOCUS_LIMIT_LOW = 1365;
     public static final int FOCUS_LIMIT_HIGH = 4095;
 
-    private static final int READ_TIMEOUT = 1000;
+    /**
+     * Value for {@link #setMoveVerification(long)} that turns verification off.
+     */
+    public static final long NO_VERIFICATION = -1;
+
+    /**
+     * Maximum difference between a target and the position read back
+     * for a move to be verified.
+     */
+    public static final int VERIFY_TOLERANCE = 5;
+
+    /**
+     * Minimum time in milliseconds between two commands to an AW series
+     * camera. Faster commands are answered with an error or dropped.
+     */
+    public static final long MIN_COMMAND_INTERVAL = 130;
+
+    /**
+     * Amount of preset memories of an AW series camera.
+     */
+    public static final int PRESET_SLOTS = 100;
+
+    /**
+     * Percentile of the recent round trip times after which a query is hedged.
+     */
+    public static final double HEDGE_PERCENTILE = 0.95;
+
+    /**
+     * Time in milliseconds the pushed state is trusted after the last
+     * notification or query. A camera only pushes changes, so a camera
+     * that is quiet for longer is queried again, as often as the state
+     * refresher of the application runs.
+     */
+    public static final long PUSHED_STATE_MAX_AGE = 1000;
+
+    private static final ExecutorService QUERIES =
+            Executors.newCachedThreadPool(CameraExecutors.daemonThreadFactory("Camera query"));
+
+    private static final ThreadLocal<AwProtocolCodec> CODEC = ThreadLocal.withInitial(AwProtocolCodec::new);
 
     private final String errorString = "Wrong response from camera: ";
 
     private boolean connected;
-    private boolean autoFocus;
-    private CameraSettings lastKnown;
+    private volatile boolean autoFocus;
+    private volatile long verifyDelay = NO_VERIFICATION;
+    private volatile CompletableFuture<Boolean> lastVerification = CompletableFuture.completedFuture(true);
     private String address;
+    private CameraTransport transport;
+    private volatile CommandRateLimiter rateLimiter;
+    private MovePlanner movePlanner;
+    private volatile boolean hedgedQueries = true;
+    private final AtomicLong hedged = new AtomicLong();
+    private final ConcurrentHashMap<String, URL> queryURLs = new ConcurrentHashMap<String, URL>();
+    private final CameraStateCache reported = new CameraStateCache();
+    private volatile boolean statePushed;
+    private volatile long lastReport;
 
     /**
      * Creates a LiveCameraConnection object. Assumes that the
@@ -54,18 +139,21 @@ public class LiveCameraConnection extends CameraConnection {
     public LiveCameraConnection(String address) {
         this.address = address;
         this.connected = false;
+        this.transport = CameraTransport.forAddress(address);
     }
 
     /**
-     * Returns the last known camera settings.
+     * Returns the last known camera settings, as stored in the
+     * {@link CameraStateCache} of this connection.
+     * 
      * @return The last known camera settings.
      */
     protected CameraSettings getLastKnownSettings() {
-        return lastKnown;
+        return getStateCache().get();
     }
     
     protected void setLastKnownSettings(CameraSettings settings) {
-        this.lastKnown = settings;
+        getStateCache().update(settings);
     }
     
     protected void setConnected(boolean connected) {
@@ -80,15 +168,61 @@ public class LiveCameraConnection extends CameraConnection {
         return address;
     }
 
+    /**
+     * Returns the transport used to send requests to the camera.
+     * It is shared with every other connection to the same address.
+     * 
+     * @return The transport used to send requests to the camera.
+     */
+    public CameraTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the model of the camera this connection talks to.
+     * @return The model of the camera.
+     */
+    public String getModel() {
+        return CAMERA_MODEL;
+    }
+
+    /**
+     * Returns the minimum time in milliseconds between two commands
+     * to the model of camera this connection talks to.
+     * 
+     * @return The minimum command interval of the camera.
+     */
+    public long getMinCommandInterval() {
+        return MIN_COMMAND_INTERVAL;
+    }
+
+    /**
+     * Returns the rate limiter that spaces the requests of this connection.
+     * It is created on first use, with the {@link #getMinCommandInterval()}.
+     * 
+     * @return The rate limiter of this connection.
+     */
+    public CommandRateLimiter getRateLimiter() {
+        CommandRateLimiter limiter = rateLimiter;
+
+        if (limiter == null) {
+            synchronized (this) {
+                if (rateLimiter == null) {
+                    rateLimiter = new CommandRateLimiter(getMinCommandInterval());
+                }
+                limiter = rateLimiter;
+            }
+        }
+
+        return limiter;
+    }
+
     @Override
     public boolean setUpConnection() {
         try {
-            String cameraModel = sendRequest(buildCamControlURL("QID"));
-            if (cameraModel.equals("OID:" + CAMERA_MODEL)) {
-                connected = true;
-                lastKnown = new CameraSettings();
-                lastKnown = getCurrentCameraSettings();
-                hasAutoFocus();
+            String cameraModel = sendRequest(queryURL("QID", false));
+            if (cameraModel.equals("OID:" + getModel())) {
+                initialize();
                 return true;
             }
 
@@ -99,9 +233,24 @@ public class LiveCameraConnection extends CameraConnection {
         }
     }
 
+    /**
+     * Marks the connection as connected and reads the initial state of
+     * the camera. Should only be called directly when the model of the
+     * camera has already been checked, see {@link CameraConnectionFactory}.
+     */
+    protected void initialize() {
+        connected = true;
+        getCurrentCameraSettings();
+        hasAutoFocus();
+    }
+
+    /**
+     * A camera that was set up counts as connected until its circuit opens,
+     * so a single slow reply does not disconnect it.
+     */
     @Override
     public boolean isConnected() {
-        return connected;
+        return connected && !getHealth().isOpen();
     }
 
     @Override
@@ -144,34 +293,440 @@ public class LiveCameraConnection extends CameraConnection {
     }
 
     /**
-     * Sends the HTTP request specified in the URL as a GET request.
+     * Builds the URL that asks the camera to start or stop sending update
+     * notifications to a TCP port of this machine.
+     * 
+     * @param start True to start the notifications, false to stop them.
+     * @param port The port the notifications are sent to.
+     * @return The formed URL, according to the {@link #address}.
+     * @throws MalformedURLException if the URL cannot be formed.
+     */
+    protected URL buildEventURL(boolean start, int port) throws MalformedURLException {
+        return new URL("http://" + address + "/cgi-bin/event?connect=" + (start ? "start" : "stop")
+                + "&my_port=" + port + "&uid=0");
+    }
+
+    /**
+     * Returns the URL for a command without parameters, such as a query.
+     * These URLs are built once and then reused.
+     * 
+     * @param command Command to be sent.
+     * @param panTiltHead True for a command from section 3.1 Pan-tilt Head
+     *      Control, false for one from section 3.2 Camera Control.
+     * @return The URL for the command.
+     * @throws MalformedURLException if the parameter command is null.
+     */
+    private URL queryURL(String command, boolean panTiltHead) throws MalformedURLException {
+        URL url = queryURLs.get(command);
+
+        if (url == null) {
+            url = panTiltHead ? buildPanTiltHeadControlURL(command) : buildCamControlURL(command);
+            queryURLs.put(command, url);
+        }
+        return url;
+    }
+
+    /**
+     * Returns the planner that sets the speed of absolute pan and tilt
+     * moves. It is created on first use, with the {@link #getMotionModel()}.
+     * 
+     * @return The move planner of this connection.
+     */
+    public synchronized MovePlanner getMovePlanner() {
+        if (movePlanner == null) {
+            movePlanner = new MovePlanner(getMotionModel());
+        }
+
+        return movePlanner;
+    }
+
+    /**
+     * Sends the HTTP request specified in the URL as a GET request over
+     * a kept-alive socket of the {@link CameraTransport} of this camera.
      * It waits for a response from the server until a response is
-     * received or until the connection times out, which happens after
-     * the amount of milliseconds specified in {@link #READ_TIMEOUT}.
-     * An empty string is returned if there was no response.
+     * received or until the connection times out. The timeouts are derived
+     * from the round trip times measured by the {@link RoundTripEstimator}
+     * of the transport. An empty string is returned if there was no response.
+     * Before sending, it waits until the {@link #getRateLimiter() rate limiter}
+     * allows another command. While the circuit of the {@link #getHealth() health}
+     * is open, nothing is sent at all.
      * 
      * @param url The URL containing the full HTTP request 
      * @return The response of the server. 
      * @throws IOException when something goes wrong in opening the
-     *      the connection or reading the response from the server.
+     *      the connection or reading the response from the server,
+     *      or when the circuit is open.
      */
     protected String sendRequest(URL url) throws IOException {
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        allowRequest();
+        getRateLimiter().acquire();
+        long responses = transport.getResponseCount();
+
+        try {
+            return succeeded(get(url));
+        } catch (IOException e) {
+            return failed(e, responses);
+        }
+    }
+
+    /**
+     * Sends a query that can safely be sent twice, like {@link #sendRequest(URL)}.
+     * When hedging is on and the query takes longer than 95% of the recent
+     * requests, it is sent again over another socket if the rate limiter
+     * allows it right away, and the first answer is used. A camera that
+     * answers neither still counts as one failure, so unreachable cameras
+     * are not detected later.
+     * 
+     * @param url The URL containing the full HTTP query.
+     * @return The response of the server.
+     * @throws IOException when neither query could be sent or answered,
+     *      or when the circuit is open.
+     * @see #setHedgedQueries(boolean)
+     */
+    protected String sendQuery(URL url) throws IOException {
+        long hedgeDelay = hedgedQueries ? transport.getRoundTrip().getPercentile(HEDGE_PERCENTILE) : -1;
+        if (hedgeDelay < 0) {
+            return sendRequest(url);
+        }
+
+        allowRequest();
+        getRateLimiter().acquire();
+        long responses = transport.getResponseCount();
+        CompletableFuture<String> result = attempt(url);
 
         try {
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(READ_TIMEOUT);
-            connection.connect();
-        } catch (SocketTimeoutException e) {
-            connected = false;
+            try {
+                return succeeded(result.get(Math.max(hedgeDelay, getMinCommandInterval()), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                if (getRateLimiter().tryAcquire()) {
+                    hedged.incrementAndGet();
+                    result = firstSuccess(result, attempt(url));
+                }
+            }
+
+            return succeeded(result.get());
+        } catch (ExecutionException e) {
+            return failed(e.getCause() instanceof IOException
+                    ? (IOException) e.getCause() : new IOException(e.getCause()), responses);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + url);
+        }
+    }
+
+    /**
+     * Sets whether the queries of the position are hedged, see {@link #sendQuery(URL)}.
+     * @param hedgedQueries True to hedge queries, which is the default.
+     */
+    public void setHedgedQueries(boolean hedgedQueries) {
+        this.hedgedQueries = hedgedQueries;
+    }
+
+    /**
+     * Returns the amount of queries that were sent a second time.
+     * @return The amount of hedged queries.
+     */
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    /**
+     * Throws an exception while the circuit of the health is open.
+     * @throws ConnectException when the circuit is open.
+     */
+    private void allowRequest() throws ConnectException {
+        if (!getHealth().allowRequest()) {
+            throw new ConnectException("Camera at " + address + " is unreachable");
+        }
+    }
+
+    /**
+     * Sends a request over the transport, with the current timeouts.
+     * 
+     * @param url The URL containing the full HTTP request.
+     * @return The response of the server.
+     * @throws IOException when the request fails or times out.
+     */
+    private String get(URL url) throws IOException {
+        int timeout = (int) transport.getRoundTrip().getTimeout();
+        return transport.get(url, timeout, timeout);
+    }
+
+    /**
+     * Sends a request on another thread.
+     * 
+     * @param url The URL containing the full HTTP request.
+     * @return A future that completes with the response of the server.
+     */
+    private CompletableFuture<String> attempt(URL url) {
+        CompletableFuture<String> result = new CompletableFuture<String>();
+
+        QUERIES.execute(() -> {
+            try {
+                result.complete(get(url));
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Combines two attempts into a future that completes with the first
+     * response, or with the outcome of the last attempt if neither answered.
+     * 
+     * @param first The first attempt.
+     * @param second The second attempt.
+     * @return A future that completes with the first response.
+     */
+    private static CompletableFuture<String> firstSuccess(CompletableFuture<String> first,
+            CompletableFuture<String> second) {
+        CompletableFuture<String> result = new CompletableFuture<String>();
+        BiConsumer<String, Throwable> done = (res, error) -> {
+            if (error == null && !res.isEmpty()) {
+                result.complete(res);
+            } else if (first.isDone() && second.isDone()) {
+                if (error == null) {
+                    result.complete(res);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            }
+        };
+
+        first.whenComplete(done);
+        second.whenComplete(done);
+        return result;
+    }
+
+    /**
+     * Records that the camera answered.
+     * 
+     * @param res The response of the server.
+     * @return The response of the server.
+     */
+    private String succeeded(String res) {
+        getHealth().recordSuccess();
+        return res;
+    }
+
+    /**
+     * Records that a request failed. A request that timed out returns an
+     * empty response.
+     * 
+     * @param e The reason the request failed.
+     * @param responses The amount of responses of the transport before the request.
+     * @return An empty response, if the request timed out.
+     * @throws IOException when the request failed in another way.
+     */
+    private String failed(IOException e, long responses) throws IOException {
+        CameraHealth health = getHealth();
+
+        if (e instanceof SocketTimeoutException) {
+            health.recordFailure();
             return "";
         }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
-        String response = reader.readLine();
-        reader.close();
+        // An error status still means that the camera answered.
+        if (transport.getResponseCount() == responses) {
+            health.recordFailure();
+        } else {
+            health.recordSuccess();
+        }
+        throw e;
+    }
+
+    /**
+     * Sends a <code>QID</code> request past the open circuit, and marks
+     * the connection as connected again if the right model answers.
+     * 
+     * @return A future that completes with true iff the camera answered.
+     */
+    @Override
+    protected CompletableFuture<Boolean> probe() {
+        return submit(() -> {
+            getRateLimiter().acquire();
+
+            try {
+                String res = get(queryURL("QID", false));
+                connected = res.equals("OID:" + getModel());
+                return connected;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Also unsubscribes from the notifications of the camera, so they reach
+     * the connection that replaced this one.
+     */
+    @Override
+    public void close() {
+        super.close();
+        CameraNotificationListener.getInstance().unsubscribe(this);
+    }
+
+    /**
+     * Asks the camera to start or stop sending update notifications to a
+     * TCP port of this machine, see {@link CameraNotificationListener}.
+     * 
+     * @param start True to start the notifications, false to stop them.
+     * @param port The port the notifications are sent to.
+     * @return True iff the camera accepted the request.
+     */
+    protected boolean requestNotifications(boolean start, int port) {
+        try {
+            sendRequest(buildEventURL(start, port));
+            return connected;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sets whether the camera pushes its state to this connection. Set by the
+     * {@link CameraNotificationListener} once a notification was understood,
+     * and cleared when the notifications stop.
+     * 
+     * @param statePushed True iff the state of the camera is pushed.
+     */
+    protected void setStatePushed(boolean statePushed) {
+        this.statePushed = statePushed;
+    }
+
+    /**
+     * Returns true iff the camera pushes its state, and the state was reported
+     * by a notification or a query in the last {@link #PUSHED_STATE_MAX_AGE}
+     * milliseconds. Otherwise the camera is queried, so a state cache that is
+     * not kept current by the notifications does not stay stale.
+     */
+    @Override
+    public boolean isStatePushed() {
+        return statePushed && System.currentTimeMillis() - lastReport <= PUSHED_STATE_MAX_AGE;
+    }
+
+    /**
+     * Updates the state cache with a notification pushed by the camera.
+     * A notification carries the same text as the reply to the matching
+     * query or command, such as <code>aPC80008000</code> or <code>axz555</code>.
+     * 
+     * @param notification The text of the notification.
+     * @return True iff the notification held a position or setting.
+     */
+    protected boolean handleNotification(String notification) {
+        boolean handled = parseNotification(notification);
+        if (handled) {
+            lastReport = System.currentTimeMillis();
+        }
+
+        return handled;
+    }
+
+    /**
+     * Updates the state cache with the setting in a notification.
+     * 
+     * @param notification The text of the notification.
+     * @return True iff the notification held a position or setting.
+     */
+    private boolean parseNotification(String notification) {
+        if (notification.startsWith("aPC")) {
+            int pan = AwProtocolCodec.parseHex(notification, 3, 7);
+            int tilt = AwProtocolCodec.parseHex(notification, 7, 11);
+
+            if (pan >= 0 && tilt >= 0) {
+                getStateCache().updatePanTilt(pan, tilt);
+                reported.updatePanTilt(pan, tilt);
+                return true;
+            }
+        } else if (notification.startsWith("gz") || notification.startsWith("axz")) {
+            int start = notification.length() - 3;
+            int zoom = AwProtocolCodec.parseHex(notification, start, notification.length());
+
+            if (start >= 2 && zoom >= 0) {
+                getStateCache().updateZoom(zoom);
+                reported.updateZoom(zoom);
+                return true;
+            }
+        } else if (notification.startsWith("gf") || notification.startsWith("axf")) {
+            int start = notification.length() - 3;
+            int focus = AwProtocolCodec.parseHex(notification, start, notification.length());
+
+            if (start >= 2 && focus >= 0) {
+                getStateCache().updateFocus(focus);
+                reported.updateFocus(focus);
+                return true;
+            }
+        } else if (notification.startsWith("d1") && notification.length() == 3) {
+            autoFocus = notification.charAt(2) == '1';
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the position for the move tracker. While the camera pushes its
+     * state, the last position it reported is used, so waiting for a move
+     * does not query the camera. The same goes while moves are still queued,
+     * since a query would be sent ahead of them.
+     *
+     * <p>Otherwise only pan, tilt and zoom are queried, and the focus is
+     * taken from the state cache, so a poll costs two rate limited requests.
+     * 
+     * @return A future that completes with the position of the camera.
+     */
+    @Override
+    protected CompletableFuture<CameraSettings> pollPosition() {
+        if (reported.isPopulated() && (isStatePushed() || !getCommandQueue().isIdle())) {
+            return CompletableFuture.completedFuture(reported.get());
+        }
+
+        return submit(() -> {
+            try {
+                int[] panTilt = readPanTilt();
+                int zoom = readZoom();
+                return new CameraSettings(panTilt[0], panTilt[1], zoom, getStateCache().get().getFocus());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 
-        return response != null ? response : "";
+    /**
+     * Creates a move tracker that polls at most once every two command
+     * intervals, the time a poll takes.
+     * 
+     * @return A new move tracker for this connection.
+     */
+    @Override
+    protected MoveTracker createMoveTracker() {
+        return new MoveTracker(this::pollPosition, getMotionModel(), MoveTracker.DEFAULT_TOLERANCE,
+                MoveTracker.DEFAULT_TIMEOUT, 2 * getMinCommandInterval());
+    }
+
+    /**
+     * The camera is sent its settings rounded to its limits, so that is where it ends up.
+     * 
+     * @param target The settings the camera is moved to.
+     * @return The settings rounded to the limits of the camera.
+     */
+    @Override
+    protected CameraSettings expectedPosition(CameraSettings target) {
+        return withinLimits(target);
+    }
+
+    /**
+     * The focus is not sent while the camera is on auto focus,
+     * so moves are only tracked with their focus when it is off.
+     * 
+     * @return True iff the camera is not on auto focus.
+     */
+    @Override
+    protected boolean isFocusTracked() {
+        return !autoFocus;
     }
 
     /**
@@ -181,10 +736,11 @@ public class LiveCameraConnection extends CameraConnection {
     public boolean hasAutoFocus() {
         if (connected) {
             try {
-                String autoFocusRes = sendRequest(buildPanTiltHeadControlURL("%23D1"));
+                String autoFocusRes = sendRequest(queryURL("%23D1", true));
+                int value = AwProtocolCodec.parseHex(autoFocusRes, 2, autoFocusRes.length());
 
-                if (autoFocusRes.startsWith("d1")) {
-                    autoFocus = Integer.parseInt(autoFocusRes.substring(2)) == 1;
+                if (autoFocusRes.startsWith("d1") && value >= 0) {
+                    autoFocus = value == 1;
                 } else {
                     throw new IOException(errorString + autoFocusRes);
                 }
@@ -231,84 +787,244 @@ public class LiveCameraConnection extends CameraConnection {
         }
 
         if (arg instanceof CameraSettings) {
-            mutateSettings((CameraSettings) arg);
+            mutateSettings((CameraSettings) arg, MovePlanner.URGENT);
         }
     }
 
+    /**
+     * Sends only the settings that differ from the last known state
+     * of the camera, like {@link #update(Observable, Object)}.
+     */
+    @Override
+    protected boolean applySettings(CameraSettings settings) {
+        return mutateSettings(settings, MovePlanner.URGENT);
+    }
+
+    /**
+     * Sends only the settings that differ from the last known state of the
+     * camera. Pan and tilt move at the slowest speed that arrives in time.
+     */
+    @Override
+    protected boolean applySettings(CameraSettings settings, long duration) {
+        return mutateSettings(settings, duration);
+    }
+
+    /**
+     * Sets whether moves made through {@link #update(Observable, Object)}
+     * are verified. When verification is on, the position is read back
+     * once, asynchronously, the specified time after the move was sent.
+     * 
+     * @param delay The time in milliseconds to wait before reading the
+     *      position back, or {@link #NO_VERIFICATION} to turn it off.
+     */
+    public void setMoveVerification(long delay) {
+        this.verifyDelay = delay;
+    }
+
+    /**
+     * Returns the result of the verification of the last move.
+     * @return A future that completes with true iff the camera reached
+     *      the target of the last verified move.
+     */
+    public CompletableFuture<Boolean> getLastVerification() {
+        return lastVerification;
+    }
+
     /**
      * Finds the least amount of commands to send to the 
      * camera in order to apply the specified camera settings.
      * 
      * @param toSet Camera settings to apply to the camera.
+     * @param duration The time in milliseconds pan and tilt may take,
+     *      or {@link MovePlanner#URGENT} to move at full speed.
      * @return True iff the camera was set to the specified settings.
      */
-    private boolean mutateSettings(CameraSettings toSet) {
-        CameraSettings curSettings = getCurrentCameraSettings();
-        boolean result = true;
+    private boolean mutateSettings(CameraSettings toSet, long duration) {
+        return runSteps(planSettings(toSet, duration));
+    }
+
+    /**
+     * Plans the least amount of commands to send to the camera in order to
+     * apply the specified camera settings, one step per axis.
+     * The settings are compared with the last known state of the camera,
+     * so no queries are sent unless that state is still unknown.
+     * Settings that are stored in a preset memory of the camera are
+     * recalled in a single step, unless the move has a duration.
+     */
+    @Override
+    protected List<BooleanSupplier> planSettings(CameraSettings toSet, long duration) {
+        CameraSettings curSettings = getStateCache().isPopulated() 
+                ? getStateCache().get() : getCurrentCameraSettings();
+        List<BooleanSupplier> axes = planAxes(curSettings, toSet, duration);
+        List<BooleanSupplier> steps = new ArrayList<BooleanSupplier>();
+
+        if (duration <= MovePlanner.URGENT && !curSettings.equals(toSet) && hasStoredPreset(toSet)) {
+            steps.add(() -> recallStoredPreset(toSet) || runSteps(axes));
+        } else {
+            steps.addAll(axes);
+        }
+
+        if (!steps.isEmpty() && verifyDelay != NO_VERIFICATION) {
+            BooleanSupplier last = steps.remove(steps.size() - 1);
+            steps.add(() -> {
+                boolean result = last.getAsBoolean();
+                lastVerification = verifyMove(withinLimits(toSet));
+                return result;
+            });
+        }
+
+        return steps;
+    }
+
+    /**
+     * Plans a move for every axis whose setting differs from the current one.
+     * 
+     * @param curSettings The last known settings of the camera.
+     * @param toSet Camera settings to apply to the camera.
+     * @param duration The time in milliseconds pan and tilt may take,
+     *      or {@link MovePlanner#URGENT} to move at full speed.
+     * @return The moves, in order.
+     */
+    private List<BooleanSupplier> planAxes(CameraSettings curSettings, CameraSettings toSet, long duration) {
+        List<BooleanSupplier> axes = new ArrayList<BooleanSupplier>();
 
         if (curSettings.getPan() != toSet.getPan() 
                 || curSettings.getTilt() != toSet.getTilt()) {
-            result = result && absPanTilt(toSet.getPan(), toSet.getTilt());
+            axes.add(() -> duration <= MovePlanner.URGENT 
+                    ? absPanTilt(toSet.getPan(), toSet.getTilt())
+                    : absPanTilt(toSet.getPan(), toSet.getTilt(), duration));
         }
 
         if (curSettings.getZoom() != toSet.getZoom()) {
-            result = result && absZoom(toSet.getZoom());
+            axes.add(() -> absZoom(toSet.getZoom()));
         }
 
-        if (!hasAutoFocus() && curSettings.getFocus() != toSet.getFocus()) {
-            result = result && absFocus(toSet.getFocus());
+        if (!autoFocus && curSettings.getFocus() != toSet.getFocus()) {
+            axes.add(() -> absFocus(toSet.getFocus()));
         }
 
-        return result;
+        return axes;
+    }
+
+    /**
+     * Reads the position of the camera back after {@link #verifyDelay}
+     * milliseconds and compares it with the target of a move. The read
+     * also refreshes the state cache, so a move that did not arrive is
+     * sent again on the next update.
+     * 
+     * @param target The target of the move, within the limits of the camera.
+     * @return A future that completes with true iff the camera reached the target.
+     */
+    private CompletableFuture<Boolean> verifyMove(CameraSettings target) {
+        CompletableFuture<Boolean> verified = new CompletableFuture<Boolean>();
+
+        CameraExecutors.getScheduler().schedule(() -> 
+            refreshState().whenComplete((actual, e) -> {
+                if (e != null) {
+                    verified.completeExceptionally(e);
+                } else {
+                    verified.complete(Math.abs(actual.getPan() - target.getPan()) <= VERIFY_TOLERANCE
+                            && Math.abs(actual.getTilt() - target.getTilt()) <= VERIFY_TOLERANCE
+                            && Math.abs(actual.getZoom() - target.getZoom()) <= VERIFY_TOLERANCE
+                            && (autoFocus 
+                                    || Math.abs(actual.getFocus() - target.getFocus()) <= VERIFY_TOLERANCE));
+                }
+            }), verifyDelay, TimeUnit.MILLISECONDS);
+
+        return verified;
+    }
+
+    /**
+     * Returns the camera settings the camera ends up with when it is
+     * sent the specified settings, which are rounded to its limits.
+     * 
+     * @param settings The settings to send to the camera.
+     * @return The settings rounded to the limits of the camera.
+     */
+    private CameraSettings withinLimits(CameraSettings settings) {
+        return new CameraSettings(
+                roundToBounds(settings.getPan(), PAN_LIMIT_LOW, PAN_LIMIT_HIGH),
+                roundToBounds(settings.getTilt(), TILT_LIMIT_LOW, TILT_LIMIT_HIGH),
+                roundToBounds(settings.getZoom(), ZOOM_LIMIT_LOW, ZOOM_LIMIT_HIGH),
+                roundToBounds(settings.getFocus(), FOCUS_LIMIT_LOW, FOCUS_LIMIT_HIGH));
     }
 
     @Override
     public CameraSettings getCurrentCameraSettings() {
+        if (getHealth().isOpen() || isStatePushed()) {
+            return getStateCache().get();
+        }
+
         int[] panTilt = getCurrentPanTilt();
         int zoom = getCurrentZoom();
         int focus = getCurrentFocus();
-        lastKnown = new CameraSettings(panTilt[0], panTilt[1], zoom, focus);
+        CameraSettings settings = new CameraSettings(panTilt[0], panTilt[1], zoom, focus);
+        getStateCache().update(settings);
+        reported.update(settings);
+        lastReport = System.currentTimeMillis();
 
-        return lastKnown;
+        return settings;
     }
 
     @Override
     public int[] getCurrentPanTilt() {
         try {
-            String panTiltRes = sendRequest(buildPanTiltHeadControlURL("%23APC"));
-
-            if (panTiltRes.startsWith("aPC")) {
-                int pan = Integer.parseInt(panTiltRes.substring(3, 7), 16);
-                int tilt = Integer.parseInt(panTiltRes.substring(7, 11), 16);
-                lastKnown.setPan(pan);
-                lastKnown.setTilt(tilt);
-                return new int[] {pan, tilt};
-            }
-            throw new IOException(errorString + panTiltRes);
+            return readPanTilt();
         } catch (IOException e) {
             e.printStackTrace();
+            CameraSettings lastKnown = getStateCache().get();
             return new int[]{lastKnown.getPan(), lastKnown.getTilt()};
         }
     }
 
+    /**
+     * Queries the pan and tilt of the camera, and stores them in the state cache.
+     * 
+     * @return The pan and tilt of the camera.
+     * @throws IOException If the camera could not be queried or its response is invalid.
+     */
+    private int[] readPanTilt() throws IOException {
+        String panTiltRes = sendQuery(queryURL("%23APC", true));
+        int pan = AwProtocolCodec.parseHex(panTiltRes, 3, 7);
+        int tilt = AwProtocolCodec.parseHex(panTiltRes, 7, 11);
+
+        if (panTiltRes.startsWith("aPC") && pan >= 0 && tilt >= 0) {
+            getStateCache().updatePanTilt(pan, tilt);
+            reported.updatePanTilt(pan, tilt);
+            return new int[] {pan, tilt};
+        }
+        throw new IOException(errorString + panTiltRes);
+    }
+
     @Override
     public int getCurrentZoom() {
         try {
-            String zoomRes = sendRequest(buildPanTiltHeadControlURL("%23GZ"));
-
-            if (zoomRes.startsWith("gz")) {
-                int zoom = Integer.parseInt(zoomRes.substring(2, 5), 16);
-                lastKnown.setZoom(zoom);
-                return zoom;
-            }
-
-            throw new IOException(errorString + zoomRes);
+            return readZoom();
         } catch (IOException e) {
             e.printStackTrace();
-            return lastKnown.getZoom();
+            return getStateCache().get().getZoom();
         }
     }
 
+    /**
+     * Queries the zoom of the camera, and stores it in the state cache.
+     * 
+     * @return The zoom of the camera.
+     * @throws IOException If the camera could not be queried or its response is invalid.
+     */
+    private int readZoom() throws IOException {
+        String zoomRes = sendQuery(queryURL("%23GZ", true));
+        int zoom = AwProtocolCodec.parseHex(zoomRes, 2, 5);
+
+        if (zoomRes.startsWith("gz") && zoom >= 0) {
+            getStateCache().updateZoom(zoom);
+            reported.updateZoom(zoom);
+            return zoom;
+        }
+
+        throw new IOException(errorString + zoomRes);
+    }
+
     @Override
     public int getCurrentFocus() {
         if (autoFocus) {
@@ -316,36 +1032,85 @@ public class LiveCameraConnection extends CameraConnection {
         }
 
         try {
-            String focusRes = sendRequest(buildPanTiltHeadControlURL("%23GF"));
+            String focusRes = sendQuery(queryURL("%23GF", true));
+            int focus = AwProtocolCodec.parseHex(focusRes, 2, focusRes.length());
 
-            if (focusRes.startsWith("gf")) {
-                int focus = Integer.parseInt(focusRes.substring(2), 16);
+            if (focusRes.startsWith("gf") && focus >= 0) {
+                getStateCache().updateFocus(focus);
+                reported.updateFocus(focus);
                 return focus;
             }
 
             throw new IOException(errorString + focusRes);
         } catch (IOException e) {
             e.printStackTrace();
-            return lastKnown.getFocus();
+            return getStateCache().get().getFocus();
         }
     }
 
     @Override
     protected boolean absPanTilt(int panValue, int tiltValue) {
+        return absPanTilt(panValue, tiltValue, MovePlanner.URGENT);
+    }
+
+    @Override
+    public int getPresetSlotCount() {
+        return PRESET_SLOTS;
+    }
+
+    @Override
+    protected boolean savePresetSlot(int slot) {
+        return sendPresetCommand(CODEC.get().savePreset(slot).toString());
+    }
+
+    @Override
+    protected boolean recallPresetSlot(int slot) {
+        return sendPresetCommand(CODEC.get().recallPreset(slot).toString());
+    }
+
+    /**
+     * Sends a command to store or recall a preset memory. The camera
+     * answers both with <code>s</code> followed by the slot number.
+     * 
+     * @param cmd The encoded command.
+     * @return True iff the command was sent and received successfully.
+     */
+    private boolean sendPresetCommand(String cmd) {
+        try {
+            String res = sendRequest(buildPanTiltHeadControlURL(cmd));
+
+            if (res.startsWith("s")) {
+                return true;
+            }
+
+            throw new IOException(errorString + res);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Pans and tilts to absolute values, at the slowest speed at which
+     * the head arrives within the specified time.
+     * 
+     * @param panValue The absolute pan value to pan to.
+     * @param tiltValue The absolute tilt value to tilt to.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move at full speed.
+     * @return True iff the command was sent and received successfully.
+     */
+    protected boolean absPanTilt(int panValue, int tiltValue, long duration) {
         panValue = roundToBounds(panValue, PAN_LIMIT_LOW, PAN_LIMIT_HIGH);
         tiltValue = roundToBounds(tiltValue, TILT_LIMIT_LOW, TILT_LIMIT_HIGH);
+        int speed = getMovePlanner().planSpeed(getStateCache().get(), panValue, tiltValue, duration);
 
         try {
             String res = sendRequest(buildPanTiltHeadControlURL(
-                    "%23APS" 
-                            + Integer.toHexString(0x10000 | panValue).substring(1).toUpperCase() 
-                            + Integer.toHexString(0x10000 | tiltValue).substring(1).toUpperCase()
-                            + "1D" + "2"
-                    ));
+                    CODEC.get().absPanTilt(panValue, tiltValue, speed).toString()));
 
             if (res.startsWith("aPS")) {
-                lastKnown.setPan(panValue);
-                lastKnown.setTilt(tiltValue);
+                getStateCache().updatePanTilt(panValue, tiltValue);
                 return true;
             }
 
@@ -358,24 +1123,22 @@ public class LiveCameraConnection extends CameraConnection {
 
     @Override
     protected boolean absPan(int value) {
-        return absPanTilt(value, lastKnown.getTilt());
+        return absPanTilt(value, getStateCache().get().getTilt());
     }
 
     @Override
     protected boolean absTilt(int value) {
-        return absPanTilt(lastKnown.getPan(), value);
+        return absPanTilt(getStateCache().get().getPan(), value);
     }
 
     @Override
     protected boolean absZoom(int value) {
         value = roundToBounds(value, ZOOM_LIMIT_LOW, ZOOM_LIMIT_HIGH);
         try {
-            String res = sendRequest(buildPanTiltHeadControlURL("%23AXZ" 
-                    + Integer.toHexString(0x1000 | value).substring(1).toUpperCase()
-                    ));
+            String res = sendRequest(buildPanTiltHeadControlURL(CODEC.get().absZoom(value).toString()));
 
             if (res.startsWith("axz")) {
-                lastKnown.setZoom(value);
+                getStateCache().updateZoom(value);
                 return true;
             }
 
@@ -395,12 +1158,10 @@ public class LiveCameraConnection extends CameraConnection {
                 throw new IOException("Autofocus is on");
             }
 
-            String res = sendRequest(buildPanTiltHeadControlURL("%23AXF" 
-                    + Integer.toHexString(0x1000 | value).substring(1).toUpperCase()
-                    ));
+            String res = sendRequest(buildPanTiltHeadControlURL(CODEC.get().absFocus(value).toString()));
 
             if (res.startsWith("axf")) {
-                lastKnown.setFocus(value);
+                getStateCache().updateFocus(value);
                 return true;
             } else if (res.startsWith("ER3")) {
                 autoFocus = true;
@@ -416,7 +1177,7 @@ public class LiveCameraConnection extends CameraConnection {
 
     @Override
     protected boolean relPanTilt(int panOffset, int tiltOffset) {
-        CameraSettings curSet = getCurrentCameraSettings();
+        CameraSettings curSet = getStateCache().get();
 
         if (curSet.getPan() + panOffset < PAN_LIMIT_LOW) {
             panOffset = curSet.getPan() - PAN_LIMIT_LOW;
@@ -431,14 +1192,11 @@ public class LiveCameraConnection extends CameraConnection {
         }
 
         try {
-            String res = sendRequest(buildPanTiltHeadControlURL("%23RPC" 
-                    + Integer.toHexString(0x10000 | 32768 + panOffset).substring(1).toUpperCase() 
-                    + Integer.toHexString(0x10000 | 32768 + tiltOffset).substring(1).toUpperCase()
-                    ));
+            String res = sendRequest(buildPanTiltHeadControlURL(
+                    CODEC.get().relPanTilt(panOffset, tiltOffset).toString()));
 
             if (res.startsWith("rPC")) {
-                lastKnown.pan(panOffset);
-                lastKnown.tilt(tiltOffset);
+                getStateCache().offsetPanTilt(panOffset, tiltOffset);
                 return true;
             }
 
@@ -461,12 +1219,12 @@ public class LiveCameraConnection extends CameraConnection {
 
     @Override
     protected boolean relZoom(int offset) {
-        return absZoom(getCurrentZoom() + offset);
+        return absZoom(getStateCache().get().getZoom() + offset);
     }
 
     @Override
     protected boolean relFocus(int offset) {
-        return absFocus(getCurrentFocus() + offset);
+        return absFocus(getStateCache().get().getFocus() + offset);
     }
     
     @Override
@@ -479,10 +1237,8 @@ public class LiveCameraConnection extends CameraConnection {
         tiltSpeed = roundToBounds(tiltSpeed, 1, 99);
         
         try {
-            String res = sendRequest(buildPanTiltHeadControlURL("%23PTS" 
-                            + String.format("%02d", panSpeed) 
-                            + String.format("%02d", tiltSpeed))
-                         );
+            String res = sendRequest(buildPanTiltHeadControlURL(
+                    CODEC.get().panTiltSpeed(panSpeed, tiltSpeed).toString()));
             if (res.startsWith("pTS")) {
                 return true;
             }
@@ -495,7 +1251,7 @@ public class LiveCameraConnection extends CameraConnection {
     @Override
     protected boolean panTiltStop() {
         try {
-            String res = sendRequest(buildPanTiltHeadControlURL("%23PTS5050"));
+            String res = sendRequest(queryURL("%23PTS5050", true));
             if (res.equals("pTS5050")) {
                 return true;
             }
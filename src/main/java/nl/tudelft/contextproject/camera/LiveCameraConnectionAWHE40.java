@@ -1,7 +1,5 @@
 package nl.tudelft.contextproject.camera;
 
-import java.io.IOException;
-
 public class LiveCameraConnectionAWHE40 extends LiveCameraConnection {
 
     public static final String CAMERA_MODEL = "AW-HE40";
@@ -11,23 +9,8 @@ public class LiveCameraConnectionAWHE40 extends LiveCameraConnection {
     }
     
     @Override
-    public boolean setUpConnection() {
-        try {
-            String cameraModel = sendRequest(buildCamControlURL("QID"));
-
-            if (cameraModel.equals("OID:" + CAMERA_MODEL)) {
-                setConnected(true);
-                setLastKnownSettings(new CameraSettings());
-                setLastKnownSettings(getCurrentCameraSettings());
-                hasAutoFocus();
-                return true;
-            }
-
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        }
+    public String getModel() {
+        return CAMERA_MODEL;
     }
     
     @Override
@@ -1,21 +1,48 @@
 package nl.tudelft.contextproject.camera;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Observable;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to represent a mocked camera. It mimics or mocks the behavior of a specific camera
  * without having a real connection to the cameras.
  * 
+ * <p>By default, every move is instant. With a {@link CameraMotionModel} set,
+ * moves take as long as they would on a real camera. Moving cameras are
+ * stepped on the shared scheduler of {@link CameraExecutors}, so no mocked
+ * camera needs a thread of its own.
+ * 
  * @since 0.4
  */
 public class MockedCameraConnection extends CameraConnection {
 
+    /**
+     * Time in milliseconds between two steps of a moving camera.
+     */
+    public static final long STEP_INTERVAL = 20;
+
+    /**
+     * Time in milliseconds after which a camera stops panning and tilting by itself.
+     */
+    public static final long JOG_TIMEOUT = 60000;
+
+    private static final int PAN = 0;
+    private static final int TILT = 1;
+    private static final int ZOOM = 2;
+    private static final int FOCUS = 3;
+
     private CameraSettings camSet = new CameraSettings(30, 30, 30, 1365);
     private String streamLink = "src\\main\\resources\\error-q.png";
     
-    private Timer timer;
+    private CameraMotionModel motion = CameraMotionModel.INSTANT;
+    private final Move[] moves = new Move[4];
+    private ScheduledFuture<?> stepper;
+    private CompletableFuture<Boolean> arrival = CompletableFuture.completedFuture(true);
+    private final Map<Integer, CameraSettings> presetMemory = new HashMap<Integer, CameraSettings>();
 
     @Override
     public boolean setUpConnection() {
@@ -40,9 +67,99 @@ public class MockedCameraConnection extends CameraConnection {
         streamLink = link;
     }
 
+    /**
+     * Sets how fast this mocked camera moves.
+     * @param motion The motion model, or {@link CameraMotionModel#INSTANT} for instant moves.
+     */
+    public synchronized void setMotionModel(CameraMotionModel motion) {
+        this.motion = motion;
+    }
+
+    /**
+     * Returns how fast this mocked camera moves.
+     * @return The motion model of this camera.
+     */
+    @Override
+    public synchronized CameraMotionModel getMotionModel() {
+        return motion;
+    }
+
+    /**
+     * A mocked camera knows its position, so it does not need a state cache.
+     */
+    @Override
+    public long estimateTravelTime(CameraSettings target) {
+        return getMoveTracker().estimate(camSet, target);
+    }
+
+    /**
+     * A mocked camera knows when it arrives, so its position is not polled.
+     */
+    @Override
+    public synchronized CompletableFuture<Boolean> awaitPosition(CameraSettings from, CameraSettings target,
+            long duration) {
+        return arrival;
+    }
+
+    /**
+     * Returns true iff the camera is still moving.
+     * @return True iff the camera is moving.
+     */
+    public synchronized boolean isMoving() {
+        return stepper != null;
+    }
+
+    /**
+     * A mocked camera has as many preset memories as an AW series camera.
+     */
+    @Override
+    public int getPresetSlotCount() {
+        return LiveCameraConnection.PRESET_SLOTS;
+    }
+
     @Override
-    public CameraSettings getCurrentCameraSettings() {
-        return camSet;
+    protected synchronized boolean savePresetSlot(int slot) {
+        presetMemory.put(slot, new CameraSettings(camSet.getPan(), camSet.getTilt(), 
+                camSet.getZoom(), camSet.getFocus()));
+        return true;
+    }
+
+    @Override
+    protected synchronized boolean recallPresetSlot(int slot) {
+        CameraSettings stored = presetMemory.get(slot);
+
+        if (stored == null) {
+            return false;
+        }
+
+        applySettingsAsync(stored);
+        return true;
+    }
+
+    /**
+     * Mocked commands only change the settings in memory, so they
+     * are applied directly on the calling thread.
+     */
+    @Override
+    protected CameraCommandQueue createCommandQueue() {
+        return new CameraCommandQueue(this, Runnable::run);
+    }
+
+    /**
+     * Returns a copy of the settings of the camera, so a caller cannot move
+     * the camera by changing them.
+     */
+    @Override
+    public synchronized CameraSettings getCurrentCameraSettings() {
+        return new CameraSettings(camSet.getPan(), camSet.getTilt(), camSet.getZoom(), camSet.getFocus());
+    }
+
+    /**
+     * The mocked settings are kept in memory, so they are never stale.
+     */
+    @Override
+    public CameraSettings getCachedCameraSettings() {
+        return getCurrentCameraSettings();
     }
 
     @Override
@@ -61,67 +178,74 @@ public class MockedCameraConnection extends CameraConnection {
     }
 
     @Override
-    protected boolean absPanTilt(int panValue, int tiltValue) {
-        camSet.setPan(panValue);
-        camSet.setTilt(tiltValue);
-
-        return true;
+    protected synchronized boolean absPanTilt(int panValue, int tiltValue) {
+        return moveTo(PAN, panValue) & moveTo(TILT, tiltValue);
     }
 
     @Override
-    protected boolean absPan(int value) {
-        camSet.setPan(value);
-        return true;
+    protected synchronized boolean absPan(int value) {
+        return moveTo(PAN, value);
     }
 
     @Override
-    protected boolean absTilt(int value) {
-        camSet.setTilt(value);
-        return true;
+    protected synchronized boolean absTilt(int value) {
+        return moveTo(TILT, value);
     }
 
     @Override
-    protected boolean absZoom(int value) {
-        camSet.setZoom(value);
-        return true;
+    protected synchronized boolean absZoom(int value) {
+        return moveTo(ZOOM, value);
     }
 
     @Override
-    protected boolean absFocus(int value) {
-        camSet.setFocus(value);
-        return true;
+    protected synchronized boolean absFocus(int value) {
+        return moveTo(FOCUS, value);
     }
 
     @Override
-    protected boolean relPanTilt(int panOffset, int tiltOffset) {
-        camSet.pan(panOffset);
-        camSet.tilt(tiltOffset);
+    protected synchronized boolean relPanTilt(int panOffset, int tiltOffset) {
+        return moveTo(PAN, get(PAN) + panOffset) & moveTo(TILT, get(TILT) + tiltOffset);
+    }
 
-        return true;
+    @Override
+    protected synchronized boolean relPan(int offset) {
+        return moveTo(PAN, get(PAN) + offset);
     }
 
     @Override
-    protected boolean relPan(int offset) {
-        camSet.pan(offset);
-        return true;
+    protected synchronized boolean relTilt(int offset) {
+        return moveTo(TILT, get(TILT) + offset);
     }
 
     @Override
-    protected boolean relTilt(int offset) {
-        camSet.tilt(offset);
-        return true;
+    protected synchronized boolean relZoom(int offset) {
+        return moveTo(ZOOM, get(ZOOM) + offset);
     }
 
     @Override
-    protected boolean relZoom(int offset) {
-        camSet.zoom(offset);
-        return true;
+    protected synchronized boolean relFocus(int offset) {
+        return moveTo(FOCUS, get(FOCUS) + offset);
     }
 
+    /**
+     * Mocked settings are applied on the calling thread. The future
+     * completes once the camera has reached the settings, which is
+     * straight away unless a {@link CameraMotionModel} is set.
+     */
     @Override
-    protected boolean relFocus(int offset) {
-        camSet.focus(offset);
-        return true;
+    public synchronized CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings) {
+        if (motion.isInstant()) {
+            camSet = new CameraSettings(settings.getPan(), settings.getTilt(), 
+                    settings.getZoom(), settings.getFocus());
+            return CompletableFuture.completedFuture(true);
+        }
+
+        moveTo(PAN, settings.getPan());
+        moveTo(TILT, settings.getTilt());
+        moveTo(ZOOM, settings.getZoom());
+        moveTo(FOCUS, settings.getFocus());
+
+        return arrival;
     }
 
     @Override
@@ -131,41 +255,281 @@ public class MockedCameraConnection extends CameraConnection {
         }
 
         if (arg instanceof CameraSettings) {
-            camSet = (CameraSettings) arg;
+            synchronized (this) {
+                if (motion.isInstant()) {
+                    camSet = (CameraSettings) arg;
+                } else {
+                    applySettingsAsync((CameraSettings) arg);
+                }
+            }
         }
     }
 
+    /**
+     * Starts panning and tilting. A camera without motion model pans and
+     * tilts 2 units every 100 milliseconds for every step away from 50.
+     * It stops by itself after {@link #JOG_TIMEOUT} milliseconds.
+     */
     @Override
-    protected boolean panTiltStart(int panSpeed, int tiltSpeed) {
+    protected synchronized boolean panTiltStart(int panSpeed, int tiltSpeed) {
         if (panSpeed == 50 && tiltSpeed == 50) {
             return panTiltStop();
         }
-        
-        timer = new Timer("CameraSettings Pan Tilt");
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                int panOff = (panSpeed - 50) * 2;
-                int tiltOff = (tiltSpeed - 50) * 2;
-                relPanTilt(panOff, tiltOff);
-            }
-        }, 0, 100);
-        
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                timer.cancel();
-            }
-        }, 60000); //so it will automatically stop after a minute.
-        
+
+        double maxSpeed = motion.getPanTiltSpeed(camSet.getZoom());
+        double unit = maxSpeed > 0 ? maxSpeed / 49 : 20;
+        long now = System.nanoTime();
+
+        moves[PAN] = Move.jog(get(PAN), (panSpeed - 50) * unit, now);
+        moves[TILT] = Move.jog(get(TILT), (tiltSpeed - 50) * unit, now);
+        startStepping();
+
         return true;
     }
 
     @Override
-    protected boolean panTiltStop() {
-        if (timer != null) {
-            timer.cancel();
+    protected synchronized boolean panTiltStop() {
+        long now = System.nanoTime();
+
+        for (int axis = PAN; axis <= TILT; axis++) {
+            if (moves[axis] != null && moves[axis].isJog()) {
+                set(axis, moves[axis].at(motion, now));
+                moves[axis] = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves an axis to a value. The move is instant when the axis has no
+     * speed in the motion model, otherwise it is stepped on the scheduler.
+     * 
+     * @param axis The axis to move.
+     * @param value The value to move to.
+     * @return Always true, a mocked move cannot fail.
+     */
+    private boolean moveTo(int axis, int value) {
+        double speed = speed(axis);
+
+        if (speed <= 0) {
+            moves[axis] = null;
+            set(axis, value);
+            return true;
         }
+
+        if (arrival.isDone()) {
+            arrival = new CompletableFuture<Boolean>();
+        }
+        moves[axis] = Move.to(get(axis), value, speed, axis <= TILT, System.nanoTime());
+        startStepping();
+
         return true;
     }
+
+    /**
+     * Updates the settings of all moving axes. Stops stepping when
+     * nothing moves anymore, and completes the arrival when all moves
+     * towards a target are done.
+     */
+    private void step() {
+        CompletableFuture<Boolean> arrived = null;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            boolean moving = false;
+            boolean positioning = false;
+
+            for (int axis = 0; axis < moves.length; axis++) {
+                Move move = moves[axis];
+                if (move == null) {
+                    continue;
+                }
+
+                set(axis, move.at(motion, now));
+                if (move.isDone(motion, now)) {
+                    moves[axis] = null;
+                } else {
+                    moving = true;
+                    positioning |= !move.isJog();
+                }
+            }
+
+            if (!moving) {
+                stopStepping();
+            }
+            if (!positioning && !arrival.isDone()) {
+                arrived = arrival;
+            }
+        }
+
+        if (arrived != null) {
+            arrived.complete(true);
+        }
+    }
+
+    /**
+     * Starts stepping this camera on the shared scheduler, if it is not already.
+     */
+    private void startStepping() {
+        if (stepper == null) {
+            stepper = CameraExecutors.getScheduler().scheduleAtFixedRate(
+                    this::step, STEP_INTERVAL, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops stepping this camera.
+     */
+    private void stopStepping() {
+        if (stepper != null) {
+            stepper.cancel(false);
+            stepper = null;
+        }
+    }
+
+    /**
+     * Returns the maximum speed of an axis in the motion model.
+     * 
+     * @param axis The axis.
+     * @return The speed in units per second, or 0 if moves are instant.
+     */
+    private double speed(int axis) {
+        if (axis <= TILT) {
+            return motion.getPanTiltSpeed(camSet.getZoom());
+        }
+        return axis == ZOOM ? motion.getZoomSpeed() : motion.getFocusSpeed();
+    }
+
+    /**
+     * Returns the current value of an axis.
+     * 
+     * @param axis The axis.
+     * @return The value of the axis.
+     */
+    private int get(int axis) {
+        switch (axis) {
+            case PAN: return camSet.getPan();
+            case TILT: return camSet.getTilt();
+            case ZOOM: return camSet.getZoom();
+            default: return camSet.getFocus();
+        }
+    }
+
+    /**
+     * Sets the current value of an axis.
+     * 
+     * @param axis The axis.
+     * @param value The new value of the axis.
+     */
+    private void set(int axis, int value) {
+        switch (axis) {
+            case PAN: camSet.setPan(value); break;
+            case TILT: camSet.setTilt(value); break;
+            case ZOOM: camSet.setZoom(value); break;
+            default: camSet.setFocus(value); break;
+        }
+    }
+
+    /**
+     * A move of a single axis, towards a target or at a constant velocity.
+     * The position is computed from the time since the move started.
+     */
+    private static final class Move {
+
+        private final double start;
+        private final double target;
+        private final double speed;
+        private final boolean accelerates;
+        private final double velocity;
+        private final long startTime;
+
+        /**
+         * Creates a move.
+         * 
+         * @param start The value at the start of the move.
+         * @param target The value to move to.
+         * @param speed The maximum speed in units per second.
+         * @param accelerates True iff the axis accelerates.
+         * @param velocity The constant velocity of a jog, or 0.
+         * @param startTime The start time, as in {@link System#nanoTime()}.
+         */
+        private Move(double start, double target, double speed, boolean accelerates,
+                double velocity, long startTime) {
+            this.start = start;
+            this.target = target;
+            this.speed = speed;
+            this.accelerates = accelerates;
+            this.velocity = velocity;
+            this.startTime = startTime;
+        }
+
+        /**
+         * Creates a move towards a target.
+         * 
+         * @param start The value at the start of the move.
+         * @param target The value to move to.
+         * @param speed The maximum speed in units per second.
+         * @param accelerates True iff the axis accelerates.
+         * @param now The current time, as in {@link System#nanoTime()}.
+         * @return The move.
+         */
+        private static Move to(int start, int target, double speed, boolean accelerates, long now) {
+            return new Move(start, target, speed, accelerates, 0, now);
+        }
+
+        /**
+         * Creates a move at a constant velocity.
+         * 
+         * @param start The value at the start of the move.
+         * @param velocity The velocity in units per second.
+         * @param now The current time, as in {@link System#nanoTime()}.
+         * @return The move.
+         */
+        private static Move jog(int start, double velocity, long now) {
+            return new Move(start, start, 0, false, velocity, now);
+        }
+
+        /**
+         * Returns true iff this move is at a constant velocity.
+         * @return True iff this move is a jog.
+         */
+        private boolean isJog() {
+            return velocity != 0;
+        }
+
+        /**
+         * Returns the value of the axis at the specified time.
+         * 
+         * @param motion The motion model of the camera.
+         * @param now The time, as in {@link System#nanoTime()}.
+         * @return The value of the axis.
+         */
+        private int at(CameraMotionModel motion, long now) {
+            double seconds = (now - startTime) / 1e9;
+
+            if (isJog()) {
+                return (int) Math.round(start + velocity * Math.min(seconds, JOG_TIMEOUT / 1000.0));
+            }
+
+            double distance = target - start;
+            return (int) Math.round(start + Math.signum(distance) 
+                    * motion.travelled(Math.abs(distance), speed, accelerates, seconds));
+        }
+
+        /**
+         * Returns true iff the move is over at the specified time.
+         * 
+         * @param motion The motion model of the camera.
+         * @param now The time, as in {@link System#nanoTime()}.
+         * @return True iff the move is over.
+         */
+        private boolean isDone(CameraMotionModel motion, long now) {
+            double seconds = (now - startTime) / 1e9;
+
+            if (isJog()) {
+                return seconds * 1000 >= JOG_TIMEOUT;
+            }
+            return seconds >= motion.travelTime(Math.abs(target - start), speed, accelerates);
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package nl.tudelft.contextproject.camera;
+
+/**
+ * Class to plan the speed of absolute pan and tilt moves. Instead of always
+ * moving at full speed, a move gets the slowest speed setting at which it
+ * still arrives within the time it is given. Slow moves are smoother on
+ * screen and put less load on the head, and several cameras that are given
+ * the same time arrive together.
+ *
+ * <p>The speed is assumed to scale linearly with the speed setting of
+ * <code>#APS</code>, up to the speed of the {@link CameraMotionModel}
+ * at {@link AwProtocolCodec#MAX_PAN_TILT_SPEED}.
+ *
+ * @since 1.1
+ */
+public class MovePlanner {
+
+    /**
+     * Duration of a move that should be made as fast as possible.
+     */
+    public static final long URGENT = 0;
+
+    private final CameraMotionModel motion;
+
+    /**
+     * Creates a move planner.
+     * @param motion The motion model of the camera at its fastest speed setting.
+     */
+    public MovePlanner(CameraMotionModel motion) {
+        this.motion = motion;
+    }
+
+    /**
+     * Returns the slowest speed setting at which a move arrives within the
+     * specified duration. A move that cannot arrive in time, or that is
+     * {@link #URGENT}, is made at the fastest speed.
+     *
+     * @param from The settings of the camera before the move.
+     * @param pan The pan value to move to.
+     * @param tilt The tilt value to move to.
+     * @param duration The time in milliseconds the move may take.
+     * @return The speed setting of the move.
+     */
+    public int planSpeed(CameraSettings from, int pan, int tilt, long duration) {
+        if (duration <= URGENT) {
+            return AwProtocolCodec.MAX_PAN_TILT_SPEED;
+        }
+
+        for (int speed = AwProtocolCodec.MIN_PAN_TILT_SPEED; speed < AwProtocolCodec.MAX_PAN_TILT_SPEED; speed++) {
+            if (travelTime(from, pan, tilt, speed) <= duration) {
+                return speed;
+            }
+        }
+
+        return AwProtocolCodec.MAX_PAN_TILT_SPEED;
+    }
+
+    /**
+     * Returns the time a move takes at a speed setting. The targets are
+     * rounded to the pan and tilt limits of the camera first, and pan and
+     * tilt move at the same time.
+     *
+     * @param from The settings of the camera before the move.
+     * @param pan The pan value to move to.
+     * @param tilt The tilt value to move to.
+     * @param speed The speed setting of the move.
+     * @return The travel time in milliseconds.
+     */
+    public long travelTime(CameraSettings from, int pan, int tilt, int speed) {
+        double maxSpeed = motion.getPanTiltSpeed(from.getZoom()) * speed / AwProtocolCodec.MAX_PAN_TILT_SPEED;
+        int panDistance = Math.abs(limit(pan, LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH)
+                - limit(from.getPan(), LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH));
+        int tiltDistance = Math.abs(limit(tilt, LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH)
+                - limit(from.getTilt(), LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH));
+
+        double seconds = Math.max(motion.travelTime(panDistance, maxSpeed, true),
+                motion.travelTime(tiltDistance, maxSpeed, true));
+        return (long) Math.ceil(seconds * 1000);
+    }
+
+    /**
+     * Returns the time a move takes at the fastest speed setting.
+     *
+     * @param from The settings of the camera before the move.
+     * @param pan The pan value to move to.
+     * @param tilt The tilt value to move to.
+     * @return The shortest travel time in milliseconds.
+     */
+    public long fastestTime(CameraSettings from, int pan, int tilt) {
+        return travelTime(from, pan, tilt, AwProtocolCodec.MAX_PAN_TILT_SPEED);
+    }
+
+    /**
+     * Rounds a value to the specified bounds.
+     *
+     * @param value The value to round.
+     * @param low The lower bound.
+     * @param high The upper bound.
+     * @return The value within the bounds.
+     */
+    private static int limit(int value, int low, int high) {
+        return Math.max(low, Math.min(high, value));
+    }
+}
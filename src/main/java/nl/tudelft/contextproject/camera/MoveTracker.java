@@ -0,0 +1,310 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Class to keep track of whether a camera has arrived at the target of its
+ * last move. The position of the camera is polled on the shared scheduler of
+ * {@link CameraExecutors}: often when the camera is close to its target, and
+ * less often when it still has a long way to go, based on the time the
+ * {@link CameraMotionModel} estimates the rest of the move takes.
+ *
+ * <p>When the position cannot be polled, the move is considered done once
+ * the estimated travel time has passed. A move that is not done within
+ * {@link #getTimeout()} milliseconds after the estimate completes with false.
+ *
+ * <p>Moves of a camera on auto focus are tracked without their focus, since
+ * the camera chooses its focus itself.
+ *
+ * <p>Only the last move is tracked. When a new move is tracked before the
+ * previous one is done, the previous future completes together with the new one.
+ *
+ * @since 1.1
+ */
+public class MoveTracker {
+
+    /**
+     * The default difference in units between a position and its target
+     * at which the camera is considered in position.
+     */
+    public static final int DEFAULT_TOLERANCE = 16;
+
+    /**
+     * The default shortest time in milliseconds between two polls.
+     */
+    public static final long MIN_POLL_INTERVAL = 50;
+
+    /**
+     * The longest time in milliseconds between two polls.
+     */
+    public static final long MAX_POLL_INTERVAL = 500;
+
+    /**
+     * The default time in milliseconds a move may take longer than estimated.
+     */
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    private final Supplier<CompletableFuture<CameraSettings>> poll;
+    private final CameraMotionModel motion;
+    private final int tolerance;
+    private final long timeout;
+    private final long minPollInterval;
+
+    private Move current;
+
+    /**
+     * Creates a move tracker with the default tolerance and timeout.
+     *
+     * @param poll Starts reading the position of the camera.
+     * @param motion The model used to estimate how long moves take.
+     */
+    public MoveTracker(Supplier<CompletableFuture<CameraSettings>> poll, CameraMotionModel motion) {
+        this(poll, motion, DEFAULT_TOLERANCE, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates a move tracker.
+     *
+     * @param poll Starts reading the position of the camera.
+     * @param motion The model used to estimate how long moves take.
+     * @param tolerance The difference in units at which the camera is in position.
+     * @param timeout The time in milliseconds a move may take longer than estimated.
+     */
+    public MoveTracker(Supplier<CompletableFuture<CameraSettings>> poll, CameraMotionModel motion,
+            int tolerance, long timeout) {
+        this(poll, motion, tolerance, timeout, MIN_POLL_INTERVAL);
+    }
+
+    /**
+     * Creates a move tracker that polls at most once every specified interval,
+     * for cameras on which a poll takes several rate limited queries.
+     *
+     * @param poll Starts reading the position of the camera.
+     * @param motion The model used to estimate how long moves take.
+     * @param tolerance The difference in units at which the camera is in position.
+     * @param timeout The time in milliseconds a move may take longer than estimated.
+     * @param minPollInterval The shortest time in milliseconds between two polls.
+     */
+    public MoveTracker(Supplier<CompletableFuture<CameraSettings>> poll, CameraMotionModel motion,
+            int tolerance, long timeout, long minPollInterval) {
+        if (tolerance < 0 || timeout < 0 || minPollInterval < 0) {
+            throw new IllegalArgumentException("Invalid tolerance, timeout or poll interval");
+        }
+
+        this.poll = poll;
+        this.motion = motion;
+        this.tolerance = tolerance;
+        this.timeout = timeout;
+        this.minPollInterval = minPollInterval;
+    }
+
+    /**
+     * Starts tracking a move. The previous move, if it is not done yet,
+     * completes together with this one.
+     *
+     * @param from The settings of the camera when the move started, or null if unknown.
+     * @param target The settings the camera moves to.
+     * @return A future that completes with true once the camera is in position,
+     *      or with false if it did not get there in time.
+     */
+    public CompletableFuture<Boolean> track(CameraSettings from, CameraSettings target) {
+        return track(from, target, true, MovePlanner.URGENT);
+    }
+
+    /**
+     * Starts tracking a move, optionally without its focus. A move that was
+     * planned to take longer than at full speed is estimated to take its
+     * planned duration. The previous move, if it is not done yet, completes
+     * together with this one.
+     *
+     * @param from The settings of the camera when the move started, or null if unknown.
+     * @param target The settings the camera moves to.
+     * @param trackFocus False if the camera chooses its own focus, such as on auto focus.
+     * @param duration The time in milliseconds the move was planned to take,
+     *      or {@link MovePlanner#URGENT} if it is made at full speed.
+     * @return A future that completes with true once the camera is in position,
+     *      or with false if it did not get there in time.
+     */
+    public synchronized CompletableFuture<Boolean> track(CameraSettings from, CameraSettings target,
+            boolean trackFocus, long duration) {
+        long estimate = Math.max(duration, from == null ? 0 : estimate(from, goal(from, target, trackFocus)));
+        Move move = new Move(target, trackFocus, estimate);
+
+        if (current != null && !current.future.isDone()) {
+            current.stop();
+            move.future.thenAccept(current.future::complete);
+        }
+        current = move;
+        move.schedule(Math.max(minPollInterval, Math.min(MAX_POLL_INTERVAL, estimate / 2)));
+
+        return move.future;
+    }
+
+    /**
+     * Returns true iff the last tracked move is done.
+     * @return True iff the camera is in position.
+     */
+    public synchronized boolean isInPosition() {
+        return current == null || current.future.isDone();
+    }
+
+    /**
+     * Returns the difference in units at which the camera is considered in position.
+     * @return The tolerance.
+     */
+    public int getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Returns the time in milliseconds a move may take longer than estimated.
+     * @return The timeout.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the shortest time in milliseconds between two polls.
+     * @return The minimum poll interval.
+     */
+    public long getMinPollInterval() {
+        return minPollInterval;
+    }
+
+    /**
+     * Returns the time in milliseconds the motion model estimates a move
+     * takes. The axes move at the same time, so this is the slowest axis.
+     *
+     * @param from The settings at the start of the move.
+     * @param target The settings at the end of the move.
+     * @return The estimated travel time in milliseconds.
+     */
+    public long estimate(CameraSettings from, CameraSettings target) {
+        double panTiltSpeed = motion.getPanTiltSpeed(Math.max(from.getZoom(), target.getZoom()));
+        double seconds = Math.max(
+                Math.max(motion.travelTime(Math.abs(target.getPan() - from.getPan()), panTiltSpeed, true),
+                        motion.travelTime(Math.abs(target.getTilt() - from.getTilt()), panTiltSpeed, true)),
+                Math.max(motion.travelTime(Math.abs(target.getZoom() - from.getZoom()), motion.getZoomSpeed(), false),
+                        motion.travelTime(Math.abs(target.getFocus() - from.getFocus()), motion.getFocusSpeed(), false)));
+
+        return (long) Math.ceil(seconds * 1000);
+    }
+
+    /**
+     * Returns the settings a move has to reach. A move whose focus is not
+     * tracked reaches its focus wherever the camera currently has it.
+     *
+     * @param position The position of the camera.
+     * @param target The target of the move.
+     * @param trackFocus True iff the focus of the move is tracked.
+     * @return The settings to reach.
+     */
+    private static CameraSettings goal(CameraSettings position, CameraSettings target, boolean trackFocus) {
+        if (trackFocus) {
+            return target;
+        }
+
+        return new CameraSettings(target.getPan(), target.getTilt(), target.getZoom(), position.getFocus());
+    }
+
+    /**
+     * Returns true iff the position is within the tolerance of the target.
+     *
+     * @param position The position of the camera.
+     * @param target The target of the move.
+     * @return True iff the camera is in position.
+     */
+    private boolean isAt(CameraSettings position, CameraSettings target) {
+        return Math.abs(position.getPan() - target.getPan()) <= tolerance
+                && Math.abs(position.getTilt() - target.getTilt()) <= tolerance
+                && Math.abs(position.getZoom() - target.getZoom()) <= tolerance
+                && Math.abs(position.getFocus() - target.getFocus()) <= tolerance;
+    }
+
+    /**
+     * A tracked move, which polls the camera until it is in position.
+     */
+    private final class Move {
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+        private final CameraSettings target;
+        private final boolean trackFocus;
+        private final long estimatedEnd;
+        private final long deadline;
+        private ScheduledFuture<?> next;
+
+        /**
+         * Creates a tracked move.
+         *
+         * @param target The settings the camera moves to.
+         * @param trackFocus True iff the focus of the move is tracked.
+         * @param estimate The estimated travel time in milliseconds.
+         */
+        private Move(CameraSettings target, boolean trackFocus, long estimate) {
+            long now = System.currentTimeMillis();
+
+            this.target = target;
+            this.trackFocus = trackFocus;
+            this.estimatedEnd = now + estimate;
+            this.deadline = estimatedEnd + timeout;
+        }
+
+        /**
+         * Schedules the next poll.
+         * @param delay The time in milliseconds until the next poll.
+         */
+        private void schedule(long delay) {
+            next = CameraExecutors.getScheduler().schedule(this::check, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stops polling.
+         */
+        private void stop() {
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+
+        /**
+         * Polls the position of the camera. The camera is read on the
+         * executor of its connection, not on the scheduler.
+         */
+        private void check() {
+            if (future.isDone()) {
+                return;
+            }
+
+            poll.get().whenComplete((position, error) -> {
+                synchronized (MoveTracker.this) {
+                    if (current == this) {
+                        handle(error == null ? position : null);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Completes the move, or schedules the next poll.
+         * @param position The polled position, or null if it could not be read.
+         */
+        private void handle(CameraSettings position) {
+            long now = System.currentTimeMillis();
+
+            if (position == null ? now >= estimatedEnd : isAt(position, goal(position, target, trackFocus))) {
+                future.complete(true);
+            } else if (now >= deadline) {
+                future.complete(false);
+            } else if (position == null) {
+                schedule(Math.max(minPollInterval, estimatedEnd - now));
+            } else {
+                long left = estimate(position, goal(position, target, trackFocus));
+                schedule(Math.max(minPollInterval, Math.min(MAX_POLL_INTERVAL, left / 2)));
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.Arrays;
+
+/**
+ * Class to keep track of the round trip times of the requests to a camera,
+ * and to derive timeouts from them. Like TCP does, the timeout is the smoothed
+ * round trip time plus four times its mean deviation, both moving averages,
+ * and it is doubled after every timeout until a request succeeds again.
+ *
+ * <p>The most recent round trip times are also kept, so percentiles can
+ * be read, see {@link #getPercentile(double)}. Until enough requests have
+ * been measured, {@link #DEFAULT_TIMEOUT} is used and no percentiles are known.
+ *
+ * @since 1.1
+ */
+public class RoundTripEstimator {
+
+    /**
+     * The timeout in milliseconds before enough requests have been measured.
+     */
+    public static final long DEFAULT_TIMEOUT = 1000;
+
+    /**
+     * The shortest timeout in milliseconds, so that a camera that is a bit
+     * slower than usual for a moment is not considered unreachable.
+     */
+    public static final long MIN_TIMEOUT = 250;
+
+    /**
+     * The longest timeout in milliseconds, so that an unreachable camera
+     * is not detected later than with the default timeout.
+     */
+    public static final long MAX_TIMEOUT = DEFAULT_TIMEOUT;
+
+    /**
+     * The amount of requests that have to be measured before the timeout is derived.
+     */
+    public static final int MIN_SAMPLES = 5;
+
+    /**
+     * The amount of recent round trip times kept for percentiles.
+     */
+    public static final int WINDOW = 64;
+
+    private static final double GAIN = 0.125;
+    private static final double DEVIATION_GAIN = 0.25;
+    private static final int MAX_BACKOFF = 3;
+
+    private final double[] recent = new double[WINDOW];
+    private long samples;
+    private double smoothed;
+    private double deviation;
+    private int backoff;
+
+    /**
+     * Records the round trip time of a successful request.
+     * @param rtt The round trip time in milliseconds.
+     */
+    public synchronized void record(double rtt) {
+        if (samples == 0) {
+            smoothed = rtt;
+            deviation = rtt / 2;
+        } else {
+            deviation += DEVIATION_GAIN * (Math.abs(rtt - smoothed) - deviation);
+            smoothed += GAIN * (rtt - smoothed);
+        }
+
+        recent[(int) (samples % WINDOW)] = rtt;
+        samples++;
+        backoff = 0;
+    }
+
+    /**
+     * Records a request that timed out, which doubles the timeout.
+     */
+    public synchronized void recordTimeout() {
+        backoff = Math.min(MAX_BACKOFF, backoff + 1);
+    }
+
+    /**
+     * Returns the time to wait for a request before giving up.
+     * @return The timeout in milliseconds.
+     */
+    public synchronized long getTimeout() {
+        if (samples < MIN_SAMPLES) {
+            return DEFAULT_TIMEOUT;
+        }
+
+        long timeout = Math.max(MIN_TIMEOUT, (long) Math.ceil(smoothed + 4 * deviation));
+        return Math.min(MAX_TIMEOUT, timeout << backoff);
+    }
+
+    /**
+     * Returns a percentile of the recent round trip times.
+     *
+     * @param percentile The percentile, between 0 and 1, such as 0.95.
+     * @return The round trip time in milliseconds that the specified part of
+     *      the recent requests took at most, or -1 if it is not known yet.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (samples < MIN_SAMPLES) {
+            return -1;
+        }
+
+        int count = (int) Math.min(samples, WINDOW);
+        double[] sorted = Arrays.copyOf(recent, count);
+        Arrays.sort(sorted);
+
+        int index = Math.max(0, Math.min(count - 1, (int) Math.ceil(percentile * count) - 1));
+        return (long) Math.ceil(sorted[index]);
+    }
+
+    /**
+     * Returns the smoothed round trip time.
+     * @return The smoothed round trip time in milliseconds.
+     */
+    public synchronized double getSmoothed() {
+        return smoothed;
+    }
+
+    /**
+     * Returns the amount of requests that have been measured.
+     * @return The amount of measured requests.
+     */
+    public synchronized long getSampleCount() {
+        return samples;
+    }
+}
@@ -0,0 +1,592 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class to represent a connection with a camera that speaks VISCA over IP.
+ * Commands are sent as single UDP packets by a {@link ViscaTransport}, which
+ * handles sequence numbers, acknowledgements and retransmission, so a
+ * command costs one round trip without any HTTP overhead. This makes it
+ * suited for joystick control and for cueing many cameras at once.
+ *
+ * <p>The rest of the application uses the value ranges of the AW series,
+ * see {@link LiveCameraConnection}. They are scaled to the VISCA ranges of
+ * the camera when commands are sent, and back when replies are read.
+ *
+ * <p>Like a {@link LiveCameraConnection}, every acknowledged command and every
+ * query updates the {@link CameraStateCache}, and every request is recorded
+ * in the {@link CameraHealth} of this connection.
+ *
+ * @since 1.1
+ */
+public class ViscaCameraConnection extends CameraConnection {
+
+    public static final String CAMERA_MODEL = "VISCA";
+
+    public static final int VISCA_PAN_LOW = -0x0990;
+    public static final int VISCA_PAN_HIGH = 0x0990;
+
+    public static final int VISCA_TILT_LOW = -0x01B0;
+    public static final int VISCA_TILT_HIGH = 0x0510;
+
+    public static final int VISCA_ZOOM_LOW = 0x0000;
+    public static final int VISCA_ZOOM_HIGH = 0x4000;
+
+    public static final int VISCA_FOCUS_LOW = 0x1000;
+    public static final int VISCA_FOCUS_HIGH = 0xF000;
+
+    /**
+     * Amount of preset memories of a VISCA camera.
+     */
+    public static final int PRESET_SLOTS = 16;
+
+    private final String errorString = "Wrong reply from camera: ";
+
+    private final String host;
+    private final ViscaTransport transport;
+    private volatile boolean connected;
+    private volatile boolean autoFocus;
+
+    /**
+     * Creates a ViscaCameraConnection object. The address is the IP
+     * address of the camera, optionally followed by a colon and the port,
+     * which is {@link ViscaCodec#DEFAULT_PORT} by default.
+     *
+     * @param address Address of the camera to connect to.
+     */
+    public ViscaCameraConnection(String address) {
+        int colon = address.lastIndexOf(':');
+        int port = ViscaCodec.DEFAULT_PORT;
+
+        if (colon >= 0) {
+            port = Integer.parseInt(address.substring(colon + 1));
+            address = address.substring(0, colon);
+        }
+
+        this.host = address;
+        this.transport = new ViscaTransport(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * Returns the host name or IP address of the camera.
+     * @return The host of the camera.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the UDP transport to the camera.
+     * @return The transport of this connection.
+     */
+    public ViscaTransport getTransport() {
+        return transport;
+    }
+
+    @Override
+    public boolean setUpConnection() {
+        try {
+            transport.open();
+            byte[] version = transport.inquiry(ViscaCodec.versionInquiry());
+
+            if (ViscaCodec.isCompletion(version)) {
+                connected = true;
+                getCurrentCameraSettings();
+                hasAutoFocus();
+                return true;
+            }
+
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Closes the socket of this connection and stops probing the camera.
+     */
+    @Override
+    public void close() {
+        connected = false;
+        transport.close();
+        super.close();
+    }
+
+    /**
+     * A camera that was set up counts as connected until its circuit opens,
+     * so a single lost reply does not disconnect it.
+     */
+    @Override
+    public boolean isConnected() {
+        return connected && !getHealth().isOpen();
+    }
+
+    @Override
+    public String getStreamLink() {
+        return "rtsp://" + host + "/video1";
+    }
+
+    /**
+     * Sends a command or inquiry to the camera. While the circuit of the
+     * {@link #getHealth() health} is open, nothing is sent at all.
+     *
+     * @param payload The VISCA command or inquiry.
+     * @param inquiry True iff the payload is an inquiry.
+     * @return The reply of the camera, which may be an error.
+     * @throws IOException when the camera does not answer, or when the circuit is open.
+     */
+    protected byte[] send(byte[] payload, boolean inquiry) throws IOException {
+        CameraHealth health = getHealth();
+        if (!health.allowRequest()) {
+            throw new ConnectException("Camera at " + host + " is unreachable");
+        }
+
+        try {
+            byte[] reply = inquiry ? transport.inquiry(payload) : transport.command(payload);
+            health.recordSuccess();
+            return reply;
+        } catch (IOException e) {
+            health.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a command and checks that the camera accepted it.
+     *
+     * @param payload The VISCA command.
+     * @return True iff the command was acknowledged or completed.
+     */
+    private boolean command(byte[] payload) {
+        try {
+            byte[] reply = send(payload, false);
+
+            if (ViscaCodec.isAck(reply) || ViscaCodec.isCompletion(reply)) {
+                return true;
+            }
+
+            throw new IOException(errorString + toHex(reply));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sends an inquiry and checks that the camera answered it.
+     *
+     * @param payload The VISCA inquiry.
+     * @param length The expected length of the completion.
+     * @return The completion.
+     * @throws IOException when the camera does not answer or answers with an error.
+     */
+    private byte[] inquire(byte[] payload, int length) throws IOException {
+        byte[] reply = send(payload, true);
+
+        if (ViscaCodec.isCompletion(reply) && reply.length == length) {
+            return reply;
+        }
+
+        throw new IOException(errorString + toHex(reply));
+    }
+
+    /**
+     * Sends a version inquiry past the open circuit, and marks the
+     * connection as connected again if the camera answers.
+     *
+     * @return A future that completes with true iff the camera answered.
+     */
+    @Override
+    protected CompletableFuture<Boolean> probe() {
+        return submit(() -> {
+            try {
+                connected = ViscaCodec.isCompletion(transport.inquiry(ViscaCodec.versionInquiry()));
+                return connected;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Returns true if the camera is on auto focus.
+     * @return True if the camera is on auto focus.
+     */
+    public boolean hasAutoFocus() {
+        if (connected) {
+            try {
+                autoFocus = inquire(ViscaCodec.focusModeInquiry(), 4)[2] == 0x02;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return autoFocus;
+    }
+
+    /**
+     * Sets the auto focus setting on the camera to on (true) or off (false).
+     *
+     * @param autoFocus true for ON, false for OFF
+     * @return True iff the camera was set to the specified setting.
+     */
+    public boolean setAutoFocus(boolean autoFocus) {
+        if (this.autoFocus == autoFocus) {
+            return true;
+        }
+
+        if (command(ViscaCodec.focusMode(autoFocus))) {
+            this.autoFocus = autoFocus;
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        if (!(o instanceof Camera)) {
+            return;
+        }
+
+        if (arg instanceof CameraSettings) {
+            applySettings((CameraSettings) arg);
+        }
+    }
+
+    /**
+     * Sends only the settings that differ from the last known state of
+     * the camera. Settings that are stored in a preset memory of the
+     * camera are recalled with a single command.
+     */
+    @Override
+    protected boolean applySettings(CameraSettings settings) {
+        return runSteps(planSettings(settings, MovePlanner.URGENT));
+    }
+
+    /**
+     * Plans one step per setting that differs from the last known state of
+     * the camera, or a single step if the settings are stored in a preset
+     * memory. The head has no speed planning, so the duration is ignored.
+     */
+    @Override
+    protected List<BooleanSupplier> planSettings(CameraSettings settings, long duration) {
+        CameraSettings curSettings = getStateCache().isPopulated()
+                ? getStateCache().get() : getCurrentCameraSettings();
+        List<BooleanSupplier> axes = new ArrayList<BooleanSupplier>();
+
+        if (curSettings.getPan() != settings.getPan() || curSettings.getTilt() != settings.getTilt()) {
+            axes.add(() -> absPanTilt(settings.getPan(), settings.getTilt()));
+        }
+        if (curSettings.getZoom() != settings.getZoom()) {
+            axes.add(() -> absZoom(settings.getZoom()));
+        }
+        if (curSettings.getFocus() != settings.getFocus() && !autoFocus) {
+            axes.add(() -> absFocus(settings.getFocus()));
+        }
+
+        if (!curSettings.equals(settings) && hasStoredPreset(settings)) {
+            List<BooleanSupplier> steps = new ArrayList<BooleanSupplier>();
+            steps.add(() -> recallStoredPreset(settings) || runSteps(axes));
+            return steps;
+        }
+
+        return axes;
+    }
+
+    @Override
+    public CameraSettings getCurrentCameraSettings() {
+        if (getHealth().isOpen()) {
+            return getStateCache().get();
+        }
+
+        int[] panTilt = getCurrentPanTilt();
+        int zoom = getCurrentZoom();
+        int focus = getCurrentFocus();
+        CameraSettings settings = new CameraSettings(panTilt[0], panTilt[1], zoom, focus);
+        getStateCache().update(settings);
+
+        return settings;
+    }
+
+    @Override
+    public int[] getCurrentPanTilt() {
+        try {
+            byte[] reply = inquire(ViscaCodec.panTiltInquiry(), 11);
+            int pan = fromVisca((short) ViscaCodec.getNibbles(reply, 2, 4), VISCA_PAN_LOW, VISCA_PAN_HIGH,
+                    LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH);
+            int tilt = fromVisca((short) ViscaCodec.getNibbles(reply, 6, 4), VISCA_TILT_LOW, VISCA_TILT_HIGH,
+                    LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH);
+
+            getStateCache().updatePanTilt(pan, tilt);
+            return new int[] {pan, tilt};
+        } catch (IOException e) {
+            e.printStackTrace();
+            CameraSettings lastKnown = getStateCache().get();
+            return new int[] {lastKnown.getPan(), lastKnown.getTilt()};
+        }
+    }
+
+    @Override
+    public int getCurrentZoom() {
+        try {
+            byte[] reply = inquire(ViscaCodec.zoomInquiry(), 7);
+            int zoom = fromVisca(ViscaCodec.getNibbles(reply, 2, 4), VISCA_ZOOM_LOW, VISCA_ZOOM_HIGH,
+                    LiveCameraConnection.ZOOM_LIMIT_LOW, LiveCameraConnection.ZOOM_LIMIT_HIGH);
+
+            getStateCache().updateZoom(zoom);
+            return zoom;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return getStateCache().get().getZoom();
+        }
+    }
+
+    @Override
+    public int getCurrentFocus() {
+        if (autoFocus) {
+            return -1;
+        }
+
+        try {
+            byte[] reply = inquire(ViscaCodec.focusInquiry(), 7);
+            int focus = fromVisca(ViscaCodec.getNibbles(reply, 2, 4), VISCA_FOCUS_LOW, VISCA_FOCUS_HIGH,
+                    LiveCameraConnection.FOCUS_LIMIT_LOW, LiveCameraConnection.FOCUS_LIMIT_HIGH);
+
+            getStateCache().updateFocus(focus);
+            return focus;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return getStateCache().get().getFocus();
+        }
+    }
+
+    @Override
+    protected boolean absPanTilt(int panValue, int tiltValue) {
+        panValue = roundToBounds(panValue, LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH);
+        tiltValue = roundToBounds(tiltValue, LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH);
+
+        if (command(ViscaCodec.absPanTilt(ViscaCodec.MAX_PAN_SPEED, ViscaCodec.MAX_TILT_SPEED,
+                toViscaPan(panValue), toViscaTilt(tiltValue)))) {
+            getStateCache().updatePanTilt(panValue, tiltValue);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected boolean absPan(int value) {
+        return absPanTilt(value, getStateCache().get().getTilt());
+    }
+
+    @Override
+    protected boolean absTilt(int value) {
+        return absPanTilt(getStateCache().get().getPan(), value);
+    }
+
+    @Override
+    protected boolean absZoom(int value) {
+        value = roundToBounds(value, LiveCameraConnection.ZOOM_LIMIT_LOW, LiveCameraConnection.ZOOM_LIMIT_HIGH);
+
+        if (command(ViscaCodec.absZoom(toVisca(value, LiveCameraConnection.ZOOM_LIMIT_LOW,
+                LiveCameraConnection.ZOOM_LIMIT_HIGH, VISCA_ZOOM_LOW, VISCA_ZOOM_HIGH)))) {
+            getStateCache().updateZoom(value);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected boolean absFocus(int value) {
+        value = roundToBounds(value, LiveCameraConnection.FOCUS_LIMIT_LOW, LiveCameraConnection.FOCUS_LIMIT_HIGH);
+
+        if (autoFocus) {
+            return false;
+        }
+
+        if (command(ViscaCodec.absFocus(toVisca(value, LiveCameraConnection.FOCUS_LIMIT_LOW,
+                LiveCameraConnection.FOCUS_LIMIT_HIGH, VISCA_FOCUS_LOW, VISCA_FOCUS_HIGH)))) {
+            getStateCache().updateFocus(value);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected boolean relPanTilt(int panOffset, int tiltOffset) {
+        CameraSettings curSet = getStateCache().get();
+        int pan = roundToBounds(curSet.getPan() + panOffset,
+                LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH);
+        int tilt = roundToBounds(curSet.getTilt() + tiltOffset,
+                LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH);
+
+        if (command(ViscaCodec.relPanTilt(ViscaCodec.MAX_PAN_SPEED, ViscaCodec.MAX_TILT_SPEED,
+                toViscaPan(pan) - toViscaPan(curSet.getPan()), toViscaTilt(tilt) - toViscaTilt(curSet.getTilt())))) {
+            getStateCache().offsetPanTilt(pan - curSet.getPan(), tilt - curSet.getTilt());
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected boolean relPan(int offset) {
+        return relPanTilt(offset, 0);
+    }
+
+    @Override
+    protected boolean relTilt(int offset) {
+        return relPanTilt(0, offset);
+    }
+
+    @Override
+    protected boolean relZoom(int offset) {
+        return absZoom(getStateCache().get().getZoom() + offset);
+    }
+
+    @Override
+    protected boolean relFocus(int offset) {
+        return absFocus(getStateCache().get().getFocus() + offset);
+    }
+
+    /**
+     * Starts driving the head. The speeds use the range of the AW series,
+     * from 1 to 99 with 50 meaning standing still.
+     */
+    @Override
+    protected boolean panTiltStart(int panSpeed, int tiltSpeed) {
+        if (panSpeed == 50 && tiltSpeed == 50) {
+            return panTiltStop();
+        }
+
+        panSpeed = roundToBounds(panSpeed, 1, 99) - 50;
+        tiltSpeed = roundToBounds(tiltSpeed, 1, 99) - 50;
+
+        return command(ViscaCodec.panTiltDrive(
+                driveSpeed(panSpeed, ViscaCodec.MAX_PAN_SPEED), driveSpeed(tiltSpeed, ViscaCodec.MAX_TILT_SPEED),
+                panSpeed < 0 ? ViscaCodec.DRIVE_LOW : panSpeed > 0 ? ViscaCodec.DRIVE_HIGH : ViscaCodec.DRIVE_STOP,
+                tiltSpeed > 0 ? ViscaCodec.DRIVE_LOW : tiltSpeed < 0 ? ViscaCodec.DRIVE_HIGH : ViscaCodec.DRIVE_STOP));
+    }
+
+    @Override
+    protected boolean panTiltStop() {
+        return command(ViscaCodec.panTiltDrive(ViscaCodec.MAX_PAN_SPEED, ViscaCodec.MAX_TILT_SPEED,
+                ViscaCodec.DRIVE_STOP, ViscaCodec.DRIVE_STOP));
+    }
+
+    @Override
+    public int getPresetSlotCount() {
+        return PRESET_SLOTS;
+    }
+
+    @Override
+    protected boolean savePresetSlot(int slot) {
+        return command(ViscaCodec.memorySet(slot));
+    }
+
+    @Override
+    protected boolean recallPresetSlot(int slot) {
+        return command(ViscaCodec.memoryRecall(slot));
+    }
+
+    /**
+     * Scales a pan value of the AW series to the VISCA range.
+     *
+     * @param pan The pan value.
+     * @return The signed VISCA pan value.
+     */
+    private static int toViscaPan(int pan) {
+        return toVisca(pan, LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH,
+                VISCA_PAN_LOW, VISCA_PAN_HIGH);
+    }
+
+    /**
+     * Scales a tilt value of the AW series to the VISCA range.
+     *
+     * @param tilt The tilt value.
+     * @return The signed VISCA tilt value.
+     */
+    private static int toViscaTilt(int tilt) {
+        return toVisca(tilt, LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH,
+                VISCA_TILT_LOW, VISCA_TILT_HIGH);
+    }
+
+    /**
+     * Scales a value from the range of the AW series to a VISCA range.
+     *
+     * @param value The value to scale.
+     * @param low The lowest value of the AW series.
+     * @param high The highest value of the AW series.
+     * @param viscaLow The lowest VISCA value.
+     * @param viscaHigh The highest VISCA value.
+     * @return The scaled value.
+     */
+    private static int toVisca(int value, int low, int high, int viscaLow, int viscaHigh) {
+        return viscaLow + (int) Math.round((double) (value - low) * (viscaHigh - viscaLow) / (high - low));
+    }
+
+    /**
+     * Scales a value from a VISCA range to the range of the AW series.
+     *
+     * @param value The VISCA value to scale.
+     * @param viscaLow The lowest VISCA value.
+     * @param viscaHigh The highest VISCA value.
+     * @param low The lowest value of the AW series.
+     * @param high The highest value of the AW series.
+     * @return The scaled value.
+     */
+    private static int fromVisca(int value, int viscaLow, int viscaHigh, int low, int high) {
+        return roundToBounds(toVisca(value, viscaLow, viscaHigh, low, high), low, high);
+    }
+
+    /**
+     * Converts a drive speed of the AW series, relative to standing
+     * still, to a VISCA speed.
+     *
+     * @param speed The speed, between -49 and 49.
+     * @param max The fastest VISCA speed.
+     * @return The VISCA speed, between 1 and the fastest speed.
+     */
+    private static int driveSpeed(int speed, int max) {
+        return Math.max(1, (int) Math.round(Math.abs(speed) / 49.0 * max));
+    }
+
+    /**
+     * Formats a reply for an error message.
+     *
+     * @param reply The reply.
+     * @return The bytes of the reply in hexadecimal.
+     */
+    private static String toHex(byte[] reply) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : reply) {
+            builder.append(String.format("%02X ", b & 0xFF));
+        }
+
+        return builder.toString().trim();
+    }
+
+    /**
+     * Enforces that a number is between the given bounds. If not, then it will be
+     * rounded to the closest bound.
+     *
+     * @param number The number to check
+     * @param boundLow The lower bound
+     * @param boundHigh The upper bound
+     * @return The number, within the specified bounds.
+     */
+    private static int roundToBounds(int number, int boundLow, int boundHigh) {
+        return number < boundLow ? boundLow : number > boundHigh ? boundHigh : number;
+    }
+}
@@ -0,0 +1,451 @@
+package nl.tudelft.contextproject.camera;
+
+import java.util.Arrays;
+
+/**
+ * Utility class to encode commands for and decode replies from cameras
+ * that speak VISCA over IP. Every VISCA message is wrapped in a packet
+ * with an 8 byte header: the payload type, the payload length and a
+ * sequence number, followed by the VISCA payload itself.
+ *
+ * <p>A command is answered with an acknowledgement (<code>90 4y FF</code>)
+ * and later a completion (<code>90 5y FF</code>), an inquiry is answered
+ * with a completion that holds the data, and both can be answered with
+ * an error (<code>90 6y ee FF</code>) instead.
+ *
+ * @since 1.1
+ */
+public final class ViscaCodec {
+
+    /**
+     * The UDP port VISCA over IP cameras listen on.
+     */
+    public static final int DEFAULT_PORT = 52381;
+
+    /**
+     * Payload type of a VISCA command.
+     */
+    public static final int TYPE_COMMAND = 0x0100;
+
+    /**
+     * Payload type of a VISCA inquiry.
+     */
+    public static final int TYPE_INQUIRY = 0x0110;
+
+    /**
+     * Payload type of a VISCA reply.
+     */
+    public static final int TYPE_REPLY = 0x0111;
+
+    /**
+     * Payload type of a control command, such as resetting the sequence number.
+     */
+    public static final int TYPE_CONTROL = 0x0200;
+
+    /**
+     * Payload type of the reply to a control command.
+     */
+    public static final int TYPE_CONTROL_REPLY = 0x0201;
+
+    /**
+     * The length of the header of a packet.
+     */
+    public static final int HEADER_LENGTH = 8;
+
+    /**
+     * The maximum length of a packet.
+     */
+    public static final int MAX_PACKET_LENGTH = HEADER_LENGTH + 16;
+
+    /**
+     * The fastest pan speed setting.
+     */
+    public static final int MAX_PAN_SPEED = 0x18;
+
+    /**
+     * The fastest tilt speed setting.
+     */
+    public static final int MAX_TILT_SPEED = 0x14;
+
+    /**
+     * Drive direction that pans left or tilts up.
+     */
+    public static final int DRIVE_LOW = 0x01;
+
+    /**
+     * Drive direction that pans right or tilts down.
+     */
+    public static final int DRIVE_HIGH = 0x02;
+
+    /**
+     * Drive direction that stops the axis.
+     */
+    public static final int DRIVE_STOP = 0x03;
+
+    private static final int TERMINATOR = 0xFF;
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private ViscaCodec() {
+    }
+
+    /**
+     * Wraps a payload in a VISCA over IP packet.
+     *
+     * @param type The payload type, such as {@link #TYPE_COMMAND}.
+     * @param sequence The sequence number of the packet.
+     * @param payload The payload.
+     * @return The packet.
+     */
+    public static byte[] packet(int type, int sequence, byte[] payload) {
+        byte[] packet = new byte[HEADER_LENGTH + payload.length];
+
+        packet[0] = (byte) (type >> 8);
+        packet[1] = (byte) type;
+        packet[2] = (byte) (payload.length >> 8);
+        packet[3] = (byte) payload.length;
+        packet[4] = (byte) (sequence >> 24);
+        packet[5] = (byte) (sequence >> 16);
+        packet[6] = (byte) (sequence >> 8);
+        packet[7] = (byte) sequence;
+        System.arraycopy(payload, 0, packet, HEADER_LENGTH, payload.length);
+
+        return packet;
+    }
+
+    /**
+     * Returns the payload type of a packet.
+     *
+     * @param packet The packet.
+     * @return The payload type.
+     */
+    public static int type(byte[] packet) {
+        return (packet[0] & 0xFF) << 8 | packet[1] & 0xFF;
+    }
+
+    /**
+     * Returns the sequence number of a packet.
+     *
+     * @param packet The packet.
+     * @return The sequence number.
+     */
+    public static int sequence(byte[] packet) {
+        return (packet[4] & 0xFF) << 24 | (packet[5] & 0xFF) << 16 | (packet[6] & 0xFF) << 8 | packet[7] & 0xFF;
+    }
+
+    /**
+     * Returns the payload of a packet.
+     *
+     * @param packet The buffer that holds the packet.
+     * @param length The length of the packet in the buffer.
+     * @return The payload, or an empty array if the length does not match the header.
+     */
+    public static byte[] payload(byte[] packet, int length) {
+        int payloadLength = (packet[2] & 0xFF) << 8 | packet[3] & 0xFF;
+        if (length < HEADER_LENGTH || HEADER_LENGTH + payloadLength > length) {
+            return new byte[0];
+        }
+
+        return Arrays.copyOfRange(packet, HEADER_LENGTH, HEADER_LENGTH + payloadLength);
+    }
+
+    /**
+     * Encodes an absolute pan and tilt command, <code>81 01 06 02</code>.
+     *
+     * @param panSpeed The pan speed, between 1 and {@link #MAX_PAN_SPEED}.
+     * @param tiltSpeed The tilt speed, between 1 and {@link #MAX_TILT_SPEED}.
+     * @param pan The signed pan position.
+     * @param tilt The signed tilt position.
+     * @return The payload.
+     */
+    public static byte[] absPanTilt(int panSpeed, int tiltSpeed, int pan, int tilt) {
+        return panTiltPosition(0x02, panSpeed, tiltSpeed, pan, tilt);
+    }
+
+    /**
+     * Encodes a relative pan and tilt command, <code>81 01 06 03</code>.
+     *
+     * @param panSpeed The pan speed, between 1 and {@link #MAX_PAN_SPEED}.
+     * @param tiltSpeed The tilt speed, between 1 and {@link #MAX_TILT_SPEED}.
+     * @param pan The signed pan offset.
+     * @param tilt The signed tilt offset.
+     * @return The payload.
+     */
+    public static byte[] relPanTilt(int panSpeed, int tiltSpeed, int pan, int tilt) {
+        return panTiltPosition(0x03, panSpeed, tiltSpeed, pan, tilt);
+    }
+
+    /**
+     * Encodes a pan and tilt drive command, <code>81 01 06 01</code>,
+     * which moves the head until it is stopped.
+     *
+     * @param panSpeed The pan speed, between 1 and {@link #MAX_PAN_SPEED}.
+     * @param tiltSpeed The tilt speed, between 1 and {@link #MAX_TILT_SPEED}.
+     * @param panDirection The pan direction, such as {@link #DRIVE_STOP}.
+     * @param tiltDirection The tilt direction, such as {@link #DRIVE_STOP}.
+     * @return The payload.
+     */
+    public static byte[] panTiltDrive(int panSpeed, int tiltSpeed, int panDirection, int tiltDirection) {
+        return bytes(0x81, 0x01, 0x06, 0x01, panSpeed, tiltSpeed, panDirection, tiltDirection, TERMINATOR);
+    }
+
+    /**
+     * Encodes a zoom direct command, <code>81 01 04 47</code>.
+     *
+     * @param zoom The zoom position.
+     * @return The payload.
+     */
+    public static byte[] absZoom(int zoom) {
+        return lensPosition(0x01, 0x47, zoom);
+    }
+
+    /**
+     * Encodes a focus direct command, <code>81 01 04 48</code>.
+     *
+     * @param focus The focus position.
+     * @return The payload.
+     */
+    public static byte[] absFocus(int focus) {
+        return lensPosition(0x01, 0x48, focus);
+    }
+
+    /**
+     * Encodes a focus mode command, <code>81 01 04 38</code>.
+     *
+     * @param auto True for auto focus, false for manual focus.
+     * @return The payload.
+     */
+    public static byte[] focusMode(boolean auto) {
+        return bytes(0x81, 0x01, 0x04, 0x38, auto ? 0x02 : 0x03, TERMINATOR);
+    }
+
+    /**
+     * Encodes a command that stores the current position in a preset memory.
+     *
+     * @param slot The number of the preset memory.
+     * @return The payload.
+     */
+    public static byte[] memorySet(int slot) {
+        return bytes(0x81, 0x01, 0x04, 0x3F, 0x01, slot, TERMINATOR);
+    }
+
+    /**
+     * Encodes a command that moves to the position stored in a preset memory.
+     *
+     * @param slot The number of the preset memory.
+     * @return The payload.
+     */
+    public static byte[] memoryRecall(int slot) {
+        return bytes(0x81, 0x01, 0x04, 0x3F, 0x02, slot, TERMINATOR);
+    }
+
+    /**
+     * Encodes a pan and tilt position inquiry, which is answered with
+     * <code>90 50 0Y 0Y 0Y 0Y 0Z 0Z 0Z 0Z FF</code>.
+     *
+     * @return The payload.
+     */
+    public static byte[] panTiltInquiry() {
+        return bytes(0x81, 0x09, 0x06, 0x12, TERMINATOR);
+    }
+
+    /**
+     * Encodes a zoom position inquiry, which is answered with
+     * <code>90 50 0p 0q 0r 0s FF</code>.
+     *
+     * @return The payload.
+     */
+    public static byte[] zoomInquiry() {
+        return bytes(0x81, 0x09, 0x04, 0x47, TERMINATOR);
+    }
+
+    /**
+     * Encodes a focus position inquiry, which is answered with
+     * <code>90 50 0p 0q 0r 0s FF</code>.
+     *
+     * @return The payload.
+     */
+    public static byte[] focusInquiry() {
+        return bytes(0x81, 0x09, 0x04, 0x48, TERMINATOR);
+    }
+
+    /**
+     * Encodes a focus mode inquiry, which is answered with <code>90 50 02 FF</code>
+     * for auto focus and <code>90 50 03 FF</code> for manual focus.
+     *
+     * @return The payload.
+     */
+    public static byte[] focusModeInquiry() {
+        return bytes(0x81, 0x09, 0x04, 0x38, TERMINATOR);
+    }
+
+    /**
+     * Encodes a version inquiry, which is answered with the vendor,
+     * model and firmware of the camera.
+     *
+     * @return The payload.
+     */
+    public static byte[] versionInquiry() {
+        return bytes(0x81, 0x09, 0x00, 0x02, TERMINATOR);
+    }
+
+    /**
+     * Encodes the control command that resets the sequence number.
+     * @return The payload.
+     */
+    public static byte[] resetSequence() {
+        return bytes(0x01);
+    }
+
+    /**
+     * Encodes an acknowledgement.
+     * @return The payload.
+     */
+    public static byte[] ack() {
+        return bytes(0x90, 0x41, TERMINATOR);
+    }
+
+    /**
+     * Encodes a completion, optionally holding the data of an inquiry.
+     *
+     * @param data The data of the reply.
+     * @return The payload.
+     */
+    public static byte[] completion(byte... data) {
+        byte[] reply = new byte[data.length + 3];
+
+        reply[0] = (byte) 0x90;
+        reply[1] = 0x51;
+        System.arraycopy(data, 0, reply, 2, data.length);
+        reply[reply.length - 1] = (byte) TERMINATOR;
+
+        return reply;
+    }
+
+    /**
+     * Encodes an error reply.
+     *
+     * @param code The error code, such as <code>0x41</code> for a
+     *      command that cannot be executed right now.
+     * @return The payload.
+     */
+    public static byte[] error(int code) {
+        return bytes(0x90, 0x61, code, TERMINATOR);
+    }
+
+    /**
+     * Returns true iff the reply is an acknowledgement.
+     *
+     * @param reply The payload of the reply.
+     * @return True iff the reply is an acknowledgement.
+     */
+    public static boolean isAck(byte[] reply) {
+        return reply.length == 3 && (reply[1] & 0xF0) == 0x40;
+    }
+
+    /**
+     * Returns true iff the reply is a completion.
+     *
+     * @param reply The payload of the reply.
+     * @return True iff the reply is a completion.
+     */
+    public static boolean isCompletion(byte[] reply) {
+        return reply.length >= 3 && (reply[1] & 0xF0) == 0x50;
+    }
+
+    /**
+     * Returns true iff the reply is an error.
+     *
+     * @param reply The payload of the reply.
+     * @return True iff the reply is an error.
+     */
+    public static boolean isError(byte[] reply) {
+        return reply.length == 4 && (reply[1] & 0xF0) == 0x60;
+    }
+
+    /**
+     * Decodes a value that is spread over the low nibbles of several bytes.
+     *
+     * @param payload The payload that holds the value.
+     * @param offset The offset of the first nibble.
+     * @param count The amount of nibbles.
+     * @return The value, or -1 if the payload is too short.
+     */
+    public static int getNibbles(byte[] payload, int offset, int count) {
+        if (offset + count > payload.length) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = value << 4 | payload[i] & 0x0F;
+        }
+
+        return value;
+    }
+
+    /**
+     * Encodes a value in the low nibbles of several bytes.
+     *
+     * @param payload The payload to write to.
+     * @param offset The offset of the first nibble.
+     * @param count The amount of nibbles.
+     * @param value The value.
+     */
+    public static void putNibbles(byte[] payload, int offset, int count, int value) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            payload[i] = (byte) (value & 0x0F);
+            value >>= 4;
+        }
+    }
+
+    /**
+     * Encodes an absolute or relative pan and tilt command.
+     *
+     * @param command The last byte of the command.
+     * @param panSpeed The pan speed.
+     * @param tiltSpeed The tilt speed.
+     * @param pan The signed pan value.
+     * @param tilt The signed tilt value.
+     * @return The payload.
+     */
+    private static byte[] panTiltPosition(int command, int panSpeed, int tiltSpeed, int pan, int tilt) {
+        byte[] payload = bytes(0x81, 0x01, 0x06, command, panSpeed, tiltSpeed,
+                0, 0, 0, 0, 0, 0, 0, 0, TERMINATOR);
+        putNibbles(payload, 6, 4, pan);
+        putNibbles(payload, 10, 4, tilt);
+
+        return payload;
+    }
+
+    /**
+     * Encodes a zoom or focus command with a 4 nibble position.
+     *
+     * @param category The category of the command.
+     * @param command The last byte of the command.
+     * @param value The position.
+     * @return The payload.
+     */
+    private static byte[] lensPosition(int category, int command, int value) {
+        byte[] payload = bytes(0x81, category, 0x04, command, 0, 0, 0, 0, TERMINATOR);
+        putNibbles(payload, 4, 4, value);
+
+        return payload;
+    }
+
+    /**
+     * Converts integers to bytes.
+     *
+     * @param values The values of the bytes.
+     * @return The bytes.
+     */
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+
+        return bytes;
+    }
+}
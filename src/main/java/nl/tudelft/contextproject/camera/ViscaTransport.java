@@ -0,0 +1,220 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to represent the UDP transport to a camera that speaks VISCA
+ * over IP. Every packet gets the next sequence number, and replies with
+ * another sequence number, such as the late completion of an earlier
+ * command, are ignored.
+ *
+ * <p>UDP does not resend lost packets, so this transport does. A packet
+ * that is not answered within {@link #RETRANSMIT_TIMEOUT} milliseconds
+ * is sent again with the same sequence number, at most {@link #MAX_RETRANSMITS}
+ * times. A camera answers a packet it has already executed again without
+ * executing it twice.
+ *
+ * <p>Commands return as soon as they are acknowledged, so the head starts
+ * moving without waiting for the move to complete. One packet is in flight
+ * at a time.
+ *
+ * @since 1.1
+ */
+public class ViscaTransport {
+
+    /**
+     * Time in milliseconds after which an unanswered packet is sent again.
+     */
+    public static final long RETRANSMIT_TIMEOUT = 100;
+
+    /**
+     * The maximum amount of times a packet is sent again.
+     */
+    public static final int MAX_RETRANSMITS = 3;
+
+    /**
+     * Time in milliseconds to wait for a completion after an acknowledgement.
+     */
+    public static final long COMPLETION_TIMEOUT = 1000;
+
+    private final InetSocketAddress address;
+    private final byte[] buffer = new byte[ViscaCodec.MAX_PACKET_LENGTH];
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retransmits = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+
+    private DatagramSocket socket;
+    private int sequence;
+
+    /**
+     * Creates a transport to the specified address, which is not open yet.
+     * @param address The address of the camera.
+     */
+    public ViscaTransport(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Opens the socket and resets the sequence number of the camera.
+     * A transport that is already open is opened again.
+     *
+     * @throws IOException when the socket cannot be opened or the
+     *      camera does not answer the reset.
+     */
+    public synchronized void open() throws IOException {
+        close();
+        socket = new DatagramSocket();
+        socket.connect(address);
+
+        sequence = 0;
+        exchange(ViscaCodec.TYPE_CONTROL, ViscaCodec.resetSequence(), false);
+    }
+
+    /**
+     * Closes the socket.
+     */
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    /**
+     * Returns true iff the socket is open.
+     * @return True iff the transport is open.
+     */
+    public synchronized boolean isOpen() {
+        return socket != null;
+    }
+
+    /**
+     * Sends a command and waits until it is acknowledged.
+     *
+     * @param payload The command.
+     * @return The acknowledgement, or the error or completion the camera
+     *      answered with instead.
+     * @throws IOException when the camera does not answer.
+     */
+    public synchronized byte[] command(byte[] payload) throws IOException {
+        return exchange(ViscaCodec.TYPE_COMMAND, payload, false);
+    }
+
+    /**
+     * Sends a command and waits until it is completed.
+     *
+     * @param payload The command.
+     * @return The completion, or the error the camera answered with instead.
+     * @throws IOException when the camera does not answer.
+     */
+    public synchronized byte[] commandAndWait(byte[] payload) throws IOException {
+        return exchange(ViscaCodec.TYPE_COMMAND, payload, true);
+    }
+
+    /**
+     * Sends an inquiry and waits for the answer.
+     *
+     * @param payload The inquiry.
+     * @return The completion holding the data, or the error the camera answered with.
+     * @throws IOException when the camera does not answer.
+     */
+    public synchronized byte[] inquiry(byte[] payload) throws IOException {
+        return exchange(ViscaCodec.TYPE_INQUIRY, payload, true);
+    }
+
+    /**
+     * Returns the amount of packets sent, not counting retransmissions.
+     * @return The amount of requests.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the amount of packets that were sent again.
+     * @return The amount of retransmissions.
+     */
+    public long getRetransmitCount() {
+        return retransmits.get();
+    }
+
+    /**
+     * Returns the amount of replies that were ignored because they
+     * belonged to another packet.
+     *
+     * @return The amount of ignored replies.
+     */
+    public long getIgnoredCount() {
+        return ignored.get();
+    }
+
+    /**
+     * Sends a packet and waits for its reply, sending it again when
+     * no reply arrives in time.
+     *
+     * @param type The payload type.
+     * @param payload The payload.
+     * @param awaitCompletion True to wait past the acknowledgement of a command.
+     * @return The payload of the reply.
+     * @throws IOException when the transport is closed or the camera does not answer.
+     */
+    private byte[] exchange(int type, byte[] payload, boolean awaitCompletion) throws IOException {
+        if (socket == null) {
+            throw new IOException("VISCA transport to " + address + " is closed");
+        }
+
+        int seq = sequence++;
+        byte[] packet = ViscaCodec.packet(type, seq, payload);
+        DatagramPacket out = new DatagramPacket(packet, packet.length);
+        DatagramPacket in = new DatagramPacket(buffer, buffer.length);
+
+        requests.incrementAndGet();
+        socket.send(out);
+
+        int sent = 1;
+        boolean acked = false;
+        long deadline = System.currentTimeMillis() + RETRANSMIT_TIMEOUT;
+
+        while (true) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                if (acked || sent > MAX_RETRANSMITS) {
+                    throw new SocketTimeoutException("No reply to VISCA packet " + seq + " from " + address);
+                }
+
+                retransmits.incrementAndGet();
+                socket.send(out);
+                sent++;
+                deadline = System.currentTimeMillis() + RETRANSMIT_TIMEOUT;
+                continue;
+            }
+
+            socket.setSoTimeout((int) wait);
+            in.setLength(buffer.length);
+            try {
+                socket.receive(in);
+            } catch (SocketTimeoutException e) {
+                continue;
+            }
+
+            if (in.getLength() < ViscaCodec.HEADER_LENGTH || ViscaCodec.sequence(buffer) != seq) {
+                ignored.incrementAndGet();
+                continue;
+            }
+
+            byte[] reply = ViscaCodec.payload(buffer, in.getLength());
+            if (ViscaCodec.isAck(reply) && awaitCompletion) {
+                acked = true;
+                deadline = System.currentTimeMillis() + COMPLETION_TIMEOUT;
+            } else {
+                return reply;
+            }
+        }
+    }
+}
@@ -7,11 +7,13 @@ import com.sun.jna.NativeLibrary;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.TextInputDialog;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Window;
 
 import nl.tudelft.contextproject.camera.Camera;
+import nl.tudelft.contextproject.camera.CameraDiscovery;
 import nl.tudelft.contextproject.presets.Preset;
 import nl.tudelft.contextproject.saveLoad.ApplicationSettings;
 import nl.tudelft.contextproject.script.Shot;
@@ -286,6 +288,68 @@ public final class AlertDialog {
         return alert.showAndWait().get() == ButtonType.OK;
     }
 
+    /**
+     * Shows a dialog asking for the range of addresses to scan for cameras.
+     * @return The range, such as <code>192.168.0.0/24</code>, or null if cancelled.
+     */
+    public static String askDiscoveryRange() {
+        TextInputDialog dialog = new TextInputDialog("192.168.0.0/24");
+        dialog.setTitle("Discover cameras");
+        dialog.setHeaderText("Scan a range of addresses for cameras");
+        dialog.setContentText("Address range:");
+        return dialog.showAndWait().orElse(null);
+    }
+
+    /**
+     * Shows an error message for a range of addresses that cannot be scanned.
+     * @param range The range that was entered.
+     */
+    public static void errorDiscoveryRange(String range) {
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Discover cameras");
+        alert.setHeaderText("Invalid address range: " + range);
+        alert.setContentText("Enter a range such as 192.168.0.0/24, with a prefix of at least /"
+                + CameraDiscovery.MIN_PREFIX + ".");
+        alert.showAndWait();
+    }
+
+    /**
+     * Shows a message box with the amount of cameras a scan added.
+     * @param added The amount of cameras that were added.
+     */
+    public static void infoCamerasDiscovered(int added) {
+        Alert alert = new Alert(AlertType.INFORMATION);
+        alert.setTitle("Discover cameras");
+        alert.setHeaderText(added == 0 ? "No new cameras were found" : "Added " + added + " camera(s)");
+        alert.showAndWait();
+    }
+
+    /**
+     * Shows a dialog asking whether the user is sure if he or she wants to
+     * store the presets in the memory of the cameras, which moves them.
+     * @return true iff the user wants to store the presets, false otherwise.
+     */
+    public static boolean confirmStorePresets() {
+        Alert alert = new Alert(AlertType.CONFIRMATION);
+        alert.setTitle("Store presets");
+        alert.setHeaderText("Are you sure you want to store the presets in the cameras?");
+        alert.setContentText("Every camera moves to each preset that changed and back. "
+                + "Do not do this while the cameras are on air.");
+        return alert.showAndWait().get() == ButtonType.OK;
+    }
+
+    /**
+     * Shows a message box telling whether the presets were stored in the cameras.
+     * @param stored True iff the presets of all cameras were stored.
+     */
+    public static void infoPresetsStored(boolean stored) {
+        Alert alert = new Alert(stored ? AlertType.INFORMATION : AlertType.WARNING);
+        alert.setTitle("Store presets");
+        alert.setHeaderText(stored ? "The presets were stored in the cameras"
+                : "Not all presets could be stored in the cameras");
+        alert.showAndWait();
+    }
+
     /**
      * Shows a dialog asking whether the user is sure if he or she
      * wants to save the settings.
@@ -31,6 +31,13 @@ import java.util.Iterator;
  */
 public class CameraFeedsController {
 
+    /**
+     * The highest resolution the two feeds are decoded at. Smaller
+     * feeds are decoded at the size they are displayed at.
+     */
+    private static final int MAX_STREAM_WIDTH = 1920;
+    private static final int MAX_STREAM_HEIGHT = 1080;
+
     private static LiveStreamHandler leftStreamHandler;
     private static LiveStreamHandler rightStreamHandler;
 
@@ -162,7 +169,7 @@ public class CameraFeedsController {
         if (streamHandler != null) {
             streamHandler.stop();
 
-            ImageView newView = streamHandler.createImageView(streamLink, 1920, 1080);
+            ImageView newView = streamHandler.createImageView(streamLink, MAX_STREAM_WIDTH, MAX_STREAM_HEIGHT);
 
             Platform.runLater(() -> {
                 fitImageViewSize((float) vBox.getWidth(), (float) vBox.getHeight(), newView, streamHandler);
@@ -175,8 +182,6 @@ public class CameraFeedsController {
             if (!ContextTFP.hasVLC()) {
                 fitImageView(newView, vBox);
             }
-
-            streamHandler.start();
         }
     }
 
@@ -1,5 +1,6 @@
 package nl.tudelft.contextproject.gui;
 
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,6 +15,7 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.VBox;
 import nl.tudelft.contextproject.ContextTFP;
 import nl.tudelft.contextproject.camera.Camera;
+import nl.tudelft.contextproject.camera.CameraHealth;
 import nl.tudelft.contextproject.databaseConnection.DatabaseConnection;
 import nl.tudelft.contextproject.presets.Preset;
 import nl.tudelft.contextproject.script.Script;
@@ -21,8 +23,11 @@ import nl.tudelft.contextproject.script.Shot;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.Observer;
 
 /**
  * This class controls the screen that shows the view for a cameraman.
@@ -55,6 +60,12 @@ public class CameramanLiveController {
 
     private Script script;
 
+    /**
+     * The observers that update the check boxes of the cameras, by the
+     * camera or health they observe. They are removed when leaving the view.
+     */
+    private final Map<Observable, Observer> cameraObservers = new HashMap<Observable, Observer>();
+
     /**
      * Initialize method used by JavaFX.
      */
@@ -102,7 +113,16 @@ public class CameramanLiveController {
         for (Camera c : Camera.getAllCameras()) {
             final CheckBox check = new CheckBox();
 
-            check.setText("Camera: " + (c.getNumber() + 1));
+            setCameraText(check, c, c.getHealth());
+            if (c.hasConnection()) {
+                observe(c.getConnection().getHealth(), (Observable obj, Object arg) -> {
+                    Platform.runLater(() -> setCameraText(check, c, (CameraHealth.State) arg));
+                });
+                observe(c, (Observable obj, Object arg) -> {
+                    Platform.runLater(() -> setCameraText(check, c, c.getHealth()));
+                });
+            }
+
             check.setContentDisplay(ContentDisplay.LEFT);
             check.fire();
             cameras.add(check);
@@ -118,11 +138,56 @@ public class CameramanLiveController {
         }
     }
 
+    /**
+     * Adds an observer that is removed again when leaving the view.
+     *
+     * @param observable The camera or health to observe.
+     * @param observer The observer to add.
+     */
+    private void observe(Observable observable, Observer observer) {
+        observable.addObserver(observer);
+        cameraObservers.put(observable, observer);
+    }
+
+    /**
+     * Removes the observers of the cameras, so the cameras no longer
+     * hold on to this view after it is left.
+     */
+    private void deleteCameraObservers() {
+        for (Map.Entry<Observable, Observer> entry : cameraObservers.entrySet()) {
+            entry.getKey().deleteObserver(entry.getValue());
+        }
+        cameraObservers.clear();
+    }
+
+    /**
+     * Sets the text of the check box of a camera, which shows whether
+     * the camera can be reached and whether it is still moving.
+     * 
+     * @param check The check box of the camera.
+     * @param camera The camera.
+     * @param health The health state of the connection of the camera.
+     */
+    private void setCameraText(CheckBox check, Camera camera, CameraHealth.State health) {
+        String text = "Camera: " + (camera.getNumber() + 1);
+
+        if (health == CameraHealth.State.DEGRADED) {
+            text += " (unstable)";
+        } else if (health == CameraHealth.State.OPEN) {
+            text += " (unreachable)";
+        } else if (!camera.isInPosition()) {
+            text += " (moving)";
+        }
+
+        check.setText(text);
+    }
+
     /**
      * Initialize button functionality.
      */
     private void initButtons() {
         btnBack.setOnAction(event -> {
+            deleteCameraObservers();
             MenuController.show();
         });
 
@@ -135,6 +200,7 @@ public class CameramanLiveController {
         });
 
         btnPresets.setOnAction(event -> {
+            deleteCameraObservers();
             PresetController.setToCameramanView(true);
 
             Animation.animNodeOut(ContextTFP.getRootLayout(), false).setOnFinished(f -> {
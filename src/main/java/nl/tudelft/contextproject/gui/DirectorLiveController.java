@@ -30,6 +30,7 @@ import nl.tudelft.contextproject.script.Shot;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class controls the screen that shows the live view
@@ -62,6 +63,7 @@ public class DirectorLiveController {
 
     @FXML private Label actionTxt;
     @FXML private Label labelID;
+    @FXML private Label readyTxt;
 
     @FXML private TableView<Shot> tableShots;
     @FXML private TableColumn<Shot, String> columnAction;
@@ -115,7 +117,7 @@ public class DirectorLiveController {
                 initializeNextButton();
             } else {
                 initializeLiveButton();
-                script.initPresetLoading();
+                showReadiness(script.initPresetLoading());
             }
         }
         
@@ -152,7 +154,7 @@ public class DirectorLiveController {
      */
     private void initializeScriptButtons() {            
         btnManualLoad.setOnAction(event -> {
-            script.loadNextPresets();
+            showReadiness(script.loadNextPresets());
         });
         
         btnReset.setOnAction(event -> {
@@ -161,6 +163,7 @@ public class DirectorLiveController {
 
             if (result.get() == ButtonType.OK) {
                 script.reset(automaticCheck.isSelected());
+                showReadiness(script.getCamerasReady());
                 
                 if (validDatabase) {
                     try {
@@ -219,13 +222,29 @@ public class DirectorLiveController {
         });   
     }
 
+    /**
+     * Shows whether the cameras are ready, once the slowest camera
+     * has reached its preset.
+     * 
+     * @param ready The handle of the presets that are being loaded.
+     */
+    private void showReadiness(CompletableFuture<Boolean> ready) {
+        readyTxt.setText("Loading presets...");
+
+        ready.thenAccept(allReady -> Platform.runLater(() -> {
+            if (script.getCamerasReady() == ready) {
+                readyTxt.setText(allReady ? "All cameras ready" : "Not all cameras are ready");
+            }
+        }));
+    }
+
     /**
      * Initializes the checkbox.
      */
     private void initializeCheckbox() {
         automaticCheck.selectedProperty().addListener((obs, oldV, newV) -> {
             if (newV && script.getCurrent() > -1) {
-                script.loadNextPresets();
+                showReadiness(script.loadNextPresets());
             }
         });
     }
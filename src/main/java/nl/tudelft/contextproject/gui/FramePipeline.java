@@ -0,0 +1,181 @@
+package nl.tudelft.contextproject.gui;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class to hand video frames from the decoder thread to the JavaFX thread
+ * through a ring of three reusable direct buffers. The decoder writes into
+ * the back buffer and publishes it as the newest frame. The JavaFX thread
+ * takes the newest frame once per pulse, so a frame that was not taken
+ * before the next one was published is dropped instead of queued.
+ *
+ * <p>The decoder and the JavaFX thread never use the same buffer at once,
+ * and they only wait for each other while buffers are swapped. No memory is
+ * allocated after the pipeline is created. A pipeline holds frames of one
+ * size, so a new one is created when the video format changes.
+ *
+ * @since 1.1
+ */
+public class FramePipeline {
+
+    /**
+     * The amount of buffers in the ring.
+     */
+    public static final int SLOTS = 3;
+
+    /**
+     * The amount of bytes of a pixel, in BGRA order.
+     */
+    public static final int BYTES_PER_PIXEL = 4;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[SLOTS];
+    private final int width;
+    private final int height;
+    private int back;
+    private int ready = 1;
+    private int front = 2;
+    private boolean fresh;
+
+    private long published;
+    private long displayed;
+    private long dropped;
+
+    /**
+     * Creates a pipeline for frames of the specified size, without padding.
+     *
+     * @param width The width of a frame in pixels.
+     * @param height The height of a frame in pixels.
+     */
+    public FramePipeline(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        for (int i = 0; i < SLOTS; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(getFrameSize());
+        }
+    }
+
+    /**
+     * Returns the width of a frame.
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of a frame.
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the amount of bytes of a row of a frame.
+     * @return The pitch in bytes.
+     */
+    public int getPitch() {
+        return width * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Returns the size of a frame in bytes.
+     * @return The frame size.
+     */
+    public int getFrameSize() {
+        return getPitch() * height;
+    }
+
+    /**
+     * Returns the buffer to write the next frame into, cleared. It may
+     * only be used by the decoder, until {@link #publish()} is called.
+     *
+     * @return The back buffer.
+     */
+    public synchronized ByteBuffer getBackBuffer() {
+        ByteBuffer buffer = buffers[back];
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Publishes the back buffer as the newest frame. The frame it
+     * replaces is dropped if it was not taken yet.
+     */
+    public synchronized void publish() {
+        if (fresh) {
+            dropped++;
+        }
+
+        int written = back;
+        back = ready;
+        ready = written;
+        fresh = true;
+        published++;
+    }
+
+    /**
+     * Takes the newest frame, if one was published since the last call.
+     * The buffer may be read by the caller until the next call.
+     *
+     * @return The newest frame, with its position at 0, or null if there is no new frame.
+     */
+    public synchronized ByteBuffer takeLatest() {
+        if (!fresh) {
+            return null;
+        }
+
+        int taken = ready;
+        ready = front;
+        front = taken;
+        fresh = false;
+        displayed++;
+
+        ByteBuffer buffer = buffers[front];
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Copies the newest frame, whether or not it was taken already, such as
+     * for a snapshot. Neither the decoder nor the JavaFX thread is disturbed.
+     *
+     * @return A copy of the newest frame, or null if no frame was published yet.
+     */
+    public synchronized byte[] copyLatest() {
+        if (published == 0) {
+            return null;
+        }
+
+        ByteBuffer latest = buffers[fresh ? ready : front].duplicate();
+        latest.rewind();
+        byte[] copy = new byte[getFrameSize()];
+        latest.get(copy);
+        return copy;
+    }
+
+    /**
+     * Returns the amount of frames the decoder published.
+     * @return The amount of published frames.
+     */
+    public synchronized long getPublishedCount() {
+        return published;
+    }
+
+    /**
+     * Returns the amount of frames that were taken to be displayed.
+     * @return The amount of displayed frames.
+     */
+    public synchronized long getDisplayedCount() {
+        return displayed;
+    }
+
+    /**
+     * Returns the amount of frames that were replaced before they were taken.
+     * @return The amount of dropped frames.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+}
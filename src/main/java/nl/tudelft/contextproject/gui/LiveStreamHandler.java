@@ -1,32 +1,20 @@
 package nl.tudelft.contextproject.gui;
 
-import com.sun.jna.Memory;
-
-import javafx.application.Platform;
 import javafx.beans.property.FloatProperty;
 import javafx.beans.property.SimpleFloatProperty;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.PixelFormat;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.image.WritablePixelFormat;
 import nl.tudelft.contextproject.ContextTFP;
-import uk.co.caprica.vlcj.component.DirectMediaPlayerComponent;
-import uk.co.caprica.vlcj.player.direct.BufferFormat;
-import uk.co.caprica.vlcj.player.direct.DirectMediaPlayer;
-import uk.co.caprica.vlcj.player.direct.format.RV32BufferFormat;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.ByteBuffer;
 
-import javax.imageio.ImageIO;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Handler for streaming media into the GUI through VLC.
  * 
+ * <p>The stream itself is decoded by a {@link StreamSession}, which is shared
+ * through the {@link StreamRegistry} with every other handler that shows the
+ * same stream. A handler owns one view of the session, and releases the
+ * session when it is stopped.
+ * 
  * <p>Most credits to Mark Lee for creating this solution.
  * 
  * @see <a href="https://github.com/caprica/vlcj-javafx/tree/master/src/test/java/uk/co/caprica/vlcj/javafx/test">
@@ -35,9 +23,7 @@ import javax.imageio.ImageIO;
  */
 public class LiveStreamHandler {
 
-    private PixelWriter pixelWriter;
-    private WritablePixelFormat<ByteBuffer> pixelFormat;
-    private DirectMediaPlayerComponent mediaPlayer;
+    private StreamSession session;
     private String streamLink;
     private ImageView imageView;
     private FloatProperty videoSourceRatioProperty;
@@ -50,31 +36,26 @@ public class LiveStreamHandler {
     }
 
     /**
-     * Starts playing the media.
-     */
-    public void start() {
-        if (mediaPlayer != null) {
-            mediaPlayer.getMediaPlayer().playMedia(streamLink);
-        }
-    }
-
-    /**
-     * Stops playing the media and release associated resources.
+     * Stops showing the media. The session is released, and closed once
+     * no view has shown it for the grace period of the registry.
      */
     public void stop() {
-        if (mediaPlayer != null) {
-            mediaPlayer.getMediaPlayer().stop();
-            mediaPlayer.getMediaPlayer().release();
-            mediaPlayer = null;
+        if (session != null) {
+            videoSourceRatioProperty.unbind();
+            session.removeView(imageView);
+            StreamRegistry.getInstance().release(session);
+            session = null;
         }
     }
 
     /**
      * Returns an ImageView object that can be put into the JavaFX framework.
+     * The stream is decoded at the size the ImageView is fit to, but never
+     * at more than the specified width and height.
      * 
      * @param streamLink link to media stream.
-     * @param width Width of the ImageView.
-     * @param height Height of the ImageView.
+     * @param width Highest width to decode the stream at.
+     * @param height Highest height to decode the stream at.
      * @return a ImageView object displaying the stream.
      */
     public ImageView createImageView(String streamLink, double width, double height) {
@@ -82,40 +63,31 @@ public class LiveStreamHandler {
             return createErrorImageView();
         }
 
-        WritableImage writableImage = new WritableImage((int) width, (int) height);
-        imageView = new ImageView(writableImage);
+        stop();
         this.streamLink = streamLink;
-        this.pixelWriter = writableImage.getPixelWriter();
-        this.pixelFormat = PixelFormat.getByteBgraPreInstance();
-
-        this.mediaPlayer = new DirectMediaPlayerComponent((sourceWidth, sourceHeight) -> {
-            Platform.runLater( () -> {
-                videoSourceRatioProperty.set((float) sourceHeight / (float) sourceWidth);
-            });
-            return new RV32BufferFormat((int) width, (int) height);
-        }) {
-            @Override
-            public void display(DirectMediaPlayer mediaPlayer, Memory[] nativeBuffers, BufferFormat bufferFormat) {
-                Memory nativeBuffer = mediaPlayer.lock()[0];
-                try {
-                    ByteBuffer byteBuffer = nativeBuffer.getByteBuffer(0, nativeBuffer.size());
-                    pixelWriter.setPixels(0, 0, bufferFormat.getWidth(), bufferFormat.getHeight(), 
-                            pixelFormat, byteBuffer, bufferFormat.getPitches()[0]);
-                } finally {
-                    mediaPlayer.unlock();
-                }
-            }
-        };
+        session = StreamRegistry.getInstance().acquire(streamLink);
+        imageView = session.createView(width, height);
+        videoSourceRatioProperty.bind(session.getRatio());
 
         return imageView;
     }
 
+    /**
+     * Returns the pipeline that hands decoded frames to the JavaFX thread,
+     * which counts the frames that were dropped.
+     * 
+     * @return The frame pipeline, or null if no stream was set up.
+     */
+    public FramePipeline getFramePipeline() {
+        return session == null ? null : session.getFramePipeline();
+    }
+
     /**
      * Returns true if there is an active MediaPlayer.
      * @return True if there is an active MediaPlayer, otherwise false.
      */
     public boolean isPlaying() {
-        return this.mediaPlayer != null;
+        return this.session != null;
     }
 
     /**
@@ -144,20 +116,22 @@ public class LiveStreamHandler {
     
     /**
      * Takes a snapshot of the image present on a camera and stores the image
-     * at a chosen location.
+     * at a chosen location, with thumbnails next to it. Only the newest
+     * decoded frame is copied on the calling thread, the images are encoded
+     * in the background by the {@link SnapshotEncoder}.
      *
      * @param imageLocation The location to which the captured image is stored.
+     * @return A future that completes with true iff the images were stored,
+     *      or false if no frame was decoded yet.
      */
-    public void snapShot(String imageLocation) {
-        if (imageView != null) {
-            WritableImage image = imageView.snapshot(new SnapshotParameters(), null);
-            File output = new File(imageLocation);
-
-            try {
-                ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", output);
-            } catch ( IOException e) {
-                e.printStackTrace();
-            }
+    public CompletableFuture<Boolean> snapShot(String imageLocation) {
+        FramePipeline pipeline = getFramePipeline();
+        byte[] frame = pipeline == null ? null : pipeline.copyLatest();
+
+        if (frame == null) {
+            return CompletableFuture.completedFuture(false);
         }
+
+        return SnapshotEncoder.write(frame, pipeline.getWidth(), pipeline.getHeight(), imageLocation);
     }
 }
@@ -1,5 +1,6 @@
 package nl.tudelft.contextproject.gui;
 
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -30,7 +31,7 @@ import javafx.stage.Stage;
 import nl.tudelft.contextproject.ContextTFP;
 import nl.tudelft.contextproject.camera.Camera;
 import nl.tudelft.contextproject.camera.CameraConnection;
-import nl.tudelft.contextproject.camera.LiveCameraConnection;
+import nl.tudelft.contextproject.camera.CameraConnectionFactory;
 import nl.tudelft.contextproject.camera.MockedCameraConnection;
 import nl.tudelft.contextproject.databaseConnection.DatabaseConnection;
 import nl.tudelft.contextproject.saveLoad.ApplicationSettings;
@@ -43,6 +44,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller class for the main menu. This class controls the actions to be taken
@@ -62,6 +64,7 @@ public class MenuController {
 
     @FXML private Button btnCameraman;
     @FXML private Button btnCameras;
+    @FXML private Button btnMultiview;
     @FXML private Button btnCreateScript;
     @FXML private Button btnDirector;
     @FXML private Button btnEditScript;
@@ -73,7 +76,9 @@ public class MenuController {
     @FXML private Button btnSettingsAddCamera;
     @FXML private Button btnSettingsCancel;
     @FXML private Button btnSettingsClearCameras;
+    @FXML private Button btnSettingsDiscoverCameras;
     @FXML private Button btnSettingsSave;
+    @FXML private Button btnSettingsStorePresets;
     @FXML private Button btnSettingsTest;
 
     @FXML private ChoiceBox<String> settingsVlcBox;
@@ -130,6 +135,7 @@ public class MenuController {
         initOtherButtons();
         initSettingsImg();
         initCameraViewButton();
+        initMultiviewButton();
     }
 
     /**
@@ -297,6 +303,31 @@ public class MenuController {
         });
     }
 
+    /**
+     * Initialises the 'Multiview' button, which opens a new window
+     * with the live feeds of all cameras.
+     */
+    private void initMultiviewButton() {
+        btnMultiview.setOnAction(event -> {
+            try {
+                FXMLLoader loader = new FXMLLoader();
+                loader.setLocation(ContextTFP.class.getResource("view/MultiviewView.fxml"));
+
+                AnchorPane rootLayout = (AnchorPane) loader.load();
+                MultiviewController multiview = loader.getController();
+
+                Stage secondaryStage = new Stage();
+                secondaryStage.setScene(new Scene(rootLayout));
+                secondaryStage.setOnCloseRequest(e -> {
+                    multiview.close();
+                });
+                secondaryStage.show();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
     /**
      * Sets the hover and click action for the settings icon.
      */
@@ -483,6 +514,52 @@ public class MenuController {
             settingsIpTable.getItems().add(newCam);
         });
 
+        btnSettingsDiscoverCameras.setTooltip(new Tooltip("Scans the network for cameras and adds them to the table"));
+        btnSettingsDiscoverCameras.setOnAction(event -> {
+            String range = AlertDialog.askDiscoveryRange();
+            if (range == null || range.trim().isEmpty()) {
+                return;
+            }
+
+            CompletableFuture<List<Camera>> discovery;
+            try {
+                discovery = settings.discoverCameras(range.trim());
+            } catch (IllegalArgumentException e) {
+                AlertDialog.errorDiscoveryRange(range);
+                return;
+            }
+
+            // The scan itself may fail on a background thread.
+            btnSettingsDiscoverCameras.setDisable(true);
+            discovery.whenComplete((added, e) -> Platform.runLater(() -> {
+                btnSettingsDiscoverCameras.setDisable(false);
+                if (e == null) {
+                    settingsIpTable.getItems().addAll(added);
+                    AlertDialog.infoCamerasDiscovered(added.size());
+                } else {
+                    e.printStackTrace();
+                    AlertDialog.infoCamerasDiscovered(0);
+                }
+            }));
+        });
+
+        btnSettingsStorePresets.setTooltip(new Tooltip("Stores the presets in the memory of the cameras, "
+                + "which moves the cameras"));
+        btnSettingsStorePresets.setOnAction(event -> {
+            if (!AlertDialog.confirmStorePresets()) {
+                return;
+            }
+
+            btnSettingsStorePresets.setDisable(true);
+            settings.syncCameraPresets().whenComplete((stored, e) -> Platform.runLater(() -> {
+                btnSettingsStorePresets.setDisable(false);
+                if (e != null) {
+                    e.printStackTrace();
+                }
+                AlertDialog.infoPresetsStored(e == null && stored);
+            }));
+        });
+
         btnSettingsClearCameras.setTooltip(new Tooltip("Clears all cameras from the table"));
         btnSettingsClearCameras.setOnAction(event -> {
             if (AlertDialog.confirmClearCameras()) {
@@ -506,10 +583,12 @@ public class MenuController {
                     .get(editEvent.getTablePosition().getRow());
             settings.addCameraIP(cam.getNumber(), editEvent.getNewValue());
             new Thread(() -> {
-                CameraConnection oldConnection = cam.getConnection();
-                cam.setConnection(new LiveCameraConnection(settings.getCameraIP(cam.getNumber())));
-                if (!cam.getConnection().setUpConnection()) {
-                    cam.setConnection(oldConnection == null ? new MockedCameraConnection() : oldConnection);
+                // The old connection is only replaced, and closed, once the new one works.
+                CameraConnection connect = CameraConnectionFactory.connect(settings.getCameraIP(cam.getNumber()));
+                if (connect != null) {
+                    cam.setConnection(connect);
+                } else if (!cam.hasConnection()) {
+                    cam.setConnection(new MockedCameraConnection());
                 }
             }).start();
         });
@@ -0,0 +1,317 @@
+package nl.tudelft.contextproject.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import nl.tudelft.contextproject.ContextTFP;
+import nl.tudelft.contextproject.camera.Camera;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controller for the window that shows the feeds of all cameras at once,
+ * laid out as a grid by {@link MultiviewLayout}.
+ *
+ * <p>All tiles are drawn into a single canvas, so the scene graph does not
+ * grow with the amount of cameras. A tile is only redrawn when its stream
+ * has a new frame, and every stream is decoded at the size of its tile.
+ *
+ * <p>Clicking a tile collapses it, which stops its stream. When the window
+ * is minimized or hidden, all streams are released. The {@link StreamRegistry}
+ * keeps them open for its grace period, so a window that is restored soon
+ * does not reopen them.
+ *
+ * <p>The view section is defined under view/MultiviewView.fxml
+ *
+ * @since 1.1
+ */
+public class MultiviewController {
+
+    /**
+     * The highest resolution a tile is decoded at. Tiles share the window,
+     * so they never need more than half of full HD.
+     */
+    private static final int MAX_TILE_WIDTH = 960;
+    private static final int MAX_TILE_HEIGHT = 540;
+
+    /**
+     * The ratio the tiles are laid out at, its height divided by its width.
+     */
+    private static final double TILE_RATIO = 0.5625;
+
+    /**
+     * Space in pixels between the tiles.
+     */
+    private static final double GAP = 2;
+
+    @FXML private Pane tilePane;
+    @FXML private Canvas canvas;
+
+    private final List<Tile> tiles = new ArrayList<Tile>();
+    private MultiviewLayout layout;
+    private AnimationTimer painter;
+    private boolean paused;
+    private boolean redraw;
+
+    /**
+     * Initialize method used by JavaFX.
+     */
+    @FXML private void initialize() {
+        for (Camera camera : Camera.getAllCameras()) {
+            tiles.add(new Tile(camera));
+        }
+
+        canvas.widthProperty().bind(tilePane.widthProperty());
+        canvas.heightProperty().bind(tilePane.heightProperty());
+        canvas.widthProperty().addListener(observable -> relayout());
+        canvas.heightProperty().addListener(observable -> relayout());
+        canvas.setOnMouseClicked(event -> toggleCollapsed(layout.indexAt(event.getX(), event.getY())));
+        canvas.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                newScene.windowProperty().addListener((o, oldWindow, newWindow) -> watchWindow(newWindow));
+            }
+        });
+
+        painter = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                paint();
+            }
+        };
+
+        relayout();
+        for (Tile tile : tiles) {
+            activate(tile);
+        }
+        painter.start();
+    }
+
+    /**
+     * Pauses the streams while the window is hidden or minimized, and
+     * resumes them when it is shown again.
+     *
+     * @param window The window showing the multiview.
+     */
+    private void watchWindow(Window window) {
+        if (window == null) {
+            return;
+        }
+
+        window.showingProperty().addListener(observable -> updateVisibility(window));
+        if (window instanceof Stage) {
+            ((Stage) window).iconifiedProperty().addListener(observable -> updateVisibility(window));
+        }
+    }
+
+    /**
+     * Pauses or resumes the streams, depending on whether the window can be seen.
+     * @param window The window showing the multiview.
+     */
+    private void updateVisibility(Window window) {
+        boolean visible = window.isShowing()
+                && !(window instanceof Stage && ((Stage) window).isIconified());
+
+        if (visible) {
+            resume();
+        } else {
+            pause();
+        }
+    }
+
+    /**
+     * Releases the streams of all tiles and stops drawing.
+     */
+    private void pause() {
+        if (paused) {
+            return;
+        }
+
+        paused = true;
+        painter.stop();
+        for (Tile tile : tiles) {
+            deactivate(tile);
+        }
+    }
+
+    /**
+     * Acquires the streams of all tiles that are not collapsed, and
+     * starts drawing again.
+     */
+    private void resume() {
+        if (!paused) {
+            return;
+        }
+
+        paused = false;
+        for (Tile tile : tiles) {
+            activate(tile);
+        }
+        redraw = true;
+        painter.start();
+    }
+
+    /**
+     * Collapses a tile that shows its stream, or expands a collapsed tile.
+     * @param index The index of the tile, or -1 to do nothing.
+     */
+    private void toggleCollapsed(int index) {
+        if (index < 0) {
+            return;
+        }
+
+        Tile tile = tiles.get(index);
+        tile.collapsed = !tile.collapsed;
+        if (tile.collapsed) {
+            deactivate(tile);
+        } else {
+            activate(tile);
+        }
+        redraw = true;
+    }
+
+    /**
+     * Acquires the stream of a tile, if the tile can be seen and its camera has a stream.
+     * @param tile The tile to show the stream in.
+     */
+    private void activate(Tile tile) {
+        if (paused || tile.collapsed || tile.session != null
+                || tile.streamLink == null || !ContextTFP.hasVLC()) {
+            return;
+        }
+
+        tile.session = StreamRegistry.getInstance().acquire(tile.streamLink);
+        tile.drawnFrame = -1;
+        requestSize(tile);
+    }
+
+    /**
+     * Releases the stream of a tile.
+     * @param tile The tile that no longer shows its stream.
+     */
+    private void deactivate(Tile tile) {
+        if (tile.session == null) {
+            return;
+        }
+
+        tile.session.removeViewer(tile);
+        StreamRegistry.getInstance().release(tile.session);
+        tile.session = null;
+    }
+
+    /**
+     * Lays the tiles out for the current size of the canvas, and decodes
+     * every stream at the size of its tile.
+     */
+    private void relayout() {
+        layout = new MultiviewLayout(tiles.size(), canvas.getWidth(), canvas.getHeight(), TILE_RATIO);
+        for (Tile tile : tiles) {
+            requestSize(tile);
+        }
+        redraw = true;
+    }
+
+    /**
+     * Asks the session of a tile to decode at the size of the tile.
+     * @param tile The tile.
+     */
+    private void requestSize(Tile tile) {
+        if (tile.session != null) {
+            tile.session.requestSize(tile, layout.getTileWidth() - GAP, layout.getTileHeight() - GAP,
+                    MAX_TILE_WIDTH, MAX_TILE_HEIGHT);
+        }
+    }
+
+    /**
+     * Draws the tiles that have a new frame, or all tiles after the
+     * layout changed.
+     */
+    private void paint() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        if (redraw) {
+            gc.setFill(Color.BLACK);
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+
+        for (int i = 0; i < tiles.size(); i++) {
+            Tile tile = tiles.get(i);
+            if (redraw || (tile.session != null && tile.session.getFrameCount() != tile.drawnFrame)) {
+                drawTile(gc, i, tile);
+            }
+        }
+
+        redraw = false;
+    }
+
+    /**
+     * Draws one tile: the newest frame of its stream, or a placeholder
+     * if it has no stream.
+     *
+     * @param gc The graphics context of the canvas.
+     * @param index The index of the tile.
+     * @param tile The tile.
+     */
+    private void drawTile(GraphicsContext gc, int index, Tile tile) {
+        double x = layout.getX(index) + GAP / 2;
+        double y = layout.getY(index) + GAP / 2;
+        double width = layout.getTileWidth() - GAP;
+        double height = layout.getTileHeight() - GAP;
+        Image frame = tile.session == null ? null : tile.session.getImage().get();
+
+        gc.setFill(Color.rgb(30, 30, 30));
+        gc.fillRect(x, y, width, height);
+
+        if (frame != null) {
+            gc.drawImage(frame, x, y, width, height);
+            tile.drawnFrame = tile.session.getFrameCount();
+        }
+
+        String label = "Camera " + tile.cameraNumber;
+        if (tile.collapsed) {
+            label += " (paused)";
+        } else if (frame == null) {
+            label += " (no stream)";
+        }
+        gc.setFill(Color.WHITE);
+        gc.fillText(label, x + 8, y + 18);
+    }
+
+    /**
+     * Closes the streams of this multiview, called when its window is closed.
+     */
+    public void close() {
+        painter.stop();
+        for (Tile tile : tiles) {
+            deactivate(tile);
+        }
+    }
+
+    /**
+     * Class to represent the tile of one camera.
+     */
+    private static final class Tile {
+
+        private final int cameraNumber;
+        private final String streamLink;
+        private StreamSession session;
+        private long drawnFrame = -1;
+        private boolean collapsed;
+
+        /**
+         * Creates the tile of a camera.
+         * @param camera The camera to show.
+         */
+        private Tile(Camera camera) {
+            cameraNumber = camera.getNumber() + 1;
+            streamLink = camera.hasConnection() ? camera.getConnection().getStreamLink() : null;
+        }
+    }
+}
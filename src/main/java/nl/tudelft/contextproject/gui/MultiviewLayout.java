@@ -0,0 +1,121 @@
+package nl.tudelft.contextproject.gui;
+
+/**
+ * Class to lay out the tiles of the multiview as a grid. The amount of
+ * columns is chosen so the tiles are as large as possible, while every tile
+ * keeps the aspect ratio of the streams. The grid is centered in its area.
+ *
+ * @since 1.1
+ */
+public class MultiviewLayout {
+
+    private final int count;
+    private final int columns;
+    private final int rows;
+    private final double tileWidth;
+    private final double tileHeight;
+    private final double offsetX;
+    private final double offsetY;
+
+    /**
+     * Creates the layout of a grid of tiles.
+     *
+     * @param count The amount of tiles.
+     * @param width The width of the area to lay the tiles out in.
+     * @param height The height of the area to lay the tiles out in.
+     * @param ratio The ratio of a tile, its height divided by its width.
+     */
+    public MultiviewLayout(int count, double width, double height, double ratio) {
+        this.count = Math.max(0, count);
+
+        int bestColumns = 1;
+        double bestWidth = 0;
+        for (int cols = 1; cols <= Math.max(1, this.count); cols++) {
+            int rowCount = (Math.max(1, this.count) + cols - 1) / cols;
+            double fit = Math.min(width / cols, height / rowCount / ratio);
+            if (fit > bestWidth) {
+                bestWidth = fit;
+                bestColumns = cols;
+            }
+        }
+
+        columns = bestColumns;
+        rows = (Math.max(1, this.count) + columns - 1) / columns;
+        tileWidth = Math.max(0, bestWidth);
+        tileHeight = tileWidth * ratio;
+        offsetX = (width - columns * tileWidth) / 2;
+        offsetY = (height - rows * tileHeight) / 2;
+    }
+
+    /**
+     * Returns the amount of columns of the grid.
+     * @return The amount of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the amount of rows of the grid.
+     * @return The amount of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the width of every tile.
+     * @return The width of a tile.
+     */
+    public double getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Returns the height of every tile.
+     * @return The height of a tile.
+     */
+    public double getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Returns the horizontal position of a tile.
+     * @param index The index of the tile.
+     * @return The x coordinate of the left side of the tile.
+     */
+    public double getX(int index) {
+        return offsetX + (index % columns) * tileWidth;
+    }
+
+    /**
+     * Returns the vertical position of a tile.
+     * @param index The index of the tile.
+     * @return The y coordinate of the top side of the tile.
+     */
+    public double getY(int index) {
+        return offsetY + (index / columns) * tileHeight;
+    }
+
+    /**
+     * Returns the tile at a position in the area.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The index of the tile, or -1 if there is no tile at the position.
+     */
+    public int indexAt(double x, double y) {
+        if (tileWidth <= 0 || x < offsetX || y < offsetY) {
+            return -1;
+        }
+
+        int column = (int) ((x - offsetX) / tileWidth);
+        int row = (int) ((y - offsetY) / tileHeight);
+        int index = row * columns + column;
+
+        if (column >= columns || row >= rows || index >= count) {
+            return -1;
+        }
+        return index;
+    }
+}
@@ -1,5 +1,6 @@
 package nl.tudelft.contextproject.gui;
 
+import javafx.application.Platform;
 import javafx.beans.property.FloatProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -42,6 +43,13 @@ import java.util.Set;
  */
 public class PresetController {
 
+    /**
+     * The highest resolution the preview of the selected camera is decoded
+     * at. A smaller preview is decoded at the size it is displayed at.
+     */
+    private static final int MAX_STREAM_WIDTH = 960;
+    private static final int MAX_STREAM_HEIGHT = 540;
+
     private static boolean toCameramanView = false;
 
     @FXML private CheckBox overwrite;
@@ -116,14 +124,13 @@ public class PresetController {
         }
 
         streamHandler = new LiveStreamHandler();
-        imageView = streamHandler.createImageView(streamLink, 1920, 1080);
+        imageView = streamHandler.createImageView(streamLink, MAX_STREAM_WIDTH, MAX_STREAM_HEIGHT);
         new Thread(() -> {
             fitImageViewSize((float) vBox.getWidth(), (float) vBox.getHeight());
         }).start();
 
         vBox.getChildren().clear();
         vBox.getChildren().add(imageView);
-        streamHandler.start();
     }
 
     /**
@@ -181,7 +188,7 @@ public class PresetController {
             if (selectedIndex >= 0) {
                 Preset selected = tableView.getItems().get(selectedIndex);
                 Camera cam = Camera.getCamera(cameraSelector.getValue() - 1);
-                selected.applyTo(cam);
+                selected.applyToAsync(cam);
             }
         });
     }
@@ -273,16 +280,16 @@ public class PresetController {
                 
                 switch (event.getCode()) {
                     case LEFT:
-                        currentCam.panTiltStart(1, 50);
+                        currentCam.panTiltStartAsync(1, 50);
                         break;
                     case RIGHT:
-                        currentCam.panTiltStart(99, 50);
+                        currentCam.panTiltStartAsync(99, 50);
                         break;
                     case UP:
-                        currentCam.panTiltStart(50, 99);
+                        currentCam.panTiltStartAsync(50, 99);
                         break;
                     case DOWN:
-                        currentCam.panTiltStart(50, 1);
+                        currentCam.panTiltStartAsync(50, 1);
                         break;
                     default:
                         break;
@@ -301,7 +308,7 @@ public class PresetController {
                     case RIGHT:
                     case UP:
                     case DOWN:
-                        currentCam.panTiltStop();
+                        currentCam.panTiltStopAsync();
                         break;
                     default:
                         break;
@@ -357,8 +364,11 @@ public class PresetController {
         String loc = "src/main/resources/snapShots/cam" + cam.getNumber() + "preset" + newPreset.getId() + ".png";
         
         if (streamHandler != null) {
-            streamHandler.snapShot(loc);
-            newPreset.setImageLocation(loc);
+            streamHandler.snapShot(loc).thenAccept(stored -> {
+                if (stored) {
+                    Platform.runLater(() -> newPreset.setImageLocation(loc));
+                }
+            });
         }
         
         if (overwrite.isSelected()) {
@@ -0,0 +1,139 @@
+package nl.tudelft.contextproject.gui;
+
+import nl.tudelft.contextproject.camera.CameraExecutors;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Utility class that stores snapshots of a stream as PNG images. A snapshot
+ * is a copy of a decoded frame, see {@link FramePipeline#copyLatest()}, so
+ * the JavaFX thread only copies the frame and the image is converted, scaled
+ * and encoded on a background thread.
+ *
+ * <p>Besides the image at the size it was decoded at, a thumbnail is stored
+ * for every width in {@link #THUMBNAIL_WIDTHS}, next to the image.
+ *
+ * @since 1.1
+ */
+public final class SnapshotEncoder {
+
+    /**
+     * The widths in pixels the thumbnails are stored at.
+     */
+    public static final int[] THUMBNAIL_WIDTHS = {320, 160};
+
+    /**
+     * Encodes the snapshots. PNG encoding is bound by the processor, so a
+     * few threads are enough.
+     */
+    private static final ExecutorService ENCODER = Executors.newFixedThreadPool(
+            Math.min(2, Runtime.getRuntime().availableProcessors()),
+            CameraExecutors.daemonThreadFactory("Snapshot encoder"));
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private SnapshotEncoder() {
+    }
+
+    /**
+     * Stores a frame and its thumbnails in the background.
+     *
+     * @param frame The frame in BGRA order, without padding.
+     * @param width The width of the frame in pixels.
+     * @param height The height of the frame in pixels.
+     * @param location The location to store the image at.
+     * @return A future that completes with true iff all images were stored.
+     */
+    public static CompletableFuture<Boolean> write(byte[] frame, int width, int height, String location) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedImage image = toImage(frame, width, height);
+                ImageIO.write(image, "png", new File(location));
+
+                for (int thumbnailWidth : THUMBNAIL_WIDTHS) {
+                    if (thumbnailWidth < width) {
+                        ImageIO.write(scale(image, thumbnailWidth), "png",
+                                new File(thumbnailLocation(location, thumbnailWidth)));
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }, ENCODER);
+    }
+
+    /**
+     * Returns the location of a thumbnail, which is the location of the
+     * image with the width of the thumbnail before the extension.
+     *
+     * @param location The location of the image.
+     * @param width The width of the thumbnail.
+     * @return The location of the thumbnail.
+     */
+    public static String thumbnailLocation(String location, int width) {
+        int extension = location.lastIndexOf('.');
+        if (extension <= location.lastIndexOf(File.separatorChar) || extension <= location.lastIndexOf('/')) {
+            return location + "-" + width;
+        }
+
+        return location.substring(0, extension) + "-" + width + location.substring(extension);
+    }
+
+    /**
+     * Converts a decoded frame to an image. The fourth byte of a pixel is
+     * ignored, since VLC does not fill it in.
+     *
+     * @param frame The frame in BGRA order, without padding.
+     * @param width The width of the frame in pixels.
+     * @param height The height of the frame in pixels.
+     * @return The image.
+     */
+    static BufferedImage toImage(byte[] frame, int width, int height) {
+        int[] pixels = new int[width * height];
+
+        for (int i = 0; i < pixels.length; i++) {
+            int offset = i * FramePipeline.BYTES_PER_PIXEL;
+            pixels[i] = (frame[offset + 2] & 0xFF) << 16
+                    | (frame[offset + 1] & 0xFF) << 8
+                    | (frame[offset] & 0xFF);
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    /**
+     * Scales an image to a width, keeping its aspect ratio.
+     *
+     * @param image The image to scale.
+     * @param width The width of the scaled image.
+     * @return The scaled image.
+     */
+    static BufferedImage scale(BufferedImage image, int width) {
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return scaled;
+    }
+}
@@ -0,0 +1,152 @@
+package nl.tudelft.contextproject.gui;
+
+import nl.tudelft.contextproject.camera.CameraExecutors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Class to share the streams of the cameras between the screens of the
+ * application. Every stream link, as returned by
+ * {@link nl.tudelft.contextproject.camera.CameraConnection#getStreamLink()},
+ * has at most one {@link StreamSession}, which decodes the stream once for
+ * every view that shows it.
+ *
+ * <p>Sessions are reference counted. When the last subscriber of a session
+ * releases it, the session keeps decoding for {@link #GRACE_PERIOD}
+ * milliseconds, so navigating from one screen to another that shows the
+ * same camera does not reopen the stream.
+ *
+ * @since 1.1
+ */
+public final class StreamRegistry {
+
+    /**
+     * Time in milliseconds a session stays open after its last subscriber left.
+     */
+    public static final long GRACE_PERIOD = 10000;
+
+    /**
+     * Closes the sessions after their grace period. Closing a stream can
+     * block, so it does not run on the scheduler of the camera connections.
+     */
+    private static final ScheduledExecutorService CLOSER = Executors.newSingleThreadScheduledExecutor(
+            CameraExecutors.daemonThreadFactory("Stream registry"));
+
+    private static final StreamRegistry INSTANCE = new StreamRegistry(StreamSession::new, GRACE_PERIOD);
+
+    private final Function<String, StreamSession> factory;
+    private final long gracePeriod;
+    private final Map<String, StreamSession> sessions = new HashMap<String, StreamSession>();
+    private final Map<StreamSession, ScheduledFuture<?>> closing = new HashMap<StreamSession, ScheduledFuture<?>>();
+
+    /**
+     * Creates a registry.
+     *
+     * @param factory Creates the session of a stream link.
+     * @param gracePeriod Time in milliseconds a session stays open after its last subscriber left.
+     */
+    StreamRegistry(Function<String, StreamSession> factory, long gracePeriod) {
+        this.factory = factory;
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Returns the registry shared by the screens of the application.
+     * @return The shared registry.
+     */
+    public static StreamRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to the session of a stream, opening it if there is none.
+     * A session that is about to be closed is kept open.
+     *
+     * @param streamLink The link to the stream.
+     * @return The open session of the stream.
+     */
+    public synchronized StreamSession acquire(String streamLink) {
+        StreamSession session = sessions.get(streamLink);
+
+        if (session == null) {
+            session = factory.apply(streamLink);
+            sessions.put(streamLink, session);
+            session.open();
+        }
+
+        ScheduledFuture<?> pending = closing.remove(session);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        session.subscribe();
+        return session;
+    }
+
+    /**
+     * Unsubscribes from a session. The session is closed after the grace
+     * period, unless it is acquired again before that.
+     *
+     * @param session The session acquired with {@link #acquire(String)}.
+     */
+    public synchronized void release(StreamSession session) {
+        if (sessions.get(session.getStreamLink()) != session || session.unsubscribe() > 0) {
+            return;
+        }
+
+        closing.put(session, CLOSER.schedule(
+                () -> closeIfUnused(session), gracePeriod, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Returns the open session of a stream.
+     *
+     * @param streamLink The link to the stream.
+     * @return The session, or null if the stream is not open.
+     */
+    public synchronized StreamSession getSession(String streamLink) {
+        return sessions.get(streamLink);
+    }
+
+    /**
+     * Closes every session right away, such as when the application exits.
+     */
+    public void closeAll() {
+        List<StreamSession> open;
+        synchronized (this) {
+            open = new ArrayList<StreamSession>(sessions.values());
+            sessions.clear();
+            for (ScheduledFuture<?> pending : closing.values()) {
+                pending.cancel(false);
+            }
+            closing.clear();
+        }
+
+        for (StreamSession session : open) {
+            session.close();
+        }
+    }
+
+    /**
+     * Closes a session whose grace period has passed, if it was not acquired again.
+     * @param session The session to close.
+     */
+    private void closeIfUnused(StreamSession session) {
+        synchronized (this) {
+            if (closing.remove(session) == null || session.getSubscriberCount() > 0) {
+                return;
+            }
+            sessions.remove(session.getStreamLink());
+        }
+
+        session.close();
+    }
+}
@@ -0,0 +1,71 @@
+package nl.tudelft.contextproject.gui;
+
+/**
+ * Utility class that chooses the resolution a stream is decoded at. A stream
+ * is decoded at the size it is displayed at, so a small preview does not cost
+ * as much as a full HD copy. The resolution never exceeds the quality ceiling
+ * of the view, nor the resolution of the source.
+ *
+ * <p>Resolutions are rounded to multiples of {@link #STEP} pixels, so a view
+ * that is resized by a few pixels does not make the stream restart.
+ *
+ * @since 1.1
+ */
+public final class StreamResolution {
+
+    /**
+     * The multiple in pixels the width and height are rounded to.
+     */
+    public static final int STEP = 16;
+
+    /**
+     * Private constructor, since this is a utility class.
+     */
+    private StreamResolution() {
+    }
+
+    /**
+     * Returns the resolution to decode a stream at, with the aspect
+     * ratio of the source.
+     *
+     * @param viewWidth The width the stream is displayed at, or 0 if not known yet.
+     * @param viewHeight The height the stream is displayed at, or 0 if not known yet.
+     * @param sourceWidth The width of the source, or 0 if not known yet.
+     * @param sourceHeight The height of the source, or 0 if not known yet.
+     * @param maxWidth The highest width the view allows.
+     * @param maxHeight The highest height the view allows.
+     * @return The width and height to decode at. [0] holds the width,
+     *      [1] holds the height.
+     */
+    public static int[] fit(double viewWidth, double viewHeight, int sourceWidth, int sourceHeight,
+            int maxWidth, int maxHeight) {
+        double boxWidth = viewWidth > 0 ? Math.min(viewWidth, maxWidth) : maxWidth;
+        double boxHeight = viewHeight > 0 ? Math.min(viewHeight, maxHeight) : maxHeight;
+        double ratio = (double) maxHeight / maxWidth;
+
+        if (sourceWidth > 0 && sourceHeight > 0) {
+            boxWidth = Math.min(boxWidth, sourceWidth);
+            boxHeight = Math.min(boxHeight, sourceHeight);
+            ratio = (double) sourceHeight / sourceWidth;
+        }
+
+        double width = boxWidth;
+        double height = width * ratio;
+        if (height > boxHeight) {
+            height = boxHeight;
+            width = height / ratio;
+        }
+
+        return new int[] {round(width), round(height)};
+    }
+
+    /**
+     * Rounds a length to the nearest multiple of {@link #STEP}, but at least one step.
+     *
+     * @param length The length in pixels.
+     * @return The rounded length.
+     */
+    private static int round(double length) {
+        return Math.max(STEP, (int) Math.round(length / STEP) * STEP);
+    }
+}
@@ -0,0 +1,402 @@
+package nl.tudelft.contextproject.gui;
+
+import com.sun.jna.Memory;
+
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.FloatProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleFloatProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.util.Duration;
+import uk.co.caprica.vlcj.component.DirectMediaPlayerComponent;
+import uk.co.caprica.vlcj.player.direct.BufferFormat;
+import uk.co.caprica.vlcj.player.direct.DirectMediaPlayer;
+import uk.co.caprica.vlcj.player.direct.format.RV32BufferFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class to represent one stream that is decoded by VLC and shown in any
+ * amount of views. Sessions are shared through the {@link StreamRegistry}, so
+ * a camera is decoded once, however many screens show it.
+ *
+ * <p>Decoded frames are copied into a {@link FramePipeline} on the thread of
+ * VLC. On every JavaFX pulse the newest frame is drawn into one image, which
+ * every view of the session shows. Frames that VLC decodes faster than they
+ * can be drawn are dropped.
+ *
+ * <p>The stream is decoded at the size of the largest view, up to the quality
+ * ceiling of that view, see {@link StreamResolution}. When a view is resized,
+ * added or removed, the stream is restarted at the new size once the sizes
+ * have not changed for {@link #RECONFIGURE_DELAY} milliseconds.
+ *
+ * @since 1.1
+ */
+public class StreamSession {
+
+    /**
+     * Time in milliseconds the views have to keep their size before the
+     * stream is decoded at the new size.
+     */
+    public static final long RECONFIGURE_DELAY = 300;
+
+    private final String streamLink;
+    private final Map<Object, double[]> viewers = new ConcurrentHashMap<Object, double[]>();
+    private final ObjectProperty<Image> image = new SimpleObjectProperty<Image>();
+    private final FloatProperty ratio = new SimpleFloatProperty(0.5625f);
+
+    private int subscribers;
+    private long frameCount;
+    private DirectMediaPlayerComponent mediaPlayer;
+    private AnimationTimer uploader;
+    private PauseTransition reconfigure;
+    private WritablePixelFormat<ByteBuffer> pixelFormat;
+    private PixelWriter pixelWriter;
+    private volatile FramePipeline frames;
+    private FramePipeline shownFrames;
+    private volatile int[] decodeSize = {StreamResolution.STEP, StreamResolution.STEP};
+    private volatile int sourceWidth;
+    private volatile int sourceHeight;
+    private Memory sourceMemory;
+    private ByteBuffer sourceView;
+
+    /**
+     * Creates a session for a stream, which is not opened yet.
+     * @param streamLink The link to the stream.
+     */
+    public StreamSession(String streamLink) {
+        this.streamLink = streamLink;
+    }
+
+    /**
+     * Returns the link to the stream of this session.
+     * @return The link to the stream.
+     */
+    public String getStreamLink() {
+        return streamLink;
+    }
+
+    /**
+     * Returns the amount of subscribers, as counted by the {@link StreamRegistry}.
+     * @return The amount of subscribers.
+     */
+    public synchronized int getSubscriberCount() {
+        return subscribers;
+    }
+
+    /**
+     * Adds a subscriber.
+     * @return The new amount of subscribers.
+     */
+    synchronized int subscribe() {
+        return ++subscribers;
+    }
+
+    /**
+     * Removes a subscriber.
+     * @return The new amount of subscribers.
+     */
+    synchronized int unsubscribe() {
+        subscribers = Math.max(0, subscribers - 1);
+        return subscribers;
+    }
+
+    /**
+     * Starts decoding the stream.
+     */
+    protected void open() {
+        pixelFormat = PixelFormat.getByteBgraPreInstance();
+        uploader = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                upload();
+            }
+        };
+        reconfigure = new PauseTransition(Duration.millis(RECONFIGURE_DELAY));
+        reconfigure.setOnFinished(event -> reconfigure());
+
+        decodeSize = largestViewSize();
+        WritableImage initial = new WritableImage(decodeSize[0], decodeSize[1]);
+        image.set(initial);
+        pixelWriter = initial.getPixelWriter();
+
+        mediaPlayer = new DirectMediaPlayerComponent((sourceWidth, sourceHeight) -> {
+            Platform.runLater(() -> ratio.set((float) sourceHeight / (float) sourceWidth));
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+
+            int[] size = largestViewSize();
+            decodeSize = size;
+            frames = new FramePipeline(size[0], size[1]);
+            return new RV32BufferFormat(size[0], size[1]);
+        }) {
+            @Override
+            public void display(DirectMediaPlayer mediaPlayer, Memory[] nativeBuffers, BufferFormat bufferFormat) {
+                FramePipeline pipeline = frames;
+                ByteBuffer frame = pipeline.getBackBuffer();
+                Memory nativeBuffer = mediaPlayer.lock()[0];
+                try {
+                    frame.put(view(nativeBuffer, frame.capacity()));
+                } finally {
+                    mediaPlayer.unlock();
+                }
+                pipeline.publish();
+            }
+        };
+
+        uploader.start();
+        mediaPlayer.getMediaPlayer().playMedia(streamLink);
+    }
+
+    /**
+     * Stops decoding the stream and releases the media player.
+     */
+    protected void close() {
+        DirectMediaPlayerComponent player;
+        synchronized (this) {
+            player = mediaPlayer;
+            mediaPlayer = null;
+        }
+
+        if (player != null) {
+            runOnFxThread(() -> {
+                uploader.stop();
+                reconfigure.stop();
+            });
+            player.getMediaPlayer().stop();
+            player.getMediaPlayer().release();
+        }
+    }
+
+    /**
+     * Returns true iff the stream is being decoded.
+     * @return True iff the session is open.
+     */
+    public synchronized boolean isOpen() {
+        return mediaPlayer != null;
+    }
+
+    /**
+     * Creates a view that shows the stream. The view takes part in choosing
+     * the size the stream is decoded at, until it is removed again.
+     *
+     * @param maxWidth Highest width the view wants the stream decoded at.
+     * @param maxHeight Highest height the view wants the stream decoded at.
+     * @return The view.
+     */
+    public ImageView createView(double maxWidth, double maxHeight) {
+        ImageView view = new ImageView();
+        view.imageProperty().bind(image);
+
+        view.fitWidthProperty().addListener(observable ->
+                requestSize(view, view.getFitWidth(), view.getFitHeight(), maxWidth, maxHeight));
+        view.fitHeightProperty().addListener(observable ->
+                requestSize(view, view.getFitWidth(), view.getFitHeight(), maxWidth, maxHeight));
+        requestSize(view, view.getFitWidth(), view.getFitHeight(), maxWidth, maxHeight);
+
+        return view;
+    }
+
+    /**
+     * Removes a view, which stops showing the stream.
+     * @param view The view created by {@link #createView(double, double)}.
+     */
+    public void removeView(ImageView view) {
+        view.imageProperty().unbind();
+        removeViewer(view);
+    }
+
+    /**
+     * Sets the size a viewer displays the stream at, such as a tile that
+     * draws {@link #getImage()} itself. The viewer takes part in choosing
+     * the size the stream is decoded at, until it is removed again.
+     *
+     * @param viewer The viewer, compared by identity.
+     * @param width The width the viewer displays the stream at, or 0 if not known yet.
+     * @param height The height the viewer displays the stream at, or 0 if not known yet.
+     * @param maxWidth Highest width the viewer wants the stream decoded at.
+     * @param maxHeight Highest height the viewer wants the stream decoded at.
+     */
+    public void requestSize(Object viewer, double width, double height, double maxWidth, double maxHeight) {
+        viewers.put(viewer, new double[] {width, height, maxWidth, maxHeight});
+        resized();
+    }
+
+    /**
+     * Removes a viewer, which no longer takes part in choosing the size
+     * the stream is decoded at.
+     *
+     * @param viewer The viewer passed to {@link #requestSize(Object, double, double, double, double)}.
+     */
+    public void removeViewer(Object viewer) {
+        if (viewers.remove(viewer) != null) {
+            resized();
+        }
+    }
+
+    /**
+     * Returns the image the newest frame is drawn into. The image is
+     * replaced when the stream is decoded at another size.
+     *
+     * @return The image of the stream.
+     */
+    public ReadOnlyObjectProperty<Image> getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the amount of frames drawn into the image, so viewers that
+     * draw the image themselves only redraw when there is a new frame.
+     *
+     * @return The amount of frames drawn.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the ratio of the stream, its height divided by its width.
+     * @return The ratio of the stream.
+     */
+    public FloatProperty getRatio() {
+        return ratio;
+    }
+
+    /**
+     * Returns the pipeline that hands decoded frames to the JavaFX thread,
+     * which counts the frames that were dropped.
+     *
+     * @return The frame pipeline, or null if no frame was decoded yet.
+     */
+    public FramePipeline getFramePipeline() {
+        return frames;
+    }
+
+    /**
+     * Returns the size the stream is decoded at.
+     * @return The width and height of the decoded frames.
+     */
+    public int[] getDecodeSize() {
+        return decodeSize.clone();
+    }
+
+    /**
+     * Draws the newest decoded frame, on the JavaFX thread. When the stream
+     * is decoded at another size, the image is replaced first.
+     */
+    private void upload() {
+        FramePipeline pipeline = frames;
+        if (pipeline == null) {
+            return;
+        }
+
+        if (pipeline != shownFrames) {
+            WritableImage replaced = new WritableImage(pipeline.getWidth(), pipeline.getHeight());
+            image.set(replaced);
+            pixelWriter = replaced.getPixelWriter();
+            shownFrames = pipeline;
+        }
+
+        ByteBuffer frame = pipeline.takeLatest();
+        if (frame != null) {
+            pixelWriter.setPixels(0, 0, pipeline.getWidth(), pipeline.getHeight(),
+                    pixelFormat, frame, pipeline.getPitch());
+            frameCount++;
+        }
+    }
+
+    /**
+     * Returns the size to decode the stream at: the largest size any of
+     * the viewers wants, or the smallest size if there are no viewers.
+     *
+     * @return The width and height to decode at.
+     */
+    private int[] largestViewSize() {
+        int[] largest = {StreamResolution.STEP, StreamResolution.STEP};
+
+        for (double[] viewer : viewers.values()) {
+            int[] size = StreamResolution.fit(viewer[0], viewer[1],
+                    sourceWidth, sourceHeight, (int) viewer[2], (int) viewer[3]);
+            if (size[0] > largest[0]) {
+                largest = size;
+            }
+        }
+
+        return largest;
+    }
+
+    /**
+     * Decodes the stream at the size of the views once they keep their
+     * size for {@link #RECONFIGURE_DELAY} milliseconds.
+     */
+    private void resized() {
+        if (reconfigure != null) {
+            reconfigure.playFromStart();
+        }
+    }
+
+    /**
+     * Restarts the stream at the size of the views, if it is decoded at another size.
+     * The stream is restarted on another thread, so the GUI does not wait for VLC.
+     */
+    private void reconfigure() {
+        int[] size = largestViewSize();
+        int[] current = decodeSize;
+
+        if (viewers.isEmpty() || (current[0] == size[0] && current[1] == size[1])) {
+            return;
+        }
+
+        new Thread(() -> {
+            synchronized (this) {
+                if (mediaPlayer != null) {
+                    mediaPlayer.getMediaPlayer().stop();
+                    mediaPlayer.getMediaPlayer().playMedia(streamLink);
+                }
+            }
+        }).start();
+    }
+
+    /**
+     * Returns a view of the native buffer of VLC, limited to the size of a
+     * frame. VLC reuses its buffers, so the view is only created again when
+     * the buffer changes.
+     *
+     * @param nativeBuffer The native buffer holding the decoded frame.
+     * @param frameSize The size of a frame in bytes.
+     * @return The view of the frame, with its position at 0.
+     */
+    private ByteBuffer view(Memory nativeBuffer, int frameSize) {
+        if (nativeBuffer != sourceMemory) {
+            sourceMemory = nativeBuffer;
+            sourceView = nativeBuffer.getByteBuffer(0, nativeBuffer.size());
+        }
+
+        sourceView.clear();
+        sourceView.limit(Math.min(frameSize, sourceView.capacity()));
+        return sourceView;
+    }
+
+    /**
+     * Runs a task on the JavaFX thread, right away if this is the JavaFX thread.
+     * @param task The task to run.
+     */
+    private static void runOnFxThread(Runnable task) {
+        if (Platform.isFxApplicationThread()) {
+            task.run();
+        } else {
+            Platform.runLater(task);
+        }
+    }
+}
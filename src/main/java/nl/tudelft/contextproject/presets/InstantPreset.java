@@ -3,6 +3,8 @@ package nl.tudelft.contextproject.presets;
 import nl.tudelft.contextproject.camera.Camera;
 import nl.tudelft.contextproject.camera.CameraSettings;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Class to represent an instant camera preset.
  * When {@link #applyTo(Camera)} is called, this sets the specified camera
@@ -36,11 +38,31 @@ public class InstantPreset extends Preset {
     }
 
     /**
-     * Applies the specified camera settings instantly.
+     * Applies the specified camera settings instantly. The connection of
+     * the camera only sends the settings that differ from the last known
+     * state of the camera, or recalls the preset with a single command
+     * if it was stored on the camera with {@link Camera#syncPresets()}.
      */
     @Override
     public void applyTo(Camera cam) {
         cam.setSettings(getToSet());
-        cam.setSettings(getToSet());
+    }
+
+    /**
+     * Applies the specified camera settings on the executor of the
+     * connection of the camera.
+     */
+    @Override
+    public CompletableFuture<Boolean> applyToAsync(Camera cam) {
+        return cam.setSettingsAsync(getToSet());
+    }
+
+    /**
+     * Applies the specified camera settings on the executor of the
+     * connection of the camera, at the slowest speed that arrives in time.
+     */
+    @Override
+    public CompletableFuture<Boolean> applyToAsync(Camera cam, long duration) {
+        return cam.setSettingsAsync(getToSet(), duration);
     }
 }
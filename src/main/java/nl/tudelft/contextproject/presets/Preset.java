@@ -2,8 +2,10 @@ package nl.tudelft.contextproject.presets;
 
 import nl.tudelft.contextproject.camera.Camera;
 import nl.tudelft.contextproject.camera.CameraSettings;
+import nl.tudelft.contextproject.camera.MovePlanner;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class to represent a camera preset.
@@ -106,4 +108,30 @@ public abstract class Preset {
      * @param cam Camera the preset should be applied to.
      */
     public abstract void applyTo(Camera cam);
+
+    /**
+     * Applies the preset to the camera without waiting for the camera.
+     * By default, this applies the preset on the calling thread.
+     * 
+     * @param cam Camera the preset should be applied to.
+     * @return A future that completes with true iff the camera applied the preset.
+     */
+    public CompletableFuture<Boolean> applyToAsync(Camera cam) {
+        applyTo(cam);
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Applies the preset to the camera without waiting for the camera, and
+     * lets the camera take the specified time to get there. By default, the
+     * duration is ignored.
+     * 
+     * @param cam Camera the preset should be applied to.
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true iff the camera applied the preset.
+     */
+    public CompletableFuture<Boolean> applyToAsync(Camera cam, long duration) {
+        return applyToAsync(cam);
+    }
 }
@@ -1,21 +1,34 @@
 package nl.tudelft.contextproject.saveLoad;
 
+import javafx.application.Platform;
+
 import nl.tudelft.contextproject.camera.Camera;
-import nl.tudelft.contextproject.camera.CameraConnection;
+import nl.tudelft.contextproject.camera.CameraConnectionFactory;
+import nl.tudelft.contextproject.camera.CameraDiscovery;
+import nl.tudelft.contextproject.camera.CameraSettings;
+import nl.tudelft.contextproject.camera.CameraNotificationListener;
 import nl.tudelft.contextproject.camera.LiveCameraConnection;
-import nl.tudelft.contextproject.camera.LiveCameraConnectionAWHE40;
 import nl.tudelft.contextproject.camera.MockedCameraConnection;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKeyFactory;
@@ -40,11 +53,14 @@ public final class ApplicationSettings {
     public static final int DEFAULT_DB_PORT = 3306;
     public static final String DEFAULT_JDBC_DRIVER = "com.mysql.cj.jdbc.Driver";
     public static final String DEFAULT_VLC_LOC = "";
+    public static final long CAMERA_REFRESH_RATE = 1000;
 
     private static final byte[] KEY = "a0@!a650".getBytes(StandardCharsets.UTF_8);
 
     private static final ApplicationSettings INSTANCE = new ApplicationSettings();
     private static final String PATH = "settings.tfp";
+    private static final String MODELS_PATH = "cameramodels.tfp";
+    private static final String PRESETS_PATH = "camerapresets.tfp";
 
     /**
      * Resolution in X direction with which VLC will render.
@@ -96,6 +112,12 @@ public final class ApplicationSettings {
      */
     private HashMap<Integer, String> cameraIPs;
 
+    /**
+     * The settings stored in the preset memories of the cameras, by the
+     * address of the camera and the number of the memory.
+     */
+    private final Properties storedPresets = new Properties();
+
     /**
      * Constructs a new ApplicationSettings object. Tries to load from 
      * the settings file first, but if this is not present, it will load
@@ -313,33 +335,211 @@ public final class ApplicationSettings {
     /**
      * (Re)sets the CameraConnection for every camera currently in the list of cameras.
      * If an IP was loaded for a camera, then it will check if it can make a connection 
-     * to this camera. If it can, it will set its connection to a LiveCameraConnection. 
-     * If it cannot, it sets a MockedCameraConnection. 
+     * to this camera. If it can, it will set its connection to the LiveCameraConnection
+     * for the model of the camera. If it cannot, it sets a MockedCameraConnection.
+     * Live connections are subscribed to the update notifications of their
+     * camera, see {@link CameraNotificationListener}. While a camera does not
+     * push its state, it is refreshed every {@link #CAMERA_REFRESH_RATE} milliseconds.
      * 
-     * <p>This will run in a separate thread, because setting up a connection may
-     * take a while to time out in case of failure.
+     * <p>All cameras are connected to at the same time, in the background, because
+     * setting up a connection may take a while to time out in case of failure. The
+     * models of the cameras are saved, so the next time the connections can be set
+     * up without finding out the model first. The connections also remember which
+     * presets were stored in the memories of their camera, see {@link #syncCameraPresets()}.
      */
     public void initCameraConnections() {
-        new Thread(() -> {
-            for (Camera cam : Camera.getAllCameras()) {
-                String camIp = getCameraIP(cam.getNumber());
-                if (camIp != null && !camIp.equals("")) {
-                    CameraConnection connect = new LiveCameraConnection(camIp);
-                    if (connect.setUpConnection()) {
-                        cam.setConnection(connect);
-                        continue;
-                    }
-                    
-                    connect = new LiveCameraConnectionAWHE40(camIp);
-                    if (connect.setUpConnection()) {
-                        cam.setConnection(connect);
-                        continue;
-                    }
+        File models = new File(MODELS_PATH);
+        CameraConnectionFactory.loadKnownModels(models);
+        loadStoredPresets();
+        ArrayList<CompletableFuture<Void>> connecting = new ArrayList<CompletableFuture<Void>>();
+
+        for (Camera cam : Camera.getAllCameras()) {
+            String camIp = getCameraIP(cam.getNumber());
+            if (camIp == null || camIp.equals("")) {
+                cam.setConnection(new MockedCameraConnection());
+                continue;
+            }
+
+            connecting.add(connectCamera(cam, camIp));
+        }
+
+        CompletableFuture.allOf(connecting.toArray(new CompletableFuture<?>[0]))
+            .thenRun(() -> CameraConnectionFactory.saveKnownModels(models));
+    }
+
+    /**
+     * Scans a range of addresses for cameras, see {@link CameraDiscovery}. Every
+     * supported camera whose address is not in the settings yet is added as a
+     * new camera, and connected to in the background like in
+     * {@link #initCameraConnections()}.
+     * 
+     * <p>The cameras are shown in the settings menu, so they are added on
+     * the JavaFX thread, and the returned future completes there.
+     * 
+     * @param cidr The range to scan, such as <code>192.168.0.0/24</code>.
+     * @return A future that completes with the cameras that were added.
+     */
+    public CompletableFuture<List<Camera>> discoverCameras(String cidr) {
+        return CameraDiscovery.scan(cidr).thenCompose(found -> {
+            CameraConnectionFactory.saveKnownModels(new File(MODELS_PATH));
+
+            CompletableFuture<List<Camera>> added = new CompletableFuture<List<Camera>>();
+            Platform.runLater(() -> {
+                try {
+                    added.complete(addDiscoveredCameras(found));
+                } catch (RuntimeException e) {
+                    added.completeExceptionally(e);
                 }
+            });
+            return added;
+        });
+    }
 
+    /**
+     * Adds a camera for every discovered camera whose address is not in the
+     * settings yet. Should be called on the JavaFX thread.
+     * 
+     * @param found The model of every address that answered.
+     * @return The cameras that were added.
+     */
+    private List<Camera> addDiscoveredCameras(Map<String, String> found) {
+        List<Camera> added = new ArrayList<Camera>();
+
+        for (Map.Entry<String, String> camera : found.entrySet()) {
+            String camIp = camera.getKey();
+            if (cameraIPs.containsValue(camIp)
+                    || !CameraConnectionFactory.isSupported(camera.getValue())) {
+                continue;
+            }
+
+            Camera cam = new Camera();
+            cam.setConnection(new MockedCameraConnection());
+            addCameraIP(cam.getNumber(), camIp);
+            connectCamera(cam, camIp);
+            added.add(cam);
+        }
+
+        return added;
+    }
+
+    /**
+     * Connects a camera to the camera at an address, in the background. If
+     * no supported camera answers, a MockedCameraConnection is set instead.
+     * 
+     * @param cam The camera to connect.
+     * @param camIp The address of the camera.
+     * @return A future that completes when the connection is set.
+     */
+    private CompletableFuture<Void> connectCamera(Camera cam, String camIp) {
+        return CameraConnectionFactory.connectAsync(camIp).thenAccept(connect -> {
+            if (connect == null) {
                 cam.setConnection(new MockedCameraConnection());
+            } else {
+                cam.setConnection(connect);
+                connect.setStoredPresets(getStoredPresets(camIp));
+                if (connect instanceof LiveCameraConnection) {
+                    CameraNotificationListener.getInstance().subscribe((LiveCameraConnection) connect);
+                }
+                connect.startStateRefresher(CAMERA_REFRESH_RATE);
+            }
+        });
+    }
+
+    /**
+     * Stores the presets of all cameras in the preset memories of the cameras,
+     * see {@link Camera#syncAllPresets()}, and saves which memories hold which
+     * settings. Only memories whose preset changed are written, also after
+     * the application was restarted.
+     * 
+     * <p>This moves the cameras, so it should only be done on request of the
+     * operator, while the cameras are not on air.
+     * 
+     * @return A future that completes with true iff all presets were stored.
+     */
+    public CompletableFuture<Boolean> syncCameraPresets() {
+        return Camera.syncAllPresets().thenApply(synced -> {
+            saveStoredPresets();
+            return synced;
+        });
+    }
+
+    /**
+     * Loads which settings are stored in the preset memories of the cameras,
+     * as saved by {@link #saveStoredPresets()}. Nothing happens if the file
+     * does not exist.
+     */
+    private void loadStoredPresets() {
+        try (InputStream in = new FileInputStream(PRESETS_PATH)) {
+            storedPresets.load(in);
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves which settings are stored in the preset memories of the cameras
+     * that are connected. The entries of other cameras are kept.
+     * 
+     * @return True iff the file was saved.
+     */
+    private boolean saveStoredPresets() {
+        for (Camera cam : Camera.getAllCameras()) {
+            String camIp = getCameraIP(cam.getNumber());
+            if (camIp == null || camIp.equals("") || !cam.hasConnection()
+                    || cam.getConnection() instanceof MockedCameraConnection) {
+                continue;
             }
-        }).start();
+
+            String prefix = camIp + ".";
+            storedPresets.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(prefix))
+                .forEach(storedPresets::remove);
+
+            for (Map.Entry<Integer, CameraSettings> slot : cam.getConnection().getStoredPresets().entrySet()) {
+                CameraSettings settings = slot.getValue();
+                storedPresets.setProperty(prefix + slot.getKey(), settings.getPan() + "," + settings.getTilt()
+                        + "," + settings.getZoom() + "," + settings.getFocus());
+            }
+        }
+
+        try (OutputStream out = new FileOutputStream(PRESETS_PATH)) {
+            storedPresets.store(out, "Camera preset memories");
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns which settings are stored in the preset memories of a camera,
+     * as loaded by {@link #loadStoredPresets()}.
+     * 
+     * @param camIp The address of the camera.
+     * @return The settings stored in each preset memory, by slot.
+     */
+    private Map<Integer, CameraSettings> getStoredPresets(String camIp) {
+        Map<Integer, CameraSettings> stored = new HashMap<Integer, CameraSettings>();
+        String prefix = camIp + ".";
+
+        for (String key : storedPresets.stringPropertyNames()) {
+            String[] values = storedPresets.getProperty(key).split(",");
+            if (!key.startsWith(prefix) || values.length != 4) {
+                continue;
+            }
+
+            try {
+                stored.put(Integer.parseInt(key.substring(prefix.length())), new CameraSettings(
+                        Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+                        Integer.parseInt(values[2]), Integer.parseInt(values[3])));
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return stored;
     }
 
     /**
@@ -6,20 +6,28 @@ import nl.tudelft.contextproject.databaseConnection.DatabaseConnection;
 import nl.tudelft.contextproject.presets.InstantPreset;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class to represent a Script of {@link Shot Shots}.
  * Implements the {@link Iterator} interface so it can apply
  * presets as the list of presets is being traversed.
  * 
+ * <p>Presets are loaded on all cameras at the same time, so getting ready
+ * takes as long as the slowest camera. The handle returned by
+ * {@link #getCamerasReady()} completes once every camera is ready.
+ * 
  * @since 0.2
  */
 public class Script implements Iterator<Shot> {
@@ -53,6 +61,11 @@ public class Script implements Iterator<Shot> {
      */
     private Timer timer;
 
+    /**
+     * Completes once all cameras are at the presets loaded last.
+     */
+    private volatile CompletableFuture<Boolean> camerasReady;
+
     /**
      * Creates a script that starts from the beginning with specified shots.
      * Current is initialized with -1, so the first call of next() returns the first shot.
@@ -65,6 +78,7 @@ public class Script implements Iterator<Shot> {
         name = "";
         timer = new Timer();
         timelines = new HashMap<Integer, Timeline>();
+        camerasReady = CompletableFuture.completedFuture(true);
         
         initTimelines();     
     }
@@ -134,24 +148,108 @@ public class Script implements Iterator<Shot> {
     }
 
     /**
-     * Loads the first presets of all the cameras.
+     * Loads the first presets of all the cameras, at the same time.
+     * The cameras arrive together, see {@link #planDuration(Map)}.
+     * 
+     * @return A future that completes with true iff all cameras are ready.
      */
-    public void initPresetLoading() {
+    public CompletableFuture<Boolean> initPresetLoading() {
+        Map<Camera, Shot> toLoad = new HashMap<Camera, Shot>();
         for (Timeline t : timelines.values()) {
-            t.initPreset();
+            toLoad.put(t.getCamera(), t.getInitShot());
         }
+
+        long duration = planDuration(toLoad);
+        List<CompletableFuture<Boolean>> moves = new ArrayList<CompletableFuture<Boolean>>();
+
+        for (Timeline t : timelines.values()) {
+            moves.add(t.initPreset(duration));
+        }
+
+        return allReady(moves);
     }
     
     /**
      * Loads the next preset for each camera depending 
-     * on the current script position.
+     * on the current script position, at the same time.
+     * The cameras arrive together, see {@link #planDuration(Map)}.
+     * 
+     * @return A future that completes with true iff all cameras are ready.
      */
-    public void loadNextPresets() {
+    public CompletableFuture<Boolean> loadNextPresets() {
+        List<Timeline> toMove = new ArrayList<Timeline>();
+        Map<Camera, Shot> toLoad = new HashMap<Camera, Shot>();
+
         for (Timeline t : timelines.values()) {
             if (!t.getCamera().equals(getCurrentShot().getCamera())) {
-                t.instantNextPreset();
+                toMove.add(t);
+                toLoad.put(t.getCamera(), t.getInstantNextShot());
             }
         }
+
+        long duration = planDuration(toLoad);
+        List<CompletableFuture<Boolean>> moves = new ArrayList<CompletableFuture<Boolean>>();
+
+        for (Timeline t : toMove) {
+            moves.add(t.instantNextPreset(duration));
+        }
+
+        return allReady(moves);
+    }
+
+    /**
+     * Returns the time in milliseconds the cameras get to load the presets
+     * of the specified shots. Cameras that are not on air need not hurry,
+     * so every camera gets the time the slowest camera needs. The
+     * {@link nl.tudelft.contextproject.camera.MovePlanner} then moves the
+     * other cameras slower, which is smoother on screen.
+     * 
+     * @param toLoad The shot to load per camera, or null for no shot.
+     * @return The time the moves may take.
+     */
+    private static long planDuration(Map<Camera, Shot> toLoad) {
+        Map<Camera, CameraSettings> moves = new HashMap<Camera, CameraSettings>();
+
+        for (Map.Entry<Camera, Shot> load : toLoad.entrySet()) {
+            if (load.getKey() != null && load.getValue() != null && load.getValue().hasPreset()) {
+                moves.put(load.getKey(), load.getValue().getPreset().getToSet());
+            }
+        }
+
+        return Camera.planDuration(moves);
+    }
+
+    /**
+     * Returns the handle of the presets that were loaded last, by
+     * {@link #initPresetLoading()}, {@link #loadNextPresets()} or
+     * {@link #adjustAllCameras()}.
+     * 
+     * @return A future that completes with true iff all cameras are ready.
+     */
+    public CompletableFuture<Boolean> getCamerasReady() {
+        return camerasReady;
+    }
+
+    /**
+     * Combines the moves of several cameras into a single handle, which
+     * completes when the slowest camera is ready. A move that fails
+     * counts as a camera that is not ready.
+     * 
+     * @param moves The moves of the cameras.
+     * @return A future that completes with true iff all moves succeeded.
+     */
+    private CompletableFuture<Boolean> allReady(List<CompletableFuture<Boolean>> moves) {
+        List<CompletableFuture<Boolean>> safeMoves = new ArrayList<CompletableFuture<Boolean>>();
+        for (CompletableFuture<Boolean> move : moves) {
+            safeMoves.add(move.exceptionally(e -> false));
+        }
+
+        CompletableFuture<Boolean> ready = CompletableFuture
+                .allOf(safeMoves.toArray(new CompletableFuture<?>[safeMoves.size()]))
+                .thenApply(v -> safeMoves.stream().allMatch(CompletableFuture::join));
+
+        camerasReady = ready;
+        return ready;
     }
 
     /**
@@ -241,11 +339,15 @@ public class Script implements Iterator<Shot> {
     
     /**
      * Moves all cameras to their preset, except the one
-     * that is live.
+     * that is live. All cameras are moved at the same time,
+     * and arrive together.
+     * 
+     * @return A future that completes with true iff all cameras are ready.
      */
-    public void adjustAllCameras() {
-        Set<Integer> cameras = timelines.keySet();
+    public CompletableFuture<Boolean> adjustAllCameras() {
+        Set<Integer> cameras = new HashSet<Integer>(timelines.keySet());
         int liveCamera = shots.get(current).getCamera().getNumber();
+        Map<Camera, Shot> toLoad = new HashMap<Camera, Shot>();
         
         Shot shot;
         
@@ -253,13 +355,22 @@ public class Script implements Iterator<Shot> {
             shot = shots.get(i);
             int camNum = shot.getCamera().getNumber();
             if (cameras.contains(camNum) && camNum != liveCamera) {
-                shot.execute();
+                toLoad.put(shot.getCamera(), shot);
                 cameras.remove(camNum);
             }
             if (cameras.size() == 1) {
                 break;
             }
         }
+
+        long duration = planDuration(toLoad);
+        List<CompletableFuture<Boolean>> moves = new ArrayList<CompletableFuture<Boolean>>();
+
+        for (Shot next : toLoad.values()) {
+            moves.add(next.executeAsync(duration));
+        }
+
+        return allReady(moves);
     }
     
     /**
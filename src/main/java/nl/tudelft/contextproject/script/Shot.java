@@ -4,6 +4,7 @@ import nl.tudelft.contextproject.camera.Camera;
 import nl.tudelft.contextproject.presets.Preset;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class to represent a shot to be taken by a {@link Camera}. A shot
@@ -89,11 +90,33 @@ public class Shot {
     }
 
     /**
-     * Used to tell a particular camera to take a shot.
-     * Makes use of {@link Preset#applyTo(Camera)}
+     * Used to tell a particular camera to take a shot, without waiting
+     * for the camera. Makes use of {@link #executeAsync()}.
      */
     public void execute() {
-        preset.applyTo(camera);
+        executeAsync();
+    }
+
+    /**
+     * Asynchronous variant of {@link #execute()}.
+     * Makes use of {@link Preset#applyToAsync(Camera)}
+     * 
+     * @return A future that completes with true iff the camera applied the preset.
+     */
+    public CompletableFuture<Boolean> executeAsync() {
+        return preset.applyToAsync(camera);
+    }
+
+    /**
+     * Variant of {@link #executeAsync()} that lets the camera take the
+     * specified time to get there.
+     * Makes use of {@link Preset#applyToAsync(Camera, long)}
+     * 
+     * @param duration The time in milliseconds the move may take.
+     * @return A future that completes with true iff the camera applied the preset.
+     */
+    public CompletableFuture<Boolean> executeAsync(long duration) {
+        return preset.applyToAsync(camera, duration);
     }
 
     /**
@@ -1,9 +1,11 @@
 package nl.tudelft.contextproject.script;
 
 import nl.tudelft.contextproject.camera.Camera;
+import nl.tudelft.contextproject.camera.MovePlanner;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /** 
  * Class to represent a timeline of shots for a single {@link Camera}.
@@ -70,42 +72,107 @@ public class Timeline {
 
     /**
      * Loads the initial preset of the timeline, if shots is not empty.
+     * The camera is moved without waiting for it.
+     * 
+     * @return A future that completes with true iff the camera is ready.
      */
-    public void initPreset() {
+    public CompletableFuture<Boolean> initPreset() {
+        return initPreset(MovePlanner.URGENT);
+    }
+
+    /**
+     * Loads the initial preset of the timeline, if shots is not empty,
+     * and lets the camera take the specified time to get there.
+     * 
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true iff the camera is ready.
+     */
+    public CompletableFuture<Boolean> initPreset(long duration) {
+        Shot initShot = getInitShot();
+        if (initShot != null) {
+            return initShot.getPreset().applyToAsync(camera, duration);
+        }
+
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Returns the shot whose preset {@link #initPreset()} loads.
+     * @return The first shot, or null if it does not exist or has no preset.
+     */
+    public Shot getInitShot() {
         if (!shots.isEmpty() && shots.get(0).hasPreset()) {
-            shots.get(0).getPreset().applyTo(camera);  
+            return shots.get(0);
         }
+
+        return null;
     }
 
     /**
      * Loads the next preset for a camera, if there is one.
+     * The camera is moved without waiting for it.
+     * 
      * @param oldShot The shot that just finished.
+     * @return A future that completes with true iff the camera is ready.
      */
-    public void nextPreset(Shot oldShot) {
+    public CompletableFuture<Boolean> nextPreset(Shot oldShot) {
         int oldIndex = oldShot == null ? -1 : shots.indexOf(oldShot);
 
         if (oldIndex + 1 < shots.size()) {
             Shot nextShot = shots.get(oldIndex + 1);
             if (nextShot.hasPreset()) {
-                nextShot.getPreset().applyTo(camera);
                 current = oldIndex + 1;
+                return nextShot.getPreset().applyToAsync(camera);
             }
         }
+
+        return CompletableFuture.completedFuture(true);
     }
     
     /**
      * Reloads the next preset.
      * Since it should be loaded before, it uses 'current'.
+     * The camera is moved without waiting for it.
+     * 
+     * @return A future that completes with true iff the camera is ready.
      */
-    public void instantNextPreset() {
+    public CompletableFuture<Boolean> instantNextPreset() {
+        return instantNextPreset(MovePlanner.URGENT);
+    }
+
+    /**
+     * Reloads the next preset, and lets the camera take the specified
+     * time to get there.
+     * 
+     * @param duration The time in milliseconds the move may take,
+     *      or {@link MovePlanner#URGENT} to move as fast as possible.
+     * @return A future that completes with true iff the camera is ready.
+     */
+    public CompletableFuture<Boolean> instantNextPreset(long duration) {
+        Shot restoreShot = getInstantNextShot();
+        if (restoreShot == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+
         if (current == -1) {
-            nextPreset(null);
-        } else if (current < shots.size()) {
-            Shot restoreShot = shots.get(current);
-            if (restoreShot.hasPreset()) {
-                restoreShot.getPreset().applyTo(camera);
-            }
+            current = shots.indexOf(restoreShot);
         }
+        return restoreShot.getPreset().applyToAsync(camera, duration);
+    }
+
+    /**
+     * Returns the shot whose preset {@link #instantNextPreset()} loads.
+     * @return The next shot, or null if it does not exist or has no preset.
+     */
+    public Shot getInstantNextShot() {
+        int index = current == -1 ? 0 : current;
+
+        if (index < shots.size() && shots.get(index).hasPreset()) {
+            return shots.get(index);
+        }
+
+        return null;
     }
     
     /**
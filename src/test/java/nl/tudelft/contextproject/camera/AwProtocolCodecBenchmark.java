@@ -0,0 +1,168 @@
+package nl.tudelft.contextproject.camera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks that compare {@link AwProtocolCodec} to the string based
+ * encoding and parsing that {@link LiveCameraConnection} used before.
+ * Besides the encoding alone, the benchmarks ending in <code>URL</code>
+ * measure the whole path of a command, including the URL it is sent in.
+ * Run {@link #main(String[])} from the test class path, or pass
+ * <code>-prof gc</code> to the JMH runner to also compare allocation rates.
+ *
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AwProtocolCodecBenchmark {
+
+    private static final String ADDRESS = "192.168.10.101";
+
+    private final AwProtocolCodec codec = new AwProtocolCodec();
+    private final String panTiltReply = "aPC80007CDD";
+    private int pan = 29965;
+    private int tilt = 28965;
+    private URL queryURL;
+
+    /**
+     * Runs all benchmarks in this class.
+     *
+     * @param args Not used.
+     * @throws RunnerException when the benchmarks fail.
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AwProtocolCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Encodes an absolute pan and tilt command the way it was done before.
+     * @return The encoded command.
+     */
+    @Benchmark
+    public String legacyAbsPanTilt() {
+        return "%23APS"
+                + Integer.toHexString(0x10000 | pan).substring(1).toUpperCase()
+                + Integer.toHexString(0x10000 | tilt).substring(1).toUpperCase()
+                + "1D" + "2";
+    }
+
+    /**
+     * Encodes an absolute pan and tilt command into the codec buffer.
+     * @return The length of the encoded command.
+     */
+    @Benchmark
+    public int codecAbsPanTilt() {
+        return codec.absPanTilt(pan, tilt).length();
+    }
+
+    /**
+     * Builds the request URL of an absolute pan and tilt command the way
+     * it was done before.
+     * @return The URL of the command.
+     * @throws MalformedURLException never.
+     */
+    @Benchmark
+    public URL legacyAbsPanTiltURL() throws MalformedURLException {
+        return new URL("http://" + ADDRESS + "/cgi-bin/aw_ptz?cmd=" + legacyAbsPanTilt() + "&res=1");
+    }
+
+    /**
+     * Builds the request URL of an absolute pan and tilt command the way
+     * {@link LiveCameraConnection} does now, from the string of the codec buffer.
+     * @return The URL of the command.
+     * @throws MalformedURLException never.
+     */
+    @Benchmark
+    public URL codecAbsPanTiltURL() throws MalformedURLException {
+        return new URL("http://" + ADDRESS + "/cgi-bin/aw_ptz?cmd=" + codec.absPanTilt(pan, tilt).toString()
+                + "&res=1");
+    }
+
+    /**
+     * Encodes a pan and tilt speed command the way it was done before.
+     * @return The encoded command.
+     */
+    @Benchmark
+    public String legacyPanTiltSpeed() {
+        return "%23PTS" + String.format("%02d", 25) + String.format("%02d", 75);
+    }
+
+    /**
+     * Encodes a pan and tilt speed command into the codec buffer.
+     * @return The length of the encoded command.
+     */
+    @Benchmark
+    public int codecPanTiltSpeed() {
+        return codec.panTiltSpeed(25, 75).length();
+    }
+
+    /**
+     * Parses a pan and tilt reply the way it was done before.
+     * @return The sum of the parsed values.
+     */
+    @Benchmark
+    public int legacyParsePanTilt() {
+        if (panTiltReply.startsWith("aPC")) {
+            return Integer.parseInt(panTiltReply.substring(3, 7), 16)
+                    + Integer.parseInt(panTiltReply.substring(7, 11), 16);
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a pan and tilt reply in place.
+     * @return The sum of the parsed values.
+     */
+    @Benchmark
+    public int codecParsePanTilt() {
+        if (AwProtocolCodec.startsWith(panTiltReply, "aPC")) {
+            return AwProtocolCodec.parseHex(panTiltReply, 3, 7)
+                    + AwProtocolCodec.parseHex(panTiltReply, 7, 11);
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the URL of a query for every request, as was done before.
+     * @return The URL of the query.
+     * @throws MalformedURLException never.
+     */
+    @Benchmark
+    public URL legacyQueryURL() throws MalformedURLException {
+        return new URL("http://" + ADDRESS + "/cgi-bin/aw_ptz?cmd=%23APC&res=1");
+    }
+
+    /**
+     * Reuses the URL of a query, as {@link LiveCameraConnection} does now.
+     * @return The URL of the query.
+     * @throws MalformedURLException never.
+     */
+    @Benchmark
+    public URL cachedQueryURL() throws MalformedURLException {
+        if (queryURL == null) {
+            queryURL = new URL("http://" + ADDRESS + "/cgi-bin/aw_ptz?cmd=%23APC&res=1");
+        }
+        return queryURL;
+    }
+}
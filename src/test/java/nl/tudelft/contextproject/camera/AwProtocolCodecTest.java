@@ -0,0 +1,76 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class to test {@link AwProtocolCodec}.
+ *
+ * @since 1.1
+ */
+public class AwProtocolCodecTest {
+
+    private final AwProtocolCodec codec = new AwProtocolCodec();
+
+    /**
+     * Tests the encoding of every command.
+     */
+    @Test
+    public void testEncode() {
+        assertEquals("%23APS750D71251D2", codec.absPanTilt(29965, 28965).toString());
+        assertEquals("%23APS2D0808E31D2", codec.absPanTilt(11528, 2275).toString());
+        assertEquals("%23APS750D7125072", codec.absPanTilt(29965, 28965, 7).toString());
+        assertEquals("%23AXZ7AD", codec.absZoom(1965).toString());
+        assertEquals("%23AXFFFF", codec.absFocus(4095).toString());
+        assertEquals("%23RPC7E5C81A4", codec.relPanTilt(-420, 420).toString());
+        assertEquals("%23PTS0199", codec.panTiltSpeed(1, 99).toString());
+        assertEquals("%23PTS5050", codec.panTiltSpeed(50, 50).toString());
+        assertEquals("%23M05", codec.savePreset(5).toString());
+        assertEquals("%23R42", codec.recallPreset(42).toString());
+    }
+
+    /**
+     * Tests that the buffer is reused and holds the last command.
+     * @throws IOException when writing fails.
+     */
+    @Test
+    public void testBufferReused() throws IOException {
+        byte[] buffer = codec.absPanTilt(1, 2).buffer();
+        codec.absZoom(1365);
+
+        assertTrue(buffer == codec.buffer());
+        assertEquals(9, codec.length());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTo(out);
+        assertArrayEquals("%23AXZ555".getBytes(StandardCharsets.US_ASCII), out.toByteArray());
+    }
+
+    /**
+     * Tests the decoding of replies.
+     */
+    @Test
+    public void testDecode() {
+        assertTrue(AwProtocolCodec.startsWith("aPC80007CDD", "aPC"));
+        assertFalse(AwProtocolCodec.startsWith("aP", "aPC"));
+        assertFalse(AwProtocolCodec.startsWith("ER1:APC", "aPC"));
+
+        assertEquals(32768, AwProtocolCodec.parseHex("aPC80007CDD", 3, 7));
+        assertEquals(31965, AwProtocolCodec.parseHex("aPC80007CDD", 7, 11));
+        assertEquals(1965, AwProtocolCodec.parseHex("gz7ad", 2, 5));
+        assertEquals(-1, AwProtocolCodec.parseHex("gz7", 2, 5));
+        assertEquals(-1, AwProtocolCodec.parseHex("gzXYZ", 2, 5));
+        assertEquals(-1, AwProtocolCodec.parseHex("d1", 2, 2));
+
+        byte[] reply = "gf555".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(1365, AwProtocolCodec.parseHex(reply, 2, 5));
+    }
+}
@@ -0,0 +1,383 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class to test the merging of commands in {@link CameraCommandQueue}.
+ * Uses a connection that records the commands it receives and that can
+ * hold the first command in flight, so newer commands pile up behind it.
+ *
+ * @since 1.1
+ */
+public class CameraCommandQueueTest {
+
+    private RecordingConnection connection;
+    private ExecutorService executor;
+    private CameraCommandQueue queue;
+
+    /**
+     * Sets up a queue with a recording connection.
+     */
+    @Before
+    public void setUp() {
+        connection = new RecordingConnection();
+        executor = CameraExecutors.newCameraExecutor("Test");
+        queue = new CameraCommandQueue(connection, executor);
+    }
+
+    @After
+    public void cleanUp() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that relative offsets that pile up are summed.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testRelativeOffsetsSummed() throws Exception {
+        CompletableFuture<Boolean> first = queue.relPan(5);
+        connection.awaitBlocked();
+
+        List<CompletableFuture<Boolean>> rest = new ArrayList<CompletableFuture<Boolean>>();
+        rest.add(queue.relPan(10));
+        rest.add(queue.relTilt(20));
+        rest.add(queue.relPan(30));
+        connection.release();
+
+        assertTrue(first.get(1, TimeUnit.SECONDS));
+        for (CompletableFuture<Boolean> f : rest) {
+            assertTrue(f.get(1, TimeUnit.SECONDS));
+        }
+
+        assertEquals("relPanTilt 5 0", connection.commands.get(0));
+        assertEquals("relPanTilt 40 20", connection.commands.get(1));
+        assertEquals(2, queue.getSentCount());
+        assertEquals(2, queue.getMergedCount());
+    }
+
+    /**
+     * Tests that a newer absolute target replaces pending moves, and that
+     * a relative move after an absolute target moves the target.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testAbsoluteReplaces() throws Exception {
+        queue.absZoom(1500);
+        connection.awaitBlocked();
+
+        queue.relZoom(100);
+        queue.absZoom(2000);
+        CompletableFuture<Boolean> last = queue.relZoom(-50);
+        connection.release();
+
+        assertTrue(last.get(1, TimeUnit.SECONDS));
+        assertEquals(2, connection.commands.size());
+        assertEquals("absZoom 1950", connection.commands.get(1));
+    }
+
+    /**
+     * Tests that the axes are queued independently.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testAxesIndependent() throws Exception {
+        queue.absPanTilt(100, 200);
+        connection.awaitBlocked();
+
+        queue.absFocus(1400);
+        queue.absPan(300);
+        CompletableFuture<Boolean> last = queue.relTilt(10);
+        connection.release();
+
+        assertTrue(last.get(1, TimeUnit.SECONDS));
+        executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertTrue(connection.commands.contains("absFocus 1400"));
+        assertTrue(connection.commands.contains("absPan 300"));
+        assertTrue(connection.commands.contains("relTilt 10"));
+        assertEquals(4, connection.commands.size());
+    }
+
+    /**
+     * Tests that only the latest jog speed is sent.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testJogLatestWins() throws Exception {
+        queue.panTiltStart(1, 50);
+        connection.awaitBlocked();
+
+        queue.panTiltStart(99, 50);
+        queue.panTiltStart(50, 99);
+        CompletableFuture<Boolean> stop = queue.panTiltStop();
+        connection.release();
+
+        assertTrue(stop.get(1, TimeUnit.SECONDS));
+        assertEquals(2, connection.commands.size());
+        assertEquals("panTiltStop", connection.commands.get(1));
+
+        executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertTrue(queue.isIdle());
+    }
+
+    /**
+     * Tests that a move queued after a jog stop is not halted by that stop,
+     * while a jog start is in flight.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testMoveAfterJogStop() throws Exception {
+        queue.panTiltStart(1, 50);
+        connection.awaitBlocked();
+
+        CompletableFuture<Boolean> stop = queue.panTiltStop();
+        CompletableFuture<Boolean> preset = queue.absPanTilt(100, 200);
+        connection.release();
+
+        assertTrue(preset.get(1, TimeUnit.SECONDS));
+        assertTrue(stop.get(1, TimeUnit.SECONDS));
+        executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertEquals(2, connection.commands.size());
+        assertEquals("absPanTilt 100 200", connection.commands.get(1));
+    }
+
+    /**
+     * Tests that a jog queued after a move replaces it.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testJogAfterMove() throws Exception {
+        queue.absFocus(1400);
+        connection.awaitBlocked();
+
+        queue.absPanTilt(100, 200);
+        CompletableFuture<Boolean> jog = queue.panTiltStart(1, 50);
+        connection.release();
+
+        assertTrue(jog.get(1, TimeUnit.SECONDS));
+        executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertEquals(2, connection.commands.size());
+        assertEquals("panTiltStart 1 50", connection.commands.get(1));
+    }
+
+    /**
+     * Tests that interactive commands are sent before background settings,
+     * even when the background settings were queued first.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testInteractiveFirst() throws Exception {
+        queue.absFocus(1400);
+        connection.awaitBlocked();
+
+        CompletableFuture<Boolean> preset = queue.applySettings(new CameraSettings(1, 2, 3, 4), 0);
+        queue.panTiltStart(1, 50);
+        assertEquals(CameraCommandQueue.Lane.INTERACTIVE, queue.getNextLane());
+        connection.release();
+
+        assertTrue(preset.get(1, TimeUnit.SECONDS));
+        assertEquals("panTiltStart 1 50", connection.commands.get(1));
+        assertEquals("applySettings 1 2 3 4", connection.commands.get(2));
+    }
+
+    /**
+     * Tests that background settings that are replaced before they are sent are dropped.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testBackgroundDropped() throws Exception {
+        queue.absFocus(1400);
+        connection.awaitBlocked();
+
+        CompletableFuture<Boolean> old = queue.applySettings(new CameraSettings(1, 2, 3, 4), 0);
+        CompletableFuture<Boolean> preset = queue.applySettings(new CameraSettings(5, 6, 7, 8), 0);
+        assertEquals(CameraCommandQueue.Lane.BACKGROUND, queue.getNextLane());
+        connection.release();
+
+        assertFalse(old.get(1, TimeUnit.SECONDS));
+        assertTrue(preset.get(1, TimeUnit.SECONDS));
+        assertEquals(2, connection.commands.size());
+        assertEquals("applySettings 5 6 7 8", connection.commands.get(1));
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    /**
+     * Tests that interactive commands are sent between the steps of
+     * background settings.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testInteractiveBetweenSteps() throws Exception {
+        connection.perAxis = true;
+        CompletableFuture<Boolean> preset = queue.applySettings(new CameraSettings(1, 2, 3, 4), 0);
+        connection.awaitBlocked();
+
+        CompletableFuture<Boolean> zoom = queue.absZoom(999);
+        assertEquals(CameraCommandQueue.Lane.INTERACTIVE, queue.getNextLane());
+        connection.release();
+
+        assertTrue(zoom.get(1, TimeUnit.SECONDS));
+        assertTrue(preset.get(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("absPanTilt 1 2", "absZoom 999", "absZoom 3", "absFocus 4"),
+                connection.commands);
+    }
+
+    /**
+     * Tests that background settings that are replaced between their steps
+     * are dropped, and their remaining steps are not sent.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testBackgroundDroppedBetweenSteps() throws Exception {
+        connection.perAxis = true;
+        CompletableFuture<Boolean> old = queue.applySettings(new CameraSettings(1, 2, 3, 4), 0);
+        connection.awaitBlocked();
+
+        CompletableFuture<Boolean> preset = queue.applySettings(new CameraSettings(5, 6, 7, 8), 0);
+        connection.release();
+
+        assertFalse(old.get(1, TimeUnit.SECONDS));
+        assertTrue(preset.get(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("absPanTilt 1 2", "absPanTilt 5 6", "absZoom 7", "absFocus 8"),
+                connection.commands);
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+    /**
+     * Connection that records all commands, and holds the first command
+     * until {@link #release()} is called.
+     */
+    private static class RecordingConnection extends MockedCameraConnection {
+
+        private final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile boolean perAxis;
+
+        /**
+         * Waits until the first command is in flight.
+         * @throws InterruptedException when waiting is interrupted.
+         */
+        private void awaitBlocked() throws InterruptedException {
+            assertTrue(blocked.await(1, TimeUnit.SECONDS));
+        }
+
+        /**
+         * Lets the first command finish.
+         */
+        private void release() {
+            released.countDown();
+        }
+
+        /**
+         * Records a command, blocking if it is the first one.
+         * @param command The command to record.
+         * @return Always true.
+         */
+        private boolean record(String command) {
+            commands.add(command);
+            blocked.countDown();
+
+            try {
+                released.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+
+        @Override
+        protected boolean absPanTilt(int panValue, int tiltValue) {
+            return record("absPanTilt " + panValue + " " + tiltValue);
+        }
+
+        @Override
+        protected boolean absPan(int value) {
+            return record("absPan " + value);
+        }
+
+        @Override
+        protected boolean absTilt(int value) {
+            return record("absTilt " + value);
+        }
+
+        @Override
+        protected boolean absZoom(int value) {
+            return record("absZoom " + value);
+        }
+
+        @Override
+        protected boolean absFocus(int value) {
+            return record("absFocus " + value);
+        }
+
+        @Override
+        protected boolean relPanTilt(int panOffset, int tiltOffset) {
+            return record("relPanTilt " + panOffset + " " + tiltOffset);
+        }
+
+        @Override
+        protected boolean relPan(int offset) {
+            return record("relPan " + offset);
+        }
+
+        @Override
+        protected boolean relTilt(int offset) {
+            return record("relTilt " + offset);
+        }
+
+        @Override
+        protected boolean relZoom(int offset) {
+            return record("relZoom " + offset);
+        }
+
+        @Override
+        protected boolean relFocus(int offset) {
+            return record("relFocus " + offset);
+        }
+
+        @Override
+        protected boolean panTiltStart(int panSpeed, int tiltSpeed) {
+            return record("panTiltStart " + panSpeed + " " + tiltSpeed);
+        }
+
+        @Override
+        protected boolean panTiltStop() {
+            return record("panTiltStop");
+        }
+
+        @Override
+        protected List<BooleanSupplier> planSettings(CameraSettings settings, long duration) {
+            if (!perAxis) {
+                return super.planSettings(settings, duration);
+            }
+
+            return Arrays.asList(
+                () -> absPanTilt(settings.getPan(), settings.getTilt()),
+                () -> absZoom(settings.getZoom()),
+                () -> absFocus(settings.getFocus()));
+        }
+
+        @Override
+        protected boolean applySettings(CameraSettings settings, long duration) {
+            return record("applySettings " + settings.getPan() + " " + settings.getTilt() 
+                    + " " + settings.getZoom() + " " + settings.getFocus());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to test {@link CameraConnectionFactory}. Uses local HTTP servers
+ * that answer like an AW-HE40 and count the <code>QID</code> requests.
+ *
+ * @since 1.1
+ */
+public class CameraConnectionFactoryTest {
+
+    private HttpServer server;
+    private String address;
+    private AtomicInteger probes;
+    private volatile String model;
+    private volatile long delay;
+
+    /**
+     * Starts a local server that answers like an AW-HE40.
+     * @throws IOException when the server cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        probes = new AtomicInteger();
+        model = LiveCameraConnectionAWHE40.CAMERA_MODEL;
+        server = startServer();
+        address = "127.0.0.1:" + server.getAddress().getPort();
+        CameraConnectionFactory.clearKnownModels();
+    }
+
+    @After
+    public void tearDown() {
+        CameraTransport.forAddress(address).close();
+        server.stop(0);
+        CameraConnectionFactory.clearKnownModels();
+    }
+
+    /**
+     * Tests that the model is detected with a single probe and that the
+     * matching connection is created.
+     */
+    @Test
+    public void testConnect() {
+        CameraConnection connection = CameraConnectionFactory.connect(address);
+
+        assertTrue(connection instanceof LiveCameraConnectionAWHE40);
+        assertTrue(connection.isConnected());
+        assertEquals(new CameraSettings(32768, 32768, 1365, 1365), connection.getCachedCameraSettings());
+        assertEquals(1, probes.get());
+        assertEquals(LiveCameraConnectionAWHE40.CAMERA_MODEL, CameraConnectionFactory.getKnownModel(address));
+    }
+
+    /**
+     * Tests that a cached model is connected to without a separate probe,
+     * and that a changed model is detected.
+     */
+    @Test
+    public void testKnownModel() {
+        CameraConnectionFactory.setKnownModel(address, LiveCameraConnectionAWHE40.CAMERA_MODEL);
+        assertTrue(CameraConnectionFactory.connect(address) instanceof LiveCameraConnectionAWHE40);
+        assertEquals(1, probes.get());
+
+        model = LiveCameraConnection.CAMERA_MODEL;
+        CameraConnection connection = CameraConnectionFactory.connect(address);
+        assertEquals(LiveCameraConnection.class, connection.getClass());
+        assertEquals(LiveCameraConnection.CAMERA_MODEL, CameraConnectionFactory.getKnownModel(address));
+    }
+
+    /**
+     * Tests that an unsupported model and an unreachable address
+     * result in no connection, and that the model of an unreachable
+     * address stays cached.
+     */
+    @Test
+    public void testNoCamera() {
+        model = "AW-UE70";
+        assertNull(CameraConnectionFactory.connect(address));
+        assertNull(CameraConnectionFactory.getKnownModel(address));
+
+        CameraConnectionFactory.setKnownModel("127.0.0.1:1", LiveCameraConnection.CAMERA_MODEL);
+        assertNull(CameraConnectionFactory.connect("127.0.0.1:1"));
+        assertEquals(LiveCameraConnection.CAMERA_MODEL, CameraConnectionFactory.getKnownModel("127.0.0.1:1"));
+    }
+
+    /**
+     * Tests that a cached model is forgotten when the camera answers
+     * with a model that is not supported.
+     */
+    @Test
+    public void testKnownModelReplaced() {
+        CameraConnectionFactory.setKnownModel(address, LiveCameraConnectionAWHE40.CAMERA_MODEL);
+        model = "AW-UE70";
+
+        assertNull(CameraConnectionFactory.connect(address));
+        assertNull(CameraConnectionFactory.getKnownModel(address));
+    }
+
+    /**
+     * Tests that a host that accepts the connection but never answers
+     * does not hang the probe.
+     * @throws IOException when the silent server cannot be started.
+     */
+    @Test
+    public void testSilentHost() throws IOException {
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            String silentAddress = "127.0.0.1:" + silent.getLocalPort();
+
+            long start = System.currentTimeMillis();
+            assertNull(CameraConnectionFactory.probeModel(silentAddress));
+            assertTrue(System.currentTimeMillis() - start < 3 * CameraConnectionFactory.PROBE_TIMEOUT);
+            CameraTransport.forAddress(silentAddress).close();
+        }
+    }
+
+    /**
+     * Tests that only registered models are supported.
+     */
+    @Test
+    public void testIsSupported() {
+        assertTrue(CameraConnectionFactory.isSupported(LiveCameraConnection.CAMERA_MODEL));
+        assertTrue(CameraConnectionFactory.isSupported(LiveCameraConnectionAWHE40.CAMERA_MODEL));
+        assertFalse(CameraConnectionFactory.isSupported("AW-UE70"));
+    }
+
+    /**
+     * Tests that cameras are probed at the same time.
+     * @throws Exception when a server cannot be started.
+     */
+    @Test
+    public void testConnectAll() throws Exception {
+        HttpServer other = startServer();
+        String otherAddress = "127.0.0.1:" + other.getAddress().getPort();
+        delay = 500;
+
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, CompletableFuture<CameraConnection>> result =
+                    CameraConnectionFactory.connectAll(Arrays.asList(address, otherAddress, address));
+
+            assertEquals(2, result.size());
+            for (CompletableFuture<CameraConnection> future : result.values()) {
+                assertTrue(future.get(3, TimeUnit.SECONDS).isConnected());
+            }
+            assertTrue(System.currentTimeMillis() - start
+                    < 2 * (delay + 3 * LiveCameraConnection.MIN_COMMAND_INTERVAL));
+        } finally {
+            CameraTransport.forAddress(otherAddress).close();
+            other.stop(0);
+        }
+    }
+
+    /**
+     * Tests that the known models can be saved and loaded again.
+     * @throws IOException when the temporary file cannot be created.
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        File file = File.createTempFile("cameramodels", ".tfp");
+        file.deleteOnExit();
+
+        CameraConnectionFactory.setKnownModel(address, LiveCameraConnectionAWHE40.CAMERA_MODEL);
+        assertTrue(CameraConnectionFactory.saveKnownModels(file));
+        CameraConnectionFactory.clearKnownModels();
+
+        CameraConnectionFactory.loadKnownModels(file);
+        assertEquals(LiveCameraConnectionAWHE40.CAMERA_MODEL, CameraConnectionFactory.getKnownModel(address));
+    }
+
+    /**
+     * Starts a local HTTP server that answers the queries sent when
+     * setting up a connection, with the current {@link #model}.
+     *
+     * @return The started server.
+     * @throws IOException when the server cannot be started.
+     */
+    private HttpServer startServer() throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/cgi-bin/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String body = "";
+
+            if (query.contains("cmd=QID")) {
+                probes.incrementAndGet();
+                body = "OID:" + model;
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (query.contains("cmd=#APC")) {
+                body = "aPC80008000";
+            } else if (query.contains("cmd=#GZ")) {
+                body = "gz555";
+            } else if (query.contains("cmd=#GF")) {
+                body = "gf555";
+            } else if (query.contains("cmd=#D1")) {
+                body = "d10";
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        httpServer.start();
+        return httpServer;
+    }
+}
@@ -0,0 +1,94 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Class to test the asynchronous command API of {@link CameraConnection}.
+ *
+ * @since 1.1
+ */
+public class CameraConnectionTest {
+
+    private MockedCameraConnection connection;
+    private Camera camera;
+
+    /**
+     * Sets up a camera with a mocked connection.
+     */
+    @Before
+    public void setUp() {
+        connection = new MockedCameraConnection();
+        camera = new Camera();
+        camera.setConnection(connection);
+    }
+
+    @After
+    public void cleanUp() {
+        Camera.clearAllCameras();
+    }
+
+    /**
+     * Tests that asynchronous commands are performed and that queries
+     * return the resulting values.
+     */
+    @Test
+    public void testAsyncCommands() {
+        assertTrue(connection.absPanTiltAsync(100, 200).join());
+        assertTrue(connection.absZoomAsync(300).join());
+        assertTrue(connection.absFocusAsync(1400).join());
+
+        assertArrayEquals(new int[] {100, 200}, connection.getCurrentPanTiltAsync().join());
+        assertEquals(300, (int) connection.getCurrentZoomAsync().join());
+        assertEquals(1400, (int) connection.getCurrentFocusAsync().join());
+        assertEquals(new CameraSettings(100, 200, 300, 1400), connection.getCurrentCameraSettingsAsync().join());
+    }
+
+    /**
+     * Tests that asynchronous commands are not run on the calling thread
+     * and are executed in the order they were submitted.
+     */
+    @Test
+    public void testOrderAndThread() {
+        List<Integer> order = new ArrayList<Integer>();
+        List<CompletableFuture<Thread>> futures = new ArrayList<CompletableFuture<Thread>>();
+
+        for (int i = 0; i < 20; i++) {
+            final int index = i;
+            futures.add(connection.submit(() -> {
+                order.add(index);
+                return Thread.currentThread();
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) order.get(i));
+            assertNotEquals(Thread.currentThread(), futures.get(i).join());
+        }
+    }
+
+    /**
+     * Tests the asynchronous methods of {@link Camera}.
+     */
+    @Test
+    public void testCameraAsync() {
+        assertTrue(camera.absPanTiltAsync(45, 45).join());
+        assertTrue(camera.absZoomAsync(60).join());
+        assertEquals(new CameraSettings(45, 45, 60, 1365), camera.getSettingsAsync().join());
+
+        assertTrue(camera.panTiltStartAsync(60, 50).join());
+        assertTrue(camera.panTiltStopAsync().join());
+    }
+}
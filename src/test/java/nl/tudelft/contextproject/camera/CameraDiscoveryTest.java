@@ -0,0 +1,106 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to test {@link CameraDiscovery}, by scanning a loopback range
+ * with several {@link CameraSimulator}s in it.
+ *
+ * @since 1.1
+ */
+public class CameraDiscoveryTest {
+
+    private final List<CameraSimulator> simulators = new ArrayList<CameraSimulator>();
+
+    @After
+    public void tearDown() {
+        CameraSimulator.stopAll(simulators);
+        CameraConnectionFactory.clearKnownModels();
+    }
+
+    /**
+     * Tests that the hosts of a range leave out the network and broadcast addresses.
+     */
+    @Test
+    public void testHosts() {
+        assertEquals(Arrays.asList("192.168.1.1", "192.168.1.2"), CameraDiscovery.hosts("192.168.1.3/30"));
+        assertEquals(Arrays.asList("10.0.0.5"), CameraDiscovery.hosts("10.0.0.5"));
+        assertEquals(254, CameraDiscovery.hosts("10.1.2.0/24").size());
+        assertEquals("10.1.2.254", CameraDiscovery.hosts("10.1.2.0/24").get(253));
+    }
+
+    /**
+     * Tests that invalid ranges are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        CameraDiscovery.hosts("10.1.256.0/24");
+    }
+
+    /**
+     * Tests that ranges that are too large are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeTooLarge() {
+        CameraDiscovery.hosts("10.0.0.0/8");
+    }
+
+    /**
+     * Tests that the cameras in a /24 are found, and their models cached, within a few seconds.
+     * @throws Exception when a simulator cannot be started.
+     */
+    @Test
+    public void testScan() throws Exception {
+        CameraSimulator first = new CameraSimulator(LiveCameraConnection.CAMERA_MODEL).start("127.0.0.10", 0);
+        simulators.add(first);
+        int port = Integer.parseInt(first.getAddress().split(":")[1]);
+        simulators.add(new CameraSimulator(LiveCameraConnectionAWHE40.CAMERA_MODEL).start("127.0.0.77", port));
+        simulators.add(new CameraSimulator(LiveCameraConnection.CAMERA_MODEL).start("127.0.0.200", port));
+
+        long start = System.currentTimeMillis();
+        Map<String, String> found = CameraDiscovery.scan("127.0.0.0/24", port).get(10, TimeUnit.SECONDS);
+        long time = System.currentTimeMillis() - start;
+
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        for (CameraSimulator simulator : simulators) {
+            expected.put(simulator.getAddress(), simulator.getModel());
+        }
+
+        assertEquals(expected, found);
+        assertEquals(LiveCameraConnectionAWHE40.CAMERA_MODEL, CameraConnectionFactory.getKnownModel("127.0.0.77:" + port));
+        assertTrue(time < 5000);
+    }
+
+    /**
+     * Tests that a scan only forgets the transports it created itself, and
+     * keeps the transports shared with configured cameras.
+     * @throws Exception when the scan fails.
+     */
+    @Test
+    public void testScanKeepsSharedTransports() throws Exception {
+        CameraTransport shared = CameraTransport.forAddress("127.0.0.21:1");
+
+        try {
+            List<String> addresses = Arrays.asList("127.0.0.21:1", "127.0.0.22:1");
+            assertTrue(CameraDiscovery.scan(addresses, 2, 200).get(5, TimeUnit.SECONDS).isEmpty());
+
+            assertSame(shared, CameraTransport.forAddress("127.0.0.21:1"));
+            assertFalse(CameraTransport.exists("127.0.0.22:1"));
+        } finally {
+            CameraTransport.discard("127.0.0.21:1");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to test {@link CameraHealth} and the way a
+ * {@link LiveCameraConnection} uses it.
+ *
+ * @since 1.1
+ */
+public class CameraHealthTest {
+
+    private AtomicBoolean reachable;
+    private AtomicInteger probes;
+    private CameraHealth health;
+    private List<Object> changes;
+
+    /**
+     * Creates a circuit that opens after 2 failures and probes every 20 ms.
+     */
+    @Before
+    public void setUp() {
+        reachable = new AtomicBoolean(false);
+        probes = new AtomicInteger();
+        changes = new ArrayList<Object>();
+        health = new CameraHealth(() -> {
+            probes.incrementAndGet();
+            return CompletableFuture.completedFuture(reachable.get());
+        }, 2, 20);
+        health.addObserver((Observable obj, Object arg) -> changes.add(arg));
+    }
+
+    @After
+    public void tearDown() {
+        health.close();
+    }
+
+    /**
+     * Tests that failures degrade and then open the circuit,
+     * and that an open circuit rejects requests.
+     */
+    @Test
+    public void testOpen() {
+        assertEquals(CameraHealth.State.HEALTHY, health.getState());
+        assertTrue(health.allowRequest());
+
+        health.recordFailure();
+        assertEquals(CameraHealth.State.DEGRADED, health.getState());
+        assertTrue(health.allowRequest());
+
+        health.recordFailure();
+        assertTrue(health.isOpen());
+        assertFalse(health.allowRequest());
+
+        assertEquals(1, health.getRejectedCount());
+        assertEquals(1, health.getOpenedCount());
+        assertEquals(2, health.getFailureCount());
+        assertEquals(2, changes.size());
+        assertEquals(CameraHealth.State.OPEN, changes.get(1));
+    }
+
+    /**
+     * Tests that a success closes a degraded circuit.
+     */
+    @Test
+    public void testRecover() {
+        health.recordFailure();
+        health.recordSuccess();
+
+        assertEquals(CameraHealth.State.HEALTHY, health.getState());
+        assertEquals(1, health.getSuccessCount());
+
+        health.recordFailure();
+        assertEquals(CameraHealth.State.DEGRADED, health.getState());
+    }
+
+    /**
+     * Tests that an open circuit is probed in the background,
+     * and closes once a probe succeeds.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testProbe() throws InterruptedException {
+        health.recordFailure();
+        health.recordFailure();
+
+        Thread.sleep(100);
+        assertTrue(health.isOpen());
+        assertTrue(probes.get() >= 2);
+
+        reachable.set(true);
+        Thread.sleep(100);
+        assertEquals(CameraHealth.State.HEALTHY, health.getState());
+
+        int probed = probes.get();
+        Thread.sleep(60);
+        assertEquals(probed, probes.get());
+    }
+
+    /**
+     * Tests that a connection to an unreachable camera fails fast
+     * once the circuit is open, and returns the last known settings.
+     */
+    @Test
+    public void testConnectionFailsFast() {
+        LiveCameraConnection connection = new LiveCameraConnection("127.0.0.1:1");
+        connection.getStateCache().update(new CameraSettings(1, 2, 3, 4));
+
+        for (int i = 0; i < CameraHealth.DEFAULT_FAILURE_THRESHOLD; i++) {
+            connection.getCurrentZoom();
+        }
+        assertTrue(connection.getHealth().isOpen());
+
+        long start = System.currentTimeMillis();
+        try {
+            connection.sendRequest(connection.buildCamControlURL("QID"));
+            fail("The circuit should be open");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("unreachable"));
+        }
+        assertEquals(new CameraSettings(1, 2, 3, 4), connection.getCurrentCameraSettings());
+        assertTrue(System.currentTimeMillis() - start < LiveCameraConnection.MIN_COMMAND_INTERVAL);
+        assertEquals(1, connection.getHealth().getRejectedCount());
+
+        connection.getHealth().close();
+    }
+}
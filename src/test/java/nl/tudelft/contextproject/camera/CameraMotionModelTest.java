@@ -0,0 +1,69 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Class to test {@link CameraMotionModel}.
+ *
+ * @since 1.1
+ */
+public class CameraMotionModelTest {
+
+    private static final double DELTA = 1e-6;
+
+    private final CameraMotionModel model = new CameraMotionModel(1000, 500, 100, 200, 0.5);
+
+    /**
+     * Tests that the instant model takes no time.
+     */
+    @Test
+    public void testInstant() {
+        assertTrue(CameraMotionModel.INSTANT.isInstant());
+        assertFalse(model.isInstant());
+        assertEquals(0, CameraMotionModel.INSTANT.travelTime(1000, 0, true), DELTA);
+        assertEquals(1000, CameraMotionModel.INSTANT.travelled(1000, 0, true, 0), DELTA);
+    }
+
+    /**
+     * Tests that pan and tilt get slower when zoomed in.
+     */
+    @Test
+    public void testPanTiltSpeed() {
+        assertEquals(500, model.getPanTiltSpeed(LiveCameraConnection.ZOOM_LIMIT_LOW), DELTA);
+        assertEquals(250, model.getPanTiltSpeed(LiveCameraConnection.ZOOM_LIMIT_HIGH), DELTA);
+    }
+
+    /**
+     * Tests a move that reaches its maximum speed.
+     */
+    @Test
+    public void testTrapezoid() {
+        // 0.5 s accelerating and decelerating over 125 units each, 0.5 s at 500 units/s.
+        assertEquals(1.5, model.travelTime(500, 500, true), DELTA);
+        assertEquals(125, model.travelled(500, 500, true, 0.5), DELTA);
+        assertEquals(250, model.travelled(500, 500, true, 0.75), DELTA);
+        assertEquals(500, model.travelled(500, 500, true, 2), DELTA);
+    }
+
+    /**
+     * Tests a move that is too short to reach its maximum speed.
+     */
+    @Test
+    public void testTriangle() {
+        assertEquals(2 * Math.sqrt(0.1), model.travelTime(100, 500, true), DELTA);
+        assertEquals(50, model.travelled(100, 500, true, Math.sqrt(0.1)), DELTA);
+    }
+
+    /**
+     * Tests that zoom and focus move at a constant speed.
+     */
+    @Test
+    public void testConstantSpeed() {
+        assertEquals(2, model.travelTime(200, model.getZoomSpeed(), false), DELTA);
+        assertEquals(100, model.travelled(200, model.getZoomSpeed(), false, 1), DELTA);
+    }
+}
@@ -0,0 +1,219 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class to test {@link CameraNotificationListener}, with a {@link CameraSimulator}
+ * that pushes its state to it.
+ *
+ * @since 1.1
+ */
+public class CameraNotificationListenerTest {
+
+    private CameraSimulator simulator;
+    private LiveCameraConnection connection;
+    private CameraNotificationListener listener;
+
+    /**
+     * Starts a simulated AW-HE130, connects to it and subscribes to its notifications.
+     * @throws IOException when the simulator cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        simulator = new CameraSimulator(LiveCameraConnection.CAMERA_MODEL, 0).start();
+        simulator.setLensSpeed(0);
+        connection = new LiveCameraConnection(simulator.getAddress());
+        assertTrue(connection.setUpConnection());
+
+        listener = new CameraNotificationListener(0);
+        assertTrue(listener.subscribe(connection));
+        assertTrue(waitFor(connection::isStatePushed));
+    }
+
+    @After
+    public void tearDown() {
+        listener.stop();
+        connection.getHealth().close();
+        simulator.stop();
+    }
+
+    /**
+     * Tests that a change made on the camera itself reaches the cache
+     * without querying the camera.
+     */
+    @Test
+    public void testPushedSettings() {
+        CameraSettings moved = new CameraSettings(30000, 20000, 2000, 3000);
+        long requests = simulator.getRequestCount();
+
+        simulator.setSettings(moved);
+
+        assertTrue(waitFor(() -> connection.getCachedCameraSettings().equals(moved)));
+        assertEquals(moved, connection.getCurrentCameraSettings());
+        assertEquals(requests, simulator.getRequestCount());
+        assertTrue(listener.getNotificationCount() > 0);
+    }
+
+    /**
+     * Tests that waiting for a move to arrive does not query the camera.
+     * @throws Exception when the move cannot be awaited.
+     */
+    @Test
+    public void testArrivalWithoutQueries() throws Exception {
+        simulator.setPanTiltSpeed(10000);
+        CameraSettings from = connection.getCachedCameraSettings();
+        CameraSettings target = new CameraSettings(from.getPan() + 2000, from.getTilt(),
+                from.getZoom(), from.getFocus());
+        long requests = simulator.getRequestCount();
+
+        assertTrue(connection.absPanTilt(target.getPan(), target.getTilt()));
+        assertTrue(connection.awaitPosition(from, target).get(3, TimeUnit.SECONDS));
+
+        assertEquals(requests + 1, simulator.getRequestCount());
+        assertEquals(target, connection.getCachedCameraSettings());
+    }
+
+    /**
+     * Tests that the connection queries the camera again once the
+     * notifications stop.
+     */
+    @Test
+    public void testFallbackToQueries() {
+        listener.stop();
+        assertTrue(waitFor(() -> !connection.isStatePushed()));
+
+        long requests = simulator.getRequestCount();
+        connection.getCurrentCameraSettings();
+        assertTrue(simulator.getRequestCount() > requests);
+    }
+
+    /**
+     * Tests that the camera is queried again once it has not reported its
+     * state for longer than the pushed state is trusted.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testQuietCameraIsQueried() throws InterruptedException {
+        Thread.sleep(LiveCameraConnection.PUSHED_STATE_MAX_AGE + 100);
+        assertFalse(connection.isStatePushed());
+
+        long requests = simulator.getRequestCount();
+        connection.getCurrentCameraSettings();
+        assertTrue(simulator.getRequestCount() > requests);
+        assertTrue(connection.isStatePushed());
+    }
+
+    /**
+     * Tests that an open notification socket does not stop the queries
+     * until a notification on it has been understood.
+     * @throws Exception when the notification socket cannot be opened.
+     */
+    @Test
+    public void testPushedAfterParsedNotification() throws Exception {
+        listener.stop();
+        assertTrue(waitFor(() -> !connection.isStatePushed()));
+        listener.start();
+
+        InetAddress host = InetAddress.getByName(connection.getAddress().split(":")[0]);
+        try (Socket socket = new Socket(host, listener.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("garbled\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(200);
+            assertFalse(connection.isStatePushed());
+
+            out.write("aPC80008000\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(waitFor(connection::isStatePushed));
+        }
+    }
+
+    /**
+     * Tests that a connection that replaces the subscription of another
+     * connection to the same camera gets its notifications, and the
+     * replaced connection does not.
+     */
+    @Test
+    public void testReplacedSubscription() {
+        LiveCameraConnection replacing = new LiveCameraConnection(simulator.getAddress());
+        assertTrue(replacing.setUpConnection());
+        CameraSettings before = connection.getStateCache().get();
+
+        assertTrue(listener.subscribe(replacing));
+        assertFalse(listener.isSubscribed(connection));
+        assertFalse(connection.isStatePushed());
+        assertTrue(waitFor(replacing::isStatePushed));
+
+        CameraSettings moved = new CameraSettings(30000, 20000, 2000, 3000);
+        simulator.setSettings(moved);
+        assertTrue(waitFor(() -> replacing.getCachedCameraSettings().equals(moved)));
+        assertEquals(before, connection.getStateCache().get());
+        replacing.getHealth().close();
+    }
+
+    /**
+     * Tests that a connection can be unsubscribed.
+     */
+    @Test
+    public void testUnsubscribe() {
+        assertTrue(listener.isSubscribed(connection));
+        assertTrue(listener.unsubscribe(connection));
+
+        assertFalse(listener.isSubscribed(connection));
+        assertFalse(connection.isStatePushed());
+        assertFalse(listener.unsubscribe(connection));
+    }
+
+    /**
+     * Tests that notifications update the cache, and that unknown
+     * or incomplete notifications are ignored.
+     */
+    @Test
+    public void testHandleNotification() {
+        assertTrue(connection.handleNotification("aPC9C407530"));
+        assertTrue(connection.handleNotification("axz7D0"));
+        assertTrue(connection.handleNotification("gfBB8"));
+        assertFalse(connection.handleNotification("pTS5050"));
+        assertFalse(connection.handleNotification("aPC12"));
+
+        assertEquals(new CameraSettings(40000, 30000, 2000, 3000), connection.getCachedCameraSettings());
+    }
+
+    /**
+     * Waits until a condition holds, for at most two seconds.
+     *
+     * @param condition The condition to wait for.
+     * @return True iff the condition held in time.
+     */
+    private static boolean waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 2000;
+
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
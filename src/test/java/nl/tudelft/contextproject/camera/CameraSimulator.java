@@ -0,0 +1,715 @@
+package nl.tudelft.contextproject.camera;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to simulate a Panasonic AW-HE130 or AW-HE40 on a local port. It
+ * serves <code>/cgi-bin/aw_ptz</code> and <code>/cgi-bin/aw_cam</code> over
+ * HTTP and answers the commands a {@link LiveCameraConnection} sends like
+ * the real camera does, so the whole connection can be tested and measured
+ * without a camera.
+ *
+ * <p>The simulated head moves at a limited speed, so the position it reports
+ * changes over time after a move. Latency, jitter, error replies and dropped
+ * requests can be injected. A simulator uses no threads while it is idle, so
+ * dozens of them can run at once, see {@link #startAll(int, String)}.
+ *
+ * <p>Like the real camera, it serves <code>/cgi-bin/event</code> to push update
+ * notifications to a {@link CameraNotificationListener}. Once subscribed, it
+ * connects from its own address and sends its state, and sends it again every
+ * {@link #PUSH_INTERVAL} milliseconds while the head or lens moves.
+ *
+ * @since 1.1
+ */
+public class CameraSimulator {
+
+    /**
+     * Default pan and tilt speed at the highest speed setting, in units per second.
+     */
+    public static final double DEFAULT_PAN_TILT_SPEED = 10000;
+
+    /**
+     * Default zoom and focus speed, in units per second.
+     */
+    public static final double DEFAULT_LENS_SPEED = 1500;
+
+    /**
+     * Pan and tilt speed setting of <code>#APS</code> at which the head moves fastest.
+     */
+    private static final int MAX_APS_SPEED = 0x1D;
+
+    /**
+     * Time in milliseconds between two notifications while the camera moves.
+     */
+    public static final long PUSH_INTERVAL = 50;
+
+    private final String model;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger stalls = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private volatile long latency;
+    private volatile long jitter;
+    private volatile double errorRate;
+    private volatile double dropRate;
+    private volatile long minCommandInterval;
+    private volatile long stallTime;
+    private volatile double panTiltSpeed = DEFAULT_PAN_TILT_SPEED;
+    private volatile double lensSpeed = DEFAULT_LENS_SPEED;
+
+    private final Axis pan = new Axis(LiveCameraConnection.PAN_LIMIT_LOW, LiveCameraConnection.PAN_LIMIT_HIGH, 0x8000);
+    private final Axis tilt = new Axis(LiveCameraConnection.TILT_LIMIT_LOW, LiveCameraConnection.TILT_LIMIT_HIGH, 0x8000);
+    private final Axis zoom = new Axis(LiveCameraConnection.ZOOM_LIMIT_LOW, LiveCameraConnection.ZOOM_LIMIT_HIGH, 0x555);
+    private final Axis focus = new Axis(LiveCameraConnection.FOCUS_LIMIT_LOW, LiveCameraConnection.FOCUS_LIMIT_HIGH, 0x555);
+    private final CameraSettings[] presets = new CameraSettings[LiveCameraConnection.PRESET_SLOTS];
+    private boolean autoFocus;
+    private long lastCommand;
+    private Socket notifier;
+    private ScheduledFuture<?> pushing;
+
+    /**
+     * Creates a simulator of the specified model, which is not started yet.
+     * @param model The model to answer <code>QID</code> with.
+     */
+    public CameraSimulator(String model) {
+        this(model, new Random().nextLong());
+    }
+
+    /**
+     * Creates a simulator of the specified model, with a fixed seed for
+     * the injected jitter and errors.
+     *
+     * @param model The model to answer <code>QID</code> with.
+     * @param seed The seed of the random generator.
+     */
+    public CameraSimulator(String model, long seed) {
+        this.model = model;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Starts the simulator on a free local port.
+     *
+     * @return This simulator.
+     * @throws IOException when the server cannot be started.
+     */
+    public CameraSimulator start() throws IOException {
+        return start("127.0.0.1", 0);
+    }
+
+    /**
+     * Starts the simulator on the specified local address, so that several
+     * simulators can listen on the same port of different loopback addresses.
+     *
+     * @param host The local address to listen on, such as <code>127.0.0.2</code>.
+     * @param port The port to listen on, or 0 for a free port.
+     * @return This simulator.
+     * @throws IOException when the server cannot be started.
+     */
+    public CameraSimulator start(String host, int port) throws IOException {
+        executor = Executors.newCachedThreadPool(CameraExecutors.daemonThreadFactory("Camera simulator"));
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/cgi-bin/aw_ptz", exchange -> handle(exchange, true));
+        server.createContext("/cgi-bin/aw_cam", exchange -> handle(exchange, false));
+        server.createContext("/cgi-bin/event", this::subscribe);
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops the simulator and closes the transport to it.
+     */
+    public void stop() {
+        if (server != null) {
+            closeNotifier();
+            CameraTransport.forAddress(getAddress()).close();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts several simulators of the same model.
+     *
+     * @param count The amount of simulators to start.
+     * @param model The model to simulate.
+     * @return The started simulators.
+     * @throws IOException when a server cannot be started.
+     */
+    public static List<CameraSimulator> startAll(int count, String model) throws IOException {
+        List<CameraSimulator> simulators = new ArrayList<CameraSimulator>();
+
+        try {
+            for (int i = 0; i < count; i++) {
+                simulators.add(new CameraSimulator(model, i).start());
+            }
+        } catch (IOException e) {
+            stopAll(simulators);
+            throw e;
+        }
+
+        return simulators;
+    }
+
+    /**
+     * Stops several simulators.
+     * @param simulators The simulators to stop.
+     */
+    public static void stopAll(List<CameraSimulator> simulators) {
+        for (CameraSimulator simulator : simulators) {
+            simulator.stop();
+        }
+    }
+
+    /**
+     * Returns the address of the simulator, as used by a {@link LiveCameraConnection}.
+     * @return The address and port the simulator listens on.
+     */
+    public String getAddress() {
+        return server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delays the replies to the next requests, as if the camera stalled.
+     *
+     * @param count The amount of requests to stall.
+     * @param time The extra delay of every stalled request in milliseconds.
+     */
+    public void stallNextRequests(int count, long time) {
+        stallTime = time;
+        stalls.set(count);
+    }
+
+    /**
+     * Returns the simulated model.
+     * @return The model of the camera.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the time every request takes before it is answered.
+     * @param latency The latency in milliseconds.
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the maximum random time added to the latency of every request.
+     * @param jitter The jitter in milliseconds.
+     */
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Sets the chance that a request is answered with <code>ER2</code>,
+     * which the camera answers when it is busy.
+     *
+     * @param errorRate The chance between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets the chance that a request is not answered at all.
+     * @param dropRate The chance between 0 and 1.
+     */
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Sets the minimum time between two commands. Commands that arrive
+     * sooner are answered with <code>ER2</code>, like the real camera does.
+     *
+     * @param interval The interval in milliseconds, or 0 to accept every command.
+     */
+    public void setMinCommandInterval(long interval) {
+        this.minCommandInterval = interval;
+    }
+
+    /**
+     * Sets the speed of the head at the highest speed setting.
+     * A speed of 0 or less makes every move instant.
+     *
+     * @param speed The pan and tilt speed in units per second.
+     */
+    public void setPanTiltSpeed(double speed) {
+        this.panTiltSpeed = speed;
+    }
+
+    /**
+     * Sets the speed of the zoom and focus of the lens.
+     * A speed of 0 or less makes every move instant.
+     *
+     * @param speed The zoom and focus speed in units per second.
+     */
+    public void setLensSpeed(double speed) {
+        this.lensSpeed = speed;
+    }
+
+    /**
+     * Sets whether the lens is on auto focus.
+     * @param autoFocus True iff the lens should be on auto focus.
+     */
+    public synchronized void setAutoFocus(boolean autoFocus) {
+        this.autoFocus = autoFocus;
+    }
+
+    /**
+     * Returns the current position of the head and lens.
+     * @return The current camera settings.
+     */
+    public synchronized CameraSettings getSettings() {
+        long now = System.nanoTime();
+        return new CameraSettings(pan.at(now), tilt.at(now), zoom.at(now), focus.at(now));
+    }
+
+    /**
+     * Moves the head and lens to the specified settings at once.
+     * @param settings The settings to move to.
+     */
+    public synchronized void setSettings(CameraSettings settings) {
+        long now = System.nanoTime();
+        pan.jump(settings.getPan(), now);
+        tilt.jump(settings.getTilt(), now);
+        zoom.jump(settings.getZoom(), now);
+        focus.jump(settings.getFocus(), now);
+        notifyState();
+    }
+
+    /**
+     * Returns true iff the head or lens is still moving.
+     * @return True iff the camera is moving.
+     */
+    public synchronized boolean isMoving() {
+        long now = System.nanoTime();
+        return pan.isMoving(now) || tilt.isMoving(now) || zoom.isMoving(now) || focus.isMoving(now);
+    }
+
+    /**
+     * Returns the amount of requests the simulator received.
+     * @return The amount of requests.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the amount of requests that were answered with an error or dropped.
+     * @return The amount of failed requests.
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Answers a single request, after the simulated latency.
+     *
+     * @param exchange The request to answer.
+     * @param panTiltHead True iff the request was sent to <code>aw_ptz</code>.
+     * @throws IOException when the answer cannot be sent.
+     */
+    private void handle(HttpExchange exchange, boolean panTiltHead) throws IOException {
+        requests.incrementAndGet();
+        String cmd = command(exchange.getRequestURI().getQuery());
+
+        sleep(latency + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0));
+        if (stalls.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            sleep(stallTime);
+        }
+
+        if (random.nextDouble() < dropRate) {
+            errors.incrementAndGet();
+            exchange.close();
+            return;
+        }
+
+        String body;
+        if (random.nextDouble() < errorRate) {
+            body = "ER2:" + cmd;
+        } else {
+            body = answer(cmd, panTiltHead);
+        }
+
+        if (body.startsWith("ER")) {
+            errors.incrementAndGet();
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the reply of the camera to a command.
+     *
+     * @param cmd The command, without the leading <code>#</code>.
+     * @param panTiltHead True iff the command was sent to <code>aw_ptz</code>.
+     * @return The reply of the camera.
+     */
+    private synchronized String answer(String cmd, boolean panTiltHead) {
+        long now = System.nanoTime();
+
+        if (!panTiltHead) {
+            return cmd.equals("QID") ? "OID:" + model : "ER1:" + cmd;
+        }
+
+        if (cmd.equals("APC")) {
+            return "aPC" + hex(pan.at(now), 4) + hex(tilt.at(now), 4);
+        } else if (cmd.equals("GZ")) {
+            return "gz" + hex(zoom.at(now), 3);
+        } else if (cmd.equals("GF")) {
+            return "gf" + hex(focus.at(now), 3);
+        } else if (cmd.equals("D1")) {
+            return "d1" + (autoFocus ? 1 : 0);
+        }
+
+        if (minCommandInterval > 0 && now - lastCommand < minCommandInterval * 1000000) {
+            return "ER2:" + cmd;
+        }
+        lastCommand = now;
+
+        String reply = control(cmd, now);
+        if (!reply.startsWith("ER")) {
+            notifyState();
+        }
+        return reply;
+    }
+
+    /**
+     * Starts or stops pushing notifications to the port in an event request.
+     * The notifications are sent from the address the simulator listens on.
+     *
+     * @param exchange The request to answer.
+     * @throws IOException when the answer cannot be sent.
+     */
+    private void subscribe(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String query = exchange.getRequestURI().getQuery();
+        int port = -1;
+
+        for (String param : query == null ? new String[0] : query.split("&")) {
+            if (param.startsWith("my_port=")) {
+                port = Integer.parseInt(param.substring(8));
+            }
+        }
+
+        closeNotifier();
+        if (query != null && query.contains("connect=start") && port > 0) {
+            Socket socket = new Socket();
+            socket.bind(new InetSocketAddress(server.getAddress().getAddress(), 0));
+            socket.connect(new InetSocketAddress(exchange.getRemoteAddress().getAddress(), port), 1000);
+
+            synchronized (this) {
+                notifier = socket;
+            }
+            notifyState();
+        }
+
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    /**
+     * Pushes the state of the camera to the subscribed listener, and keeps
+     * pushing it while the camera moves.
+     */
+    private synchronized void notifyState() {
+        if (notifier != null && (pushing == null || pushing.isDone())) {
+            pushing = CameraExecutors.getScheduler().scheduleWithFixedDelay(
+                    this::pushState, 0, PUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the position and lens settings to the subscribed listener, one
+     * notification per line. Stops once the camera does not move anymore.
+     */
+    private synchronized void pushState() {
+        boolean moving = isMoving();
+
+        if (notifier != null) {
+            String state = answer("APC", true) + "\r\n" + answer("GZ", true) + "\r\n"
+                    + answer("GF", true) + "\r\n" + answer("D1", true) + "\r\n";
+            try {
+                notifier.getOutputStream().write(state.getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                closeNotifier();
+            }
+        }
+
+        if ((notifier == null || !moving) && pushing != null) {
+            pushing.cancel(false);
+        }
+    }
+
+    /**
+     * Closes the socket to the subscribed listener, if there is one.
+     */
+    private synchronized void closeNotifier() {
+        if (notifier != null) {
+            try {
+                notifier.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            notifier = null;
+        }
+    }
+
+    /**
+     * Executes a control command and returns the reply of the camera.
+     *
+     * @param cmd The command, without the leading <code>#</code>.
+     * @param now The current time, as in {@link System#nanoTime()}.
+     * @return The reply of the camera.
+     */
+    private String control(String cmd, long now) {
+        String args = cmd.length() > 3 ? cmd.substring(3) : "";
+
+        if (cmd.startsWith("APS") && args.length() == 11) {
+            int panValue = AwProtocolCodec.parseHex(args, 0, 4);
+            int tiltValue = AwProtocolCodec.parseHex(args, 4, 8);
+            int speed = AwProtocolCodec.parseHex(args, 8, 10);
+
+            if (panValue >= 0 && tiltValue >= 0 && speed > 0) {
+                double fraction = Math.min(speed, MAX_APS_SPEED) / (double) MAX_APS_SPEED;
+                pan.moveTo(panValue, panTiltSpeed * fraction, now);
+                tilt.moveTo(tiltValue, panTiltSpeed * fraction, now);
+                return "aPS" + args;
+            }
+        } else if (cmd.startsWith("RPC") && args.length() == 8) {
+            int panOffset = AwProtocolCodec.parseHex(args, 0, 4) - AwProtocolCodec.RELATIVE_CENTER;
+            int tiltOffset = AwProtocolCodec.parseHex(args, 4, 8) - AwProtocolCodec.RELATIVE_CENTER;
+
+            pan.moveTo(pan.at(now) + panOffset, panTiltSpeed, now);
+            tilt.moveTo(tilt.at(now) + tiltOffset, panTiltSpeed, now);
+            return "rPC" + args;
+        } else if (cmd.startsWith("PTS") && args.length() == 4) {
+            int panSpeed = Integer.parseInt(args.substring(0, 2));
+            int tiltSpeed = Integer.parseInt(args.substring(2, 4));
+
+            pan.jog((panSpeed - 50) / 49.0 * panTiltSpeed, now);
+            tilt.jog((tiltSpeed - 50) / 49.0 * panTiltSpeed, now);
+            return "pTS" + args;
+        } else if (cmd.startsWith("AXZ") && args.length() == 3) {
+            int value = AwProtocolCodec.parseHex(args, 0, 3);
+            if (value >= 0) {
+                zoom.moveTo(value, lensSpeed, now);
+                return "axz" + args;
+            }
+        } else if (cmd.startsWith("AXF") && args.length() == 3) {
+            int value = AwProtocolCodec.parseHex(args, 0, 3);
+            if (autoFocus) {
+                return "ER3:" + cmd;
+            } else if (value >= 0) {
+                focus.moveTo(value, lensSpeed, now);
+                return "axf" + args;
+            }
+        } else if ((cmd.startsWith("M") || cmd.startsWith("R")) && cmd.length() == 3
+                && Character.isDigit(cmd.charAt(1)) && Character.isDigit(cmd.charAt(2))) {
+            int slot = Integer.parseInt(cmd.substring(1));
+
+            if (cmd.charAt(0) == 'M') {
+                presets[slot] = new CameraSettings(pan.at(now), tilt.at(now), zoom.at(now), focus.at(now));
+                return "s" + cmd.substring(1);
+            } else if (presets[slot] != null) {
+                pan.moveTo(presets[slot].getPan(), panTiltSpeed, now);
+                tilt.moveTo(presets[slot].getTilt(), panTiltSpeed, now);
+                zoom.moveTo(presets[slot].getZoom(), lensSpeed, now);
+                focus.moveTo(presets[slot].getFocus(), lensSpeed, now);
+                return "s" + cmd.substring(1);
+            }
+        } else if (cmd.startsWith("D1") && cmd.length() == 3) {
+            autoFocus = cmd.charAt(2) == '1';
+            return "d1" + (autoFocus ? 1 : 0);
+        }
+
+        return "ER1:" + cmd;
+    }
+
+    /**
+     * Returns the command of a query string, without the leading <code>#</code>.
+     *
+     * @param query The decoded query string of the request.
+     * @return The command.
+     */
+    private static String command(String query) {
+        if (query == null || !query.startsWith("cmd=")) {
+            return "";
+        }
+
+        int end = query.indexOf('&');
+        String cmd = query.substring(4, end < 0 ? query.length() : end);
+        return cmd.startsWith("#") ? cmd.substring(1) : cmd;
+    }
+
+    /**
+     * Formats a number as upper case hexadecimal digits, padded with zeros.
+     *
+     * @param value The number to format.
+     * @param digits The amount of digits.
+     * @return The formatted number.
+     */
+    private static String hex(int value, int digits) {
+        return String.format(Locale.ROOT, "%0" + digits + "X", value);
+    }
+
+    /**
+     * Sleeps for the specified time.
+     * @param millis The time to sleep in milliseconds.
+     */
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A single axis of the head or lens, that moves towards a target at a
+     * constant speed, or jogs at a constant velocity. The position is
+     * computed from the time, so an axis needs no thread to move.
+     */
+    private static final class Axis {
+
+        private final int low;
+        private final int high;
+
+        private double start;
+        private long startTime;
+        private double target;
+        private double speed;
+        private double velocity;
+
+        /**
+         * Creates an axis that stands still at the specified position.
+         *
+         * @param low The lowest position of the axis.
+         * @param high The highest position of the axis.
+         * @param position The initial position.
+         */
+        private Axis(int low, int high, int position) {
+            this.low = low;
+            this.high = high;
+            this.start = position;
+            this.target = position;
+        }
+
+        /**
+         * Returns the position of the axis at the specified time.
+         *
+         * @param now The time, as in {@link System#nanoTime()}.
+         * @return The position of the axis.
+         */
+        private int at(long now) {
+            double seconds = (now - startTime) / 1e9;
+
+            if (velocity != 0) {
+                return (int) Math.round(clamp(start + velocity * seconds));
+            } else if (speed <= 0) {
+                return (int) Math.round(target);
+            }
+
+            double distance = target - start;
+            double travelled = Math.min(Math.abs(distance), speed * seconds);
+            return (int) Math.round(start + Math.signum(distance) * travelled);
+        }
+
+        /**
+         * Returns true iff the axis is moving at the specified time.
+         *
+         * @param now The time, as in {@link System#nanoTime()}.
+         * @return True iff the axis is moving.
+         */
+        private boolean isMoving(long now) {
+            if (velocity != 0) {
+                int position = at(now);
+                return position > low && position < high;
+            }
+            return at(now) != (int) Math.round(target);
+        }
+
+        /**
+         * Starts moving the axis towards a target.
+         *
+         * @param position The target position, which is clamped to the limits.
+         * @param moveSpeed The speed in units per second, or 0 for an instant move.
+         * @param now The time, as in {@link System#nanoTime()}.
+         */
+        private void moveTo(int position, double moveSpeed, long now) {
+            start = at(now);
+            startTime = now;
+            target = clamp(position);
+            speed = moveSpeed;
+            velocity = 0;
+        }
+
+        /**
+         * Starts jogging the axis, or stops it with a velocity of 0.
+         *
+         * @param jogVelocity The velocity in units per second.
+         * @param now The time, as in {@link System#nanoTime()}.
+         */
+        private void jog(double jogVelocity, long now) {
+            start = at(now);
+            startTime = now;
+            target = start;
+            speed = 0;
+            velocity = jogVelocity;
+        }
+
+        /**
+         * Moves the axis to a position at once.
+         *
+         * @param position The new position.
+         * @param now The time, as in {@link System#nanoTime()}.
+         */
+        private void jump(int position, long now) {
+            moveTo(position, 0, now);
+        }
+
+        /**
+         * Clamps a position to the limits of the axis.
+         *
+         * @param position The position to clamp.
+         * @return The clamped position.
+         */
+        private double clamp(double position) {
+            return Math.max(low, Math.min(high, position));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.tudelft.contextproject.presets.InstantPreset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to test {@link CameraSimulator}, by talking to it through
+ * a {@link LiveCameraConnection}.
+ *
+ * @since 1.1
+ */
+public class CameraSimulatorTest {
+
+    private CameraSimulator simulator;
+    private LiveCameraConnection connection;
+
+    /**
+     * Starts a simulated AW-HE130 and connects to it.
+     * @throws IOException when the simulator cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        simulator = new CameraSimulator(LiveCameraConnection.CAMERA_MODEL, 0).start();
+        simulator.setPanTiltSpeed(0);
+        simulator.setLensSpeed(0);
+        connection = new LiveCameraConnection(simulator.getAddress());
+        assertTrue(connection.setUpConnection());
+    }
+
+    /**
+     * Creates a connection that plans its moves for a head without acceleration,
+     * like the simulator.
+     *
+     * @param address The address of the simulator.
+     * @param speed The pan and tilt speed of the simulator.
+     * @return The connection.
+     */
+    private static LiveCameraConnection constantSpeedConnection(String address, double speed) {
+        return new LiveCameraConnection(address) {
+            @Override
+            public CameraMotionModel getMotionModel() {
+                return new CameraMotionModel(0, speed, 1365, 1365, 0);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        connection.getHealth().close();
+        simulator.stop();
+    }
+
+    /**
+     * Tests that the initial state is read with the right replies.
+     */
+    @Test
+    public void testQueries() {
+        assertEquals(new CameraSettings(0x8000, 0x8000, 0x555, 0x555), connection.getCurrentCameraSettings());
+        assertFalse(connection.hasAutoFocus());
+
+        simulator.setAutoFocus(true);
+        assertTrue(connection.hasAutoFocus());
+    }
+
+    /**
+     * Tests that absolute and relative moves are executed.
+     */
+    @Test
+    public void testMoves() {
+        assertTrue(connection.absPanTilt(30000, 20000));
+        assertTrue(connection.relPanTilt(100, -100));
+        assertTrue(connection.absZoom(2000));
+        assertTrue(connection.absFocus(3000));
+
+        assertEquals(new CameraSettings(30100, 19900, 2000, 3000), simulator.getSettings());
+        assertArrayEquals(new int[] {30100, 19900}, connection.getCurrentPanTilt());
+    }
+
+    /**
+     * Tests that relative zoom and focus moves start from the cached state,
+     * so each of them takes a single request.
+     */
+    @Test
+    public void testRelativeLensMoves() {
+        long requests = simulator.getRequestCount();
+        assertTrue(connection.relZoom(100));
+        assertTrue(connection.relFocus(200));
+
+        assertEquals(requests + 2, simulator.getRequestCount());
+        assertEquals(new CameraSettings(0x8000, 0x8000, 0x555 + 100, 0x555 + 200), simulator.getSettings());
+    }
+
+    /**
+     * Tests that focus cannot be set while the lens is on auto focus.
+     */
+    @Test
+    public void testAutoFocus() {
+        simulator.setAutoFocus(true);
+
+        assertFalse(connection.absFocus(3000));
+        assertEquals(0x555, simulator.getSettings().getFocus());
+    }
+
+    /**
+     * Tests that the head takes time to reach its target.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testMotion() throws InterruptedException {
+        simulator.setPanTiltSpeed(10000);
+        assertTrue(connection.absPanTilt(0x8000 + 2000, 0x8000));
+        assertTrue(simulator.isMoving());
+
+        int pan = connection.getCurrentPanTilt()[0];
+        assertTrue(pan > 0x8000 && pan < 0x8000 + 2000);
+
+        Thread.sleep(250);
+        assertFalse(simulator.isMoving());
+        assertEquals(0x8000 + 2000, connection.getCurrentPanTilt()[0]);
+    }
+
+    /**
+     * Tests that a move with time to spare is made at a lower speed.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testPlannedSpeed() throws Exception {
+        simulator.setPanTiltSpeed(10000);
+        connection.getCurrentCameraSettings();
+
+        CameraSettings target = new CameraSettings(0x8000 + 2000, 0x8000, 0x555, 0x555);
+        assertTrue(connection.applySettingsAsync(target, 1000).get(1, TimeUnit.SECONDS));
+
+        Thread.sleep(400);
+        assertTrue(simulator.isMoving());
+        Thread.sleep(800);
+        assertFalse(simulator.isMoving());
+        assertEquals(target, simulator.getSettings());
+    }
+
+    /**
+     * Tests that a move past the limits of the head arrives at the limit, and
+     * that its focus is ignored while the lens is on auto focus.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testAwaitClampedMove() throws Exception {
+        simulator.setAutoFocus(true);
+        assertTrue(connection.hasAutoFocus());
+        CameraSettings from = connection.getCurrentCameraSettings();
+
+        CameraSettings target = new CameraSettings(LiveCameraConnection.PAN_LIMIT_HIGH + 5000, 0x8000, 0x555, 3000);
+        assertTrue(connection.applySettingsAsync(target).get(1, TimeUnit.SECONDS));
+
+        long start = System.currentTimeMillis();
+        assertTrue(connection.awaitPosition(from, target).get(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < MoveTracker.DEFAULT_TIMEOUT);
+        assertEquals(LiveCameraConnection.PAN_LIMIT_HIGH, simulator.getSettings().getPan());
+    }
+
+    /**
+     * Tests that cameras that are moved together arrive together.
+     * @throws Exception when a simulator cannot be started.
+     */
+    @Test
+    public void testMoveTogether() throws Exception {
+        CameraSimulator other = new CameraSimulator(LiveCameraConnection.CAMERA_MODEL, 1).start();
+        LiveCameraConnection otherConnection = constantSpeedConnection(other.getAddress(), 10000);
+        connection.getHealth().close();
+        connection = constantSpeedConnection(simulator.getAddress(), 10000);
+
+        try {
+            simulator.setPanTiltSpeed(10000);
+            other.setPanTiltSpeed(10000);
+            assertTrue(connection.setUpConnection());
+            assertTrue(otherConnection.setUpConnection());
+            connection.getCurrentCameraSettings();
+            otherConnection.getCurrentCameraSettings();
+
+            Camera far = new Camera();
+            Camera near = new Camera();
+            far.setConnection(connection);
+            near.setConnection(otherConnection);
+
+            Map<Camera, CameraSettings> moves = new HashMap<Camera, CameraSettings>();
+            moves.put(far, new CameraSettings(0x8000 + 8000, 0x8000, 0x555, 0x555));
+            moves.put(near, new CameraSettings(0x8000 + 2000, 0x8000, 0x555, 0x555));
+
+            CompletableFuture<Boolean> together = Camera.moveTogether(moves);
+            CompletableFuture<Long> farArrival = far.whenInPosition().thenApply(ok -> System.currentTimeMillis());
+            CompletableFuture<Long> nearArrival = near.whenInPosition().thenApply(ok -> System.currentTimeMillis());
+
+            assertTrue(together.get(5, TimeUnit.SECONDS));
+            // Every poll takes two requests, so an arrival is seen up to two poll intervals late.
+            long pollInterval = connection.getMoveTracker().getMinPollInterval();
+            assertTrue(Math.abs(farArrival.join() - nearArrival.join()) < 2 * pollInterval);
+        } finally {
+            otherConnection.getHealth().close();
+            other.stop();
+            Camera.clearAllCameras();
+        }
+    }
+
+    /**
+     * Tests that settings stored in a preset memory are recalled with a single request.
+     * @throws Exception when applying the settings fails.
+     */
+    @Test
+    public void testPresetRecall() throws Exception {
+        CameraSettings preset = new CameraSettings(30000, 20000, 2000, 3000);
+        assertTrue(connection.storePreset(3, preset).get(5, TimeUnit.SECONDS));
+        assertTrue(connection.isPresetStored(3, preset));
+
+        assertTrue(connection.applySettingsAsync(new CameraSettings(0x8000, 0x8000, 0x555, 0x555)).get(1, TimeUnit.SECONDS));
+        long requests = simulator.getRequestCount();
+
+        assertTrue(connection.applySettingsAsync(preset).get(1, TimeUnit.SECONDS));
+        assertEquals(requests + 1, simulator.getRequestCount());
+        assertEquals(preset, simulator.getSettings());
+    }
+
+    /**
+     * Tests that the presets of a camera are stored through the executor of
+     * a live connection, which also polls the position of the camera.
+     * @throws Exception when syncing the presets fails.
+     */
+    @Test
+    public void testSyncPresets() throws Exception {
+        simulator.setPanTiltSpeed(20000);
+        CameraSettings preset = new CameraSettings(30000, 20000, 2000, 3000);
+        Camera camera = new Camera();
+        try {
+            camera.setConnection(connection);
+            camera.addPreset(new InstantPreset(preset, 3));
+
+            assertTrue(camera.syncPresets().get(5, TimeUnit.SECONDS));
+            assertTrue(connection.isPresetStored(3, preset));
+        } finally {
+            Camera.clearAllCameras();
+        }
+    }
+
+    /**
+     * Tests that jogging moves the head until it is stopped.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testJog() throws InterruptedException {
+        simulator.setPanTiltSpeed(10000);
+        assertTrue(connection.panTiltStart(99, 50));
+        Thread.sleep(100);
+        assertTrue(connection.panTiltStop());
+
+        int pan = simulator.getSettings().getPan();
+        assertTrue(pan > 0x8000);
+        assertFalse(simulator.isMoving());
+        Thread.sleep(50);
+        assertEquals(pan, simulator.getSettings().getPan());
+    }
+
+    /**
+     * Tests that latency is added to every request.
+     */
+    @Test
+    public void testLatency() {
+        simulator.setLatency(100);
+        simulator.setJitter(20);
+
+        long start = System.currentTimeMillis();
+        connection.getCurrentZoom();
+        long time = System.currentTimeMillis() - start;
+
+        assertTrue(time >= 100);
+    }
+
+    /**
+     * Tests that a stalled reply times out, instead of blocking the caller,
+     * and that a single timeout does not disconnect the camera.
+     */
+    @Test
+    public void testReadTimeout() {
+        connection.setHedgedQueries(false);
+        simulator.stallNextRequests(1, 3000);
+
+        long start = System.currentTimeMillis();
+        assertEquals(0x555, connection.getCurrentZoom());
+        long time = System.currentTimeMillis() - start;
+
+        assertTrue(time < 2 * RoundTripEstimator.MAX_TIMEOUT);
+        assertEquals(1, connection.getHealth().getFailureCount());
+        assertTrue(connection.isConnected());
+    }
+
+    /**
+     * Tests that a query that takes unusually long is sent again,
+     * and that the first answer is used.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testHedgedQuery() throws InterruptedException {
+        for (int i = 0; i < RoundTripEstimator.MIN_SAMPLES; i++) {
+            connection.getCurrentZoom();
+        }
+        Thread.sleep(LiveCameraConnection.MIN_COMMAND_INTERVAL);
+        simulator.stallNextRequests(1, 3000);
+
+        long start = System.currentTimeMillis();
+        assertEquals(0x555, connection.getCurrentZoom());
+        long time = System.currentTimeMillis() - start;
+
+        assertTrue(time < RoundTripEstimator.MIN_TIMEOUT);
+        assertEquals(1, connection.getHedgedCount());
+        assertEquals(0, connection.getHealth().getFailureCount());
+    }
+
+    /**
+     * Tests that injected errors make commands fail.
+     */
+    @Test
+    public void testErrors() {
+        simulator.setErrorRate(1);
+        assertFalse(connection.absZoom(2000));
+
+        simulator.setErrorRate(0);
+        simulator.setDropRate(1);
+        assertFalse(connection.absZoom(2000));
+        assertTrue(simulator.getErrorCount() >= 2);
+    }
+
+    /**
+     * Tests that commands sent too fast are rejected, and that the
+     * rate limiter of the connection prevents this.
+     */
+    @Test
+    public void testMinCommandInterval() {
+        simulator.setMinCommandInterval(LiveCameraConnection.MIN_COMMAND_INTERVAL - 20);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(connection.absZoom(2000 + i));
+        }
+        assertEquals(0, simulator.getErrorCount());
+    }
+
+    /**
+     * Tests that dozens of simulated cameras can be connected to at once.
+     * @throws Exception when a simulator cannot be started.
+     */
+    @Test
+    public void testManyCameras() throws Exception {
+        List<CameraSimulator> simulators = CameraSimulator.startAll(24, LiveCameraConnectionAWHE40.CAMERA_MODEL);
+
+        try {
+            List<String> addresses = new ArrayList<String>();
+            for (CameraSimulator sim : simulators) {
+                sim.setLatency(50);
+                addresses.add(sim.getAddress());
+            }
+
+            Map<String, CompletableFuture<CameraConnection>> result = CameraConnectionFactory.connectAll(addresses);
+            for (CompletableFuture<CameraConnection> future : result.values()) {
+                CameraConnection camera = future.get(5, TimeUnit.SECONDS);
+                assertTrue(camera instanceof LiveCameraConnectionAWHE40);
+                assertTrue(camera.isConnected());
+            }
+        } finally {
+            CameraSimulator.stopAll(simulators);
+            CameraConnectionFactory.clearKnownModels();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to test {@link CameraStateCache} and the way a
+ * {@link CameraConnection} keeps it up to date.
+ *
+ * @since 1.1
+ */
+public class CameraStateCacheTest {
+
+    private CameraStateCache cache;
+
+    /**
+     * Creates an empty cache.
+     */
+    @Before
+    public void setUp() {
+        cache = new CameraStateCache(1000);
+    }
+
+    /**
+     * Tests that an empty cache is stale and not populated.
+     */
+    @Test
+    public void testEmpty() {
+        assertFalse(cache.isPopulated());
+        assertTrue(cache.isStale());
+        assertEquals(new CameraSettings(), cache.get());
+    }
+
+    /**
+     * Tests that a full update populates the cache and makes it fresh,
+     * and that invalidating makes it stale again.
+     */
+    @Test
+    public void testUpdate() {
+        cache.update(new CameraSettings(1, 2, 3, 4));
+        assertTrue(cache.isPopulated());
+        assertFalse(cache.isStale());
+        assertEquals(new CameraSettings(1, 2, 3, 4), cache.get());
+
+        cache.invalidate();
+        assertTrue(cache.isStale());
+        assertEquals(new CameraSettings(1, 2, 3, 4), cache.get());
+    }
+
+    /**
+     * Tests the partial updates used for command acknowledgements.
+     */
+    @Test
+    public void testPartialUpdates() {
+        cache.update(new CameraSettings(1, 2, 3, 4));
+        cache.updatePanTilt(10, 20);
+        cache.updateZoom(30);
+        cache.updateFocus(40);
+        cache.offsetPanTilt(5, -5);
+
+        assertEquals(new CameraSettings(15, 15, 30, 40), cache.get());
+    }
+
+    /**
+     * Tests that the cache hands out copies.
+     */
+    @Test
+    public void testGetReturnsCopy() {
+        CameraSettings settings = cache.get();
+        settings.setPan(100);
+
+        assertNotSame(settings, cache.get());
+        assertEquals(0, cache.get().getPan());
+    }
+
+    /**
+     * Tests that reading stale settings from a connection starts a
+     * refresh, that a refresh while one is running joins it, and that
+     * fresh settings are read without a query.
+     * @throws Exception when the refresh fails.
+     */
+    @Test
+    public void testCachedCameraSettings() throws Exception {
+        StubConnection connection = new StubConnection();
+        connection.hold = new CountDownLatch(1);
+
+        assertEquals(new CameraSettings(), connection.getCachedCameraSettings());
+        CompletableFuture<CameraSettings> refresh = connection.refreshState();
+        connection.hold.countDown();
+        refresh.get(1, TimeUnit.SECONDS);
+        assertEquals(3, connection.queries.get());
+
+        assertEquals(new CameraSettings(32768, 32768, 1365, 1365), connection.getCachedCameraSettings());
+        assertEquals(3, connection.queries.get());
+    }
+
+    /**
+     * Tests that the refresher keeps reading the camera settings.
+     * @throws Exception when waiting is interrupted.
+     */
+    @Test
+    public void testRefresher() throws Exception {
+        StubConnection connection = new StubConnection();
+        connection.startStateRefresher(10);
+        Thread.sleep(200);
+        connection.stopStateRefresher();
+
+        assertTrue(connection.queries.get() > 3);
+        assertTrue(connection.getStateCache().isPopulated());
+    }
+
+    /**
+     * Tests that acknowledged commands update the cache without a query.
+     */
+    @Test
+    public void testAcknowledgements() {
+        StubConnection connection = new StubConnection();
+        connection.getStateCache().update(new CameraSettings(30000, 20000, 1500, 1500));
+
+        assertTrue(connection.absPanTilt(31000, 21000));
+        assertTrue(connection.absZoom(2000));
+        assertTrue(connection.relPanTilt(100, -100));
+
+        assertEquals(new CameraSettings(31100, 20900, 2000, 1500), connection.getCachedCameraSettings());
+        assertEquals(0, connection.queries.get());
+    }
+
+    /**
+     * Live connection that answers its own requests like an AW-HE130,
+     * and counts the queries it receives.
+     */
+    private static class StubConnection extends LiveCameraConnection {
+
+        private final AtomicInteger queries = new AtomicInteger();
+        private volatile CountDownLatch hold = new CountDownLatch(0);
+
+        /**
+         * Creates a connection to an address that is never contacted.
+         */
+        private StubConnection() {
+            super("127.0.0.1:1");
+        }
+
+        @Override
+        protected String sendRequest(URL url) {
+            String cmd = url.getQuery().substring("cmd=".length(), url.getQuery().indexOf('&'));
+
+            if (cmd.startsWith("%23APS")) {
+                return "aPS";
+            } else if (cmd.startsWith("%23AXZ")) {
+                return "axz";
+            } else if (cmd.startsWith("%23RPC")) {
+                return "rPC";
+            }
+
+            queries.incrementAndGet();
+            try {
+                hold.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (cmd.equals("%23APC")) {
+                return "aPC80008000";
+            } else if (cmd.equals("%23GZ")) {
+                return "gz555";
+            } else if (cmd.equals("%23GF")) {
+                return "gf555";
+            }
+            return "";
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package nl.tudelft.contextproject.camera;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import nl.tudelft.contextproject.presets.InstantPreset;
@@ -13,6 +15,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to test the Camera class. Tests the setting up
@@ -289,6 +294,66 @@ public class CameraTest {
         assertEquals(expected, cam.toString());
     }
 
+    /**
+     * Tests that a connection that is replaced stops refreshing its state.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testReplacedConnectionStopsRefreshing() throws InterruptedException {
+        AtomicInteger refreshes = new AtomicInteger();
+        MockedCameraConnection old = new MockedCameraConnection() {
+            @Override
+            public synchronized CompletableFuture<CameraSettings> refreshState() {
+                refreshes.incrementAndGet();
+                return super.refreshState();
+            }
+        };
+        Camera cam = new Camera();
+        cam.setConnection(old);
+        old.startStateRefresher(10);
+        Thread.sleep(50);
+        assertTrue(refreshes.get() > 0);
+
+        cam.setConnection(new MockedCameraConnection());
+        Thread.sleep(20);
+        int stopped = refreshes.get();
+        Thread.sleep(50);
+        assertEquals(stopped, refreshes.get());
+    }
+
+    /**
+     * Tests that setting the settings sends them on the executor of the
+     * connection, and only reports arrival if they were sent.
+     * @throws Exception when the settings are not applied in time.
+     */
+    @Test
+    public void testSetSettingsOnExecutor() throws Exception {
+        CompletableFuture<Thread> applied = new CompletableFuture<Thread>();
+        MockedCameraConnection failing = new MockedCameraConnection() {
+            @Override
+            protected CameraCommandQueue createCommandQueue() {
+                return new CameraCommandQueue(this, getExecutor());
+            }
+
+            @Override
+            public CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings) {
+                return getCommandQueue().applySettings(settings, MovePlanner.URGENT);
+            }
+
+            @Override
+            protected boolean applySettings(CameraSettings settings, long duration) {
+                applied.complete(Thread.currentThread());
+                return false;
+            }
+        };
+        Camera cam = new Camera();
+        cam.setConnection(failing);
+
+        cam.setSettings(new CameraSettings(100, 200, 300, 1400));
+        assertNotEquals(Thread.currentThread(), applied.get(1, TimeUnit.SECONDS));
+        assertFalse(cam.setSettingsAsync(new CameraSettings(1, 2, 3, 4)).get(1, TimeUnit.SECONDS));
+    }
+
     /**
      * Simple test observer used to see if an observer was actually
      * called.
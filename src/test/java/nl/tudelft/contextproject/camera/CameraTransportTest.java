@@ -0,0 +1,243 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to test the keep-alive behaviour of {@link CameraTransport}.
+ * Uses a local HTTP server that answers like an AW-HE130.
+ *
+ * @since 1.1
+ */
+public class CameraTransportTest {
+
+    private HttpServer server;
+    private String address;
+
+    /**
+     * Starts a local HTTP server that answers to the queries sent
+     * when setting up a connection.
+     *
+     * @throws IOException when the server cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = startServer(0);
+        address = "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        CameraTransport.forAddress(address).close();
+        server.stop(0);
+    }
+
+    /**
+     * Tests that consecutive requests reuse the same socket.
+     * @throws IOException when a request fails.
+     */
+    @Test
+    public void testReuse() throws IOException {
+        CameraTransport transport = CameraTransport.forAddress(address);
+        URL url = new URL("http://" + address + "/cgi-bin/aw_cam?cmd=QID&res=1");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("OID:AW-HE130", transport.get(url, 1000));
+        }
+
+        assertEquals(10, transport.getRequestCount());
+        assertEquals(1, transport.getOpenedCount());
+        assertEquals(9, transport.getReuseCount());
+    }
+
+    /**
+     * Tests that the same transport is shared per address.
+     */
+    @Test
+    public void testForAddress() {
+        assertSame(CameraTransport.forAddress(address), CameraTransport.forAddress(address));
+        assertEquals(address, CameraTransport.forAddress(address).getAddress());
+    }
+
+    /**
+     * Tests that an error status results in an IOException and
+     * that the transport can still be used afterwards.
+     * @throws IOException when the second request fails.
+     */
+    @Test
+    public void testErrorStatus() throws IOException {
+        CameraTransport transport = CameraTransport.forAddress(address);
+
+        try {
+            transport.get(new URL("http://" + address + "/cgi-bin/aw_ptz?cmd=XYZ&res=1"), 1000);
+            assertTrue("Expected an IOException", false);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("404"));
+        }
+
+        URL url = new URL("http://" + address + "/cgi-bin/aw_cam?cmd=QID&res=1");
+        assertEquals("OID:AW-HE130", transport.get(url, 1000));
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    /**
+     * Tests that an error status on a reused socket is neither retried nor
+     * closes the socket, which is back in the pool by then.
+     * @throws IOException when a request fails.
+     */
+    @Test
+    public void testErrorStatusOnReusedSocket() throws IOException {
+        CameraTransport transport = CameraTransport.forAddress(address);
+        URL url = new URL("http://" + address + "/cgi-bin/aw_cam?cmd=QID&res=1");
+        assertEquals("OID:AW-HE130", transport.get(url, 1000));
+
+        try {
+            transport.get(new URL("http://" + address + "/cgi-bin/aw_ptz?cmd=XYZ&res=1"), 1000);
+            assertTrue("Expected an IOException", false);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("404"));
+        }
+
+        assertEquals("OID:AW-HE130", transport.get(url, 1000));
+        assertEquals(3, transport.getRequestCount());
+        assertEquals(3, transport.getResponseCount());
+        assertEquals(1, transport.getOpenedCount());
+        assertEquals(2, transport.getReuseCount());
+    }
+
+    /**
+     * Tests that a socket closed by the camera is replaced transparently.
+     * @throws IOException when a request fails.
+     */
+    @Test
+    public void testStaleSocket() throws IOException {
+        CameraTransport transport = CameraTransport.forAddress(address);
+        URL url = new URL("http://" + address + "/cgi-bin/aw_cam?cmd=QID&res=1");
+        assertEquals("OID:AW-HE130", transport.get(url, 1000));
+
+        // Restarting the server drops all kept-alive sockets.
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        server = startServer(port);
+
+        assertEquals("OID:AW-HE130", transport.get(url, 1000));
+        assertEquals(2, transport.getOpenedCount());
+    }
+
+    /**
+     * Tests that a garbage status line results in an IOException naming the
+     * malformed value, and that the socket it was read from is closed.
+     * @throws Exception when the garbage server fails.
+     */
+    @Test
+    public void testGarbageStatusLine() throws Exception {
+        try (ServerSocket garbage = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            String garbageAddress = "127.0.0.1:" + garbage.getLocalPort();
+            CompletableFuture<Integer> closed = CompletableFuture.supplyAsync(() -> {
+                try (Socket socket = garbage.accept()) {
+                    socket.getOutputStream().write(
+                            "HTTP/1.1 abc OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    socket.setSoTimeout(5000);
+                    InputStream in = socket.getInputStream();
+                    // Skip the request until the client closes the socket.
+                    while (true) {
+                        int c = in.read();
+                        if (c == -1) {
+                            return c;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            CameraTransport transport = CameraTransport.forAddress(garbageAddress);
+            try {
+                transport.get(new URL("http://" + garbageAddress + "/cgi-bin/aw_cam?cmd=QID&res=1"), 1000);
+                assertTrue("Expected an IOException", false);
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("abc"));
+            } finally {
+                transport.close();
+            }
+
+            assertEquals(-1, (int) closed.get(5, TimeUnit.SECONDS));
+            assertEquals(1, transport.getOpenedCount());
+        }
+    }
+
+    /**
+     * Tests that a LiveCameraConnection sends all requests of its set up
+     * over one socket of the shared transport of its address.
+     */
+    @Test
+    public void testLiveCameraConnection() {
+        LiveCameraConnection connection = new LiveCameraConnection(address);
+        assertSame(CameraTransport.forAddress(address), connection.getTransport());
+        assertSame(connection.getTransport(), new LiveCameraConnectionAWHE40(address).getTransport());
+
+        assertTrue(connection.setUpConnection());
+        assertEquals(new CameraSettings(32768, 32768, 1365, 1365), connection.getLastKnownSettings());
+
+        CameraTransport transport = connection.getTransport();
+        assertEquals(1, transport.getOpenedCount());
+        assertEquals(transport.getRequestCount() - 1, transport.getReuseCount());
+    }
+
+    /**
+     * Starts a local HTTP server that answers like an AW-HE130.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @return The started server.
+     * @throws IOException when the server cannot be started.
+     */
+    private static HttpServer startServer(int port) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        httpServer.createContext("/cgi-bin/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String body = "not found";
+            int status = 200;
+
+            if (query.contains("cmd=QID")) {
+                body = "OID:AW-HE130";
+            } else if (query.contains("cmd=#APC")) {
+                body = "aPC80008000";
+            } else if (query.contains("cmd=#GZ")) {
+                body = "gz555";
+            } else if (query.contains("cmd=#GF")) {
+                body = "gf555";
+            } else if (query.contains("cmd=#D1")) {
+                body = "d11";
+            } else {
+                status = 404;
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        httpServer.start();
+        return httpServer;
+    }
+}
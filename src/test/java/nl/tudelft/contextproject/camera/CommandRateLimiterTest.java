@@ -0,0 +1,95 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to test {@link CommandRateLimiter}.
+ *
+ * @since 1.1
+ */
+public class CommandRateLimiterTest {
+
+    /**
+     * Tests that the first command is not throttled and the following
+     * commands are spaced at least one interval apart.
+     */
+    @Test
+    public void testAcquireSpacing() {
+        CommandRateLimiter limiter = new CommandRateLimiter(50);
+
+        long start = System.nanoTime();
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(40));
+
+        limiter.acquire();
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(2, limiter.getThrottledCount());
+        assertTrue(limiter.getWaitedTime() >= 50);
+    }
+
+    /**
+     * Tests that tryAcquire only takes a token when one is available.
+     * @throws InterruptedException when the test is interrupted.
+     */
+    @Test
+    public void testTryAcquire() throws InterruptedException {
+        CommandRateLimiter limiter = new CommandRateLimiter(50);
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(0, limiter.getThrottledCount());
+    }
+
+    /**
+     * Tests that a burst of tokens can be taken at once.
+     */
+    @Test
+    public void testBurst() {
+        CommandRateLimiter limiter = new CommandRateLimiter(1000, 3);
+
+        assertEquals(3, limiter.getBurst());
+        assertEquals(1000, limiter.getInterval());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    /**
+     * Tests that commands from several threads are spaced as well.
+     * @throws Exception when a command fails.
+     */
+    @Test
+    public void testConcurrentAcquire() throws Exception {
+        CommandRateLimiter limiter = new CommandRateLimiter(30);
+
+        long start = System.nanoTime();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(limiter::acquire);
+        }
+        CompletableFuture.allOf(futures).get(1, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+        assertEquals(3, limiter.getThrottledCount());
+    }
+
+    /**
+     * Tests that invalid arguments are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBurst() {
+        new CommandRateLimiter(100, 0);
+    }
+}
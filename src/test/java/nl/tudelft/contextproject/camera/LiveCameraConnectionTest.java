@@ -7,6 +7,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.spy;
@@ -20,6 +21,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to test LiveCameraConnection. It will first check if it
@@ -411,6 +413,55 @@ public class LiveCameraConnectionTest {
         Camera.clearAllCameras();
     }
     
+    /**
+     * Tests update method:
+     * The settings are compared with the last known settings, so only
+     * the changed zoom value is sent and the camera is not queried.
+     * 
+     * <p>Uses @SuppressWarnings to suppress the PMD warning, because this
+     * test uses Mockito's verify method.
+     */
+    @Test
+    @SuppressWarnings("PMD.JUnitTestsShouldIncludeAssert")
+    public void testUpdateDiffsLastKnown() {
+        Camera c = new Camera();
+        connection.setLastKnownSettings(new CameraSettings(32768, 32768, 1365, 1365));
+        doReturn(true).when(connection).absZoom(1500);
+        connection.update(c, new CameraSettings(32768, 32768, 1500, 1365));
+        verify(connection).absZoom(1500);
+        verify(connection, never()).absPanTilt(anyInt(), anyInt());
+        verify(connection, never()).absFocus(anyInt());
+        verify(connection, times(1)).getCurrentCameraSettings();
+        verify(connection, times(1)).hasAutoFocus();
+        Camera.clearAllCameras();
+    }
+
+    /**
+     * Tests that a move is verified by reading the position back, and
+     * that a move that did not arrive is sent again on the next update.
+     * @throws Exception See {@link PowerMockito#when(Object, String, Object...)}
+     */
+    @Test
+    public void testMoveVerification() throws Exception {
+        if (testLive) {
+            return;
+        }
+
+        Camera c = new Camera();
+        URL zoomURL = connection.buildPanTiltHeadControlURL("%23AXZ5DC");
+        URL getZoomURL = connection.buildPanTiltHeadControlURL("%23GZ");
+        doReturn("axz5DC").when(connection, "sendRequest", zoomURL);
+        connection.setMoveVerification(0);
+
+        connection.update(c, new CameraSettings(32768, 32768, 1500, -1));
+        assertFalse(connection.getLastVerification().get(1, TimeUnit.SECONDS));
+
+        doReturn("gz5DC").when(connection, "sendRequest", getZoomURL);
+        connection.update(c, new CameraSettings(32768, 32768, 1500, -1));
+        assertTrue(connection.getLastVerification().get(1, TimeUnit.SECONDS));
+        Camera.clearAllCameras();
+    }
+
     /**
      * Method to assert that the actual value is within {@link #MAX_MOV_OFFSET}
      * from the expected value.
@@ -1,13 +1,19 @@
 package nl.tudelft.contextproject.camera;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import nl.tudelft.contextproject.presets.InstantPreset;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to test the behavior of a mocked camera connection.
@@ -218,4 +224,146 @@ public class MockedCameraConnectionTest {
         assertEquals(mockedCam.getCurrentCameraSettings(), camSet2);
         Arrays.equals(panTilt, mockedCam.getCurrentPanTilt());
     }
+
+    /**
+     * Tests that a camera with a motion model takes time to reach
+     * its settings, and completes the future when it arrives.
+     * @throws Exception when waiting for the camera fails.
+     */
+    @Test
+    public void testMotionModel() throws Exception {
+        mockedCam.setMotionModel(new CameraMotionModel(0, 1000, 1000, 1000, 0));
+        CameraSettings target = new CameraSettings(330, 30, 30, 1365);
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Boolean> arrived = mockedCam.applySettingsAsync(target);
+        assertTrue(mockedCam.isMoving());
+        assertFalse(arrived.isDone());
+
+        assertTrue(arrived.get(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 250);
+        assertEquals(target, mockedCam.getCurrentCameraSettings());
+    }
+
+    /**
+     * Tests that panning and tilting moves the camera until it is stopped.
+     * @throws InterruptedException when waiting is interrupted.
+     */
+    @Test
+    public void testPanTiltStart() throws InterruptedException {
+        assertTrue(mockedCam.panTiltStart(99, 1));
+        Thread.sleep(100);
+        assertTrue(mockedCam.panTiltStop());
+
+        int[] panTilt = mockedCam.getCurrentPanTilt();
+        assertTrue(panTilt[0] > 30);
+        assertTrue(panTilt[1] < 30);
+
+        Thread.sleep(3 * MockedCameraConnection.STEP_INTERVAL);
+        assertFalse(mockedCam.isMoving());
+        assertTrue(Arrays.equals(panTilt, mockedCam.getCurrentPanTilt()));
+    }
+
+    /**
+     * Tests that a camera is not in position until it has arrived.
+     * @throws Exception when waiting for the camera fails.
+     */
+    @Test
+    public void testInPosition() throws Exception {
+        mockedCam.setMotionModel(new CameraMotionModel(0, 1000, 1000, 1000, 0));
+        cam1.setConnection(mockedCam);
+        assertTrue(cam1.isInPosition());
+
+        CompletableFuture<Boolean> arrived = cam1.absPanTiltAsync(330, 30);
+        assertFalse(cam1.isInPosition());
+
+        assertTrue(arrived.get(2, TimeUnit.SECONDS));
+        assertTrue(cam1.isInPosition());
+        assertEquals(new CameraSettings(330, 30, 30, 1365), mockedCam.getCurrentCameraSettings());
+    }
+
+    /**
+     * Tests that the presets of a camera are stored in its preset memories,
+     * and that the camera is moved back afterwards.
+     * @throws Exception when syncing the presets fails.
+     */
+    @Test
+    public void testSyncPresets() throws Exception {
+        CameraSettings stored = new CameraSettings(100, 200, 300, 1400);
+        cam1.setConnection(mockedCam);
+        cam1.addPreset(new InstantPreset(stored, 2));
+        cam1.addPreset(new InstantPreset(new CameraSettings(1, 2, 3, 4), 100));
+
+        assertTrue(cam1.syncPresets().get(1, TimeUnit.SECONDS));
+        assertTrue(mockedCam.isPresetStored(2, stored));
+        assertFalse(mockedCam.isPresetStored(100, new CameraSettings(1, 2, 3, 4)));
+        assertEquals(cam1.getSettings(), mockedCam.getCurrentCameraSettings());
+
+        assertTrue(mockedCam.recallStoredPreset(stored));
+        assertEquals(stored, mockedCam.getCurrentCameraSettings());
+    }
+
+    /**
+     * Tests that a connection that was told which presets its camera stores
+     * does not store them again, so no camera is moved after a restart.
+     * @throws Exception when syncing the presets fails.
+     */
+    @Test
+    public void testSyncRestoredPresets() throws Exception {
+        CameraSettings stored = new CameraSettings(100, 200, 300, 1400);
+        cam1.setConnection(mockedCam);
+        cam1.addPreset(new InstantPreset(stored, 2));
+        assertTrue(cam1.syncPresets().get(1, TimeUnit.SECONDS));
+
+        AtomicInteger saved = new AtomicInteger();
+        MockedCameraConnection restarted = new MockedCameraConnection() {
+            @Override
+            protected synchronized boolean savePresetSlot(int slot) {
+                saved.incrementAndGet();
+                return super.savePresetSlot(slot);
+            }
+        };
+        restarted.setStoredPresets(mockedCam.getStoredPresets());
+        cam1.setConnection(restarted);
+
+        assertTrue(restarted.isPresetStored(2, stored));
+        assertTrue(cam1.syncPresets().get(1, TimeUnit.SECONDS));
+        assertEquals(0, saved.get());
+
+        cam1.addPreset(new InstantPreset(new CameraSettings(1, 2, 3, 4), 3));
+        assertTrue(cam1.syncPresets().get(1, TimeUnit.SECONDS));
+        assertEquals(1, saved.get());
+    }
+
+    /**
+     * Tests that a move of a camera with a motion model takes time, also
+     * when the camera reads the settings of its connection.
+     * @throws Exception when the move fails.
+     */
+    @Test
+    public void testMoveInProgress() throws Exception {
+        mockedCam.setMotionModel(new CameraMotionModel(0, 1000, 1000, 1000, 0));
+        cam1.setConnection(mockedCam);
+
+        CompletableFuture<Boolean> arrived = cam1.absPanTiltAsync(330, 30);
+        assertTrue(mockedCam.isMoving());
+        assertFalse(arrived.isDone());
+        assertTrue(mockedCam.getCurrentCameraSettings().getPan() < 330);
+
+        assertTrue(arrived.get(2, TimeUnit.SECONDS));
+        assertFalse(mockedCam.isMoving());
+        assertEquals(330, mockedCam.getCurrentCameraSettings().getPan());
+    }
+
+    /**
+     * Tests that changing the returned settings does not move the camera.
+     */
+    @Test
+    public void testSettingsCopied() {
+        CameraSettings settings = mockedCam.getCurrentCameraSettings();
+        settings.setPan(1000);
+        mockedCam.getCachedCameraSettings().setTilt(1000);
+
+        assertEquals(new CameraSettings(30, 30, 30, 1365), mockedCam.getCurrentCameraSettings());
+    }
 }
@@ -0,0 +1,51 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Class to test {@link MovePlanner}.
+ *
+ * @since 1.1
+ */
+public class MovePlannerTest {
+
+    private static final CameraSettings FROM = new CameraSettings(0x8000, 0x5000, 1365, 1365);
+
+    private final MovePlanner planner = new MovePlanner(new CameraMotionModel(0, 10000, 1365, 1365, 0));
+
+    /**
+     * Tests that urgent moves and moves without time to spare use full speed.
+     */
+    @Test
+    public void testFullSpeed() {
+        assertEquals(AwProtocolCodec.MAX_PAN_TILT_SPEED, planner.planSpeed(FROM, 0x8000 + 2900, 0x5000, MovePlanner.URGENT));
+        assertEquals(AwProtocolCodec.MAX_PAN_TILT_SPEED, planner.planSpeed(FROM, 0x8000 + 2900, 0x5000, 100));
+    }
+
+    /**
+     * Tests that a move with time to spare gets the slowest speed that arrives in time.
+     */
+    @Test
+    public void testJustInTime() {
+        assertEquals(290, planner.fastestTime(FROM, 0x8000 + 2900, 0x5000 - 1000));
+
+        int speed = planner.planSpeed(FROM, 0x8000 + 2900, 0x5000, 1000);
+        assertTrue(speed < AwProtocolCodec.MAX_PAN_TILT_SPEED);
+        assertTrue(planner.travelTime(FROM, 0x8000 + 2900, 0x5000, speed) <= 1000);
+        assertTrue(planner.travelTime(FROM, 0x8000 + 2900, 0x5000, speed - 1) > 1000);
+    }
+
+    /**
+     * Tests that moves are planned within the pan and tilt limits.
+     */
+    @Test
+    public void testLimits() {
+        assertEquals(planner.fastestTime(FROM, LiveCameraConnection.PAN_LIMIT_HIGH, 0x5000),
+                planner.fastestTime(FROM, 0xFFFF, 0x5000));
+        assertEquals(planner.fastestTime(FROM, 0x8000, LiveCameraConnection.TILT_LIMIT_LOW),
+                planner.fastestTime(FROM, 0x8000, 0));
+    }
+}
@@ -0,0 +1,169 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Class to test {@link MoveTracker}.
+ *
+ * @since 1.1
+ */
+public class MoveTrackerTest {
+
+    private static final CameraSettings START = new CameraSettings(0, 0, 1365, 1365);
+    private static final CameraSettings TARGET = new CameraSettings(1000, 0, 1365, 1365);
+
+    private final CameraMotionModel motion = new CameraMotionModel(0, 5000, 1000, 1000, 0);
+    private final AtomicReference<CameraSettings> position = new AtomicReference<CameraSettings>(START);
+    private final AtomicInteger polls = new AtomicInteger();
+
+    /**
+     * Polls the simulated position.
+     * @return A future with the current position.
+     */
+    private CompletableFuture<CameraSettings> poll() {
+        polls.incrementAndGet();
+        return CompletableFuture.completedFuture(position.get());
+    }
+
+    /**
+     * Tests that a move completes once the polled position reaches the target.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testArrival() throws Exception {
+        MoveTracker tracker = new MoveTracker(this::poll, motion);
+        CompletableFuture<Boolean> arrived = tracker.track(START, TARGET);
+
+        Thread.sleep(300);
+        assertFalse(arrived.isDone());
+        assertFalse(tracker.isInPosition());
+
+        position.set(new CameraSettings(1010, 0, 1365, 1365));
+        assertTrue(arrived.get(1, TimeUnit.SECONDS));
+        assertTrue(tracker.isInPosition());
+    }
+
+    /**
+     * Tests that the camera is polled less often while it is far from its target.
+     * @throws Exception when waiting fails.
+     */
+    @Test
+    public void testAdaptivePolling() throws Exception {
+        CameraSettings far = new CameraSettings(50000, 0, 1365, 1365);
+        MoveTracker tracker = new MoveTracker(this::poll, motion);
+        tracker.track(START, far);
+
+        Thread.sleep(600);
+        int farPolls = polls.getAndSet(0);
+
+        position.set(new CameraSettings(49900, 0, 1365, 1365));
+        Thread.sleep(600);
+        assertTrue(polls.get() > farPolls);
+    }
+
+    /**
+     * Tests that the estimated travel time is used when the position cannot be read.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testEstimate() throws Exception {
+        CompletableFuture<CameraSettings> failed = new CompletableFuture<CameraSettings>();
+        failed.completeExceptionally(new IllegalStateException());
+        MoveTracker tracker = new MoveTracker(() -> failed, motion);
+
+        assertEquals(200, tracker.estimate(START, TARGET));
+
+        long start = System.currentTimeMillis();
+        assertTrue(tracker.track(START, TARGET).get(1, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+    /**
+     * Tests that a move that does not arrive in time completes with false.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        MoveTracker tracker = new MoveTracker(this::poll, motion, MoveTracker.DEFAULT_TOLERANCE, 100);
+
+        assertFalse(tracker.track(START, TARGET).get(2, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a superseded move completes together with the newer move.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testSuperseded() throws Exception {
+        MoveTracker tracker = new MoveTracker(this::poll, motion);
+        CompletableFuture<Boolean> first = tracker.track(START, TARGET);
+        CompletableFuture<Boolean> second = tracker.track(START, START);
+
+        assertTrue(second.get(1, TimeUnit.SECONDS));
+        assertTrue(first.get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that a move of a camera on auto focus arrives whatever its focus is.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testAutoFocus() throws Exception {
+        MoveTracker tracker = new MoveTracker(this::poll, motion, MoveTracker.DEFAULT_TOLERANCE, 100);
+        position.set(new CameraSettings(1000, 0, 1365, 2000));
+
+        assertFalse(tracker.track(START, TARGET).get(2, TimeUnit.SECONDS));
+        assertTrue(tracker.track(START, TARGET, false, MovePlanner.URGENT).get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that the camera is not polled more often than the minimum poll interval.
+     * @throws Exception when waiting fails.
+     */
+    @Test
+    public void testMinPollInterval() throws Exception {
+        CameraSettings far = new CameraSettings(50000, 0, 1365, 1365);
+        MoveTracker tracker = new MoveTracker(this::poll, motion, MoveTracker.DEFAULT_TOLERANCE,
+                MoveTracker.DEFAULT_TIMEOUT, 300);
+        assertEquals(300, tracker.getMinPollInterval());
+
+        position.set(new CameraSettings(49900, 0, 1365, 1365));
+        tracker.track(START, far);
+
+        Thread.sleep(700);
+        assertTrue(polls.get() <= 2);
+    }
+
+    /**
+     * Tests that a move planned to take longer than at full speed is given its
+     * planned duration, both when it is polled and when it cannot be polled.
+     * @throws Exception when waiting for the move fails.
+     */
+    @Test
+    public void testPlannedDuration() throws Exception {
+        MoveTracker tracker = new MoveTracker(this::poll, motion, MoveTracker.DEFAULT_TOLERANCE, 100);
+        CompletableFuture<Boolean> arrived = tracker.track(START, TARGET, true, 800);
+
+        Thread.sleep(500);
+        assertFalse(arrived.isDone());
+        position.set(TARGET);
+        assertTrue(arrived.get(1, TimeUnit.SECONDS));
+
+        CompletableFuture<CameraSettings> failed = new CompletableFuture<CameraSettings>();
+        failed.completeExceptionally(new IllegalStateException());
+        MoveTracker blind = new MoveTracker(() -> failed, motion);
+
+        long start = System.currentTimeMillis();
+        assertTrue(blind.track(START, TARGET, true, 600).get(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 600);
+    }
+}
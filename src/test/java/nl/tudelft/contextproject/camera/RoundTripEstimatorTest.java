@@ -0,0 +1,87 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class to test {@link RoundTripEstimator}.
+ *
+ * @since 1.1
+ */
+public class RoundTripEstimatorTest {
+
+    private RoundTripEstimator estimator;
+
+    @Before
+    public void setUp() {
+        estimator = new RoundTripEstimator();
+    }
+
+    /**
+     * Tests that the default timeout is used until enough requests are measured.
+     */
+    @Test
+    public void testDefault() {
+        for (int i = 1; i < RoundTripEstimator.MIN_SAMPLES; i++) {
+            estimator.record(10);
+        }
+
+        assertEquals(RoundTripEstimator.DEFAULT_TIMEOUT, estimator.getTimeout());
+        assertEquals(-1, estimator.getPercentile(0.95));
+    }
+
+    /**
+     * Tests that the timeout follows the round trip times, within its bounds.
+     */
+    @Test
+    public void testTimeout() {
+        for (int i = 0; i < 20; i++) {
+            estimator.record(10);
+        }
+        assertEquals(RoundTripEstimator.MIN_TIMEOUT, estimator.getTimeout());
+
+        for (int i = 0; i < 50; i++) {
+            estimator.record(i % 2 == 0 ? 100 : 200);
+        }
+        long timeout = estimator.getTimeout();
+        assertEquals(true, timeout > 300 && timeout < 600);
+
+        for (int i = 0; i < 50; i++) {
+            estimator.record(5000);
+        }
+        assertEquals(RoundTripEstimator.MAX_TIMEOUT, estimator.getTimeout());
+    }
+
+    /**
+     * Tests that timeouts back off until a request succeeds again.
+     */
+    @Test
+    public void testBackoff() {
+        for (int i = 0; i < 20; i++) {
+            estimator.record(100);
+        }
+        long timeout = estimator.getTimeout();
+
+        estimator.recordTimeout();
+        assertEquals(Math.min(RoundTripEstimator.MAX_TIMEOUT, 2 * timeout), estimator.getTimeout(), 1);
+
+        estimator.record(100);
+        assertEquals(timeout, estimator.getTimeout(), 1);
+    }
+
+    /**
+     * Tests that percentiles are read from the most recent round trip times.
+     */
+    @Test
+    public void testPercentile() {
+        for (int i = 1; i <= 100; i++) {
+            estimator.record(i);
+        }
+
+        assertEquals(97, estimator.getPercentile(0.95));
+        assertEquals(37, estimator.getPercentile(0));
+        assertEquals(100, estimator.getPercentile(1));
+    }
+}
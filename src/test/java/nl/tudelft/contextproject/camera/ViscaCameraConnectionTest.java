@@ -0,0 +1,175 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class to test {@link ViscaCameraConnection}, by talking to a {@link ViscaSimulator}.
+ *
+ * @since 1.1
+ */
+public class ViscaCameraConnectionTest {
+
+    private ViscaSimulator simulator;
+    private ViscaCameraConnection connection;
+
+    /**
+     * Starts a simulated VISCA camera and connects to it.
+     * @throws IOException when the simulator cannot be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        simulator = new ViscaSimulator().start();
+        connection = new ViscaCameraConnection(simulator.getAddress());
+        assertTrue(connection.setUpConnection());
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+        simulator.stop();
+    }
+
+    /**
+     * Tests that the initial state is read and scaled to the range of the AW series.
+     */
+    @Test
+    public void testQueries() {
+        CameraSettings settings = connection.getCurrentCameraSettings();
+
+        assertEquals(0x8000, settings.getPan(), 5);
+        assertEquals(LiveCameraConnection.ZOOM_LIMIT_LOW, settings.getZoom());
+        assertEquals(LiveCameraConnection.FOCUS_LIMIT_LOW, settings.getFocus());
+        assertFalse(connection.hasAutoFocus());
+
+        simulator.setAutoFocus(true);
+        assertTrue(connection.hasAutoFocus());
+    }
+
+    /**
+     * Tests that absolute and relative moves are executed.
+     */
+    @Test
+    public void testMoves() {
+        assertTrue(connection.absPanTilt(LiveCameraConnection.PAN_LIMIT_HIGH, LiveCameraConnection.TILT_LIMIT_LOW));
+        assertEquals(ViscaCameraConnection.VISCA_PAN_HIGH, simulator.getPan());
+        assertEquals(ViscaCameraConnection.VISCA_TILT_LOW, simulator.getTilt());
+
+        assertTrue(connection.relPanTilt(-10000, 0));
+        assertTrue(connection.absZoom(LiveCameraConnection.ZOOM_LIMIT_HIGH));
+        assertEquals(ViscaCameraConnection.VISCA_ZOOM_HIGH, simulator.getZoom());
+
+        int[] panTilt = connection.getCurrentPanTilt();
+        assertEquals(LiveCameraConnection.PAN_LIMIT_HIGH - 10000, panTilt[0], 5);
+        assertEquals(LiveCameraConnection.TILT_LIMIT_LOW, panTilt[1], 5);
+    }
+
+    /**
+     * Tests that the factory connects over VISCA to an address with the
+     * VISCA prefix, and never probes or caches it as an HTTP camera.
+     */
+    @Test
+    public void testFactory() {
+        String address = CameraConnectionFactory.VISCA_PREFIX + simulator.getAddress();
+        CameraConnection factoryConnection = CameraConnectionFactory.connect(address);
+
+        assertTrue(factoryConnection instanceof ViscaCameraConnection);
+        assertTrue(factoryConnection.isConnected());
+        assertNull(CameraConnectionFactory.getKnownModel(address));
+        factoryConnection.close();
+
+        assertNull(CameraConnectionFactory.connect(CameraConnectionFactory.VISCA_PREFIX + "127.0.0.1:port"));
+    }
+
+    /**
+     * Tests that an error reply makes a command fail.
+     */
+    @Test
+    public void testError() {
+        simulator.setAutoFocus(true);
+        assertFalse(connection.absFocus(3000));
+        assertEquals(ViscaCameraConnection.VISCA_FOCUS_LOW, simulator.getFocus());
+    }
+
+    /**
+     * Tests that jogging drives the head in the right direction.
+     */
+    @Test
+    public void testJog() {
+        assertTrue(connection.panTiltStart(99, 1));
+        assertEquals(ViscaCodec.DRIVE_HIGH, simulator.getPanDirection());
+        assertEquals(ViscaCodec.DRIVE_HIGH, simulator.getTiltDirection());
+
+        assertTrue(connection.panTiltStop());
+        assertEquals(ViscaCodec.DRIVE_STOP, simulator.getPanDirection());
+    }
+
+    /**
+     * Tests that lost packets are sent again.
+     */
+    @Test
+    public void testRetransmit() {
+        simulator.dropNextPackets(2);
+
+        assertTrue(connection.absZoom(2000));
+        assertEquals(2, connection.getTransport().getRetransmitCount());
+    }
+
+    /**
+     * Tests that a command whose reply was lost is sent again, but executed once.
+     */
+    @Test
+    public void testLostReply() {
+        long executed = simulator.getExecutedCount();
+        simulator.dropNextReplies(1);
+
+        assertTrue(connection.relPanTilt(1000, 0));
+        assertEquals(executed + 1, simulator.getExecutedCount());
+        assertEquals(0x8000 + 1000, connection.getCurrentPanTilt()[0], 10);
+    }
+
+    /**
+     * Tests that a camera that does not answer makes commands fail, and
+     * that it is only disconnected once its circuit opens.
+     */
+    @Test
+    public void testTimeout() {
+        simulator.dropNextPackets(ViscaTransport.MAX_RETRANSMITS + 1);
+
+        assertFalse(connection.absZoom(2000));
+        assertTrue(connection.isConnected());
+        assertEquals(1, connection.getHealth().getFailureCount());
+
+        int threshold = connection.getHealth().getFailureThreshold();
+        simulator.dropNextPackets((threshold - 1) * (ViscaTransport.MAX_RETRANSMITS + 1));
+        for (int i = 1; i < threshold; i++) {
+            assertFalse(connection.absZoom(2000));
+        }
+        assertFalse(connection.isConnected());
+    }
+
+    /**
+     * Tests that settings stored in a preset memory are recalled with a single command.
+     * @throws Exception when applying the settings fails.
+     */
+    @Test
+    public void testPresetRecall() throws Exception {
+        CameraSettings preset = new CameraSettings(30000, 20000, 2000, 3000);
+        assertTrue(connection.storePreset(3, preset).get(5, TimeUnit.SECONDS));
+        assertTrue(connection.applySettingsAsync(new CameraSettings(0x8000, 0x8000, 0x555, 0x555)).get(1, TimeUnit.SECONDS));
+
+        long requests = connection.getTransport().getRequestCount();
+        assertTrue(connection.applySettingsAsync(preset).get(1, TimeUnit.SECONDS));
+        assertEquals(requests + 1, connection.getTransport().getRequestCount());
+        assertEquals(30000, connection.getCurrentPanTilt()[0], 5);
+    }
+}
@@ -0,0 +1,74 @@
+package nl.tudelft.contextproject.camera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Class to test {@link ViscaCodec}.
+ *
+ * @since 1.1
+ */
+public class ViscaCodecTest {
+
+    /**
+     * Tests that packets are wrapped in and read from the VISCA over IP header.
+     */
+    @Test
+    public void testPacket() {
+        byte[] packet = ViscaCodec.packet(ViscaCodec.TYPE_INQUIRY, 0x01020304, ViscaCodec.zoomInquiry());
+
+        assertArrayEquals(bytes(0x01, 0x10, 0x00, 0x05, 0x01, 0x02, 0x03, 0x04, 0x81, 0x09, 0x04, 0x47, 0xFF), packet);
+        assertEquals(ViscaCodec.TYPE_INQUIRY, ViscaCodec.type(packet));
+        assertEquals(0x01020304, ViscaCodec.sequence(packet));
+        assertArrayEquals(ViscaCodec.zoomInquiry(), ViscaCodec.payload(packet, packet.length));
+        assertEquals(0, ViscaCodec.payload(packet, packet.length - 1).length);
+    }
+
+    /**
+     * Tests that positions are encoded in nibbles, with negative pan and tilt values.
+     */
+    @Test
+    public void testCommands() {
+        assertArrayEquals(bytes(0x81, 0x01, 0x06, 0x02, 0x18, 0x14,
+                0x0F, 0x0F, 0x0F, 0x0E, 0x00, 0x01, 0x02, 0x03, 0xFF),
+                ViscaCodec.absPanTilt(ViscaCodec.MAX_PAN_SPEED, ViscaCodec.MAX_TILT_SPEED, -2, 0x123));
+        assertArrayEquals(bytes(0x81, 0x01, 0x04, 0x47, 0x04, 0x00, 0x00, 0x00, 0xFF), ViscaCodec.absZoom(0x4000));
+        assertArrayEquals(bytes(0x81, 0x01, 0x06, 0x01, 0x05, 0x06, 0x01, 0x03, 0xFF),
+                ViscaCodec.panTiltDrive(5, 6, ViscaCodec.DRIVE_LOW, ViscaCodec.DRIVE_STOP));
+        assertArrayEquals(bytes(0x81, 0x01, 0x04, 0x3F, 0x02, 0x07, 0xFF), ViscaCodec.memoryRecall(7));
+    }
+
+    /**
+     * Tests that replies are recognized and their data is decoded.
+     */
+    @Test
+    public void testReplies() {
+        byte[] completion = ViscaCodec.completion(bytes(0x0F, 0x0F, 0x0F, 0x0E));
+
+        assertTrue(ViscaCodec.isAck(ViscaCodec.ack()));
+        assertFalse(ViscaCodec.isCompletion(ViscaCodec.ack()));
+        assertTrue(ViscaCodec.isCompletion(completion));
+        assertTrue(ViscaCodec.isError(ViscaCodec.error(0x41)));
+        assertEquals(-2, (short) ViscaCodec.getNibbles(completion, 2, 4));
+        assertEquals(-1, ViscaCodec.getNibbles(completion, 4, 4));
+    }
+
+    /**
+     * Converts integers to bytes.
+     *
+     * @param values The values of the bytes.
+     * @return The bytes.
+     */
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,299 @@
+package nl.tudelft.contextproject.camera;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class to simulate a camera that speaks VISCA over IP on a local UDP port.
+ * It answers the packets a {@link ViscaCameraConnection} sends like a real
+ * camera does: a command is acknowledged and completed, an inquiry is
+ * completed with its data, and a packet with the sequence number of the
+ * last executed packet is answered again without executing it twice.
+ *
+ * <p>The head moves instantly. Received packets and replies can be
+ * dropped, to test retransmission.
+ *
+ * @since 1.1
+ */
+public class ViscaSimulator {
+
+    private final AtomicLong packets = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicInteger dropPackets = new AtomicInteger();
+    private final AtomicInteger dropReplies = new AtomicInteger();
+
+    private final int[] presetPan = new int[ViscaCameraConnection.PRESET_SLOTS];
+    private final int[] presetTilt = new int[ViscaCameraConnection.PRESET_SLOTS];
+    private final int[] presetZoom = new int[ViscaCameraConnection.PRESET_SLOTS];
+    private final int[] presetFocus = new int[ViscaCameraConnection.PRESET_SLOTS];
+
+    private DatagramSocket socket;
+    private Thread thread;
+
+    private volatile int pan;
+    private volatile int tilt;
+    private volatile int zoom;
+    private volatile int focus = ViscaCameraConnection.VISCA_FOCUS_LOW;
+    private volatile int panDirection = ViscaCodec.DRIVE_STOP;
+    private volatile int tiltDirection = ViscaCodec.DRIVE_STOP;
+    private volatile boolean autoFocus;
+
+    private int lastSequence = -1;
+    private List<byte[]> lastReplies = new ArrayList<byte[]>();
+
+    /**
+     * Starts listening on a free local port.
+     *
+     * @return This simulator.
+     * @throws IOException when the socket cannot be opened.
+     */
+    public ViscaSimulator start() throws IOException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::run, "VISCA simulator");
+        thread.setDaemon(true);
+        thread.start();
+
+        return this;
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    public void stop() {
+        socket.close();
+    }
+
+    /**
+     * Returns the address to connect to.
+     * @return The address, including the port.
+     */
+    public String getAddress() {
+        return "127.0.0.1:" + socket.getLocalPort();
+    }
+
+    /**
+     * Drops the next received packets, as if they were lost.
+     * @param count The amount of packets to drop.
+     */
+    public void dropNextPackets(int count) {
+        dropPackets.set(count);
+    }
+
+    /**
+     * Drops the replies to the next received packets, after executing them.
+     * @param count The amount of packets whose replies are dropped.
+     */
+    public void dropNextReplies(int count) {
+        dropReplies.set(count);
+    }
+
+    /**
+     * Returns the amount of packets that were received, including dropped ones.
+     * @return The amount of packets.
+     */
+    public long getPacketCount() {
+        return packets.get();
+    }
+
+    /**
+     * Returns the amount of commands and inquiries that were executed.
+     * @return The amount of executed packets.
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * Returns the VISCA pan position.
+     * @return The signed pan position.
+     */
+    public int getPan() {
+        return pan;
+    }
+
+    /**
+     * Returns the VISCA tilt position.
+     * @return The signed tilt position.
+     */
+    public int getTilt() {
+        return tilt;
+    }
+
+    /**
+     * Returns the VISCA zoom position.
+     * @return The zoom position.
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Returns the VISCA focus position.
+     * @return The focus position.
+     */
+    public int getFocus() {
+        return focus;
+    }
+
+    /**
+     * Returns the direction the head is panning in.
+     * @return The pan drive direction.
+     */
+    public int getPanDirection() {
+        return panDirection;
+    }
+
+    /**
+     * Returns the direction the head is tilting in.
+     * @return The tilt drive direction.
+     */
+    public int getTiltDirection() {
+        return tiltDirection;
+    }
+
+    /**
+     * Sets whether the lens is on auto focus.
+     * @param autoFocus True for auto focus.
+     */
+    public void setAutoFocus(boolean autoFocus) {
+        this.autoFocus = autoFocus;
+    }
+
+    /**
+     * Receives and answers packets until the socket is closed.
+     */
+    private void run() {
+        byte[] buffer = new byte[ViscaCodec.MAX_PACKET_LENGTH];
+
+        while (!socket.isClosed()) {
+            DatagramPacket in = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(in);
+                packets.incrementAndGet();
+
+                if (dropPackets.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    continue;
+                }
+
+                int seq = ViscaCodec.sequence(buffer);
+                int type = ViscaCodec.type(buffer);
+                byte[] payload = ViscaCodec.payload(buffer, in.getLength());
+
+                if (type == ViscaCodec.TYPE_CONTROL) {
+                    lastSequence = -1;
+                    lastReplies = Arrays.asList(payload);
+                } else if (seq != lastSequence) {
+                    lastSequence = seq;
+                    lastReplies = execute(type, payload);
+                    executed.incrementAndGet();
+                }
+
+                if (dropReplies.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    continue;
+                }
+
+                int replyType = type == ViscaCodec.TYPE_CONTROL ? ViscaCodec.TYPE_CONTROL_REPLY : ViscaCodec.TYPE_REPLY;
+                for (byte[] reply : lastReplies) {
+                    byte[] packet = ViscaCodec.packet(replyType, seq, reply);
+                    socket.send(new DatagramPacket(packet, packet.length, in.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes a command or inquiry.
+     *
+     * @param type The payload type.
+     * @param p The payload.
+     * @return The replies to send.
+     */
+    private List<byte[]> execute(int type, byte[] p) {
+        if (type == ViscaCodec.TYPE_INQUIRY) {
+            return Arrays.asList(inquiry(p));
+        }
+
+        if (p.length == 15 && p[2] == 0x06 && (p[3] == 0x02 || p[3] == 0x03)) {
+            int newPan = (short) ViscaCodec.getNibbles(p, 6, 4);
+            int newTilt = (short) ViscaCodec.getNibbles(p, 10, 4);
+            pan = p[3] == 0x02 ? newPan : pan + newPan;
+            tilt = p[3] == 0x02 ? newTilt : tilt + newTilt;
+        } else if (p.length == 9 && p[2] == 0x06 && p[3] == 0x01) {
+            panDirection = p[6];
+            tiltDirection = p[7];
+        } else if (p.length == 9 && p[2] == 0x04 && p[3] == 0x47) {
+            zoom = ViscaCodec.getNibbles(p, 4, 4);
+        } else if (p.length == 9 && p[2] == 0x04 && p[3] == 0x48) {
+            if (autoFocus) {
+                return Arrays.asList(ViscaCodec.error(0x41));
+            }
+            focus = ViscaCodec.getNibbles(p, 4, 4);
+        } else if (p.length == 6 && p[2] == 0x04 && p[3] == 0x38) {
+            autoFocus = p[4] == 0x02;
+        } else if (p.length == 7 && p[2] == 0x04 && p[3] == 0x3F && p[5] < ViscaCameraConnection.PRESET_SLOTS) {
+            memory(p[4], p[5]);
+        } else {
+            return Arrays.asList(ViscaCodec.error(0x02));
+        }
+
+        return Arrays.asList(ViscaCodec.ack(), ViscaCodec.completion());
+    }
+
+    /**
+     * Answers an inquiry.
+     *
+     * @param p The payload of the inquiry.
+     * @return The reply.
+     */
+    private byte[] inquiry(byte[] p) {
+        byte[] data;
+
+        if (p[2] == 0x06 && p[3] == 0x12) {
+            data = new byte[8];
+            ViscaCodec.putNibbles(data, 0, 4, pan);
+            ViscaCodec.putNibbles(data, 4, 4, tilt);
+        } else if (p[2] == 0x04 && (p[3] == 0x47 || p[3] == 0x48)) {
+            data = new byte[4];
+            ViscaCodec.putNibbles(data, 0, 4, p[3] == 0x47 ? zoom : focus);
+        } else if (p[2] == 0x04 && p[3] == 0x38) {
+            data = new byte[] {(byte) (autoFocus ? 0x02 : 0x03)};
+        } else if (p[2] == 0x00 && p[3] == 0x02) {
+            data = new byte[] {0x00, 0x01, 0x05, 0x11, 0x01, 0x00, 0x02};
+        } else {
+            return ViscaCodec.error(0x02);
+        }
+
+        return ViscaCodec.completion(data);
+    }
+
+    /**
+     * Stores or recalls a preset memory.
+     *
+     * @param action 1 to store, 2 to recall.
+     * @param slot The number of the preset memory.
+     */
+    private void memory(int action, int slot) {
+        if (action == 0x01) {
+            presetPan[slot] = pan;
+            presetTilt[slot] = tilt;
+            presetZoom[slot] = zoom;
+            presetFocus[slot] = focus;
+        } else {
+            pan = presetPan[slot];
+            tilt = presetTilt[slot];
+            zoom = presetZoom[slot];
+            focus = presetFocus[slot];
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.tudelft.contextproject.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Class to test {@link FramePipeline}.
+ *
+ * @since 1.1
+ */
+public class FramePipelineTest {
+
+    private FramePipeline frames;
+
+    /**
+     * Creates a pipeline of small frames.
+     */
+    @Before
+    public void setUp() {
+        frames = new FramePipeline(2, 2);
+    }
+
+    /**
+     * Tests that a published frame is taken once.
+     */
+    @Test
+    public void testTakeOnce() {
+        assertNull(frames.takeLatest());
+
+        write(1);
+        ByteBuffer frame = frames.takeLatest();
+
+        assertEquals(1, frame.get(0));
+        assertEquals(0, frame.position());
+        assertNull(frames.takeLatest());
+        assertEquals(1, frames.getDisplayedCount());
+        assertEquals(0, frames.getDroppedCount());
+    }
+
+    /**
+     * Tests that only the newest frame is taken, and that the frames
+     * it replaced are counted as dropped.
+     */
+    @Test
+    public void testDropStaleFrames() {
+        write(1);
+        write(2);
+        write(3);
+
+        assertEquals(3, frames.takeLatest().get(0));
+        assertEquals(3, frames.getPublishedCount());
+        assertEquals(2, frames.getDroppedCount());
+        assertEquals(1, frames.getDisplayedCount());
+    }
+
+    /**
+     * Tests that the decoder never writes into the frame being displayed.
+     */
+    @Test
+    public void testBackBufferIsNotDisplayed() {
+        write(1);
+        ByteBuffer displayed = frames.takeLatest();
+
+        for (int i = 2; i < 10; i++) {
+            assertNotSame(displayed, frames.getBackBuffer());
+            write(i);
+        }
+        assertEquals(1, displayed.get(0));
+    }
+
+    /**
+     * Tests that the same three buffers are used over and over.
+     */
+    @Test
+    public void testBuffersAreReused() {
+        Set<ByteBuffer> seen = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+
+        for (int i = 0; i < 100; i++) {
+            seen.add(frames.getBackBuffer());
+            write(i);
+            if (i % 3 == 0) {
+                seen.add(frames.takeLatest());
+            }
+        }
+
+        assertEquals(FramePipeline.SLOTS, seen.size());
+        assertTrue(seen.iterator().next().isDirect());
+    }
+
+    /**
+     * Tests that the buffers fit a frame of the size of the pipeline.
+     */
+    @Test
+    public void testFrameSize() {
+        FramePipeline large = new FramePipeline(320, 180);
+
+        assertEquals(1280, large.getPitch());
+        assertEquals(1280 * 180, large.getFrameSize());
+        assertEquals(large.getFrameSize(), large.getBackBuffer().remaining());
+    }
+
+    /**
+     * Tests that the newest frame is copied whether or not it was taken,
+     * without taking it.
+     */
+    @Test
+    public void testCopyLatest() {
+        assertNull(frames.copyLatest());
+
+        write(1);
+        write(2);
+        byte[] copy = frames.copyLatest();
+        assertEquals(frames.getFrameSize(), copy.length);
+        assertEquals(2, copy[0]);
+        assertEquals(2, frames.takeLatest().get(0));
+
+        assertEquals(2, frames.copyLatest()[0]);
+        assertEquals(1, frames.getDisplayedCount());
+    }
+
+    /**
+     * Writes a frame filled with a value and publishes it.
+     * @param value The value of every byte in the frame.
+     */
+    private void write(int value) {
+        ByteBuffer frame = frames.getBackBuffer();
+        while (frame.hasRemaining()) {
+            frame.put((byte) value);
+        }
+        frames.publish();
+    }
+}
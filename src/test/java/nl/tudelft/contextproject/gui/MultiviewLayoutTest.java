@@ -0,0 +1,90 @@
+package nl.tudelft.contextproject.gui;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Class to test {@link MultiviewLayout}.
+ *
+ * @since 1.1
+ */
+public class MultiviewLayoutTest {
+
+    private static final double DELTA = 0.001;
+    private static final double RATIO = 0.5625;
+
+    /**
+     * Tests that a single tile fills the width of a wide area.
+     */
+    @Test
+    public void testSingleTile() {
+        MultiviewLayout layout = new MultiviewLayout(1, 1600, 900, RATIO);
+
+        assertEquals(1, layout.getColumns());
+        assertEquals(1, layout.getRows());
+        assertEquals(1600, layout.getTileWidth(), DELTA);
+        assertEquals(900, layout.getTileHeight(), DELTA);
+    }
+
+    /**
+     * Tests that four tiles in an area of the same ratio form a square grid.
+     */
+    @Test
+    public void testSquareGrid() {
+        MultiviewLayout layout = new MultiviewLayout(4, 1600, 900, RATIO);
+
+        assertEquals(2, layout.getColumns());
+        assertEquals(2, layout.getRows());
+        assertEquals(800, layout.getTileWidth(), DELTA);
+        assertEquals(800, layout.getX(3), DELTA);
+        assertEquals(450, layout.getY(3), DELTA);
+    }
+
+    /**
+     * Tests that a wide, low area places the tiles next to each other.
+     */
+    @Test
+    public void testWideArea() {
+        MultiviewLayout layout = new MultiviewLayout(3, 1800, 300, RATIO);
+
+        assertEquals(3, layout.getColumns());
+        assertEquals(1, layout.getRows());
+    }
+
+    /**
+     * Tests that a grid that does not fill the area is centered.
+     */
+    @Test
+    public void testCentered() {
+        MultiviewLayout layout = new MultiviewLayout(2, 1600, 600, RATIO);
+
+        assertEquals(2, layout.getColumns());
+        assertEquals(800, layout.getTileWidth(), DELTA);
+        assertEquals(75, layout.getY(0), DELTA);
+    }
+
+    /**
+     * Tests that a position is mapped to the tile under it.
+     */
+    @Test
+    public void testIndexAt() {
+        MultiviewLayout layout = new MultiviewLayout(3, 1600, 900, RATIO);
+
+        assertEquals(0, layout.indexAt(10, 10));
+        assertEquals(1, layout.indexAt(810, 10));
+        assertEquals(2, layout.indexAt(10, 460));
+        assertEquals(-1, layout.indexAt(810, 460));
+        assertEquals(-1, layout.indexAt(-1, 10));
+    }
+
+    /**
+     * Tests that an empty grid has no tiles.
+     */
+    @Test
+    public void testEmpty() {
+        MultiviewLayout layout = new MultiviewLayout(0, 1600, 900, RATIO);
+
+        assertEquals(-1, layout.indexAt(10, 10));
+    }
+}
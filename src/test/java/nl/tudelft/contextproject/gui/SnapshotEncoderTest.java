@@ -0,0 +1,87 @@
+package nl.tudelft.contextproject.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Class to test {@link SnapshotEncoder}.
+ *
+ * @since 1.1
+ */
+public class SnapshotEncoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a frame in BGRA order is converted to the right colors.
+     */
+    @Test
+    public void testToImage() {
+        byte[] frame = {10, 20, 30, 0, (byte) 255, 0, (byte) 128, 0};
+        BufferedImage image = SnapshotEncoder.toImage(frame, 2, 1);
+
+        assertEquals(0xFF1E140A, image.getRGB(0, 0));
+        assertEquals(0xFF8000FF, image.getRGB(1, 0));
+    }
+
+    /**
+     * Tests that a scaled image keeps the aspect ratio.
+     */
+    @Test
+    public void testScale() {
+        BufferedImage scaled = SnapshotEncoder.scale(new BufferedImage(640, 360, BufferedImage.TYPE_INT_RGB), 160);
+
+        assertEquals(160, scaled.getWidth());
+        assertEquals(90, scaled.getHeight());
+    }
+
+    /**
+     * Tests that the width of a thumbnail is put before the extension.
+     */
+    @Test
+    public void testThumbnailLocation() {
+        assertEquals("snapShots/cam0preset1-320.png", SnapshotEncoder.thumbnailLocation("snapShots/cam0preset1.png", 320));
+        assertEquals("snap.d/cam0-160", SnapshotEncoder.thumbnailLocation("snap.d/cam0", 160));
+    }
+
+    /**
+     * Tests that the image and its thumbnails are stored in the background.
+     * @throws Exception when the images cannot be read.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        String location = new File(folder.getRoot(), "cam0preset1.png").getPath();
+
+        assertTrue(SnapshotEncoder.write(new byte[640 * 360 * 4], 640, 360, location).get());
+
+        assertEquals(640, ImageIO.read(new File(location)).getWidth());
+        for (int width : SnapshotEncoder.THUMBNAIL_WIDTHS) {
+            BufferedImage thumbnail = ImageIO.read(new File(SnapshotEncoder.thumbnailLocation(location, width)));
+            assertEquals(width, thumbnail.getWidth());
+        }
+    }
+
+    /**
+     * Tests that a snapshot that cannot be stored completes with false.
+     * @throws Exception when the future fails.
+     */
+    @Test
+    public void testWriteFailure() throws Exception {
+        File missing = new File(folder.getRoot(), "missing");
+        String location = new File(missing, "cam0preset1.png").getPath();
+
+        assertFalse(SnapshotEncoder.write(new byte[16 * 16 * 4], 16, 16, location).get());
+    }
+}
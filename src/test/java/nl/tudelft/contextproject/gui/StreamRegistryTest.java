@@ -0,0 +1,135 @@
+package nl.tudelft.contextproject.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to test {@link StreamRegistry}, with sessions that do not decode.
+ *
+ * @since 1.1
+ */
+public class StreamRegistryTest {
+
+    private static final long GRACE = 100;
+
+    private List<CountingSession> created;
+    private StreamRegistry registry;
+
+    /**
+     * Creates a registry of counting sessions with a short grace period.
+     */
+    @Before
+    public void setUp() {
+        created = new ArrayList<CountingSession>();
+        registry = new StreamRegistry(link -> {
+            CountingSession session = new CountingSession(link);
+            created.add(session);
+            return session;
+        }, GRACE);
+    }
+
+    /**
+     * Tests that a stream is opened once for every subscriber.
+     */
+    @Test
+    public void testSharedSession() {
+        StreamSession first = registry.acquire("rtsp://cam1");
+        StreamSession second = registry.acquire("rtsp://cam1");
+        StreamSession other = registry.acquire("rtsp://cam2");
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, first.getSubscriberCount());
+        assertEquals(2, created.size());
+        assertEquals(1, created.get(0).opened);
+    }
+
+    /**
+     * Tests that a session stays open while it has subscribers, and for the
+     * grace period after the last one left.
+     * @throws InterruptedException when the test is interrupted.
+     */
+    @Test
+    public void testGracePeriod() throws InterruptedException {
+        StreamSession first = registry.acquire("rtsp://cam1");
+        registry.acquire("rtsp://cam1");
+
+        registry.release(first);
+        registry.release(first);
+        assertSame(first, registry.getSession("rtsp://cam1"));
+        assertEquals(0, created.get(0).closed);
+
+        Thread.sleep(GRACE * 3);
+        assertNull(registry.getSession("rtsp://cam1"));
+        assertEquals(1, created.get(0).closed);
+    }
+
+    /**
+     * Tests that a session acquired again within the grace period is not reopened.
+     * @throws InterruptedException when the test is interrupted.
+     */
+    @Test
+    public void testWarmReacquire() throws InterruptedException {
+        StreamSession first = registry.acquire("rtsp://cam1");
+        registry.release(first);
+
+        Thread.sleep(GRACE / 2);
+        assertSame(first, registry.acquire("rtsp://cam1"));
+
+        Thread.sleep(GRACE * 2);
+        assertSame(first, registry.getSession("rtsp://cam1"));
+        assertEquals(1, created.size());
+        assertEquals(1, created.get(0).opened);
+        assertEquals(0, created.get(0).closed);
+    }
+
+    /**
+     * Tests that every session is closed at once by closeAll.
+     */
+    @Test
+    public void testCloseAll() {
+        registry.acquire("rtsp://cam1");
+        registry.acquire("rtsp://cam2");
+
+        registry.closeAll();
+
+        assertNull(registry.getSession("rtsp://cam1"));
+        assertEquals(1, created.get(0).closed);
+        assertEquals(1, created.get(1).closed);
+    }
+
+    /**
+     * Session that counts how often it is opened and closed.
+     */
+    private static class CountingSession extends StreamSession {
+
+        private int opened;
+        private int closed;
+
+        /**
+         * Creates a counting session.
+         * @param streamLink The link to the stream.
+         */
+        CountingSession(String streamLink) {
+            super(streamLink);
+        }
+
+        @Override
+        protected void open() {
+            opened++;
+        }
+
+        @Override
+        protected void close() {
+            closed++;
+        }
+    }
+}
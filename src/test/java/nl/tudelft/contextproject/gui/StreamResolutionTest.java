@@ -0,0 +1,64 @@
+package nl.tudelft.contextproject.gui;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+/**
+ * Class to test {@link StreamResolution}.
+ *
+ * @since 1.1
+ */
+public class StreamResolutionTest {
+
+    /**
+     * Tests that a small view is decoded at its own size.
+     */
+    @Test
+    public void testSmallView() {
+        assertArrayEquals(new int[] {320, 176}, StreamResolution.fit(320, 180, 1920, 1080, 1920, 1080));
+    }
+
+    /**
+     * Tests that a view larger than the ceiling is decoded at the ceiling.
+     */
+    @Test
+    public void testCeiling() {
+        assertArrayEquals(new int[] {960, 544}, StreamResolution.fit(2560, 1440, 1920, 1080, 960, 540));
+    }
+
+    /**
+     * Tests that a stream is never decoded at more than the resolution of its source.
+     */
+    @Test
+    public void testSourceLimit() {
+        assertArrayEquals(new int[] {640, 480}, StreamResolution.fit(1600, 1200, 640, 480, 1920, 1080));
+    }
+
+    /**
+     * Tests that the aspect ratio of the source is kept when the view has another shape.
+     */
+    @Test
+    public void testAspectRatio() {
+        assertArrayEquals(new int[] {400, 224}, StreamResolution.fit(400, 400, 1920, 1080, 1920, 1080));
+        assertArrayEquals(new int[] {352, 208}, StreamResolution.fit(1000, 200, 1920, 1080, 1920, 1080));
+    }
+
+    /**
+     * Tests that the ceiling is used before the view and source are known.
+     */
+    @Test
+    public void testUnknownSize() {
+        assertArrayEquals(new int[] {1280, 720}, StreamResolution.fit(0, 0, 0, 0, 1280, 720));
+    }
+
+    /**
+     * Tests that small differences in size give the same resolution.
+     */
+    @Test
+    public void testRounding() {
+        assertArrayEquals(StreamResolution.fit(320, 180, 1920, 1080, 1920, 1080),
+                StreamResolution.fit(323, 182, 1920, 1080, 1920, 1080));
+        assertArrayEquals(new int[] {16, 16}, StreamResolution.fit(4, 2, 1920, 1080, 1920, 1080));
+    }
+}
@@ -20,6 +20,8 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to test Script class.
@@ -246,4 +248,125 @@ public class ScriptTest {
         script1.next();
         assertEquals(1, script1.getCurrent());
     }
+
+    /**
+     * Tests that presets are loaded on all cameras at the same time, and
+     * that the handle completes once the slowest camera is ready.
+     * @throws Exception when loading the presets fails.
+     */
+    @Test
+    public void testInitPresetLoadingConcurrent() throws Exception {
+        cam0.setConnection(new SlowConnection(200, true));
+        cam1.setConnection(new SlowConnection(300, true));
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Boolean> ready = script1.initPresetLoading();
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertEquals(ready, script1.getCamerasReady());
+
+        assertTrue(ready.get(1, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 450);
+    }
+
+    /**
+     * Tests that the handle reports a camera that did not reach its preset.
+     * @throws Exception when loading the presets fails.
+     */
+    @Test
+    public void testCamerasNotReady() throws Exception {
+        cam1.setConnection(new SlowConnection(0, false));
+
+        assertFalse(script1.initPresetLoading().get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that adjusting the cameras moves all cameras but the live one,
+     * and keeps the timelines intact.
+     * @throws Exception when adjusting the cameras fails.
+     */
+    @Test
+    public void testAdjustAllCameras() throws Exception {
+        script1.next();
+
+        assertTrue(script1.adjustAllCameras().get(1, TimeUnit.SECONDS));
+        assertEquals(new CameraSettings(1, 3, 2, 5), cam1.getSettings());
+        assertNotNull(script1.getTimeline(cam1.getNumber()));
+    }
+
+    /**
+     * Tests that the cameras get the time the slowest camera needs to load
+     * their presets, so the others move slower and all arrive together.
+     * @throws Exception when loading the presets fails.
+     */
+    @Test
+    public void testInitPresetLoadingPlanned() throws Exception {
+        PlannedConnection fast = new PlannedConnection(200);
+        PlannedConnection slow = new PlannedConnection(500);
+        cam0.setConnection(fast);
+        cam1.setConnection(slow);
+
+        assertTrue(script1.initPresetLoading().get(1, TimeUnit.SECONDS));
+        assertEquals(500, fast.duration);
+        assertEquals(500, slow.duration);
+    }
+
+    /**
+     * Mocked connection that takes a while to apply settings.
+     */
+    private static class SlowConnection extends MockedCameraConnection {
+
+        private final long delay;
+        private final boolean result;
+
+        /**
+         * Creates a connection that applies settings after a delay.
+         * 
+         * @param delay The time in milliseconds it takes to apply settings.
+         * @param result Whether applying the settings succeeds.
+         */
+        private SlowConnection(long delay, boolean result) {
+            this.delay = delay;
+            this.result = result;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }, task -> new Thread(task).start());
+        }
+    }
+
+    /**
+     * Mocked connection that records the time its moves were given.
+     */
+    private static class PlannedConnection extends MockedCameraConnection {
+
+        private final long travelTime;
+        private volatile long duration = -1;
+
+        /**
+         * Creates a connection whose moves take a fixed time at full speed.
+         * @param travelTime The time in milliseconds a move takes at full speed.
+         */
+        private PlannedConnection(long travelTime) {
+            this.travelTime = travelTime;
+        }
+
+        @Override
+        public long estimateTravelTime(CameraSettings target) {
+            return travelTime;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> applySettingsAsync(CameraSettings settings, long duration) {
+            this.duration = duration;
+            return super.applySettingsAsync(settings, duration);
+        }
+    }
 }